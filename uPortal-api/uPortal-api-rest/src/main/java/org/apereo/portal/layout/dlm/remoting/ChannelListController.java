@@ -48,6 +48,7 @@ import org.apereo.portal.security.IAuthorizationPrincipal;
 import org.apereo.portal.security.IAuthorizationService;
 import org.apereo.portal.security.IPerson;
 import org.apereo.portal.security.IPersonManager;
+import org.apereo.portal.security.provider.BrowseablePortletsIndex;
 import org.apereo.portal.services.AuthorizationServiceFacade;
 import org.apereo.portal.spring.spel.IPortalSpELService;
 import org.apereo.portal.user.IUserInstance;
@@ -98,6 +99,8 @@ public class ChannelListController {
 
     @Autowired private IMarketplaceService marketplaceService;
 
+    @Autowired private BrowseablePortletsIndex browseablePortletsIndex;
+
     /** @param portletDefinitionRegistry The portlet registry bean */
     @Autowired
     public void setPortletDefinitionRegistry(IPortletDefinitionRegistry portletDefinitionRegistry) {
@@ -291,6 +294,8 @@ public class ChannelListController {
         EntityIdentifier ei = user.getEntityIdentifier();
         IAuthorizationPrincipal ap =
                 AuthorizationServiceFacade.instance().newPrincipal(ei.getKey(), ei.getType());
+        final Set<String> browseablePortletIds =
+                browseablePortletsIndex.getBrowseablePortletIds(ap);
 
         // construct a new channel category bean for this category
         String uncategorizedString =
@@ -302,7 +307,7 @@ public class ChannelListController {
                 messageSource.getMessage(UNCATEGORIZED_DESC, new Object[] {}, locale));
 
         for (IPortletDefinition portlet : portletsNotYetCategorized) {
-            if (authorizationService.canPrincipalBrowse(ap, portlet)) {
+            if (browseablePortletIds.contains(portlet.getPortletDefinitionId().getStringId())) {
                 // construct a new channel bean from this channel
                 ChannelBean channel = getChannel(portlet, request, locale, user);
                 uncategorizedPortletsBean.addChannel(channel);
@@ -331,10 +336,12 @@ public class ChannelListController {
         EntityIdentifier ei = user.getEntityIdentifier();
         IAuthorizationPrincipal ap =
                 AuthorizationServiceFacade.instance().newPrincipal(ei.getKey(), ei.getType());
+        final Set<String> browseablePortletIds =
+                browseablePortletsIndex.getBrowseablePortletIds(ap);
 
         for (IPortletDefinition portlet : portlets) {
 
-            if (authorizationService.canPrincipalBrowse(ap, portlet)) {
+            if (browseablePortletIds.contains(portlet.getPortletDefinitionId().getStringId())) {
                 // construct a new channel bean from this channel
                 ChannelBean channel = getChannel(portlet, request, locale, user);
                 categoryBean.addChannel(channel);
@@ -432,10 +439,13 @@ public class ChannelListController {
             EntityIdentifier ei = user.getEntityIdentifier();
             IAuthorizationPrincipal ap =
                     AuthorizationServiceFacade.instance().newPrincipal(ei.getKey(), ei.getType());
+            final Set<String> browseablePortletIds =
+                    browseablePortletsIndex.getBrowseablePortletIds(ap);
 
             Set<PortletDefinitionBean> marketplacePortlets = new HashSet<>();
             for (IPortletDefinition portlet : portletsNotYetCategorized) {
-                if (authorizationService.canPrincipalBrowse(ap, portlet)) {
+                if (browseablePortletIds.contains(
+                        portlet.getPortletDefinitionId().getStringId())) {
                     PortletDefinitionBean pdb =
                             preparePortletDefinitionBean(
                                     request, portlet, locale, favorites.contains(portlet));
@@ -486,11 +496,13 @@ public class ChannelListController {
         EntityIdentifier ei = user.getEntityIdentifier();
         IAuthorizationPrincipal ap =
                 AuthorizationServiceFacade.instance().newPrincipal(ei.getKey(), ei.getType());
+        final Set<String> browseablePortletIds =
+                browseablePortletsIndex.getBrowseablePortletIds(ap);
 
         Set<PortletDefinitionBean> marketplacePortlets = new HashSet<>();
         for (IPortletDefinition portlet : portlets) {
 
-            if (authorizationService.canPrincipalBrowse(ap, portlet)) {
+            if (browseablePortletIds.contains(portlet.getPortletDefinitionId().getStringId())) {
                 PortletDefinitionBean pdb =
                         preparePortletDefinitionBean(
                                 req, portlet, locale, favorites.contains(portlet));
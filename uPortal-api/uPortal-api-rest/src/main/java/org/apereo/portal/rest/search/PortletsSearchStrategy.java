@@ -26,13 +26,10 @@ import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletRequest;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
-import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TopDocs;
-import org.apache.lucene.store.Directory;
 import org.apereo.portal.UserPreferencesManager;
 import org.apereo.portal.index.PortalSearchIndexer;
 import org.apereo.portal.index.SearchField;
@@ -66,7 +63,7 @@ public class PortletsSearchStrategy implements ISearchStrategy {
 
     private boolean displayFavoriteFlag;
 
-    @Autowired private Directory directory;
+    @Autowired private PortalSearchIndexer portalSearchIndexer;
 
     @Autowired private IPortletDefinitionRegistry portletDefinitionRegistry;
 
@@ -110,10 +107,21 @@ public class PortletsSearchStrategy implements ISearchStrategy {
         final List<Object> result = new ArrayList<>();
         final Set<IPortletDefinition> favorites = getFavorites(request);
 
-        try (IndexReader indexReader = DirectoryReader.open(directory)) {
+        final IndexSearcher searcher;
+        try {
+            searcher = portalSearchIndexer.acquireSearcher();
+        } catch (IOException e) {
+            logger.warn("Failed to search portal content for query='{}'", query, e);
+            return result;
+        }
+        if (searcher == null) {
+            logger.debug("Search indexing is disabled;  no portlets match query='{}'", query);
+            return result;
+        }
+
+        try {
             final String queryString = query.endsWith(" ") ? query : query + "*";
             final Query q = queryParser.parse(queryString);
-            final IndexSearcher searcher = new IndexSearcher(indexReader);
             final TopDocs topDocs = searcher.search(q, 50);
             Arrays.stream(topDocs.scoreDocs)
                     .forEach(
@@ -161,6 +169,12 @@ public class PortletsSearchStrategy implements ISearchStrategy {
         } catch (Exception e) {
             // Log a warning, but don't prevent other search strategies from succeeding...
             logger.warn("Failed to search portal content for query='{}'", query, e);
+        } finally {
+            try {
+                portalSearchIndexer.releaseSearcher(searcher);
+            } catch (IOException e) {
+                logger.warn("Failed to release the index searcher", e);
+            }
         }
 
         return result;
@@ -0,0 +1,60 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.portlet.dao;
+
+import org.apache.commons.lang3.Validate;
+import org.apereo.portal.portlet.om.IPortletDefinition;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by the {@link IPortletDefinitionDao} when a portlet definition is saved, merged, or
+ * deleted. The event is published from within the DAO call, so listeners that need the change to
+ * be committed should treat it as a hint and re-read the definition later.
+ */
+public class PortletDefinitionChangedEvent extends ApplicationEvent {
+
+    private final IPortletDefinition portletDefinition;
+    private final boolean deleted;
+
+    /**
+     * @param source the component that published the event (never <code>null</code>)
+     * @param portletDefinition the non-null portlet definition that changed
+     * @param deleted true if the portlet definition was deleted
+     */
+    public PortletDefinitionChangedEvent(
+            Object source, IPortletDefinition portletDefinition, boolean deleted) {
+        super(source);
+        Validate.notNull(portletDefinition, "portletDefinition can not be null");
+        this.portletDefinition = portletDefinition;
+        this.deleted = deleted;
+    }
+
+    public IPortletDefinition getPortletDefinition() {
+        return portletDefinition;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    @Override
+    public String toString() {
+        return "PortletDefinitionChangedEvent [fname="
+                + portletDefinition.getFName()
+                + ", deleted="
+                + deleted
+                + "]";
+    }
+}
@@ -14,6 +14,7 @@
  */
 package org.apereo.portal.events;
 
+import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
 import org.apereo.portal.security.IPerson;
 
@@ -22,5 +23,16 @@ public interface IPortalAuthEventFactory {
 
     void publishLoginEvent(HttpServletRequest request, Object source, IPerson person);
 
+    /**
+     * Publish a login event that also records how long each phase of the login took.
+     *
+     * @param phaseTimes Milliseconds spent in each login phase, keyed by phase name
+     */
+    void publishLoginEvent(
+            HttpServletRequest request,
+            Object source,
+            IPerson person,
+            Map<String, Long> phaseTimes);
+
     void publishLogoutEvent(HttpServletRequest request, Object source, IPerson person);
 }
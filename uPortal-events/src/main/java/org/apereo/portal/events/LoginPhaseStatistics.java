@@ -0,0 +1,170 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.events;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps a latency histogram for each login phase reported by {@link LoginEvent#getPhaseTimes()}
+ * and exposes the histograms, averages, maximums and estimated 99th percentiles over JMX.
+ */
+@Component
+@ManagedResource("uPortal:section=Authentication,name=LoginPhaseStatistics")
+public class LoginPhaseStatistics implements ApplicationListener<LoginEvent> {
+    /** Upper bounds, in milliseconds, of the histogram buckets. The last bucket is unbounded. */
+    static final long[] BUCKET_BOUNDS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final ConcurrentMap<String, PhaseHistogram> phases = new ConcurrentHashMap<>();
+
+    @Override
+    public void onApplicationEvent(LoginEvent event) {
+        for (final Map.Entry<String, Long> phaseTime : event.getPhaseTimes().entrySet()) {
+            this.phases
+                    .computeIfAbsent(phaseTime.getKey(), phase -> new PhaseHistogram())
+                    .record(phaseTime.getValue());
+        }
+    }
+
+    /** @return Number of logins that reported each phase, keyed by histogram bucket */
+    @ManagedAttribute
+    public Map<String, Map<String, Long>> getPhaseHistograms() {
+        final Map<String, Map<String, Long>> histograms = new TreeMap<>();
+        for (final Map.Entry<String, PhaseHistogram> phase : this.phases.entrySet()) {
+            histograms.put(phase.getKey(), phase.getValue().getBuckets());
+        }
+        return histograms;
+    }
+
+    /** @return Average milliseconds spent in each phase */
+    @ManagedAttribute
+    public Map<String, Double> getPhaseAverageTimes() {
+        final Map<String, Double> averages = new TreeMap<>();
+        for (final Map.Entry<String, PhaseHistogram> phase : this.phases.entrySet()) {
+            averages.put(phase.getKey(), phase.getValue().getAverage());
+        }
+        return averages;
+    }
+
+    /** @return Longest time in milliseconds spent in each phase */
+    @ManagedAttribute
+    public Map<String, Long> getPhaseMaxTimes() {
+        final Map<String, Long> maximums = new TreeMap<>();
+        for (final Map.Entry<String, PhaseHistogram> phase : this.phases.entrySet()) {
+            maximums.put(phase.getKey(), phase.getValue().max.get());
+        }
+        return maximums;
+    }
+
+    /**
+     * @return Upper bound of the histogram bucket holding the 99th percentile of each phase, the
+     *     maximum time if that is the unbounded bucket
+     */
+    @ManagedAttribute
+    public Map<String, Long> getPhaseP99Times() {
+        final Map<String, Long> percentiles = new TreeMap<>();
+        for (final Map.Entry<String, PhaseHistogram> phase : this.phases.entrySet()) {
+            percentiles.put(phase.getKey(), phase.getValue().getPercentile(0.99));
+        }
+        return percentiles;
+    }
+
+    @ManagedOperation(description = "Discard all recorded login phase times")
+    public void reset() {
+        this.phases.clear();
+    }
+
+    /** @return The recorded times of a phase, null if no login reported the phase */
+    PhaseHistogram getPhaseHistogram(String phase) {
+        return this.phases.get(phase);
+    }
+
+    static final class PhaseHistogram {
+        private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS.length + 1];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        PhaseHistogram() {
+            for (int i = 0; i < this.buckets.length; i++) {
+                this.buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long time) {
+            int index = Arrays.binarySearch(BUCKET_BOUNDS, time);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            this.buckets[index].increment();
+            this.count.increment();
+            this.total.add(time);
+            this.max.accumulateAndGet(time, Math::max);
+        }
+
+        long getCount() {
+            return this.count.sum();
+        }
+
+        double getAverage() {
+            final long count = this.count.sum();
+            return count == 0 ? 0.0 : (double) this.total.sum() / count;
+        }
+
+        long getPercentile(double percentile) {
+            final long[] counts = new long[this.buckets.length];
+            long count = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = this.buckets[i].sum();
+                count += counts[i];
+            }
+            if (count == 0) {
+                return 0;
+            }
+
+            final long rank = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return BUCKET_BOUNDS[i];
+                }
+            }
+            return this.max.get();
+        }
+
+        Map<String, Long> getBuckets() {
+            final Map<String, Long> buckets = new LinkedHashMap<>();
+            for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+                buckets.put("<=" + BUCKET_BOUNDS[i] + "ms", this.buckets[i].sum());
+            }
+            buckets.put(
+                    ">" + BUCKET_BOUNDS[BUCKET_BOUNDS.length - 1] + "ms",
+                    this.buckets[BUCKET_BOUNDS.length].sum());
+            return buckets;
+        }
+    }
+}
@@ -73,6 +73,7 @@ public class PortalEventFactoryImpl implements IPortalEventFactory, ApplicationE
             PortalEventFactoryImpl.class.getName() + ".EVENT_SESSION_MUTEX";
     private static final String EVENT_SESSION_ID_ATTR =
             PortalEventFactoryImpl.class.getName() + ".EVENT_SESSION_ID_ATTR";
+    private static final String GROUPS_LOGIN_PHASE = "groups";
 
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
@@ -185,13 +186,28 @@ public class PortalEventFactoryImpl implements IPortalEventFactory, ApplicationE
 
     @Override
     public void publishLoginEvent(HttpServletRequest request, Object source, IPerson person) {
+        this.publishLoginEvent(request, source, person, Collections.<String, Long>emptyMap());
+    }
+
+    @Override
+    public void publishLoginEvent(
+            HttpServletRequest request,
+            Object source,
+            IPerson person,
+            Map<String, Long> phaseTimes) {
         final PortalEvent.PortalEventBuilder portalEventBuilder =
                 this.createPortalEventBuilder(source, person, request);
 
+        // Group membership is resolved here for the first time after login, time it as a phase
+        final long groupsStart = System.currentTimeMillis();
         final Set<String> groups = this.getGroupsForUser(person);
+        final Map<String, Long> loginPhaseTimes = new LinkedHashMap<>(phaseTimes);
+        loginPhaseTimes.put(GROUPS_LOGIN_PHASE, System.currentTimeMillis() - groupsStart);
+
         final Map<String, List<String>> attributes = this.getAttributesForUser(person);
 
-        final LoginEvent loginEvent = new LoginEvent(portalEventBuilder, groups, attributes);
+        final LoginEvent loginEvent =
+                new LoginEvent(portalEventBuilder, groups, attributes, loginPhaseTimes);
         this.applicationEventPublisher.publishEvent(loginEvent);
     }
 
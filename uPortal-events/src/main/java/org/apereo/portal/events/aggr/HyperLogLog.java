@@ -0,0 +1,181 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.events.aggr;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * HyperLogLog sketch used to estimate the number of unique strings seen without keeping the
+ * strings. The sketch uses <code>2^precision</code> one byte registers and has a standard error of
+ * about <code>1.04 / sqrt(2^precision)</code>, for example 4KB and 1.6% at precision 12 or 16KB and
+ * 0.8% at precision 14. Sketches of the same precision can be merged to get the estimate for the
+ * union of the strings they have seen.
+ *
+ * <p>Not thread safe.
+ */
+public final class HyperLogLog implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final int precision;
+    private final byte[] registers;
+
+    /*
+     * Sum of 2^-register and number of zero registers, kept up to date by add and merge so the
+     * estimate doesn't have to read every register. The terms are powers of two, so updating the
+     * sum is exact for the register values reached in practice.
+     */
+    private double inverseSum;
+    private int zeroRegisters;
+
+    /** Create an empty sketch with the specified precision */
+    public HyperLogLog(int precision) {
+        Validate.inclusiveBetween(
+                MIN_PRECISION, MAX_PRECISION, precision, "precision must be between 4 and 18");
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+        this.inverseSum = this.registers.length;
+        this.zeroRegisters = this.registers.length;
+    }
+
+    private HyperLogLog(byte[] registers) {
+        final int precision = Integer.numberOfTrailingZeros(registers.length);
+        Validate.isTrue(
+                registers.length == 1 << precision
+                        && precision >= MIN_PRECISION
+                        && precision <= MAX_PRECISION,
+                "Invalid register count: %s",
+                registers.length);
+        this.precision = precision;
+        this.registers = registers;
+
+        for (final byte register : registers) {
+            this.inverseSum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                this.zeroRegisters++;
+            }
+        }
+    }
+
+    /** Create a sketch from a copy of the registers returned by {@link #toByteArray()} */
+    public static HyperLogLog fromByteArray(byte[] registers) {
+        return new HyperLogLog(registers.clone());
+    }
+
+    /**
+     * Create a sketch that reads and updates the specified registers directly, used by entities
+     * that persist the registers themselves.
+     */
+    static HyperLogLog wrap(byte[] registers) {
+        return new HyperLogLog(registers);
+    }
+
+    /** @return The registers backing this sketch, changes to the sketch are visible in the array */
+    byte[] getRegisters() {
+        return this.registers;
+    }
+
+    public int getPrecision() {
+        return this.precision;
+    }
+
+    /** @return true if the sketch changed, false if the string was already (probably) seen */
+    public boolean add(String value) {
+        final long hash = HASH_FUNCTION.hashString(value, StandardCharsets.UTF_8).asLong();
+
+        // The top bits select the register, the rank is the position of the first set bit in the
+        // remaining bits
+        final int index = (int) (hash >>> (Long.SIZE - this.precision));
+        final long remaining = hash << this.precision;
+        final int rank =
+                Math.min(Long.numberOfLeadingZeros(remaining), Long.SIZE - this.precision) + 1;
+
+        if (rank > this.registers[index]) {
+            this.setRegister(index, (byte) rank);
+            return true;
+        }
+        return false;
+    }
+
+    private void setRegister(int index, byte value) {
+        final byte previous = this.registers[index];
+        this.inverseSum += Math.scalb(1.0, -value) - Math.scalb(1.0, -previous);
+        if (previous == 0) {
+            this.zeroRegisters--;
+        }
+        this.registers[index] = value;
+    }
+
+    /** @return The estimated number of unique strings added to this sketch */
+    public long cardinality() {
+        final int registerCount = this.registers.length;
+        final double estimate =
+                getAlpha(registerCount) * registerCount * registerCount / this.inverseSum;
+
+        // Linear counting is more accurate while many registers are still empty
+        if (estimate <= 2.5 * registerCount && this.zeroRegisters > 0) {
+            return Math.round(
+                    registerCount * Math.log((double) registerCount / this.zeroRegisters));
+        }
+
+        return Math.round(estimate);
+    }
+
+    /** Add all strings seen by the other sketch to this sketch, the precisions must match */
+    public void merge(HyperLogLog other) {
+        Validate.isTrue(
+                this.precision == other.precision,
+                "Cannot merge sketches of precision %s and %s",
+                this.precision,
+                other.precision);
+
+        for (int index = 0; index < this.registers.length; index++) {
+            if (other.registers[index] > this.registers[index]) {
+                this.setRegister(index, other.registers[index]);
+            }
+        }
+    }
+
+    /** @return A copy of the registers, suitable for {@link #fromByteArray(byte[])} */
+    public byte[] toByteArray() {
+        return this.registers.clone();
+    }
+
+    private static double getAlpha(int registerCount) {
+        switch (registerCount) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / registerCount);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HyperLogLog [precision=" + precision + ", cardinality=" + cardinality() + "]";
+    }
+}
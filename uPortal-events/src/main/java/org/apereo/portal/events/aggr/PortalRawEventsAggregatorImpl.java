@@ -220,6 +220,20 @@ public class PortalRawEventsAggregatorImpl extends BaseAggrEventsJpaDao
         this.shutdown = true;
     }
 
+    /**
+     * Throws if the current thread no longer owns the aggregation lock, including when the lock
+     * lease ran out and the lock has been acquired again since. Throwing rolls back the
+     * aggregation transaction.
+     */
+    private void checkLockOwner() {
+        if (!this.clusterLockService.isLockOwner(AGGREGATION_LOCK_NAME)) {
+            throw new IllegalStateException(
+                    "The cluster lock "
+                            + AGGREGATION_LOCK_NAME
+                            + " must be owned by the current thread and server");
+        }
+    }
+
     private void checkShutdown() {
         if (shutdown) {
             // Mark ourselves as interupted and throw an exception
@@ -279,12 +293,7 @@ public class PortalRawEventsAggregatorImpl extends BaseAggrEventsJpaDao
     @Override
     @AggrEventsTransactional
     public EventProcessingResult doCloseAggregations() {
-        if (!this.clusterLockService.isLockOwner(AGGREGATION_LOCK_NAME)) {
-            throw new IllegalStateException(
-                    "The cluster lock "
-                            + AGGREGATION_LOCK_NAME
-                            + " must be owned by the current thread and server");
-        }
+        checkLockOwner();
 
         final IEventAggregatorStatus cleanUnclosedStatus =
                 eventAggregationManagementDao.getEventAggregatorStatus(
@@ -441,6 +450,9 @@ public class PortalRawEventsAggregatorImpl extends BaseAggrEventsJpaDao
             currentThread.setName(currentName);
         }
 
+        // Don't commit if the lock lease ran out while closing aggregations
+        checkLockOwner();
+
         // Update the status object and store it
         cleanUnclosedStatus.setLastEventDate(cleanUnclosedEnd);
         cleanUnclosedStatus.setLastEnd(new DateTime());
@@ -481,12 +493,7 @@ public class PortalRawEventsAggregatorImpl extends BaseAggrEventsJpaDao
     }
 
     private EventProcessingResult doAggregateRawEventsInternal() {
-        if (!this.clusterLockService.isLockOwner(AGGREGATION_LOCK_NAME)) {
-            throw new IllegalStateException(
-                    "The cluster lock "
-                            + AGGREGATION_LOCK_NAME
-                            + " must be owned by the current thread and server");
-        }
+        checkLockOwner();
 
         if (!this.portalEventDimensionPopulator.isCheckedDimensions()) {
             // First time aggregation has happened, run populateDimensions to ensure enough
@@ -578,6 +585,10 @@ public class PortalRawEventsAggregatorImpl extends BaseAggrEventsJpaDao
             currentThread.setName(currentName);
         }
 
+        // Don't commit if the lock lease ran out during aggregation, another server may have
+        // aggregated the same events since
+        checkLockOwner();
+
         // Store the results of the aggregation
         eventAggregationManagementDao.updateEventAggregatorStatus(eventAggregatorStatus);
 
@@ -27,11 +27,13 @@ import javax.persistence.Id;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.JoinColumn;
+import javax.persistence.Lob;
 import javax.persistence.OneToMany;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.TableGenerator;
 import javax.persistence.Transient;
+import org.apache.commons.lang3.Validate;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Fetch;
@@ -44,6 +46,9 @@ import org.slf4j.LoggerFactory;
  * that needs to maintain a set of unique strings over time can add a new {@link UniqueStrings} in
  * each jpa session. This will result in the set of UniqueStringsSegments being reloaded for the
  * parent entity but the contents of each UniqueStringsSegment will not need to be modified.
+ *
+ * <p>When created with a sketch precision the strings are not kept at all, instead a {@link
+ * HyperLogLog} sketch is persisted and {@link #size()} is an estimate of the unique string count.
  */
 @Entity
 @Table(name = "UP_UNIQUE_STR")
@@ -59,6 +64,9 @@ import org.slf4j.LoggerFactory;
 @Cacheable
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public final class UniqueStrings {
+    /** Sketch precision that keeps every string so that the unique count is exact */
+    public static final int EXACT = 0;
+
     private static final int MAXIMUM_SEGMENT_COUNT = 1440;
 
     private static final int SEGMENT_MERGE_RATIO = 2;
@@ -78,13 +86,79 @@ public final class UniqueStrings {
     @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private Set<UniqueStringsSegment> uniqueStringSegments = new HashSet<UniqueStringsSegment>(0);
 
+    /** Registers of the HyperLogLog sketch, null when every string is kept */
+    @Lob
+    @Column(name = "SKETCH_REGISTERS")
+    private byte[] sketchRegisters;
+
     @Transient private UniqueStringsSegment currentUniqueUsernamesSegment;
 
+    @Transient private HyperLogLog sketch;
+
     public UniqueStrings() {
+        this(EXACT);
+    }
+
+    /**
+     * @param sketchPrecision {@link #EXACT} to keep every string, otherwise the precision of the
+     *     {@link HyperLogLog} used to estimate the unique string count
+     */
+    public UniqueStrings(int sketchPrecision) {
         this.id = -1;
+        validateSketchPrecision(sketchPrecision);
+        if (sketchPrecision != EXACT) {
+            this.sketch = new HyperLogLog(sketchPrecision);
+            this.sketchRegisters = this.sketch.getRegisters();
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the precision is neither {@link #EXACT} nor a valid
+     *     {@link HyperLogLog} precision
+     */
+    public static void validateSketchPrecision(int sketchPrecision) {
+        Validate.isTrue(
+                sketchPrecision == EXACT
+                        || (sketchPrecision >= HyperLogLog.MIN_PRECISION
+                                && sketchPrecision <= HyperLogLog.MAX_PRECISION),
+                "Sketch precision must be %s or between %s and %s but was %s",
+                EXACT,
+                HyperLogLog.MIN_PRECISION,
+                HyperLogLog.MAX_PRECISION,
+                sketchPrecision);
     }
 
+    /** @return true if unique strings are estimated by a sketch instead of kept */
+    public boolean isApproximate() {
+        return this.sketchRegisters != null;
+    }
+
+    /** @return The number of unique strings added, an estimate if {@link #isApproximate()} */
+    public int size() {
+        final HyperLogLog sketch = this.getSketch();
+        if (sketch != null) {
+            // The sketch keeps its estimate up to date, this doesn't read the registers
+            return (int) Math.min(Integer.MAX_VALUE, sketch.cardinality());
+        }
+
+        int stringCount = 0;
+        for (final UniqueStringsSegment uniqueUsernamesSegment : this.uniqueStringSegments) {
+            stringCount += uniqueUsernamesSegment.size();
+        }
+        return stringCount;
+    }
+
+    /**
+     * @return true if the string was not seen before. If {@link #isApproximate()} true means the
+     *     estimate may have changed, use {@link #size()} to get the new count.
+     */
     public boolean add(String e) {
+        final HyperLogLog sketch = this.getSketch();
+        if (sketch != null) {
+            // The sketch updates the persistent registers in place
+            return sketch.add(e);
+        }
+
         int stringCount = 0;
         int smallSegments = 0;
         // Check if the username exists in any segment
@@ -154,6 +228,17 @@ public final class UniqueStrings {
         return this.currentUniqueUsernamesSegment.add(e);
     }
 
+    private HyperLogLog getSketch() {
+        HyperLogLog sketch = this.sketch;
+        if (this.sketchRegisters != null
+                && (sketch == null || sketch.getRegisters() != this.sketchRegisters)) {
+            // Loaded from the database, wrap the persistent registers
+            sketch = HyperLogLog.wrap(this.sketchRegisters);
+            this.sketch = sketch;
+        }
+        return sketch;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -176,6 +261,12 @@ public final class UniqueStrings {
 
     @Override
     public String toString() {
-        return "UniqueStrings [id=" + id + ", size=" + uniqueStringSegments.size() + "]";
+        return "UniqueStrings [id="
+                + id
+                + ", size="
+                + uniqueStringSegments.size()
+                + ", approximate="
+                + isApproximate()
+                + "]";
     }
 }
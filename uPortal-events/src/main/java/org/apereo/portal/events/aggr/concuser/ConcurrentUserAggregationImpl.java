@@ -151,7 +151,11 @@ public final class ConcurrentUserAggregationImpl
         this.uniqueStrings = null;
     }
 
-    void countSession(String eventSessionId) {
+    /**
+     * @param uniqueStringsPrecision {@link UniqueStrings#EXACT} or the precision of the sketch used
+     *     to estimate the unique count when the interval has no unique strings yet
+     */
+    void countSession(String eventSessionId, int uniqueStringsPrecision) {
         if (isComplete()) {
             this.getLogger()
                     .warn(
@@ -163,11 +167,11 @@ public final class ConcurrentUserAggregationImpl
         }
 
         if (this.uniqueStrings == null) {
-            this.uniqueStrings = new UniqueStrings();
+            this.uniqueStrings = new UniqueStrings(uniqueStringsPrecision);
         }
 
         if (this.uniqueStrings.add(eventSessionId)) {
-            this.concurrentUsers++;
+            this.concurrentUsers = this.uniqueStrings.size();
         }
     }
 
@@ -22,8 +22,10 @@ import org.apereo.portal.events.aggr.BaseIntervalAwarePortalEventAggregator;
 import org.apereo.portal.events.aggr.DateDimension;
 import org.apereo.portal.events.aggr.EventAggregationContext;
 import org.apereo.portal.events.aggr.TimeDimension;
+import org.apereo.portal.events.aggr.UniqueStrings;
 import org.apereo.portal.events.aggr.groups.AggregatedGroupMapping;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
@@ -36,12 +38,20 @@ public class ConcurrentUserAggregator
                 PortalEvent, ConcurrentUserAggregationImpl, ConcurrentUserAggregationKey> {
     private ConcurrentUserAggregationPrivateDao concurrentUserAggregationDao;
 
+    private int uniqueStringsPrecision = UniqueStrings.EXACT;
+
     @Autowired
     public void setConcurrentUserAggregationDao(
             ConcurrentUserAggregationPrivateDao concurrentUserAggregationDao) {
         this.concurrentUserAggregationDao = concurrentUserAggregationDao;
     }
 
+    @Value("${org.apereo.portal.events.aggr.UniqueStrings.sketchPrecision:0}")
+    public void setUniqueStringsPrecision(int uniqueStringsPrecision) {
+        UniqueStrings.validateSketchPrecision(uniqueStringsPrecision);
+        this.uniqueStringsPrecision = uniqueStringsPrecision;
+    }
+
     @Override
     protected BaseAggregationPrivateDao<ConcurrentUserAggregationImpl, ConcurrentUserAggregationKey>
             getAggregationDao() {
@@ -62,7 +72,7 @@ public class ConcurrentUserAggregator
         final String eventSessionId = e.getEventSessionId();
         final int duration = intervalInfo.getDurationTo(e.getTimestampAsDate());
         aggregation.setDuration(duration);
-        aggregation.countSession(eventSessionId);
+        aggregation.countSession(eventSessionId, this.uniqueStringsPrecision);
     }
 
     @Override
@@ -155,7 +155,11 @@ public final class LoginAggregationImpl
         this.uniqueStrings = null;
     }
 
-    void countUser(String userName) {
+    /**
+     * @param uniqueStringsPrecision {@link UniqueStrings#EXACT} or the precision of the sketch used
+     *     to estimate the unique count when the interval has no unique strings yet
+     */
+    void countUser(String userName, int uniqueStringsPrecision) {
         if (isComplete()) {
             this.getLogger()
                     .warn(
@@ -167,11 +171,11 @@ public final class LoginAggregationImpl
         }
 
         if (this.uniqueStrings == null) {
-            this.uniqueStrings = new UniqueStrings();
+            this.uniqueStrings = new UniqueStrings(uniqueStringsPrecision);
         }
 
         if (this.uniqueStrings.add(userName)) {
-            this.uniqueLoginCount++;
+            this.uniqueLoginCount = this.uniqueStrings.size();
         }
         this.loginCount++;
     }
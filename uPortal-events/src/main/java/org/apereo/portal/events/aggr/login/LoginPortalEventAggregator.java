@@ -23,8 +23,10 @@ import org.apereo.portal.events.aggr.BaseIntervalAwarePortalEventAggregator;
 import org.apereo.portal.events.aggr.DateDimension;
 import org.apereo.portal.events.aggr.EventAggregationContext;
 import org.apereo.portal.events.aggr.TimeDimension;
+import org.apereo.portal.events.aggr.UniqueStrings;
 import org.apereo.portal.events.aggr.groups.AggregatedGroupMapping;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /** Event aggregator that uses {@link LoginAggregationPrivateDao} to aggregate login events */
@@ -34,11 +36,19 @@ public class LoginPortalEventAggregator
                 LoginEvent, LoginAggregationImpl, LoginAggregationKey> {
     private LoginAggregationPrivateDao loginAggregationDao;
 
+    private int uniqueStringsPrecision = UniqueStrings.EXACT;
+
     @Autowired
     public void setLoginAggregationDao(LoginAggregationPrivateDao loginAggregationDao) {
         this.loginAggregationDao = loginAggregationDao;
     }
 
+    @Value("${org.apereo.portal.events.aggr.UniqueStrings.sketchPrecision:0}")
+    public void setUniqueStringsPrecision(int uniqueStringsPrecision) {
+        UniqueStrings.validateSketchPrecision(uniqueStringsPrecision);
+        this.uniqueStringsPrecision = uniqueStringsPrecision;
+    }
+
     @Override
     protected BaseAggregationPrivateDao<LoginAggregationImpl, LoginAggregationKey>
             getAggregationDao() {
@@ -72,6 +82,6 @@ public class LoginPortalEventAggregator
         final String userName = e.getUserName();
         final int duration = intervalInfo.getDurationTo(e.getTimestampAsDate());
         aggregation.setDuration(duration);
-        aggregation.countUser(userName);
+        aggregation.countUser(userName, this.uniqueStringsPrecision);
     }
 }
@@ -14,13 +14,22 @@
  */
 package org.apereo.portal.events.handlers;
 
+import com.google.common.base.Function;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import org.apereo.portal.spring.context.FilteringApplicationListener;
+import org.apereo.portal.utils.ConcurrentMapUtils;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.ApplicationEvent;
 
@@ -28,13 +37,41 @@ import org.springframework.context.ApplicationEvent;
  * Queues PortalEvents in a local {@link ConcurrentLinkedQueue} and flushes the events to the
  * configured {@link BatchingEventHandler} when {@link #flush()} is called. This class must be used
  * with some external timer that will call {@link #flush()} at regular intervals
+ *
+ * <p>If a queue capacity is set events that arrive while the queue is full are handled according
+ * to the {@link OverflowPolicy}. Events of the configured low priority types are always dropped
+ * before any other event.
  */
 public abstract class QueueingEventHandler<E extends ApplicationEvent>
-        extends FilteringApplicationListener<E> implements DisposableBean {
+        extends FilteringApplicationListener<E>
+        implements DisposableBean, QueueingEventHandlerMXBean {
+
+    /** What to do with events that arrive while the queue is at capacity */
+    public enum OverflowPolicy {
+        /** Drop the oldest queued event to make room for the new one */
+        DROP_OLDEST,
+        /** Drop the new event */
+        DROP_NEWEST;
+    }
 
     private final Queue<E> eventQueue = new ConcurrentLinkedQueue<E>();
+    private final Queue<E> lowPriorityEventQueue = new ConcurrentLinkedQueue<E>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final AtomicInteger droppedSinceFlush = new AtomicInteger();
+    private final ConcurrentMap<Class<?>, EventTypeStatistics> eventTypeStatistics =
+            ConcurrentMapUtils.makeDefaultsMap(
+                    new Function<Class<?>, EventTypeStatistics>() {
+                        @Override
+                        public EventTypeStatistics apply(Class<?> eventType) {
+                            return new EventTypeStatistics(isLowPriority(eventType));
+                        }
+                    });
     private final Lock flushLock = new ReentrantLock();
     private int batchSize = 25;
+    private int queueCapacity = 0;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+    private Collection<Class<? extends E>> lowPriorityEventTypes = Collections.emptySet();
+    private volatile long lastFlushDuration = 0;
 
     // Used to hold events to flush, MUST only be read/written from within the flushLock
     private List<E> eventBuffer = new ArrayList<E>(this.batchSize);
@@ -45,6 +82,85 @@ public abstract class QueueingEventHandler<E extends ApplicationEvent>
         eventBuffer = new ArrayList<E>(this.batchSize);
     }
 
+    /** The maximum number of events to queue between flushes, 0 or less for no limit. */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /** What to do with events that arrive while the queue is full, defaults to DROP_OLDEST */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /** Event types, including sub-types, that are dropped before any other event. */
+    public void setLowPriorityEventTypes(Collection<Class<? extends E>> lowPriorityEventTypes) {
+        this.lowPriorityEventTypes = new ArrayList<Class<? extends E>>(lowPriorityEventTypes);
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return this.queueCapacity;
+    }
+
+    @Override
+    public int getQueueSize() {
+        return Math.max(0, this.queueSize.get());
+    }
+
+    @Override
+    public String getOverflowPolicy() {
+        return this.overflowPolicy.name();
+    }
+
+    @Override
+    public long getLastFlushDuration() {
+        return this.lastFlushDuration;
+    }
+
+    @Override
+    public Map<String, Long> getEnqueuedEventCounts() {
+        final Map<String, Long> counts = new TreeMap<String, Long>();
+        for (final Map.Entry<Class<?>, EventTypeStatistics> entry :
+                this.eventTypeStatistics.entrySet()) {
+            counts.put(entry.getKey().getSimpleName(), entry.getValue().enqueued.get());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getDroppedEventCounts() {
+        final Map<String, Long> counts = new TreeMap<String, Long>();
+        for (final Map.Entry<Class<?>, EventTypeStatistics> entry :
+                this.eventTypeStatistics.entrySet()) {
+            counts.put(entry.getKey().getSimpleName(), entry.getValue().dropped.get());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getFlushedEventCounts() {
+        final Map<String, Long> counts = new TreeMap<String, Long>();
+        for (final Map.Entry<Class<?>, EventTypeStatistics> entry :
+                this.eventTypeStatistics.entrySet()) {
+            counts.put(entry.getKey().getSimpleName(), entry.getValue().flushed.get());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getAverageFlushLatencies() {
+        final Map<String, Long> latencies = new TreeMap<String, Long>();
+        for (final Map.Entry<Class<?>, EventTypeStatistics> entry :
+                this.eventTypeStatistics.entrySet()) {
+            final EventTypeStatistics statistics = entry.getValue();
+            final long flushed = statistics.flushed.get();
+            latencies.put(
+                    entry.getKey().getSimpleName(),
+                    flushed == 0 ? 0 : statistics.flushLatency.get() / flushed);
+        }
+        return latencies;
+    }
+
     /* (non-Javadoc)
      * @see org.springframework.beans.factory.DisposableBean#destroy()
      */
@@ -58,7 +174,29 @@ public abstract class QueueingEventHandler<E extends ApplicationEvent>
      */
     @Override
     protected final void onFilteredApplicationEvent(E event) {
-        this.eventQueue.offer(event);
+        final EventTypeStatistics statistics = this.eventTypeStatistics.get(event.getClass());
+
+        final int size = this.queueSize.incrementAndGet();
+        if (this.queueCapacity > 0 && size > this.queueCapacity) {
+            final E dropped = this.selectOverflowVictim(event, statistics.lowPriority);
+            if (dropped != null) {
+                this.queueSize.decrementAndGet();
+                this.droppedSinceFlush.incrementAndGet();
+                this.eventTypeStatistics.get(dropped.getClass()).dropped.incrementAndGet();
+                logger.debug("Event queue is at capacity, dropped event {}", dropped);
+
+                if (dropped == event) {
+                    return;
+                }
+            }
+        }
+
+        if (statistics.lowPriority) {
+            this.lowPriorityEventQueue.offer(event);
+        } else {
+            this.eventQueue.offer(event);
+        }
+        statistics.enqueued.incrementAndGet();
     }
 
     /**
@@ -80,7 +218,7 @@ public abstract class QueueingEventHandler<E extends ApplicationEvent>
      *     fewer than <code>flushCount</code> PortalEvents in the queue.
      */
     public final void flush() {
-        if (eventQueue.isEmpty()) {
+        if (this.isQueueEmpty()) {
             // No events to flush
             logger.trace("No events to flush, returning.");
             return;
@@ -92,14 +230,24 @@ public abstract class QueueingEventHandler<E extends ApplicationEvent>
             logger.trace("FlushLock already held, returning.");
             return;
         }
+        final long flushStart = System.currentTimeMillis();
         try {
-            while (!this.eventQueue.isEmpty()) {
+            final int dropped = this.droppedSinceFlush.getAndSet(0);
+            if (dropped > 0) {
+                this.logger.warn(
+                        "Dropped {} events since the last flush, the event queue reached its"
+                                + " capacity of {}",
+                        dropped,
+                        this.queueCapacity);
+            }
+
+            while (!this.isQueueEmpty()) {
                 // Clear the buffer for re-use
                 eventBuffer.clear();
 
                 // Pop events off the queue into the buffer
-                while (!this.eventQueue.isEmpty() && eventBuffer.size() < this.batchSize) {
-                    final E event = eventQueue.poll();
+                E event;
+                while (eventBuffer.size() < this.batchSize && (event = this.pollEvent()) != null) {
                     eventBuffer.add(event);
                 }
 
@@ -110,6 +258,7 @@ public abstract class QueueingEventHandler<E extends ApplicationEvent>
                 // Write events out to batching listener
                 try {
                     this.onApplicationEvents(eventBuffer);
+                    this.recordFlushed(eventBuffer);
                 } catch (Throwable t) {
                     this.logger.error(
                             "An exception was thrown while trying to flush "
@@ -142,7 +291,79 @@ public abstract class QueueingEventHandler<E extends ApplicationEvent>
             // Clear the buffer to avoid memory leaks
             eventBuffer.clear();
 
+            this.lastFlushDuration = System.currentTimeMillis() - flushStart;
             this.flushLock.unlock();
         }
     }
+
+    /**
+     * Picks the event to drop when the queue is over capacity. A queued low priority event is
+     * dropped first if there is one, otherwise the {@link OverflowPolicy} decides between the
+     * oldest queued event and the new event. A low priority event never replaces a normal event.
+     *
+     * @return The event to drop, null if the queue was emptied by a concurrent flush
+     */
+    private E selectOverflowVictim(E event, boolean lowPriority) {
+        if (!lowPriority || this.overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            final E oldest = this.lowPriorityEventQueue.poll();
+            if (oldest != null) {
+                return oldest;
+            }
+        }
+
+        if (lowPriority || this.overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+            return event;
+        }
+
+        return this.eventQueue.poll();
+    }
+
+    private boolean isQueueEmpty() {
+        return this.eventQueue.isEmpty() && this.lowPriorityEventQueue.isEmpty();
+    }
+
+    /** @return The next event to flush, normal priority events first, null if there are none */
+    private E pollEvent() {
+        E event = this.eventQueue.poll();
+        if (event == null) {
+            event = this.lowPriorityEventQueue.poll();
+        }
+
+        if (event != null) {
+            this.queueSize.decrementAndGet();
+        }
+        return event;
+    }
+
+    private void recordFlushed(List<E> events) {
+        final long now = System.currentTimeMillis();
+        for (final E event : events) {
+            final EventTypeStatistics statistics = this.eventTypeStatistics.get(event.getClass());
+            statistics.flushed.incrementAndGet();
+            statistics.flushLatency.addAndGet(now - event.getTimestamp());
+        }
+    }
+
+    private boolean isLowPriority(Class<?> eventType) {
+        for (final Class<? extends E> lowPriorityEventType : this.lowPriorityEventTypes) {
+            if (lowPriorityEventType.isAssignableFrom(eventType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Counters for a single event type */
+    private static final class EventTypeStatistics {
+        private final boolean lowPriority;
+        private final AtomicLong enqueued = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong flushed = new AtomicLong();
+        // Sum of the time between event creation and being flushed
+        private final AtomicLong flushLatency = new AtomicLong();
+
+        EventTypeStatistics(boolean lowPriority) {
+            this.lowPriority = lowPriority;
+        }
+    }
 }
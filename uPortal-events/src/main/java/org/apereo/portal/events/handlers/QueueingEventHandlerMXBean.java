@@ -0,0 +1,44 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.events.handlers;
+
+import java.util.Map;
+
+public interface QueueingEventHandlerMXBean {
+
+    /** @return The maximum number of events queued between flushes, 0 or less for no limit */
+    int getQueueCapacity();
+
+    /** @return The number of events currently queued */
+    int getQueueSize();
+
+    /** @return What is done with events that arrive while the queue is at capacity */
+    String getOverflowPolicy();
+
+    /** @return Time in milliseconds the last flush took */
+    long getLastFlushDuration();
+
+    /** @return Number of events of each type that have been queued */
+    Map<String, Long> getEnqueuedEventCounts();
+
+    /** @return Number of events of each type that were dropped because the queue was full */
+    Map<String, Long> getDroppedEventCounts();
+
+    /** @return Number of events of each type that have been flushed */
+    Map<String, Long> getFlushedEventCounts();
+
+    /** @return Average time in milliseconds from event creation to flush for each event type */
+    Map<String, Long> getAverageFlushLatencies();
+}
@@ -17,9 +17,14 @@ package org.apereo.portal.events.handlers.db;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.base.Function;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import javax.persistence.EntityManager;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
@@ -29,6 +34,7 @@ import javax.persistence.criteria.Root;
 import org.apereo.portal.concurrency.FunctionWithoutResult;
 import org.apereo.portal.events.PortalEvent;
 import org.apereo.portal.jpa.BaseRawEventsJpaDao;
+import org.apereo.portal.utils.ConcurrentMapUtils;
 import org.hibernate.FlushMode;
 import org.hibernate.ScrollMode;
 import org.hibernate.ScrollableResults;
@@ -42,9 +48,11 @@ import org.springframework.dao.support.DataAccessUtils;
 import org.springframework.stereotype.Repository;
 
 /**
- * Stores portal events using JPA/Hibenate no internal batch segmentation is done to the passed list
- * of {@link PortalEvent}s. If a {@link PortalEvent} is not mapped as a persistent entity a message
- * is logged at the WARN level and the event is ignored.
+ * Stores portal events using JPA/Hibenate. When a store batch size is configured the passed list of
+ * {@link PortalEvent}s is flushed in segments of that size so Hibernate can write each segment with
+ * a single JDBC batch, the flushed events are then detached to keep the persistence context small.
+ * If a {@link PortalEvent} is not mapped as a persistent entity a message is logged at the WARN
+ * level and the event is ignored.
  */
 @Repository
 public class JpaPortalEventStore extends BaseRawEventsJpaDao implements IPortalEventDao {
@@ -54,6 +62,7 @@ public class JpaPortalEventStore extends BaseRawEventsJpaDao implements IPortalE
     private String selectQuery;
     private String selectUnaggregatedQuery;
     private int flushPeriod = 1000;
+    private int storeBatchSize = 50;
     private CriteriaQuery<DateTime> findNewestPersistentPortalEventTimestampQuery;
     private CriteriaQuery<DateTime> findOldestPersistentPortalEventTimestampQuery;
     private ParameterExpression<DateTime> startTimeParameter;
@@ -61,9 +70,30 @@ public class JpaPortalEventStore extends BaseRawEventsJpaDao implements IPortalE
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
+    // Writers resolve the serializer for the event type once instead of on every event
+    private final ConcurrentMap<Class<?>, ObjectWriter> eventWriters =
+            ConcurrentMapUtils.makeDefaultsMap(
+                    new Function<Class<?>, ObjectWriter>() {
+                        @Override
+                        public ObjectWriter apply(Class<?> eventType) {
+                            return mapper.writerFor(eventType);
+                        }
+                    });
+
     @Autowired
     public void setMapper(ObjectMapper mapper) {
         this.mapper = mapper;
+        this.eventWriters.clear();
+    }
+
+    /**
+     * Number of events to flush at a time during a call to storePortalEvents, should match the
+     * hibernate.jdbc.batch_size of the raw events persistence unit. Set to 0 to flush all of the
+     * events when the transaction commits, defaults to 50.
+     */
+    @Value("${org.apereo.portal.events.handlers.db.JpaPortalEventStore.storeBatchSize:50}")
+    public void setStoreBatchSize(int storeBatchSize) {
+        this.storeBatchSize = storeBatchSize;
     }
 
     /**
@@ -194,26 +224,28 @@ public class JpaPortalEventStore extends BaseRawEventsJpaDao implements IPortalE
     @Override
     @RawEventsTransactional
     public void storePortalEvents(PortalEvent... portalEvents) {
-        for (final PortalEvent portalEvent : portalEvents) {
-            try {
-                storePortalEvent(portalEvent);
-            } catch (IllegalArgumentException iae) {
-                this.logger.warn(
-                        portalEvent.getClass().getName()
-                                + " is not mapped as a persistent entity and will not be stored. "
-                                + portalEvent
-                                + " Exception="
-                                + iae.getMessage());
-            }
-        }
+        this.storePortalEvents(Arrays.asList(portalEvents));
     }
 
     @Override
     @RawEventsTransactional
     public void storePortalEvents(Iterable<PortalEvent> portalEvents) {
+        final EntityManager entityManager = this.getEntityManager();
+        final List<PersistentPortalEvent> batch =
+                new ArrayList<PersistentPortalEvent>(Math.max(this.storeBatchSize, 0));
+
         for (final PortalEvent portalEvent : portalEvents) {
             try {
-                storePortalEvent(portalEvent);
+                final PersistentPortalEvent persistentPortalEvent =
+                        this.wrapPortalEvent(portalEvent);
+                entityManager.persist(persistentPortalEvent);
+
+                if (this.storeBatchSize > 0) {
+                    batch.add(persistentPortalEvent);
+                    if (batch.size() >= this.storeBatchSize) {
+                        this.flushBatch(entityManager, batch);
+                    }
+                }
             } catch (IllegalArgumentException iae) {
                 this.logger.warn(
                         portalEvent.getClass().getName()
@@ -223,6 +255,19 @@ public class JpaPortalEventStore extends BaseRawEventsJpaDao implements IPortalE
                                 + iae.getMessage());
             }
         }
+
+        if (!batch.isEmpty()) {
+            this.flushBatch(entityManager, batch);
+        }
+    }
+
+    /** Writes the batch of events to the database and removes them from the persistence context */
+    private void flushBatch(EntityManager entityManager, List<PersistentPortalEvent> batch) {
+        entityManager.flush();
+        for (final PersistentPortalEvent persistentPortalEvent : batch) {
+            entityManager.detach(persistentPortalEvent);
+        }
+        batch.clear();
     }
 
     @Override
@@ -407,7 +452,7 @@ public class JpaPortalEventStore extends BaseRawEventsJpaDao implements IPortalE
 
     protected String toString(PortalEvent event) {
         try {
-            return mapper.writeValueAsString(event);
+            return this.eventWriters.get(event.getClass()).writeValueAsString(event);
         } catch (JsonParseException e) {
             throw new RuntimeException("Failed to serialize PortalEvent data", e);
         } catch (JsonMappingException e) {
@@ -47,6 +47,7 @@ public abstract class GroupMemberImpl implements IGroupMember {
     private EntityIdentifier underlyingEntityIdentifier;
 
     private final Cache parentGroupsCache;
+    private final Cache ancestorGroupKeysCache;
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     /** GroupMemberImpl constructor */
@@ -61,6 +62,9 @@ public abstract class GroupMemberImpl implements IGroupMember {
         CacheManager cacheManager = context.getBean("cacheManager", CacheManager.class);
         this.parentGroupsCache =
                 cacheManager.getCache("org.apereo.portal.groups.GroupMemberImpl.parentGroups");
+        this.ancestorGroupKeysCache =
+                cacheManager.getCache(
+                        "org.apereo.portal.groups.GroupMemberImpl.ancestorGroupKeys");
     }
 
     /**
@@ -131,11 +135,40 @@ public abstract class GroupMemberImpl implements IGroupMember {
 
     /**
      * Answers if this <code>IGroupMember</code> is, recursively, a member of <code>IGroupMember
-     * </code> gm.
+     * </code> gm. Rather than walking the group graph each time, the keys of all the ancestor
+     * groups are collected once and cached, so the check is a lookup.
      */
     @Override
     public boolean isDeepMemberOf(IEntityGroup group) throws GroupsException {
-        return isMemberOf(group) ? true : group.deepContains(this);
+        return isMemberOf(group) ? true : getAncestorGroupKeys().contains(group.getKey());
+    }
+
+    /**
+     * Returns the keys of all the groups that contain this member, recursively. The cached keys are
+     * only used while the parent groups they were built from are still the ones in the
+     * parentGroups cache, so anything that replaces or removes that entry (including a rebuild
+     * that finishes after a nested, partial evaluation) also invalidates the ancestor keys.
+     */
+    private Set<String> getAncestorGroupKeys() throws GroupsException {
+        final Set<IEntityGroup> parentGroups = getParentGroups();
+
+        final EntityIdentifier cacheKey = getUnderlyingEntityIdentifier();
+        final Element element = ancestorGroupKeysCache.get(cacheKey);
+        if (element != null) {
+            final AncestorGroupKeys ancestors = (AncestorGroupKeys) element.getObjectValue();
+            if (ancestors.parentGroups == parentGroups) {
+                return ancestors.keys;
+            }
+        }
+
+        final Set<String> keys = new HashSet<>();
+        for (IEntityGroup group : primGetAncestorGroups(this, new HashSet<>())) {
+            keys.add(group.getKey());
+        }
+        final Set<String> result = Collections.unmodifiableSet(keys);
+        ancestorGroupKeysCache.put(
+                new Element(cacheKey, new AncestorGroupKeys(parentGroups, result)));
+        return result;
     }
 
     /** @return boolean */
@@ -211,6 +244,13 @@ public abstract class GroupMemberImpl implements IGroupMember {
         for (IGroupMember member : members) {
             parentGroupsCache.remove(member.getEntityIdentifier());
         }
+        /*
+         * A change in the members of a group changes the ancestors of every descendant of those
+         * members, not just the members themselves.  Membership changes are rare, so start over.
+         */
+        if (!members.isEmpty()) {
+            ancestorGroupKeysCache.removeAll();
+        }
     }
 
     protected CacheKey getCacheKey(EntityIdentifier entityIdentifier) {
@@ -224,4 +264,15 @@ public abstract class GroupMemberImpl implements IGroupMember {
                         entityIdentifier)
                 : CacheKey.build(getClass().getName(), entityIdentifier);
     }
+
+    /** Ancestor group keys, along with the parent groups they were built from. */
+    private static final class AncestorGroupKeys {
+        private final Set<IEntityGroup> parentGroups;
+        private final Set<String> keys;
+
+        private AncestorGroupKeys(Set<IEntityGroup> parentGroups, Set<String> keys) {
+            this.parentGroups = parentGroups;
+            this.keys = keys;
+        }
+    }
 }
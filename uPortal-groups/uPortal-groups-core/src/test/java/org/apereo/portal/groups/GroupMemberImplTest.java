@@ -0,0 +1,178 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.groups;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import org.apereo.portal.EntityIdentifier;
+import org.apereo.portal.EntityTypes;
+import org.apereo.portal.IBasicEntity;
+import org.apereo.portal.security.IPerson;
+import org.apereo.portal.services.GroupService;
+import org.apereo.portal.spring.locator.ApplicationContextLocator;
+import org.apereo.portal.spring.locator.EntityTypesLocator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * Tests that the cached ancestor group keys behind {@link GroupMemberImpl#isDeepMemberOf} follow
+ * changes to the group graph once they are reported through {@link
+ * GroupMemberImpl#invalidateInParentGroupsCache(Set)}.
+ */
+public class GroupMemberImplTest {
+    private static final String PARENT_GROUPS_CACHE_NAME =
+            "org.apereo.portal.groups.GroupMemberImpl.parentGroups";
+    private static final String ANCESTOR_GROUP_KEYS_CACHE_NAME =
+            "org.apereo.portal.groups.GroupMemberImpl.ancestorGroupKeys";
+
+    /** Parent groups returned by the group service, changed by the tests */
+    private final Map<IGroupMember, Set<IEntityGroup>> parentGroups = new HashMap<>();
+
+    private CacheManager cacheManager;
+    private MockedStatic<ApplicationContextLocator> applicationContextLocator;
+    private MockedStatic<EntityTypesLocator> entityTypesLocator;
+    private MockedStatic<GroupService> groupService;
+
+    private IEntityGroup staff;
+    private IEntityGroup everyone;
+    private IEntityGroup alumni;
+    private TestMember member;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheManager = new CacheManager();
+        cacheManager.addCache(new Cache(PARENT_GROUPS_CACHE_NAME, 100, false, false, 300, 300));
+        cacheManager.addCache(
+                new Cache(ANCESTOR_GROUP_KEYS_CACHE_NAME, 100, false, false, 300, 300));
+        final ApplicationContext context = mock(ApplicationContext.class);
+        when(context.getBean("cacheManager", CacheManager.class)).thenReturn(cacheManager);
+        applicationContextLocator = mockStatic(ApplicationContextLocator.class);
+        applicationContextLocator
+                .when(ApplicationContextLocator::getApplicationContext)
+                .thenReturn(context);
+
+        final EntityTypes entityTypes = mock(EntityTypes.class);
+        when(entityTypes.getEntityIDFromType(any())).thenReturn(1);
+        entityTypesLocator = mockStatic(EntityTypesLocator.class);
+        entityTypesLocator.when(EntityTypesLocator::getEntityTypes).thenReturn(entityTypes);
+
+        final ICompositeGroupService compositeGroupService = mock(ICompositeGroupService.class);
+        when(compositeGroupService.findParentGroups(any()))
+                .thenAnswer(invocation -> parentGroups.get(invocation.getArgument(0)).iterator());
+        groupService = mockStatic(GroupService.class);
+        groupService
+                .when(GroupService::getCompositeGroupService)
+                .thenReturn(compositeGroupService);
+
+        /*
+         * member -- staff -- everyone
+         *
+         * alumni
+         */
+        staff = group("staff");
+        everyone = group("everyone");
+        alumni = group("alumni");
+        member = new TestMember("jdoe");
+        parentGroups.put(member, Collections.singleton(staff));
+        parentGroups.put(staff, Collections.singleton(everyone));
+        parentGroups.put(everyone, Collections.emptySet());
+        parentGroups.put(alumni, Collections.emptySet());
+    }
+
+    @After
+    public void tearDown() {
+        groupService.close();
+        entityTypesLocator.close();
+        applicationContextLocator.close();
+        cacheManager.shutdown();
+    }
+
+    @Test
+    public void testAncestorKeysCached() throws Exception {
+        assertTrue(member.isDeepMemberOf(everyone));
+        assertFalse(member.isDeepMemberOf(alumni));
+        assertTrue(member.isDeepMemberOf(everyone));
+
+        // The group graph above the member is only walked once
+        verify(staff, times(1)).getParentGroups();
+    }
+
+    @Test
+    public void testParentGroupOfParentChanged() throws Exception {
+        assertTrue(member.isDeepMemberOf(everyone));
+        assertFalse(member.isDeepMemberOf(alumni));
+
+        // staff moves from everyone to alumni, the parent groups of the member are unchanged
+        parentGroups.put(staff, Collections.singleton(alumni));
+        member.invalidateInParentGroupsCache(Collections.singleton(staff));
+
+        assertFalse(member.isDeepMemberOf(everyone));
+        assertTrue(member.isDeepMemberOf(alumni));
+    }
+
+    @Test
+    public void testParentGroupsChanged() throws Exception {
+        assertTrue(member.isDeepMemberOf(everyone));
+        assertFalse(member.isDeepMemberOf(alumni));
+
+        // The member moves from staff to alumni
+        parentGroups.put(member, Collections.singleton(alumni));
+        member.invalidateInParentGroupsCache(Collections.singleton(member));
+
+        assertFalse(member.isDeepMemberOf(everyone));
+        assertTrue(member.isDeepMemberOf(alumni));
+    }
+
+    private IEntityGroup group(String key) throws GroupsException {
+        final IEntityGroup group = mock(IEntityGroup.class);
+        when(group.getKey()).thenReturn(key);
+        when(group.getEntityIdentifier())
+                .thenReturn(new EntityIdentifier(key, ICompositeGroupService.GROUP_ENTITY_TYPE));
+        when(group.getParentGroups()).thenAnswer(invocation -> parentGroups.get(group));
+        return group;
+    }
+
+    private static final class TestMember extends GroupMemberImpl {
+        TestMember(String key) throws GroupsException {
+            super(new EntityIdentifier(key, IPerson.class));
+        }
+
+        @Override
+        public EntityIdentifier getEntityIdentifier() {
+            return getUnderlyingEntityIdentifier();
+        }
+
+        @Override
+        public Class<? extends IBasicEntity> getLeafType() {
+            return getUnderlyingEntityIdentifier().getType();
+        }
+    }
+}
@@ -16,6 +16,7 @@ package org.apereo.portal.groups.pags;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 import org.apereo.portal.security.IPerson;
 
@@ -72,6 +73,23 @@ public class PagsGroup {
         return (testGroups.isEmpty()) ? false : test(person);
     }
 
+    /**
+     * Same as {@link #contains(IPerson)} but shares tester results with other groups evaluated for
+     * the same person through the specified Map.
+     *
+     * @see TestGroup#test(IPerson, Map)
+     */
+    public boolean contains(IPerson person, Map<IPersonTester, Boolean> testResults) {
+        if (testGroups.isEmpty()) return false;
+        for (Iterator<TestGroup> i = testGroups.iterator(); i.hasNext(); ) {
+            TestGroup testGroup = i.next();
+            if (testGroup.test(person, testResults)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public boolean test(IPerson person) {
         if (testGroups.isEmpty()) return true;
         for (Iterator<TestGroup> i = testGroups.iterator(); i.hasNext(); ) {
@@ -16,6 +16,7 @@ package org.apereo.portal.groups.pags;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 import org.apereo.portal.security.IPerson;
 
@@ -39,4 +40,26 @@ public class TestGroup {
         }
         return true;
     }
+
+    /**
+     * Same as {@link #test(IPerson)} but looks up each tester's result in, and records it to, the
+     * specified Map so that equal testers in other groups are not evaluated again for the person.
+     */
+    public boolean test(IPerson person, Map<IPersonTester, Boolean> testResults) {
+        for (Iterator<IPersonTester> i = tests.iterator(); i.hasNext(); ) {
+            IPersonTester tester = i.next();
+            if (tester == null) {
+                return false;
+            }
+            Boolean result = testResults.get(tester);
+            if (result == null) {
+                result = tester.test(person);
+                testResults.put(tester, result);
+            }
+            if (!result) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
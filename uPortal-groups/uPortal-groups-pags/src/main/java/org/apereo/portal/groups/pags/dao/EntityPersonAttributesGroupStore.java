@@ -17,9 +17,11 @@ package org.apereo.portal.groups.pags.dao;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
@@ -136,13 +138,8 @@ public class EntityPersonAttributesGroupStore
                 answer = groupDef.hasMember(key);
             } else {
                 try {
-                    final IPersonAttributeDao pa =
-                            PersonAttributeDaoLocator.getPersonAttributeDao();
-                    final IPersonAttributes personAttributes = pa.getPerson(member.getKey(), null);
-
-                    if (personAttributes != null) {
-                        final RestrictedPerson rp = PersonFactory.createRestrictedPerson();
-                        rp.setAttributes(personAttributes.getAttributes());
+                    final RestrictedPerson rp = getRestrictedPerson(member);
+                    if (rp != null) {
                         answer = groupDef.contains(rp);
                     }
                 } catch (Exception ex) {
@@ -251,21 +248,70 @@ public class EntityPersonAttributesGroupStore
         return parents.iterator();
     }
 
+    /**
+     * Evaluates every PAGS group for the entity. Unlike calling {@link #contains(IEntityGroup,
+     * IGroupMember)} for each group the person's attributes are only looked up once, and each
+     * distinct attribute test is only evaluated once with the result shared by all of the groups
+     * that use it.
+     */
     private Iterator<IEntityGroup> findParentGroupsForEntity(IEntity member)
             throws GroupsException {
 
         Set<IPersonAttributesGroupDefinition> pagsGroups =
                 personAttributesGroupDefinitionDao.getPersonAttributesGroupDefinitions();
         List<IEntityGroup> results = new ArrayList<IEntityGroup>();
+        final Map<IPersonTester, Boolean> testResults = new HashMap<IPersonTester, Boolean>();
+        RestrictedPerson rp = null;
+        boolean personLoaded = false;
         for (IPersonAttributesGroupDefinition pagsGroup : pagsGroups) {
             IEntityGroup group = convertPagsGroupToEntity(pagsGroup);
-            if (contains(group, member)) {
+            final MembershipCacheKey cacheKey =
+                    new MembershipCacheKey(
+                            group.getEntityIdentifier(), member.getUnderlyingEntityIdentifier());
+            Element element = membershipCache.get(cacheKey);
+            if (element == null) {
+                if (!personLoaded) {
+                    try {
+                        rp = getRestrictedPerson(member);
+                    } catch (Exception ex) {
+                        logger.error(
+                                "Exception acquiring attributes for member "
+                                        + member
+                                        + " while finding the groups that contain this member.",
+                                ex);
+                        break;
+                    }
+                    personLoaded = true;
+                }
+
+                boolean answer = false; // default
+                if (rp != null) {
+                    final PagsGroup groupDef = initGroupDef(pagsGroup);
+                    answer = groupDef != null && groupDef.contains(rp, testResults);
+                }
+                element = new Element(cacheKey, answer);
+                membershipCache.put(element);
+            }
+            if ((Boolean) element.getObjectValue()) {
                 results.add(group);
             }
         }
         return results.iterator();
     }
 
+    /** @return A person with the attributes of the member, null if the member has none */
+    private RestrictedPerson getRestrictedPerson(IGroupMember member) {
+        final IPersonAttributeDao pa = PersonAttributeDaoLocator.getPersonAttributeDao();
+        final IPersonAttributes personAttributes = pa.getPerson(member.getKey(), null);
+        if (personAttributes == null) {
+            return null;
+        }
+
+        final RestrictedPerson rp = PersonFactory.createRestrictedPerson();
+        rp.setAttributes(personAttributes.getAttributes());
+        return rp;
+    }
+
     @Override
     public Iterator<IEntityGroup> findEntitiesForGroup(IEntityGroup group) throws GroupsException {
         // PAGS groups are synthetic;  we don't support this behavior.
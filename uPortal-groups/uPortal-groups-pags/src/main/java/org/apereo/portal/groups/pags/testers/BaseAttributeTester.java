@@ -14,6 +14,7 @@
  */
 package org.apereo.portal.groups.pags.testers;
 
+import java.util.Objects;
 import org.apereo.portal.groups.pags.IPersonTester;
 import org.apereo.portal.groups.pags.dao.IPersonAttributesGroupTestDefinition;
 import org.slf4j.Logger;
@@ -44,6 +45,29 @@ public abstract class BaseAttributeTester implements IPersonTester {
         return testValue;
     }
 
+    /**
+     * Attribute testers only look at the person's attributes, so two testers of the same class for
+     * the same attribute name and test value always give the same answer. Equality lets the group
+     * store evaluate such a test once per person and share the result across groups.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final BaseAttributeTester other = (BaseAttributeTester) obj;
+        return Objects.equals(attributeName, other.attributeName)
+                && Objects.equals(testValue, other.testValue);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getClass(), attributeName, testValue);
+    }
+
     @Override
     public String toString() {
         return "Tester for " + getAttributeName() + " : " + getTestValue();
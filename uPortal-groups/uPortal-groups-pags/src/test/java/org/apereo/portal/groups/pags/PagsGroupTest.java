@@ -0,0 +1,90 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.groups.pags;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apereo.portal.groups.pags.testers.BaseAttributeTester;
+import org.apereo.portal.groups.pags.testers.StringEqualsTester;
+import org.apereo.portal.security.IPerson;
+import org.apereo.portal.security.provider.PersonImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PagsGroupTest {
+
+    @Test
+    public void testEqualTestersAreEvaluatedOnce() {
+        final CountingTester tester1 = new CountingTester("affiliation", "student");
+        final CountingTester tester2 = new CountingTester("affiliation", "student");
+        Assert.assertEquals(tester1, tester2);
+        Assert.assertEquals(tester1.hashCode(), tester2.hashCode());
+
+        final PagsGroup group1 = createGroup(tester1);
+        final PagsGroup group2 = createGroup(tester2);
+
+        final IPerson person = new PersonImpl();
+        person.setAttribute("affiliation", "student");
+
+        final Map<IPersonTester, Boolean> testResults = new HashMap<IPersonTester, Boolean>();
+        Assert.assertTrue(group1.contains(person, testResults));
+        Assert.assertTrue(group2.contains(person, testResults));
+        Assert.assertEquals(1, tester1.count + tester2.count);
+    }
+
+    @Test
+    public void testDifferentTestersAreNotShared() {
+        final CountingTester student = new CountingTester("affiliation", "student");
+        final CountingTester staff = new CountingTester("affiliation", "staff");
+        final StringEqualsTester equalsStudent =
+                new StringEqualsTester(
+                        new TestPersonAttributesGroupTestDefinition("affiliation", "student"));
+        Assert.assertNotEquals(student, staff);
+        Assert.assertNotEquals(student, equalsStudent);
+
+        final IPerson person = new PersonImpl();
+        person.setAttribute("affiliation", "student");
+
+        final Map<IPersonTester, Boolean> testResults = new HashMap<IPersonTester, Boolean>();
+        Assert.assertTrue(createGroup(student).contains(person, testResults));
+        Assert.assertFalse(createGroup(staff).contains(person, testResults));
+        Assert.assertTrue(createGroup(equalsStudent).contains(person, testResults));
+        Assert.assertEquals(1, student.count);
+        Assert.assertEquals(1, staff.count);
+        Assert.assertEquals(3, testResults.size());
+    }
+
+    private PagsGroup createGroup(IPersonTester tester) {
+        final TestGroup testGroup = new TestGroup();
+        testGroup.addTest(tester);
+        final PagsGroup group = new PagsGroup();
+        group.addTestGroup(testGroup);
+        return group;
+    }
+
+    private static final class CountingTester extends BaseAttributeTester {
+        private int count;
+
+        CountingTester(String attributeName, String testValue) {
+            super(new TestPersonAttributesGroupTestDefinition(attributeName, testValue));
+        }
+
+        @Override
+        public boolean test(IPerson person) {
+            count++;
+            return getTestValue().equals(person.getAttribute(getAttributeName()));
+        }
+    }
+}
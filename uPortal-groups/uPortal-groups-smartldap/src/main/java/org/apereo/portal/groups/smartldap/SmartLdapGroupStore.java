@@ -23,7 +23,12 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.concurrent.ConcurrentException;
@@ -54,7 +59,7 @@ import org.springframework.ldap.core.AttributesMapper;
 import org.springframework.ldap.core.ContextMapper;
 import org.springframework.ldap.core.ContextSource;
 
-public final class SmartLdapGroupStore implements IEntityGroupStore {
+public final class SmartLdapGroupStore implements IEntityGroupStore, SmartLdapGroupStoreMXBean {
 
     // Instance Members.
     private String memberOfAttributeName = "memberOf"; // default
@@ -128,7 +133,9 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
 
     /**
      * Period after which SmartLdap will drop and rebuild the groups tree. May be overridden in
-     * SmartLdapGroupStoreConfix.xml. A value of zero or less (negative) disables this feature.
+     * SmartLdapGroupStoreConfix.xml. A value of zero or less (negative) disables this feature. The
+     * tree is rebuilt on a background thread; requests continue to use the previous tree until the
+     * new one is complete.
      */
     private long groupsTreeRefreshIntervalSeconds = 900; // default
 
@@ -136,8 +143,11 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
         this.groupsTreeRefreshIntervalSeconds = groupsTreeRefreshIntervalSeconds;
     }
 
-    /** Timestamp (milliseconds) of the last tree refresh. */
-    private volatile long lastTreeRefreshTime = 0;
+    /** Rebuilds the groups tree every groupsTreeRefreshIntervalSeconds once it is first built. */
+    private ScheduledExecutorService refreshExecutor;
+
+    /** Number of times rebuilding the groups tree has failed. */
+    private final AtomicLong treeRefreshFailures = new AtomicLong();
 
     // Cernunnos tech...
     private final ScriptRunner runner = new ScriptRunner();
@@ -179,7 +189,7 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
      *       case. Includes ROOT_GROUP.
      * </ul>
      */
-    private GroupsTree groupsTree;
+    private volatile GroupsTree groupsTree;
 
     /*
      * Public API.
@@ -225,15 +235,13 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
     @Override
     public IEntityGroup find(String key) throws GroupsException {
 
-        if (isTreeRefreshRequired()) {
-            refreshTree();
-        }
+        final GroupsTree tree = getGroupsTree();
 
         log.debug("Invoking find() for key:  {}", key);
 
         // All of our groups (incl. ROOT_GROUP)
         // are indexed in the 'groups' map by key...
-        return groupsTree.getGroups().get(key);
+        return tree.getGroups().get(key);
     }
 
     /**
@@ -245,9 +253,7 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
      */
     @Override
     public Iterator findParentGroups(IGroupMember gm) throws GroupsException {
-        if (isTreeRefreshRequired()) {
-            refreshTree();
-        }
+        final GroupsTree tree = getGroupsTree();
         log.debug("Invoking findParentGroups() for group member: {}", gm.getKey());
         Set<IEntityGroup> result = new HashSet<>();
         final IEntityGroup root = getRootGroup();
@@ -258,15 +264,15 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
                     gm.getKey(),
                     group.getLocalKey(),
                     group.getName());
-            getParentGroups(group.getLocalKey(), result);
+            getParentGroups(tree, group.getLocalKey(), result);
         } else if (!gm.isGroup() && gm.getLeafType().equals(root.getLeafType())) {
-            if ((groupsTree != null) && (groupsTree.getGroups() != null)) {
+            if (tree.getGroups() != null) {
                 Object[] groupKeys = getPersonGroupMemberKeys(gm);
                 for (Object o : groupKeys) {
                     String s = (String) o;
-                    IEntityGroup group = groupsTree.getGroups().get(s);
+                    IEntityGroup group = tree.getGroups().get(s);
                     result.add(group);
-                    result.addAll(getParentGroups(s, new HashSet<>()));
+                    result.addAll(getParentGroups(tree, s, new HashSet<>()));
                 }
             } else if (log.isDebugEnabled()) {
                 log.debug("Unable to find groups for member: [{}]", gm.getKey());
@@ -289,19 +295,20 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
         return keys != null ? keys : new Object[] {};
     }
 
-    private Set<IEntityGroup> getParentGroups(String key, Set<IEntityGroup> groups) {
+    private Set<IEntityGroup> getParentGroups(
+            GroupsTree tree, String key, Set<IEntityGroup> groups) {
         // groups is an ongoing collection to avoid recursion
         log.debug("Getting parents of group: {}", key);
-        IEntityGroup group = groupsTree.getGroups().get(key);
+        IEntityGroup group = tree.getGroups().get(key);
         if (group == null) {
             log.warn("SmartLdap group not found for key: {}", key);
             return groups;
         }
-        List<String> parentKeys = groupsTree.getParents().get(key);
+        List<String> parentKeys = tree.getParents().get(key);
         parentKeys = parentKeys != null ? parentKeys : Collections.emptyList();
         log.debug("Parent keys for {}: {}", key, String.join(",", parentKeys));
         for (String parentKey : parentKeys) {
-            IEntityGroup parent = groupsTree.getGroups().get(parentKey);
+            IEntityGroup parent = tree.getGroups().get(parentKey);
             if (parent == null) {
                 log.warn("Group tree inconsistent -- missing parent: {}", parentKey);
             } else if (groups.contains(parent)) {
@@ -311,7 +318,7 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
                         parentKey);
             } else {
                 groups.add(parent);
-                getParentGroups(parentKey, groups);
+                getParentGroups(tree, parentKey, groups);
             }
         }
         return groups;
@@ -327,9 +334,7 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
     @Override
     public Iterator findEntitiesForGroup(IEntityGroup group) throws GroupsException {
 
-        if (isTreeRefreshRequired()) {
-            refreshTree();
-        }
+        final GroupsTree tree = getGroupsTree();
 
         log.debug("Invoking findEntitiesForGroup() for group:  {}", group.getLocalKey());
 
@@ -338,7 +343,7 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
 
         List<IEntity> result = new ArrayList<IEntity>();
         if (displayPersonMembers) {
-            List<String> list = groupsTree.getPersonChildren().get(group.getLocalKey());
+            List<String> list = tree.getPersonChildren().get(group.getLocalKey());
             if (list != null) {
                 // should only reach this code if its a SmartLdap managed group...
                 for (String s : list) {
@@ -369,10 +374,6 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
     @Override
     public String[] findMemberGroupKeys(IEntityGroup group) throws GroupsException {
 
-        if (isTreeRefreshRequired()) {
-            refreshTree();
-        }
-
         log.debug("Invoking findMemberGroupKeys() for group:  {}", group.getLocalKey());
 
         List<String> result = new ArrayList<>();
@@ -395,19 +396,17 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
     @Override
     public Iterator findMemberGroups(IEntityGroup group) throws GroupsException {
 
-        if (isTreeRefreshRequired()) {
-            refreshTree();
-        }
+        final GroupsTree tree = getGroupsTree();
 
         log.debug("Invoking findMemberGroups() for group:  {}", group.getLocalKey());
 
         List<IEntityGroup> result = new ArrayList<>();
 
-        List<String> list = groupsTree.getChildren().get(group.getLocalKey());
+        List<String> list = tree.getChildren().get(group.getLocalKey());
         if (list != null) {
             // should only reach this code if its a SmartLdap managed group...
             for (String s : list) {
-                result.add(groupsTree.getGroups().get(s));
+                result.add(tree.getGroups().get(s));
             }
         }
 
@@ -432,9 +431,7 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
     public EntityIdentifier[] searchForGroups(String query, SearchMethod method, Class leaftype)
             throws GroupsException {
 
-        if (isTreeRefreshRequired()) {
-            refreshTree();
-        }
+        final GroupsTree tree = getGroupsTree();
 
         log.debug(
                 "Invoking searchForGroups():  query={}, method={}, leaftype=",
@@ -496,18 +493,13 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
         }
 
         List<EntityIdentifier> result = new ArrayList<>();
-        if (groupsTree != null) {
-            for (Map.Entry<String, List<String>> y :
-                    groupsTree.getKeysByUpperCaseName().entrySet()) {
-                if (y.getKey().matches(regex)) {
-                    List<String> keys = y.getValue();
-                    for (String k : keys) {
-                        result.add(new EntityIdentifier(k, IEntityGroup.class));
-                    }
+        for (Map.Entry<String, List<String>> y : tree.getKeysByUpperCaseName().entrySet()) {
+            if (y.getKey().matches(regex)) {
+                List<String> keys = y.getValue();
+                for (String k : keys) {
+                    result.add(new EntityIdentifier(k, IEntityGroup.class));
                 }
             }
-        } else if (log.isDebugEnabled()) {
-            log.debug("Unable to find groups for query: [{}]", query);
         }
 
         return result.toArray(new EntityIdentifier[result.size()]);
@@ -604,73 +596,76 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
         }
     }
 
-    private boolean isTreeRefreshRequired() {
-
-        if (groupsTree == null) {
-            // Of course we need it
-            return true;
-        }
-
-        if (groupsTreeRefreshIntervalSeconds <= 0) {
-            // SmartLdap refresh feature may be disabled by setting
-            // groupsTreeRefreshIntervalSeconds to zero or negative.
-            return false;
+    @PreDestroy
+    private void preDestroy() {
+        synchronized (this) {
+            if (refreshExecutor != null) {
+                refreshExecutor.shutdownNow();
+            }
         }
-
-        // The 'lastTreeRefreshTime' member variable is volatile.  As of JDK 5,
-        // this fact should make reads of this variable dependable in a multi-
-        // threaded environment.
-        final long treeExpiresTimestamp =
-                lastTreeRefreshTime + (groupsTreeRefreshIntervalSeconds * 1000L);
-        return System.currentTimeMillis() > treeExpiresTimestamp;
     }
 
     /**
-     * Verifies that the collection of groups needs rebuilding and, if so, spawns a new worker
-     * <code>Thread</code> for that purpose.
+     * Provides the current groups tree without blocking, except on the first call when the tree
+     * has not been built yet. Callers should read from the returned tree, rather than the field,
+     * so that a refresh happening in the middle of a call can't give them inconsistent answers.
      */
-    private synchronized void refreshTree() {
+    private GroupsTree getGroupsTree() throws GroupsException {
+        final GroupsTree result = groupsTree;
+        return result != null ? result : initGroupsTree();
+    }
 
-        if (!isTreeRefreshRequired()) {
-            // The groupsTree was already re-built while
+    /**
+     * Builds the first groups tree on the calling thread and schedules its periodic refresh. This
+     * is deferred until the store is first used so that portals that define the smartLdapGroupStore
+     * bean, but don't use it, never query LDAP.
+     */
+    private synchronized GroupsTree initGroupsTree() throws GroupsException {
+        if (groupsTree != null) {
+            // The groupsTree was already built while
             // we were waiting to enter this method.
-            return;
+            return groupsTree;
         }
 
-        log.info("Refreshing groups tree for SmartLdap");
+        log.info("Building groups tree for SmartLdap");
+        try {
+            groupsTree = buildGroupsTree();
+        } catch (RuntimeException e) {
+            throw new GroupsException("SmartLdapGroupStore failed to build the groups tree", e);
+        }
 
-        // We must join the builder thread if
-        // we don't have an existing groupsTree.
-        final boolean doJoin = groupsTree == null;
-
-        // In most cases, re-build the tree in a separate thread;  the current
-        // request can proceed with the newly-expired groupsTree.
-        Thread refresh =
-                new Thread("SmartLdap Refresh Worker") {
-                    @Override
-                    public void run() {
-                        // Replace the old with the new...
-                        try {
-                            groupsTree = buildGroupsTree();
-                        } catch (Throwable t) {
-                            log.error("SmartLdapGroupStore failed to build the groups tree", t);
-                        }
-                    }
-                };
-        refresh.setDaemon(true);
-        refresh.start();
-        if (doJoin) {
-            try {
-                log.info("Joining the SmartLdap Refresh Worker Thread");
-                refresh.join();
-            } catch (InterruptedException ie) {
-                throw new RuntimeException(ie);
-            }
+        if (groupsTreeRefreshIntervalSeconds > 0 && refreshExecutor == null) {
+            refreshExecutor =
+                    Executors.newSingleThreadScheduledExecutor(
+                            runnable -> {
+                                final Thread thread =
+                                        new Thread(runnable, "SmartLdap Refresh Worker");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+            refreshExecutor.scheduleWithFixedDelay(
+                    this::refreshTree,
+                    groupsTreeRefreshIntervalSeconds,
+                    groupsTreeRefreshIntervalSeconds,
+                    TimeUnit.SECONDS);
         }
 
-        // Even if the refresh thread failed, don't try
-        // again for another groupsTreeRefreshIntervalSeconds.
-        lastTreeRefreshTime = System.currentTimeMillis();
+        return groupsTree;
+    }
+
+    /**
+     * Rebuilds the groups tree on the refresh thread and swaps it in once complete. If the rebuild
+     * fails the previous tree stays in use until the next scheduled attempt.
+     */
+    private void refreshTree() {
+        log.info("Refreshing groups tree for SmartLdap");
+        try {
+            // Replace the old with the new...
+            groupsTree = buildGroupsTree();
+        } catch (Throwable t) {
+            treeRefreshFailures.incrementAndGet();
+            log.error("SmartLdapGroupStore failed to build the groups tree", t);
+        }
     }
 
     private String getContainingFolder(final String groupName) {
@@ -894,8 +889,9 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
         groupsWithMyName.add(root.getLocalKey());
 
         final long benchmark = System.currentTimeMillis() - timestamp;
+        final int ldapQueries = queryCounter.getCount() + 1;
         log.info("Refresh of groups tree completed in {} milliseconds", benchmark);
-        log.info("Total number of LDAP queries:  {}", queryCounter.getCount() + 1);
+        log.info("Total number of LDAP queries:  {}", ldapQueries);
         final String msg =
                 "init() :: final size of each collection is as follows..."
                         + "\n\tgroups={}"
@@ -956,7 +952,52 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
         }
 
         return new GroupsTree(
-                newGroups, newParents, newChildren, newChildrenPersons, newKeysByUpperCaseName);
+                newGroups,
+                newParents,
+                newChildren,
+                newChildrenPersons,
+                newKeysByUpperCaseName,
+                System.currentTimeMillis(),
+                benchmark,
+                ldapQueries);
+    }
+
+    /*
+     * JMX
+     */
+
+    @Override
+    public long getGroupsTreeRefreshIntervalSeconds() {
+        return groupsTreeRefreshIntervalSeconds;
+    }
+
+    @Override
+    public long getLastTreeRefreshTime() {
+        final GroupsTree tree = groupsTree;
+        return tree != null ? tree.getBuildTime() : 0;
+    }
+
+    @Override
+    public long getLastTreeRefreshDuration() {
+        final GroupsTree tree = groupsTree;
+        return tree != null ? tree.getBuildDuration() : 0;
+    }
+
+    @Override
+    public int getLastTreeRefreshLdapQueries() {
+        final GroupsTree tree = groupsTree;
+        return tree != null ? tree.getLdapQueries() : 0;
+    }
+
+    @Override
+    public int getGroupCount() {
+        final GroupsTree tree = groupsTree;
+        return tree != null ? tree.getGroups().size() : 0;
+    }
+
+    @Override
+    public long getTreeRefreshFailures() {
+        return treeRefreshFailures.get();
     }
 
     /*
@@ -986,6 +1027,7 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
         }
     }
 
+    /** Immutable once built;  a refresh builds a new instance rather than changing this one. */
     private static final class GroupsTree {
 
         // Instance Members.
@@ -994,6 +1036,9 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
         private final Map<String, List<String>> children;
         private final Map<String, List<String>> personChildren;
         private final Map<String, List<String>> keysByUpperCaseName;
+        private final long buildTime;
+        private final long buildDuration;
+        private final int ldapQueries;
 
         /*
          * Public API.
@@ -1004,7 +1049,10 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
                 Map<String, List<String>> parents,
                 Map<String, List<String>> children,
                 Map<String, List<String>> personChildren,
-                Map<String, List<String>> keysByUpperCaseName) {
+                Map<String, List<String>> keysByUpperCaseName,
+                long buildTime,
+                long buildDuration,
+                int ldapQueries) {
 
             // Assertions.
             if (groups == null) {
@@ -1029,11 +1077,14 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
             }
 
             // Instance Members.
-            this.groups = groups;
-            this.parents = parents;
-            this.children = children;
-            this.personChildren = personChildren;
-            this.keysByUpperCaseName = keysByUpperCaseName;
+            this.groups = Collections.unmodifiableMap(groups);
+            this.parents = Collections.unmodifiableMap(parents);
+            this.children = Collections.unmodifiableMap(children);
+            this.personChildren = Collections.unmodifiableMap(personChildren);
+            this.keysByUpperCaseName = Collections.unmodifiableMap(keysByUpperCaseName);
+            this.buildTime = buildTime;
+            this.buildDuration = buildDuration;
+            this.ldapQueries = ldapQueries;
         }
 
         public Map<String, IEntityGroup> getGroups() {
@@ -1055,6 +1106,18 @@ public final class SmartLdapGroupStore implements IEntityGroupStore {
         public Map<String, List<String>> getKeysByUpperCaseName() {
             return keysByUpperCaseName;
         }
+
+        public long getBuildTime() {
+            return buildTime;
+        }
+
+        public long getBuildDuration() {
+            return buildDuration;
+        }
+
+        public int getLdapQueries() {
+            return ldapQueries;
+        }
     }
 
     private static final class SubQueryCounter {
@@ -0,0 +1,37 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.groups.smartldap;
+
+/** JMX view of the groups tree maintained by the {@link SmartLdapGroupStore}. */
+public interface SmartLdapGroupStoreMXBean {
+
+    /** @return Period between rebuilds of the groups tree, zero or less if disabled */
+    long getGroupsTreeRefreshIntervalSeconds();
+
+    /** @return Timestamp (milliseconds) of when the current groups tree was built, 0 if never */
+    long getLastTreeRefreshTime();
+
+    /** @return Time (milliseconds) it took to build the current groups tree */
+    long getLastTreeRefreshDuration();
+
+    /** @return Number of LDAP queries it took to build the current groups tree */
+    int getLastTreeRefreshLdapQueries();
+
+    /** @return Number of groups (including folders and the root group) in the current tree */
+    int getGroupCount();
+
+    /** @return Number of times rebuilding the groups tree has failed */
+    long getTreeRefreshFailures();
+}
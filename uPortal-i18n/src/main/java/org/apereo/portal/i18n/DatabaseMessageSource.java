@@ -14,12 +14,29 @@
  */
 package org.apereo.portal.i18n;
 
+import com.google.common.collect.ImmutableMap;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import org.apache.commons.lang.StringUtils;
 import org.apereo.portal.i18n.dao.IMessageDao;
+import org.apereo.portal.i18n.dao.MessageChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.MessageSource;
 import org.springframework.context.support.AbstractMessageSource;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * DB based {@link MessageSource}. This is used for enabling i18n on database entities that does not
@@ -35,24 +52,45 @@ import org.springframework.context.support.AbstractMessageSource;
  * look up for a message. Of course, it can be set up the other way round - if resource bundle
  * message source will be set as parent to this message source, then this message source will become
  * the primary one.
+ *
+ * <p>All messages are loaded into an immutable in-memory catalog so lookups never touch the
+ * database. The catalog is discarded and lazily reloaded after a {@link MessageChangedEvent} is
+ * committed locally or when another node in the cluster publishes a new catalog version through the
+ * replicated catalog version cache. Messages that do not exist for a locale fall back to the
+ * message for the locale without its variant and then without its country.
  */
-public class DatabaseMessageSource extends AbstractMessageSource implements MessageSource {
+public class DatabaseMessageSource extends AbstractMessageSource
+        implements MessageSource, ApplicationListener<MessageChangedEvent> {
+
+    private static final String CATALOG_VERSION_KEY = "catalogVersion";
+
+    private final Object catalogLock = new Object();
+    private final AtomicLong localCatalogGeneration = new AtomicLong();
+    private volatile MessageCatalog catalog;
 
     private IMessageDao messageDao;
+    private Ehcache catalogVersionCache;
 
     @Autowired
     public void setMessageDao(IMessageDao messageDao) {
         this.messageDao = messageDao;
     }
 
+    /** Replicated cache used to tell every node in the cluster that the messages have changed. */
+    @Autowired(required = false)
+    public void setCatalogVersionCache(
+            @Qualifier("org.apereo.portal.i18n.DatabaseMessageSource.catalogVersion")
+                    Ehcache catalogVersionCache) {
+        this.catalogVersionCache = catalogVersionCache;
+    }
+
     @Override
     protected MessageFormat resolveCode(String code, Locale locale) {
         if (locale == null) {
             return null;
         }
 
-        Message message = messageDao.getMessage(code, locale);
-        return message != null ? new MessageFormat(message.getValue(), locale) : null;
+        return this.getCatalog().getMessageFormat(code, locale);
     }
 
     @Override
@@ -61,7 +99,171 @@ public class DatabaseMessageSource extends AbstractMessageSource implements Mess
             return null;
         }
 
-        Message message = messageDao.getMessage(code, locale);
-        return message != null ? message.getValue() : null;
+        return this.getCatalog().getMessage(code, locale);
+    }
+
+    /* (non-Javadoc)
+     * @see org.springframework.context.ApplicationListener#onApplicationEvent(org.springframework.context.ApplicationEvent)
+     */
+    @Override
+    public void onApplicationEvent(MessageChangedEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Reloading before the change is committed would cache the old messages again
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronizationAdapter() {
+                        @Override
+                        public void afterCompletion(int status) {
+                            invalidateCatalog();
+                        }
+                    });
+        } else {
+            this.invalidateCatalog();
+        }
+    }
+
+    /** Discard the message catalog on this node and on every other node in the cluster. */
+    public void invalidateCatalog() {
+        this.localCatalogGeneration.incrementAndGet();
+        if (this.catalogVersionCache != null) {
+            this.catalogVersionCache.put(
+                    new Element(CATALOG_VERSION_KEY, UUID.randomUUID().toString()));
+        }
+    }
+
+    /**
+     * @return The current message catalog, loading it if the catalog version has changed since it
+     *     was last loaded.
+     */
+    protected MessageCatalog getCatalog() {
+        // Read the version before loading so a change made during the load triggers another one
+        final String version = this.getCatalogVersion();
+
+        MessageCatalog current = this.catalog;
+        if (current != null && current.getVersion().equals(version)) {
+            return current;
+        }
+
+        synchronized (this.catalogLock) {
+            current = this.catalog;
+            if (current != null && current.getVersion().equals(version)) {
+                return current;
+            }
+
+            final long start = System.currentTimeMillis();
+            current = new MessageCatalog(version, this.messageDao.getMessages());
+            this.catalog = current;
+
+            if (logger.isDebugEnabled()) {
+                logger.debug(
+                        "Loaded message catalog version "
+                                + version
+                                + " in "
+                                + (System.currentTimeMillis() - start)
+                                + "ms");
+            }
+
+            return current;
+        }
+    }
+
+    private String getCatalogVersion() {
+        final long generation = this.localCatalogGeneration.get();
+        if (this.catalogVersionCache == null) {
+            return Long.toString(generation);
+        }
+
+        final Element element = this.catalogVersionCache.get(CATALOG_VERSION_KEY);
+        return generation + ":" + (element != null ? element.getObjectValue() : "");
+    }
+
+    /**
+     * Immutable snapshot of all messages. Fallback resolution and parsed {@link MessageFormat}s are
+     * computed once per requested locale and kept for the life of the catalog.
+     */
+    protected static final class MessageCatalog {
+        private final String version;
+        private final Map<Locale, Map<String, String>> messagesByLocale;
+        private final ConcurrentMap<Locale, Map<String, String>> resolvedMessages =
+                new ConcurrentHashMap<>();
+        private final ConcurrentMap<Locale, ConcurrentMap<String, MessageFormat>> messageFormats =
+                new ConcurrentHashMap<>();
+
+        MessageCatalog(String version, Iterable<Message> messages) {
+            this.version = version;
+
+            final Map<Locale, Map<String, String>> builders = new HashMap<>();
+            for (final Message message : messages) {
+                if (message.getLocale() == null || message.getValue() == null) {
+                    continue;
+                }
+                builders.computeIfAbsent(message.getLocale(), l -> new HashMap<>())
+                        .put(message.getCode(), message.getValue());
+            }
+
+            final ImmutableMap.Builder<Locale, Map<String, String>> messagesByLocale =
+                    ImmutableMap.builder();
+            for (final Map.Entry<Locale, Map<String, String>> entry : builders.entrySet()) {
+                messagesByLocale.put(entry.getKey(), ImmutableMap.copyOf(entry.getValue()));
+            }
+            this.messagesByLocale = messagesByLocale.build();
+        }
+
+        public String getVersion() {
+            return this.version;
+        }
+
+        public String getMessage(String code, Locale locale) {
+            return this.getResolvedMessages(locale).get(code);
+        }
+
+        public MessageFormat getMessageFormat(String code, Locale locale) {
+            final String message = this.getMessage(code, locale);
+            if (message == null) {
+                return null;
+            }
+
+            final ConcurrentMap<String, MessageFormat> formats =
+                    this.messageFormats.computeIfAbsent(locale, l -> new ConcurrentHashMap<>());
+            return formats.computeIfAbsent(code, c -> new MessageFormat(message, locale));
+        }
+
+        private Map<String, String> getResolvedMessages(Locale locale) {
+            final Map<String, String> resolved = this.resolvedMessages.get(locale);
+            if (resolved != null) {
+                return resolved;
+            }
+
+            // Overlay the messages from the least to the most specific locale
+            final Map<String, String> messages = new HashMap<>();
+            final List<Locale> candidates = getFallbackLocales(locale);
+            for (int i = candidates.size() - 1; i >= 0; i--) {
+                final Map<String, String> localeMessages =
+                        this.messagesByLocale.get(candidates.get(i));
+                if (localeMessages != null) {
+                    messages.putAll(localeMessages);
+                }
+            }
+
+            final Map<String, String> result = ImmutableMap.copyOf(messages);
+            final Map<String, String> existing = this.resolvedMessages.putIfAbsent(locale, result);
+            return existing != null ? existing : result;
+        }
+
+        /** @return The locale followed by its less specific forms, most specific first. */
+        static List<Locale> getFallbackLocales(Locale locale) {
+            final List<Locale> locales = new ArrayList<>(3);
+            locales.add(locale);
+
+            final String language = locale.getLanguage();
+            final String country = locale.getCountry();
+            if (StringUtils.isNotEmpty(locale.getVariant())) {
+                locales.add(new Locale(language, country));
+            }
+            if (StringUtils.isNotEmpty(country) && StringUtils.isNotEmpty(language)) {
+                locales.add(new Locale(language));
+            }
+
+            return locales;
+        }
     }
 }
@@ -71,6 +71,13 @@ public interface IMessageDao {
      */
     Set<Message> getMessagesByCode(String code);
 
+    /**
+     * Get all messages in all locales, used to load message catalogs in bulk.
+     *
+     * @return A set of all messages.
+     */
+    Set<Message> getMessages();
+
     /**
      * Get all message codes regardless of translation. This can be used in order to find out the
      * missing translations for specific locales.
@@ -0,0 +1,61 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.i18n.dao;
+
+import org.apache.commons.lang.Validate;
+import org.apereo.portal.i18n.Message;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by the {@link IMessageDao} when a message is created, updated, or deleted. The event is
+ * published from within the DAO call, listeners that need to re-read the messages should wait for
+ * the surrounding transaction to commit.
+ */
+public class MessageChangedEvent extends ApplicationEvent {
+
+    private final Message message;
+    private final boolean deleted;
+
+    /**
+     * @param source the component that published the event (never <code>null</code>)
+     * @param message the non-null message that changed
+     * @param deleted true if the message was deleted
+     */
+    public MessageChangedEvent(Object source, Message message, boolean deleted) {
+        super(source);
+        Validate.notNull(message, "message can not be null");
+        this.message = message;
+        this.deleted = deleted;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageChangedEvent [code="
+                + message.getCode()
+                + ", locale="
+                + message.getLocale()
+                + ", deleted="
+                + deleted
+                + "]";
+    }
+}
@@ -28,12 +28,17 @@ import javax.persistence.criteria.Root;
 import org.apache.commons.lang.Validate;
 import org.apereo.portal.i18n.Message;
 import org.apereo.portal.i18n.dao.IMessageDao;
+import org.apereo.portal.i18n.dao.MessageChangedEvent;
 import org.apereo.portal.jpa.BasePortalJpaDao;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.dao.support.DataAccessUtils;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public class JpaMessageDao extends BasePortalJpaDao implements IMessageDao {
+public class JpaMessageDao extends BasePortalJpaDao
+        implements IMessageDao, ApplicationEventPublisherAware {
+    private CriteriaQuery<MessageImpl> findAllMessagesQuery;
     private CriteriaQuery<MessageImpl> findMessageByCodeAndLocaleQuery;
     private CriteriaQuery<MessageImpl> findMessageByCodeQuery;
     private CriteriaQuery<MessageImpl> findMessageByLocaleQuery;
@@ -42,11 +47,36 @@ public class JpaMessageDao extends BasePortalJpaDao implements IMessageDao {
     private ParameterExpression<String> codeParameter;
     private ParameterExpression<Locale> localeParameter;
 
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
     @Override
     public void afterPropertiesSet() throws Exception {
         this.codeParameter = this.createParameterExpression(String.class, "code");
         this.localeParameter = this.createParameterExpression(Locale.class, "locale");
 
+        this.findAllMessagesQuery =
+                this.createCriteriaQuery(
+                        new Function<CriteriaBuilder, CriteriaQuery<MessageImpl>>() {
+                            @Override
+                            public CriteriaQuery<MessageImpl> apply(CriteriaBuilder cb) {
+                                final CriteriaQuery<MessageImpl> criteriaQuery =
+                                        cb.createQuery(MessageImpl.class);
+                                final Root<MessageImpl> root =
+                                        criteriaQuery.from(MessageImpl.class);
+                                criteriaQuery.select(root);
+                                criteriaQuery.orderBy(
+                                        cb.asc(root.get(MessageImpl_.code)),
+                                        cb.asc(root.get(MessageImpl_.locale)));
+
+                                return criteriaQuery;
+                            }
+                        });
+
         this.findMessageByCodeAndLocaleQuery =
                 this.createCriteriaQuery(
                         new Function<CriteriaBuilder, CriteriaQuery<MessageImpl>>() {
@@ -132,6 +162,7 @@ public class JpaMessageDao extends BasePortalJpaDao implements IMessageDao {
         final Message msg = new MessageImpl(code, locale, value);
 
         this.getEntityManager().persist(msg);
+        this.publishMessageChanged(msg, false);
 
         return msg;
     }
@@ -142,6 +173,7 @@ public class JpaMessageDao extends BasePortalJpaDao implements IMessageDao {
         Validate.notNull(message, "message can not be null");
 
         this.getEntityManager().persist(message);
+        this.publishMessageChanged(message, false);
 
         return message;
     }
@@ -159,6 +191,14 @@ public class JpaMessageDao extends BasePortalJpaDao implements IMessageDao {
             msg = entityManager.merge(message);
         }
         entityManager.remove(msg);
+        this.publishMessageChanged(msg, true);
+    }
+
+    private void publishMessageChanged(Message message, boolean deleted) {
+        if (this.applicationEventPublisher != null) {
+            this.applicationEventPublisher.publishEvent(
+                    new MessageChangedEvent(this, message, deleted));
+        }
     }
 
     @Override
@@ -171,6 +211,13 @@ public class JpaMessageDao extends BasePortalJpaDao implements IMessageDao {
         return DataAccessUtils.uniqueResult(messages);
     }
 
+    @Override
+    public Set<Message> getMessages() {
+        final TypedQuery<MessageImpl> query = createCachedQuery(findAllMessagesQuery);
+        final List<MessageImpl> messages = query.getResultList();
+        return new LinkedHashSet<Message>(messages);
+    }
+
     @Override
     public Set<Message> getMessagesByLocale(Locale locale) {
         final TypedQuery<MessageImpl> query = createCachedQuery(findMessageByLocaleQuery);
@@ -14,36 +14,67 @@
  */
 package org.apereo.portal.index;
 
+import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiBits;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.apereo.portal.portlet.dao.PortletDefinitionChangedEvent;
 import org.apereo.portal.portlet.om.IPortletDefinition;
 import org.apereo.portal.portlet.om.IPortletDefinitionParameter;
+import org.apereo.portal.portlet.om.IPortletPreference;
 import org.apereo.portal.portlet.registry.IPortletDefinitionRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
 import org.springframework.stereotype.Component;
 
+/**
+ * Maintains the Lucene index of portlet definitions. The index is updated incrementally: a hash of
+ * the content each document was built from is stored with it, and a portlet is only re-indexed
+ * (including running its {@link ISearchContentExtractor}) when that hash changes. Changes made on
+ * this node are indexed as soon as the {@link PortletDefinitionChangedEvent} is published; the
+ * scheduled {@link #updateIndex()} picks up changes made elsewhere in the cluster and removes the
+ * documents of deleted portlets.
+ *
+ * <p>A single {@link IndexWriter} is held open for the life of the indexer and searches are served
+ * from a near-real-time {@link SearcherManager}, see {@link #acquireSearcher()}.
+ */
 @Component
-public class PortalSearchIndexer {
+public class PortalSearchIndexer implements ApplicationListener<PortletDefinitionChangedEvent> {
 
     public static final String LUCENE_DOC_ID_FIELD = "id";
 
+    public static final String LUCENE_CONTENT_HASH_FIELD = "contentHash";
+
+    /** Part of every content hash, increment when the layout of the documents changes. */
+    private static final int DOCUMENT_VERSION = 1;
+
     @Autowired private IPortletDefinitionRegistry portletRegistry;
 
     @Autowired private Directory directory;
@@ -51,6 +82,12 @@ public class PortalSearchIndexer {
     @Autowired(required = false)
     private Set<ISearchContentExtractor> searchContentExtractors = Collections.emptySet();
 
+    /** Content hash of each indexed portlet, keyed by fname */
+    private final Map<String, String> contentHashes = new ConcurrentHashMap<>();
+
+    private volatile IndexWriter indexWriter;
+    private volatile SearcherManager searcherManager;
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     @PostConstruct
@@ -59,31 +96,115 @@ public class PortalSearchIndexer {
                 "Search indexing is {} based on presence or absence of a Directory",
                 isEnabled() ? "ENABLED" : "DISABLED");
         if (isEnabled()) {
+            try {
+                openIndex();
+            } catch (IOException e) {
+                logger.error("Unable to open index", e);
+                return;
+            }
             updateIndex();
         }
     }
 
+    @PreDestroy
+    public void destroy() {
+        final SearcherManager sm = searcherManager;
+        final IndexWriter iw = indexWriter;
+        searcherManager = null;
+        indexWriter = null;
+        try {
+            if (sm != null) {
+                sm.close();
+            }
+            if (iw != null) {
+                iw.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to close the index", e);
+        }
+    }
+
     /** Called by Quatrz. */
     public void updateIndex() {
         logger.debug("Updating Lucene index files ...");
 
-        if (!isEnabled()) {
+        final IndexWriter iw = indexWriter;
+        if (iw == null) {
             return;
         }
 
-        final IndexWriterConfig indexWriterConfig = new IndexWriterConfig(new StandardAnalyzer());
-        indexWriterConfig
-                .setCommitOnClose(true)
-                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-
-        try (IndexWriter indexWriter = new IndexWriter(directory, indexWriterConfig)) {
+        try {
+            /*
+             * Only documents that were already indexed before the portlets were read are candidates
+             * for removal, so a portlet published concurrently is never removed by mistake.
+             */
+            final Set<String> indexedFnames = new HashSet<>(contentHashes.keySet());
             final List<IPortletDefinition> portlets = portletRegistry.getAllPortletDefinitions();
-            portlets.forEach(portlet -> indexPortlet(portlet, indexWriter));
+
+            int updated = 0;
+            for (IPortletDefinition portlet : portlets) {
+                indexedFnames.remove(portlet.getFName());
+                if (indexPortlet(portlet, iw)) {
+                    updated++;
+                }
+            }
+            for (String fname : indexedFnames) {
+                removePortlet(fname, iw);
+            }
+
+            commit(iw);
+            logger.debug(
+                    "Updated {} and removed {} of {} portlets in the index",
+                    updated,
+                    indexedFnames.size(),
+                    portlets.size());
         } catch (Exception e) {
             logger.error("Unable to update index", e);
         }
     }
 
+    /* (non-Javadoc)
+     * @see org.springframework.context.ApplicationListener#onApplicationEvent(org.springframework.context.ApplicationEvent)
+     */
+    @Override
+    public void onApplicationEvent(PortletDefinitionChangedEvent event) {
+        final IndexWriter iw = indexWriter;
+        if (iw == null) {
+            return;
+        }
+
+        final IPortletDefinition portlet = event.getPortletDefinition();
+        try {
+            if (event.isDeleted()) {
+                removePortlet(portlet.getFName(), iw);
+            } else {
+                indexPortlet(portlet, iw);
+            }
+            commit(iw);
+        } catch (Exception e) {
+            // The next scheduled update will try again
+            logger.warn("Unable to update index for {}", event, e);
+        }
+    }
+
+    /**
+     * Acquires a searcher on the current state of the index; it must be passed to {@link
+     * #releaseSearcher(IndexSearcher)} when the search completes.
+     *
+     * @return The searcher, null if indexing is disabled
+     */
+    public IndexSearcher acquireSearcher() throws IOException {
+        final SearcherManager sm = searcherManager;
+        return sm != null ? sm.acquire() : null;
+    }
+
+    public void releaseSearcher(IndexSearcher searcher) throws IOException {
+        final SearcherManager sm = searcherManager;
+        if (searcher != null && sm != null) {
+            sm.release(searcher);
+        }
+    }
+
     private boolean isEnabled() {
         /*
          * Use of a Directory class that doesn't extend from FSDirectory is a signal to disable
@@ -92,13 +213,77 @@ public class PortalSearchIndexer {
         return directory instanceof FSDirectory;
     }
 
-    private void indexPortlet(IPortletDefinition portlet, IndexWriter indexWriter) {
+    private void openIndex() throws IOException {
+        final IndexWriterConfig indexWriterConfig = new IndexWriterConfig(new StandardAnalyzer());
+        indexWriterConfig
+                .setCommitOnClose(true)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+
+        final IndexWriter iw = new IndexWriter(directory, indexWriterConfig);
+        final SearcherManager sm;
+        try {
+            sm = new SearcherManager(iw, null);
+            loadContentHashes(sm);
+        } catch (IOException e) {
+            iw.close();
+            throw e;
+        }
+        indexWriter = iw;
+        searcherManager = sm;
+    }
+
+    /**
+     * Reads the fname and content hash of every document already in the index, so that a restart
+     * doesn't re-index unchanged portlets. Documents written before content hashes were stored get
+     * an empty hash and are re-indexed once.
+     */
+    private void loadContentHashes(SearcherManager sm) throws IOException {
+        final Set<String> fields =
+                new HashSet<>(
+                        Arrays.asList(SearchField.FNAME.getValue(), LUCENE_CONTENT_HASH_FIELD));
+        final IndexSearcher searcher = sm.acquire();
+        try {
+            final IndexReader indexReader = searcher.getIndexReader();
+            final Bits liveDocs = MultiBits.getLiveDocs(indexReader);
+            for (int i = 0; i < indexReader.maxDoc(); i++) {
+                if (liveDocs != null && !liveDocs.get(i)) {
+                    continue;
+                }
+                final Document doc = indexReader.document(i, fields);
+                final String fname = doc.get(SearchField.FNAME.getValue());
+                if (fname != null) {
+                    final String contentHash = doc.get(LUCENE_CONTENT_HASH_FIELD);
+                    contentHashes.put(fname, contentHash != null ? contentHash : "");
+                }
+            }
+        } finally {
+            sm.release(searcher);
+        }
+        logger.info("Loaded {} portlets from the existing index", contentHashes.size());
+    }
+
+    private void commit(IndexWriter iw) throws IOException {
+        if (iw.hasUncommittedChanges()) {
+            iw.commit();
+            searcherManager.maybeRefresh();
+        }
+    }
+
+    /** @return true if the document for the portlet was (re)written */
+    private boolean indexPortlet(IPortletDefinition portlet, IndexWriter indexWriter) {
+        final ISearchContentExtractor contentExtractor = getContentExtractor(portlet);
+        final String contentHash = calculateContentHash(portlet, contentExtractor);
+        if (contentHash.equals(contentHashes.get(portlet.getFName()))) {
+            logger.trace("Portlet '{}' is unchanged since it was indexed", portlet.getFName());
+            return false;
+        }
+
         // Unique identifier, hashed to eliminate special character concerns, such as hyphens
-        final String fnameHash =
-                Hashing.sha256().hashString(portlet.getFName(), StandardCharsets.UTF_8).toString();
+        final String fnameHash = hashFname(portlet.getFName());
         try {
             final Document doc = new Document();
             doc.add(new TextField(LUCENE_DOC_ID_FIELD, fnameHash, Field.Store.YES));
+            doc.add(new StoredField(LUCENE_CONTENT_HASH_FIELD, contentHash));
             doc.add(
                     new TextField(
                             SearchField.FNAME.getValue(), portlet.getFName(), Field.Store.YES));
@@ -120,7 +305,7 @@ public class PortalSearchIndexer {
                                 keywords.getValue(),
                                 Field.Store.YES));
             }
-            final String content = extractContent(portlet);
+            final String content = extractContent(portlet, contentExtractor);
             if (StringUtils.isNotBlank(content)) {
                 doc.add(new TextField(SearchField.CONTENT.getValue(), content, Field.Store.YES));
             }
@@ -131,18 +316,71 @@ public class PortalSearchIndexer {
                     "Unable to index portlet with fname='{}' and hash='{}'",
                     portlet.getFName(),
                     fnameHash);
-            return;
+            return false;
         }
+        contentHashes.put(portlet.getFName(), contentHash);
         logger.debug("Indexed portlet '{}' (hash='{}')", portlet.getFName(), fnameHash);
+        return true;
+    }
+
+    private void removePortlet(String fname, IndexWriter indexWriter) throws IOException {
+        indexWriter.deleteDocuments(new Term(LUCENE_DOC_ID_FIELD, hashFname(fname)));
+        contentHashes.remove(fname);
+        logger.debug("Removed portlet '{}' from the index", fname);
+    }
+
+    private String hashFname(String fname) {
+        return Hashing.sha256().hashString(fname, StandardCharsets.UTF_8).toString();
     }
 
-    private String extractContent(IPortletDefinition portlet) {
+    /**
+     * Hashes everything the document for the portlet is built from. The raw preference values are
+     * hashed rather than the extracted content so that unchanged portlets never pay for extraction.
+     */
+    /* package-private */ String calculateContentHash(
+            IPortletDefinition portlet, ISearchContentExtractor contentExtractor) {
+        final Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putInt(DOCUMENT_VERSION);
+        putString(hasher, portlet.getFName());
+        putString(hasher, portlet.getName());
+        putString(hasher, portlet.getTitle());
+        putString(hasher, portlet.getDescription());
+        final IPortletDefinitionParameter keywords = portlet.getParameter("keywords");
+        putString(hasher, keywords != null ? keywords.getValue() : null);
+        putString(hasher, contentExtractor != null ? contentExtractor.getClass().getName() : null);
+        if (contentExtractor != null) {
+            for (IPortletPreference preference : portlet.getPortletPreferences()) {
+                putString(hasher, preference.getName());
+                final String[] values = preference.getValues();
+                hasher.putInt(values != null ? values.length : -1);
+                if (values != null) {
+                    for (String value : values) {
+                        putString(hasher, value);
+                    }
+                }
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    private void putString(Hasher hasher, String value) {
+        // The length prefix keeps adjacent values from running together
+        if (value == null) {
+            hasher.putInt(-1);
+        } else {
+            hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+        }
+    }
+
+    private ISearchContentExtractor getContentExtractor(IPortletDefinition portlet) {
+        return searchContentExtractors.stream()
+                .filter(extractor -> extractor.appliesTo(portlet))
+                .findFirst()
+                .orElse(null);
+    }
 
-        final ISearchContentExtractor contentExtractor =
-                searchContentExtractors.stream()
-                        .filter(extractor -> extractor.appliesTo(portlet))
-                        .findFirst()
-                        .orElse(null);
+    private String extractContent(
+            IPortletDefinition portlet, ISearchContentExtractor contentExtractor) {
 
         if (contentExtractor == null) {
             logger.debug(
@@ -0,0 +1,73 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import org.apereo.portal.portlet.om.IPortletDefinition;
+import org.apereo.portal.portlet.om.IPortletPreference;
+import org.junit.Test;
+
+public class PortalSearchIndexerTest {
+
+    private final PortalSearchIndexer indexer = new PortalSearchIndexer();
+
+    private final ISearchContentExtractor extractor = mock(ISearchContentExtractor.class);
+
+    @Test
+    public void testContentHashIsStable() {
+        assertEquals(
+                indexer.calculateContentHash(mockPortlet("Title", "<p>One</p>"), extractor),
+                indexer.calculateContentHash(mockPortlet("Title", "<p>One</p>"), extractor));
+    }
+
+    @Test
+    public void testContentHashChangesWithFields() {
+        assertNotEquals(
+                indexer.calculateContentHash(mockPortlet("Title", "<p>One</p>"), extractor),
+                indexer.calculateContentHash(mockPortlet("Other Title", "<p>One</p>"), extractor));
+    }
+
+    @Test
+    public void testContentHashChangesWithPreferences() {
+        assertNotEquals(
+                indexer.calculateContentHash(mockPortlet("Title", "<p>One</p>"), extractor),
+                indexer.calculateContentHash(mockPortlet("Title", "<p>Two</p>"), extractor));
+    }
+
+    @Test
+    public void testContentHashChangesWithExtractor() {
+        assertNotEquals(
+                indexer.calculateContentHash(mockPortlet("Title", "<p>One</p>"), extractor),
+                indexer.calculateContentHash(mockPortlet("Title", "<p>One</p>"), null));
+    }
+
+    private IPortletDefinition mockPortlet(String title, String content) {
+        final IPortletPreference preference = mock(IPortletPreference.class);
+        when(preference.getName()).thenReturn("content");
+        when(preference.getValues()).thenReturn(new String[] {content});
+
+        final IPortletDefinition portlet = mock(IPortletDefinition.class);
+        when(portlet.getFName()).thenReturn("fname");
+        when(portlet.getName()).thenReturn("Name");
+        when(portlet.getTitle()).thenReturn(title);
+        when(portlet.getPortletPreferences()).thenReturn(Collections.singletonList(preference));
+        return portlet;
+    }
+}
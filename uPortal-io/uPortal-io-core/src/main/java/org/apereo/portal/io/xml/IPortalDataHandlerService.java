@@ -190,6 +190,20 @@ public interface IPortalDataHandlerService {
     public void exportAllDataOfType(
             Set<String> typeIds, File directory, BatchExportOptions options);
 
+    /**
+     * Export all the portal data for each type into a single compressed archive. Entities are
+     * written to the archive as they are exported using the same layout as {@link
+     * #exportAllDataOfType(Set, File, BatchExportOptions)}, the archive can be imported with {@link
+     * #importDataArchive(Resource, BatchImportOptions)}.
+     *
+     * @param typeIds TypeIds from {@link #getExportPortalDataTypes()} to export all data for
+     * @param archive Archive file to create, a name ending in <code>.zip</code> creates a zip
+     *     archive, any other name creates a gzip compressed tar archive
+     * @param options Optional set of options to better control the export
+     */
+    public void exportAllDataOfTypeToArchive(
+            Set<String> typeIds, File archive, BatchExportOptions options);
+
     /**
      * Export all portal data for all data type and save it to the specified directory
      *
@@ -198,6 +212,15 @@ public interface IPortalDataHandlerService {
      */
     public void exportAllData(File directory, BatchExportOptions options);
 
+    /**
+     * Export all portal data for all data type into a single compressed archive
+     *
+     * @param archive Archive file to create, see {@link #exportAllDataOfTypeToArchive(Set, File,
+     *     BatchExportOptions)}
+     * @param options Optional set of options to better control the export
+     */
+    public void exportAllDataToArchive(File archive, BatchExportOptions options);
+
     /**
      * Delete the portal data for the specified type and id.
      *
@@ -17,7 +17,9 @@ package org.apereo.portal.io.xml;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileOutputStream;
@@ -45,6 +47,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
@@ -62,14 +65,20 @@ import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveOutputStream;
 import org.apache.commons.compress.archivers.ar.ArArchiveInputStream;
 import org.apache.commons.compress.archivers.cpio.CpioArchiveInputStream;
 import org.apache.commons.compress.archivers.jar.JarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.compress.compressors.CompressorInputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.apache.commons.compress.compressors.pack200.Pack200CompressorInputStream;
 import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
 import org.apache.commons.io.FileUtils;
@@ -97,6 +106,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.dao.support.DataAccessUtils;
 import org.springframework.oxm.Marshaller;
@@ -117,6 +127,9 @@ public class JaxbPortalDataHandlerService implements IPortalDataHandlerService {
 
     private static final String REPORT_FORMAT = "%s,%s,%.2fms\n";
 
+    /** How often archive exports log their progress */
+    private static final long EXPORT_PROGRESS_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
     private static final MediaType MT_JAVA_ARCHIVE = MediaType.application("java-archive");
     private static final MediaType MT_CPIO = MediaType.application("x-cpio");
     private static final MediaType MT_AR = MediaType.application("x-archive");
@@ -172,6 +185,7 @@ public class JaxbPortalDataHandlerService implements IPortalDataHandlerService {
 
     private long maxWait = -1;
     private TimeUnit maxWaitTimeUnit = TimeUnit.MILLISECONDS;
+    private int maxArchiveExportsInFlight = 100;
 
     @Autowired
     public void setXmlUtilities(XmlUtilities xmlUtilities) {
@@ -195,6 +209,15 @@ public class JaxbPortalDataHandlerService implements IPortalDataHandlerService {
         this.maxWaitTimeUnit = maxWaitTimeUnit;
     }
 
+    /**
+     * Maximum number of entities of a type that may be exported, and held in memory waiting to be
+     * written, at once when exporting to an archive.
+     */
+    @Value("${org.apereo.portal.io.archiveExport.maxInFlight:100}")
+    public void setMaxArchiveExportsInFlight(int maxArchiveExportsInFlight) {
+        this.maxArchiveExportsInFlight = maxArchiveExportsInFlight;
+    }
+
     /**
      * The <code>@Autowired</code> list will reflect the order in which data types should be
      * imported.
@@ -1089,8 +1112,200 @@ public class JaxbPortalDataHandlerService implements IPortalDataHandlerService {
         }
     }
 
+    @Override
+    public void exportAllDataOfTypeToArchive(
+            Set<String> typeIds, File archive, BatchExportOptions options) {
+        final Queue<ExportFuture<?>> exportFutures = new ConcurrentLinkedQueue<>();
+        final boolean failOnError = options != null ? options.isFailOnError() : true;
+
+        // Determine the parent directory to log to
+        final File logDirectory = determineLogDirectory(options, "export");
+
+        // Setup reporting file
+        final File exportReport = new File(logDirectory, "data-export.txt");
+        final PrintWriter reportWriter;
+        try {
+            reportWriter = new PrintWriter(new BufferedWriter(new FileWriter(exportReport)));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create FileWriter for: " + exportReport, e);
+        }
+
+        final File archiveDirectory = archive.getAbsoluteFile().getParentFile();
+        if (archiveDirectory != null) {
+            archiveDirectory.mkdirs();
+        }
+
+        try (final ArchiveOutputStream archiveStream = createArchiveOutputStream(archive)) {
+            for (final String typeId : typeIds) {
+                final List<FutureHolder<?>> failedFutures = new LinkedList<>();
+
+                logger.info(
+                        "Adding all data of type {} to archive export queue: {}", typeId, archive);
+
+                reportWriter.println(typeId + "," + archive);
+
+                // Bounds the exported entities held in memory, a new semaphore is used for each
+                // type so permits of tasks canceled before they ran are not lost for later types
+                final Semaphore inFlight = new Semaphore(this.maxArchiveExportsInFlight);
+                final AtomicLong exportedCount = new AtomicLong();
+                final long exportStart = System.nanoTime();
+                long lastProgress = exportStart;
+
+                final Iterable<? extends IPortalData> dataForType = this.getPortalData(typeId);
+                for (final IPortalData data : dataForType) {
+                    final String dataId = data.getDataId();
+
+                    // Check for completed futures on every iteration, needed to fail as fast as
+                    // possible on an export exception
+                    final List<FutureHolder<?>> newFailed =
+                            waitForFutures(exportFutures, reportWriter, logDirectory, false);
+                    failedFutures.addAll(newFailed);
+
+                    inFlight.acquire();
+
+                    final AtomicLong exportTime = new AtomicLong(-1);
+
+                    // Create export task
+                    Callable<Object> task =
+                            new CallableWithoutResult() {
+                                @Override
+                                protected void callWithoutResult() {
+                                    exportTime.set(System.nanoTime());
+                                    try {
+                                        if (exportDataToArchive(typeId, dataId, archiveStream)) {
+                                            exportedCount.incrementAndGet();
+                                        }
+                                    } finally {
+                                        exportTime.set(System.nanoTime() - exportTime.get());
+                                        inFlight.release();
+                                    }
+                                }
+                            };
+
+                    // Submit the export task
+                    final Future<?> exportFuture;
+                    try {
+                        exportFuture = this.importExportThreadPool.submit(task);
+                    } catch (RuntimeException e) {
+                        inFlight.release();
+                        throw e;
+                    }
+
+                    // Add the future for tracking
+                    final ExportFuture futureHolder =
+                            new ExportFuture(exportFuture, typeId, dataId, exportTime);
+                    exportFutures.offer(futureHolder);
+
+                    final long now = System.nanoTime();
+                    if (now - lastProgress >= EXPORT_PROGRESS_INTERVAL) {
+                        lastProgress = now;
+                        logExportProgress(typeId, exportedCount.get(), now - exportStart);
+                    }
+                }
+
+                final List<FutureHolder<?>> newFailed =
+                        waitForFutures(exportFutures, reportWriter, logDirectory, true);
+                failedFutures.addAll(newFailed);
+
+                logExportProgress(typeId, exportedCount.get(), System.nanoTime() - exportStart);
+
+                reportWriter.flush();
+
+                if (failOnError && !failedFutures.isEmpty()) {
+                    throw new RuntimeException(
+                            failedFutures.size()
+                                    + " "
+                                    + typeId
+                                    + " entities failed to export.\n"
+                                    + "\tPer-entity exception logs and a full report can be found in "
+                                    + logDirectory.toURI()); // location clickable in some shells
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Interrupted while waiting for entities to export", e);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write export archive: " + archive, e);
+        } finally {
+            IOUtils.closeQuietly(reportWriter);
+        }
+    }
+
+    /** Creates a zip archive for .zip files and a gzip compressed tar archive for anything else */
+    private ArchiveOutputStream createArchiveOutputStream(File archive) throws IOException {
+        if (archive.getName().toLowerCase().endsWith(".zip")) {
+            return new ZipArchiveOutputStream(archive);
+        }
+
+        final TarArchiveOutputStream tarStream =
+                new TarArchiveOutputStream(
+                        new GzipCompressorOutputStream(
+                                new BufferedOutputStream(new FileOutputStream(archive))));
+        tarStream.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+        return tarStream;
+    }
+
+    /**
+     * Exports a single entity into memory and then appends it to the archive. Entities are
+     * serialized concurrently, only the append is serialized on the archive stream.
+     *
+     * @return True if the specified data was found
+     */
+    private boolean exportDataToArchive(
+            String typeId, String dataId, ArchiveOutputStream archiveStream) {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final String fileName = this.exportData(typeId, dataId, new StreamResult(buffer));
+        if (fileName == null) {
+            logger.info("Skipped: type={} id={}", typeId, dataId);
+            return false;
+        }
+
+        final String entryName = typeId + "/" + fileName + "." + typeId + ".xml";
+        final byte[] data = buffer.toByteArray();
+        try {
+            synchronized (archiveStream) {
+                if (archiveStream instanceof ZipArchiveOutputStream) {
+                    final ZipArchiveEntry entry = new ZipArchiveEntry(entryName);
+                    entry.setSize(data.length);
+                    ((ZipArchiveOutputStream) archiveStream).putArchiveEntry(entry);
+                } else {
+                    final TarArchiveEntry entry = new TarArchiveEntry(entryName);
+                    entry.setSize(data.length);
+                    ((TarArchiveOutputStream) archiveStream).putArchiveEntry(entry);
+                }
+                archiveStream.write(data);
+                archiveStream.closeArchiveEntry();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(
+                    "Failed to write " + entryName + " to the export archive", e);
+        }
+
+        logger.debug("Exported: {}", entryName);
+        return true;
+    }
+
+    private void logExportProgress(String typeId, long exported, long elapsedNanos) {
+        final double seconds = elapsedNanos / 1000000000.0;
+        logger.info(
+                "Exported {} {} entities in {}s ({} per second)",
+                exported,
+                typeId,
+                String.format("%.1f", seconds),
+                String.format("%.1f", seconds > 0 ? exported / seconds : 0));
+    }
+
     @Override
     public void exportAllData(File directory, BatchExportOptions options) {
+        this.exportAllDataOfType(this.getExportAllTypeIds(), directory, options);
+    }
+
+    @Override
+    public void exportAllDataToArchive(File archive, BatchExportOptions options) {
+        this.exportAllDataOfTypeToArchive(this.getExportAllTypeIds(), archive, options);
+    }
+
+    /** @return The ids of the types exported by the export all operations */
+    private Set<String> getExportAllTypeIds() {
         final Set<IPortalDataType> portalDataTypes;
         if (this.exportAllPortalDataTypes != null) {
             portalDataTypes = this.exportAllPortalDataTypes;
@@ -1102,7 +1317,7 @@ public class JaxbPortalDataHandlerService implements IPortalDataHandlerService {
         for (final IPortalDataType portalDataType : portalDataTypes) {
             typeIds.add(portalDataType.getTypeId());
         }
-        this.exportAllDataOfType(typeIds, directory, options);
+        return typeIds;
     }
 
     private IDataExporter<Object> getPortalDataExporter(String typeId) {
@@ -16,27 +16,51 @@ package org.apereo.portal.io.xml;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
+import javax.xml.transform.stream.StreamResult;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.jar.JarArchiveEntry;
 import org.apache.commons.compress.archivers.jar.JarArchiveOutputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.io.IOUtils;
 import org.apache.tika.mime.MediaType;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.oxm.Marshaller;
 
 public class JaxbPortalDataHandlerServiceTest {
 
     private final JaxbPortalDataHandlerService service = new JaxbPortalDataHandlerService();
 
+    @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
     private MediaType invokeGetMediaType(byte[] data, String filename) throws Exception {
         try (final BufferedInputStream stream =
                 new BufferedInputStream(new ByteArrayInputStream(data))) {
@@ -113,4 +137,99 @@ public class JaxbPortalDataHandlerServiceTest {
             throw new RuntimeException(e);
         }
     }
+
+    @Test
+    public void testExportTarGzipArchive() throws Exception {
+        final File archive = new File(tempFolder.newFolder(), "export.tar.gz");
+        exportArchive(archive);
+
+        try (final ArchiveInputStream archiveStream =
+                new TarArchiveInputStream(
+                        new GzipCompressorInputStream(new FileInputStream(archive)))) {
+            verifyExportedArchive(archiveStream);
+        }
+    }
+
+    @Test
+    public void testExportZipArchive() throws Exception {
+        final File archive = new File(tempFolder.newFolder(), "export.zip");
+        exportArchive(archive);
+
+        try (final ArchiveInputStream archiveStream =
+                new ZipArchiveInputStream(new FileInputStream(archive))) {
+            verifyExportedArchive(archiveStream);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void exportArchive(File archive) throws Exception {
+        final IPortalDataType portalDataType = mock(IPortalDataType.class);
+        when(portalDataType.getTypeId()).thenReturn("test-type");
+
+        final Marshaller marshaller = mock(Marshaller.class);
+        doAnswer(
+                        invocation -> {
+                            final String data = invocation.getArgument(0);
+                            final StreamResult result = invocation.getArgument(1);
+                            result.getOutputStream()
+                                    .write(
+                                            ("<data id=\"" + data + "\"/>")
+                                                    .getBytes(StandardCharsets.UTF_8));
+                            return null;
+                        })
+                .when(marshaller)
+                .marshal(any(), any(StreamResult.class));
+
+        final IDataExporter<String> dataExporter = mock(IDataExporter.class);
+        when(dataExporter.getPortalDataType()).thenReturn(portalDataType);
+        when(dataExporter.getPortalData())
+                .thenReturn(
+                        (Iterable)
+                                Arrays.asList(
+                                        new SimpleStringPortalData("a", null, null),
+                                        new SimpleStringPortalData("b", null, null),
+                                        new SimpleStringPortalData("c", null, null)));
+        when(dataExporter.exportData(any(String.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(dataExporter.getFileName(any(String.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(dataExporter.getMarshaller()).thenReturn(marshaller);
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            service.setImportExportThreadPool(executorService);
+            service.setDataExporters(
+                    Collections.<IDataExporter<? extends Object>>singleton(dataExporter));
+            service.setMaxArchiveExportsInFlight(1);
+            service.init();
+
+            service.exportAllDataOfTypeToArchive(
+                    Collections.singleton("test-type"),
+                    archive,
+                    new IPortalDataHandlerService.BatchExportOptions()
+                            .setLogDirectoryParent(tempFolder.newFolder()));
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    private void verifyExportedArchive(ArchiveInputStream archiveStream) throws IOException {
+        final Set<String> entries = new HashSet<>();
+        ArchiveEntry entry;
+        while ((entry = archiveStream.getNextEntry()) != null) {
+            final String id = entry.getName().split("[/.]")[1];
+            assertEquals(
+                    "<data id=\"" + id + "\"/>",
+                    IOUtils.toString(archiveStream, StandardCharsets.UTF_8));
+            entries.add(entry.getName());
+        }
+
+        assertEquals(
+                new HashSet<>(
+                        Arrays.asList(
+                                "test-type/a.test-type.xml",
+                                "test-type/b.test-type.xml",
+                                "test-type/c.test-type.xml")),
+                entries);
+    }
 }
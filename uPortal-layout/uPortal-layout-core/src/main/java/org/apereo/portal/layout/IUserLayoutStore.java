@@ -173,6 +173,14 @@ public interface IUserLayoutStore {
      */
     FragmentNodeInfo getFragmentNodeInfo(String sId);
 
+    /**
+     * Drops the layout saves of the user that have not been written to the database yet. Called
+     * when the user's layout data is deleted so a delayed save does not write it back.
+     *
+     * @param userId The id of the user
+     */
+    void discardPendingLayoutSaves(int userId);
+
     /** Determines if a user is a fragment owner. */
     boolean isFragmentOwner(IPerson person);
 
@@ -27,9 +27,6 @@ import java.util.Random;
 import java.util.Set;
 import java.util.Vector;
 import javax.xml.stream.XMLEventReader;
-import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLStreamException;
-import javax.xml.transform.dom.DOMSource;
 import javax.xml.xpath.XPathConstants;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -57,6 +54,7 @@ import org.apereo.portal.security.IPerson;
 import org.apereo.portal.security.PersonFactory;
 import org.apereo.portal.spring.locator.PortletDefinitionRegistryLocator;
 import org.apereo.portal.xml.XmlUtilities;
+import org.apereo.portal.xml.stream.DocumentXMLEventReader;
 import org.apereo.portal.xml.xpath.XPathOperations;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -262,6 +260,9 @@ public class DistributedLayoutManager implements IUserLayoutManager, Initializin
                 }
             }
 
+            // Share attribute values with every other cached layout before caching this one
+            LayoutValueInterner.internAttributeValues(userLayoutDocument);
+
             setUserLayoutDOM(userLayout);
         }
         return userLayout;
@@ -275,15 +276,7 @@ public class DistributedLayoutManager implements IUserLayoutManager, Initializin
                     "User layout has not been initialized for " + owner.getUserName());
         }
 
-        final XMLInputFactory xmlInputFactory = this.xmlUtilities.getXmlInputFactory();
-
-        final DOMSource layoutSource = new DOMSource(ul);
-        try {
-            return xmlInputFactory.createXMLEventReader(layoutSource);
-        } catch (XMLStreamException e) {
-            throw new RuntimeException(
-                    "Failed to create Layout XMLStreamReader for user: " + owner.getUserName(), e);
-        }
+        return new DocumentXMLEventReader(ul);
     }
 
     @Override
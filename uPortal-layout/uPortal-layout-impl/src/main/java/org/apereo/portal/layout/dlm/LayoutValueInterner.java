@@ -0,0 +1,66 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.layout.dlm;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Collapses the attribute values of integrated user layouts onto shared String instances. Each
+ * user's layout is a separate DOM built from their PLF and the fragments they receive, so without
+ * this every cached layout holds its own copy of values such as node IDs, fnames, folder types and
+ * the many "true"/"false" flags even though most of them are identical across all users. A weak
+ * interner is used so values no longer referenced by any layout can be garbage collected.
+ */
+public final class LayoutValueInterner {
+    private static final Interner<String> VALUE_INTERNER = Interners.newWeakInterner();
+
+    private LayoutValueInterner() {}
+
+    /**
+     * Replace the value of every attribute in the document with the shared instance of that value.
+     * Must be called before the document is published to other threads.
+     */
+    public static void internAttributeValues(Document document) {
+        final Node root = document.getDocumentElement();
+        if (root != null) {
+            internAttributeValues(root);
+        }
+    }
+
+    private static void internAttributeValues(Node node) {
+        final NamedNodeMap attributes = node.getAttributes();
+        if (attributes != null) {
+            for (int index = 0; index < attributes.getLength(); index++) {
+                final Attr attr = (Attr) attributes.item(index);
+                final String value = attr.getValue();
+                final String shared = VALUE_INTERNER.intern(value);
+                if (shared != value) {
+                    attr.setValue(shared);
+                }
+            }
+        }
+
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                internAttributeValues(child);
+            }
+        }
+    }
+}
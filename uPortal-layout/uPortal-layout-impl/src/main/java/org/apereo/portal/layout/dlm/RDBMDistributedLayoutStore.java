@@ -16,8 +16,6 @@ package org.apereo.portal.layout.dlm;
 
 import com.google.common.cache.Cache;
 import java.io.StringWriter;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -42,6 +40,7 @@ import org.apereo.portal.layout.StylesheetUserPreferencesImpl;
 import org.apereo.portal.layout.dao.IStylesheetUserPreferencesDao;
 import org.apereo.portal.layout.om.IStylesheetDescriptor;
 import org.apereo.portal.layout.om.IStylesheetUserPreferences;
+import org.apereo.portal.layout.simple.LayoutStructureRows;
 import org.apereo.portal.layout.simple.RDBMUserLayoutStore;
 import org.apereo.portal.portlet.dao.IPortletEntityDao;
 import org.apereo.portal.portlet.dao.jpa.PortletPreferenceImpl;
@@ -1197,9 +1196,15 @@ public class RDBMDistributedLayoutStore extends RDBMUserLayoutStore {
         Document layoutDoc;
         Tuple<String, String> key = null;
 
+        // Write a delayed save of this layout first, a layout cached before it is out of date
+        final boolean pendingSaveWritten = this.flushPendingLayoutSave(person, profile);
+
         final Cache<Tuple<String, String>, Document> layoutCache = getLayoutImportExportCache();
         if (layoutCache != null) {
             key = new Tuple<>(person.getUserName(), profile.getProfileFname());
+            if (pendingSaveWritten) {
+                layoutCache.invalidate(key);
+            }
             layoutDoc = layoutCache.getIfPresent(key);
             if (layoutDoc != null) {
                 return (Document) layoutDoc.cloneNode(true);
@@ -1690,14 +1695,13 @@ public class RDBMDistributedLayoutStore extends RDBMUserLayoutStore {
     }
 
     @Override
-    protected int saveStructure(Node node, PreparedStatement structStmt, PreparedStatement parmStmt)
-            throws SQLException {
+    protected int saveStructure(Node node, LayoutStructureRows rows) {
         if (node == null) { // No more
             return 0;
         }
         if (node.getNodeName().equals("parameter")) {
             // parameter, skip it and go on to the next node
-            return this.saveStructure(node.getNextSibling(), structStmt, parmStmt);
+            return this.saveStructure(node.getNextSibling(), rows);
         }
         if (!(node instanceof Element)) {
             return 0;
@@ -1739,36 +1743,31 @@ public class RDBMDistributedLayoutStore extends RDBMUserLayoutStore {
         }
 
         if (node.hasChildNodes()) {
-            childStructId = this.saveStructure(node.getFirstChild(), structStmt, parmStmt);
+            childStructId = this.saveStructure(node.getFirstChild(), rows);
         }
-        nextStructId = this.saveStructure(node.getNextSibling(), structStmt, parmStmt);
-        structStmt.clearParameters();
-        structStmt.setInt(1, saveStructId);
-        structStmt.setInt(2, nextStructId);
-        structStmt.setInt(3, childStructId);
+        nextStructId = this.saveStructure(node.getNextSibling(), rows);
 
         final String externalId = structure.getAttribute("external_id");
+        final Integer eID;
         if (externalId != null && externalId.trim().length() > 0) {
-            final Integer eID = new Integer(externalId);
-            structStmt.setInt(4, eID.intValue());
-        } else {
-            structStmt.setNull(4, java.sql.Types.NUMERIC);
-        }
-        if (isChannel) {
-            structStmt.setInt(5, chanId);
-            structStmt.setNull(6, java.sql.Types.VARCHAR);
+            eID = new Integer(externalId);
         } else {
-            structStmt.setNull(5, java.sql.Types.NUMERIC);
-            structStmt.setString(6, structure.getAttribute("name"));
-        }
-        final String structType = structure.getAttribute("type");
-        structStmt.setString(7, structType);
-        structStmt.setString(8, RDBMServices.dbFlag(xmlBool(structure.getAttribute("hidden"))));
-        structStmt.setString(9, RDBMServices.dbFlag(xmlBool(structure.getAttribute("immutable"))));
-        structStmt.setString(
-                10, RDBMServices.dbFlag(xmlBool(structure.getAttribute("unremovable"))));
-        logger.debug(structStmt.toString());
-        structStmt.executeUpdate();
+            eID = null;
+        }
+        final LayoutStructureRows.Structure row =
+                new LayoutStructureRows.Structure(
+                        saveStructId,
+                        nextStructId,
+                        childStructId,
+                        eID,
+                        isChannel ? chanId : null,
+                        isChannel ? null : structure.getAttribute("name"),
+                        structure.getAttribute("type"),
+                        RDBMServices.dbFlag(xmlBool(structure.getAttribute("hidden"))),
+                        RDBMServices.dbFlag(xmlBool(structure.getAttribute("immutable"))),
+                        RDBMServices.dbFlag(xmlBool(structure.getAttribute("unremovable"))));
+        logger.debug("saveStructure row: {}", row);
+        rows.addStructure(row);
 
         // code to persist extension attributes for dlm
         final NamedNodeMap attribs = node.getAttributes();
@@ -1781,12 +1780,7 @@ public class RDBMDistributedLayoutStore extends RDBMUserLayoutStore {
                     && !name.equals(Constants.ATT_FRAGMENT)
                     && !name.equals(Constants.ATT_PRECEDENCE)) {
                 // a cp extension attribute. Push into param table.
-                parmStmt.clearParameters();
-                parmStmt.setInt(1, saveStructId);
-                parmStmt.setString(2, name);
-                parmStmt.setString(3, attrib.getNodeValue());
-                logger.debug(parmStmt.toString());
-                parmStmt.executeUpdate();
+                rows.addParameter(saveStructId, name, attrib.getNodeValue());
             }
         }
         final NodeList parameters = node.getChildNodes();
@@ -1806,12 +1800,7 @@ public class RDBMDistributedLayoutStore extends RDBMUserLayoutStore {
                         // override only for adhoc or if diff from chan def
                         final IPortletDefinitionParameter cp = portletDef.getParameter(parmName);
                         if (cp == null || !cp.getValue().equals(parmValue)) {
-                            parmStmt.clearParameters();
-                            parmStmt.setInt(1, saveStructId);
-                            parmStmt.setString(2, parmName);
-                            parmStmt.setString(3, parmValue);
-                            logger.debug(parmStmt.toString());
-                            parmStmt.executeUpdate();
+                            rows.addParameter(saveStructId, parmName, parmValue);
                         }
                     }
                 }
@@ -0,0 +1,375 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.layout.simple;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The UP_LAYOUT_STRUCT and UP_LAYOUT_PARAM rows of a single user layout. Used to save a layout by
+ * writing only the rows that differ from the rows already in the database.
+ */
+public final class LayoutStructureRows {
+    private static final Logger logger = LoggerFactory.getLogger(LayoutStructureRows.class);
+
+    private static final String SELECT_STRUCT_SQL =
+            "SELECT STRUCT_ID, NEXT_STRUCT_ID, CHLD_STRUCT_ID, EXTERNAL_ID, CHAN_ID, NAME, TYPE, "
+                    + "HIDDEN, IMMUTABLE, UNREMOVABLE FROM UP_LAYOUT_STRUCT "
+                    + "WHERE USER_ID=? AND LAYOUT_ID=?";
+    private static final String SELECT_PARAM_SQL =
+            "SELECT STRUCT_ID, STRUCT_PARM_NM, STRUCT_PARM_VAL FROM UP_LAYOUT_PARAM "
+                    + "WHERE USER_ID=? AND LAYOUT_ID=?";
+    private static final String INSERT_STRUCT_SQL =
+            "INSERT INTO UP_LAYOUT_STRUCT (NEXT_STRUCT_ID, CHLD_STRUCT_ID, EXTERNAL_ID, CHAN_ID, "
+                    + "NAME, TYPE, HIDDEN, IMMUTABLE, UNREMOVABLE, USER_ID, LAYOUT_ID, STRUCT_ID) "
+                    + "VALUES (?,?,?,?,?,?,?,?,?,?,?,?)";
+    private static final String UPDATE_STRUCT_SQL =
+            "UPDATE UP_LAYOUT_STRUCT SET NEXT_STRUCT_ID=?, CHLD_STRUCT_ID=?, EXTERNAL_ID=?, "
+                    + "CHAN_ID=?, NAME=?, TYPE=?, HIDDEN=?, IMMUTABLE=?, UNREMOVABLE=? "
+                    + "WHERE USER_ID=? AND LAYOUT_ID=? AND STRUCT_ID=?";
+    private static final String DELETE_STRUCT_SQL =
+            "DELETE FROM UP_LAYOUT_STRUCT WHERE USER_ID=? AND LAYOUT_ID=? AND STRUCT_ID=?";
+    private static final String INSERT_PARAM_SQL =
+            "INSERT INTO UP_LAYOUT_PARAM (STRUCT_PARM_VAL, USER_ID, LAYOUT_ID, STRUCT_ID, "
+                    + "STRUCT_PARM_NM) VALUES (?,?,?,?,?)";
+    private static final String UPDATE_PARAM_SQL =
+            "UPDATE UP_LAYOUT_PARAM SET STRUCT_PARM_VAL=? "
+                    + "WHERE USER_ID=? AND LAYOUT_ID=? AND STRUCT_ID=? AND STRUCT_PARM_NM=?";
+    private static final String DELETE_PARAM_SQL =
+            "DELETE FROM UP_LAYOUT_PARAM "
+                    + "WHERE USER_ID=? AND LAYOUT_ID=? AND STRUCT_ID=? AND STRUCT_PARM_NM=?";
+
+    private final Map<Integer, Structure> structures = new LinkedHashMap<>();
+    private final Map<Integer, Map<String, String>> parameters = new LinkedHashMap<>();
+
+    /** Add the UP_LAYOUT_STRUCT row of a layout node */
+    public void addStructure(Structure structure) {
+        this.structures.put(structure.getStructId(), structure);
+    }
+
+    /** Add a UP_LAYOUT_PARAM row of a layout node */
+    public void addParameter(int structId, String name, String value) {
+        this.parameters.computeIfAbsent(structId, id -> new LinkedHashMap<>()).put(name, value);
+    }
+
+    public Map<Integer, Structure> getStructures() {
+        return Collections.unmodifiableMap(this.structures);
+    }
+
+    public Map<String, String> getParameters(int structId) {
+        final Map<String, String> structParameters = this.parameters.get(structId);
+        return structParameters != null
+                ? Collections.unmodifiableMap(structParameters)
+                : Collections.emptyMap();
+    }
+
+    /** Load the rows of a layout from the database */
+    public static LayoutStructureRows load(Connection con, int userId, int layoutId)
+            throws SQLException {
+        final LayoutStructureRows rows = new LayoutStructureRows();
+
+        try (PreparedStatement stmt = con.prepareStatement(SELECT_STRUCT_SQL)) {
+            stmt.setInt(1, userId);
+            stmt.setInt(2, layoutId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.addStructure(
+                            new Structure(
+                                    rs.getInt("STRUCT_ID"),
+                                    rs.getInt("NEXT_STRUCT_ID"),
+                                    rs.getInt("CHLD_STRUCT_ID"),
+                                    parseExternalId(rs.getString("EXTERNAL_ID")),
+                                    getInteger(rs, "CHAN_ID"),
+                                    rs.getString("NAME"),
+                                    rs.getString("TYPE"),
+                                    rs.getString("HIDDEN"),
+                                    rs.getString("IMMUTABLE"),
+                                    rs.getString("UNREMOVABLE")));
+                }
+            }
+        }
+
+        try (PreparedStatement stmt = con.prepareStatement(SELECT_PARAM_SQL)) {
+            stmt.setInt(1, userId);
+            stmt.setInt(2, layoutId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.addParameter(
+                            rs.getInt("STRUCT_ID"),
+                            rs.getString("STRUCT_PARM_NM"),
+                            rs.getString("STRUCT_PARM_VAL"));
+                }
+            }
+        }
+
+        return rows;
+    }
+
+    /**
+     * Write the batched INSERT, UPDATE and DELETE statements needed to turn the previous rows of
+     * the layout into these rows.
+     *
+     * @param previous The rows currently in the database
+     * @return The number of rows written
+     */
+    public int writeChanges(Connection con, int userId, int layoutId, LayoutStructureRows previous)
+            throws SQLException {
+        int rowsWritten = 0;
+
+        // Parameters first, they belong to the structure rows
+        try (PreparedStatement deleteStmt = con.prepareStatement(DELETE_PARAM_SQL);
+                PreparedStatement updateStmt = con.prepareStatement(UPDATE_PARAM_SQL);
+                PreparedStatement insertStmt = con.prepareStatement(INSERT_PARAM_SQL)) {
+            for (final Map.Entry<Integer, Map<String, String>> entry :
+                    previous.parameters.entrySet()) {
+                final Map<String, String> current = this.getParameters(entry.getKey());
+                for (final String name : entry.getValue().keySet()) {
+                    if (!current.containsKey(name)) {
+                        setParameterKey(deleteStmt, 1, userId, layoutId, entry.getKey(), name);
+                        deleteStmt.addBatch();
+                        rowsWritten++;
+                    }
+                }
+            }
+            for (final Map.Entry<Integer, Map<String, String>> entry : this.parameters.entrySet()) {
+                final Map<String, String> old = previous.getParameters(entry.getKey());
+                for (final Map.Entry<String, String> parameter : entry.getValue().entrySet()) {
+                    final String name = parameter.getKey();
+                    final PreparedStatement stmt;
+                    if (!old.containsKey(name)) {
+                        stmt = insertStmt;
+                    } else if (!Objects.equals(old.get(name), parameter.getValue())) {
+                        stmt = updateStmt;
+                    } else {
+                        continue;
+                    }
+                    stmt.setString(1, parameter.getValue());
+                    setParameterKey(stmt, 2, userId, layoutId, entry.getKey(), name);
+                    stmt.addBatch();
+                    rowsWritten++;
+                }
+            }
+            executeBatch(deleteStmt, DELETE_PARAM_SQL);
+            executeBatch(updateStmt, UPDATE_PARAM_SQL);
+            executeBatch(insertStmt, INSERT_PARAM_SQL);
+        }
+
+        try (PreparedStatement deleteStmt = con.prepareStatement(DELETE_STRUCT_SQL);
+                PreparedStatement updateStmt = con.prepareStatement(UPDATE_STRUCT_SQL);
+                PreparedStatement insertStmt = con.prepareStatement(INSERT_STRUCT_SQL)) {
+            for (final Integer structId : previous.structures.keySet()) {
+                if (!this.structures.containsKey(structId)) {
+                    deleteStmt.setInt(1, userId);
+                    deleteStmt.setInt(2, layoutId);
+                    deleteStmt.setInt(3, structId);
+                    deleteStmt.addBatch();
+                    rowsWritten++;
+                }
+            }
+            for (final Structure structure : this.structures.values()) {
+                final Structure old = previous.structures.get(structure.getStructId());
+                final PreparedStatement stmt;
+                if (old == null) {
+                    stmt = insertStmt;
+                } else if (!old.equals(structure)) {
+                    stmt = updateStmt;
+                } else {
+                    continue;
+                }
+                structure.setValues(stmt, userId, layoutId);
+                stmt.addBatch();
+                rowsWritten++;
+            }
+            executeBatch(deleteStmt, DELETE_STRUCT_SQL);
+            executeBatch(updateStmt, UPDATE_STRUCT_SQL);
+            executeBatch(insertStmt, INSERT_STRUCT_SQL);
+        }
+
+        return rowsWritten;
+    }
+
+    private static void setParameterKey(
+            PreparedStatement stmt, int index, int userId, int layoutId, int structId, String name)
+            throws SQLException {
+        stmt.setInt(index, userId);
+        stmt.setInt(index + 1, layoutId);
+        stmt.setInt(index + 2, structId);
+        stmt.setString(index + 3, name);
+    }
+
+    private static void executeBatch(PreparedStatement stmt, String sql) throws SQLException {
+        final int[] counts = stmt.executeBatch();
+        if (counts.length > 0) {
+            logger.debug("{} x {}", counts.length, sql);
+        }
+    }
+
+    private static Integer getInteger(ResultSet rs, String column) throws SQLException {
+        final int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Integer parseExternalId(String externalId) {
+        if (StringUtils.isBlank(externalId)) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(externalId.trim());
+        } catch (NumberFormatException e) {
+            // Not written by this class, the structure will be rewritten
+            return null;
+        }
+    }
+
+    /** A UP_LAYOUT_STRUCT row */
+    public static final class Structure {
+        private final int structId;
+        private final int nextStructId;
+        private final int childStructId;
+        private final Integer externalId;
+        private final Integer chanId;
+        private final String name;
+        private final String type;
+        private final String hidden;
+        private final String immutable;
+        private final String unremovable;
+
+        public Structure(
+                int structId,
+                int nextStructId,
+                int childStructId,
+                Integer externalId,
+                Integer chanId,
+                String name,
+                String type,
+                String hidden,
+                String immutable,
+                String unremovable) {
+            this.structId = structId;
+            this.nextStructId = nextStructId;
+            this.childStructId = childStructId;
+            this.externalId = externalId;
+            this.chanId = chanId;
+            this.name = name;
+            this.type = type;
+            this.hidden = hidden;
+            this.immutable = immutable;
+            this.unremovable = unremovable;
+        }
+
+        public int getStructId() {
+            return structId;
+        }
+
+        public int getNextStructId() {
+            return nextStructId;
+        }
+
+        public int getChildStructId() {
+            return childStructId;
+        }
+
+        private void setValues(PreparedStatement stmt, int userId, int layoutId)
+                throws SQLException {
+            stmt.setInt(1, this.nextStructId);
+            stmt.setInt(2, this.childStructId);
+            if (this.externalId != null) {
+                stmt.setString(3, this.externalId.toString());
+            } else {
+                stmt.setNull(3, Types.VARCHAR);
+            }
+            if (this.chanId != null) {
+                stmt.setInt(4, this.chanId);
+            } else {
+                stmt.setNull(4, Types.NUMERIC);
+            }
+            if (this.name != null) {
+                stmt.setString(5, this.name);
+            } else {
+                stmt.setNull(5, Types.VARCHAR);
+            }
+            stmt.setString(6, this.type);
+            stmt.setString(7, this.hidden);
+            stmt.setString(8, this.immutable);
+            stmt.setString(9, this.unremovable);
+            stmt.setInt(10, userId);
+            stmt.setInt(11, layoutId);
+            stmt.setInt(12, this.structId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(
+                    structId,
+                    nextStructId,
+                    childStructId,
+                    externalId,
+                    chanId,
+                    name,
+                    type,
+                    hidden,
+                    immutable,
+                    unremovable);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Structure)) {
+                return false;
+            }
+            final Structure other = (Structure) obj;
+            return structId == other.structId
+                    && nextStructId == other.nextStructId
+                    && childStructId == other.childStructId
+                    && Objects.equals(externalId, other.externalId)
+                    && Objects.equals(chanId, other.chanId)
+                    && Objects.equals(name, other.name)
+                    && Objects.equals(type, other.type)
+                    && Objects.equals(hidden, other.hidden)
+                    && Objects.equals(immutable, other.immutable)
+                    && Objects.equals(unremovable, other.unremovable);
+        }
+
+        @Override
+        public String toString() {
+            return "Structure [structId="
+                    + structId
+                    + ", nextStructId="
+                    + nextStructId
+                    + ", childStructId="
+                    + childStructId
+                    + ", chanId="
+                    + chanId
+                    + ", name="
+                    + name
+                    + ", type="
+                    + type
+                    + "]";
+        }
+    }
+}
@@ -15,6 +15,7 @@
 package org.apereo.portal.layout.simple;
 
 import com.google.common.cache.Cache;
+import com.google.common.util.concurrent.Striped;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
@@ -31,7 +32,16 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
 import javax.annotation.Resource;
+import javax.servlet.http.HttpSession;
 import javax.sql.DataSource;
 import org.apereo.portal.EntityIdentifier;
 import org.apereo.portal.IUserProfile;
@@ -48,6 +58,7 @@ import org.apereo.portal.layout.LayoutStructure;
 import org.apereo.portal.layout.dao.IStylesheetDescriptorDao;
 import org.apereo.portal.portlet.registry.IPortletDefinitionRegistry;
 import org.apereo.portal.security.IPerson;
+import org.apereo.portal.security.IPersonManager;
 import org.apereo.portal.security.ISecurityContext;
 import org.apereo.portal.security.provider.PersonImpl;
 import org.apereo.portal.spring.locator.CounterStoreLocator;
@@ -56,13 +67,19 @@ import org.apereo.portal.utils.Tuple;
 import org.apereo.portal.utils.threading.SingletonDoubleCheckedCreator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.security.web.session.HttpSessionDestroyedEvent;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
 import org.springframework.transaction.support.TransactionOperations;
@@ -76,8 +93,18 @@ import org.w3c.dom.Node;
  *
  * <p>Prior to uPortal 2.5, this class existed in the org.jasig.portal package. It was moved to its
  * present package to express that it is part of the Simple Layout Manager implementation.
+ *
+ * <p>By default a saved layout is compared to the rows already in the database and only the changed
+ * rows are written. Saves can also be delayed for a short time so that rapid consecutive edits of a
+ * layout are written once, pending saves are written when the user's session ends.
  */
-public abstract class RDBMUserLayoutStore implements IUserLayoutStore, InitializingBean {
+@ManagedResource("uPortal:section=Layout,name=UserLayoutStore")
+public abstract class RDBMUserLayoutStore
+        implements IUserLayoutStore,
+                UserLayoutStoreMXBean,
+                InitializingBean,
+                DisposableBean,
+                ApplicationListener<HttpSessionDestroyedEvent> {
 
     private static final String PROFILE_TABLE_NAME = "UP_USER_PROFILE";
 
@@ -97,8 +124,39 @@ public abstract class RDBMUserLayoutStore implements IUserLayoutStore, Initializ
     protected IPortletDefinitionRegistry portletDefinitionRegistry;
     protected IStylesheetDescriptorDao stylesheetDescriptorDao;
 
+    private boolean incrementalLayoutSave = true;
+    private long layoutWriteBehindDelay = 0;
+    private ScheduledExecutorService layoutWriteBehindExecutor;
+    private final ConcurrentMap<Tuple<Integer, Integer>, PendingLayoutSave> pendingLayoutSaves =
+            new ConcurrentHashMap<>();
+    /** Serializes the writes of each (userId, profileId) layout */
+    private final Striped<Lock> layoutWriteLocks = Striped.lock(64);
+
+    private final LongAdder layoutSaveCount = new LongAdder();
+    private final LongAdder coalescedLayoutSaveCount = new LongAdder();
+    private final LongAdder layoutRowsWritten = new LongAdder();
+    private final AtomicLong lastLayoutRowsWritten = new AtomicLong();
+
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
+    /**
+     * @param incrementalLayoutSave If true only the layout rows that changed since the last save
+     *     are written, otherwise all rows of the layout are deleted and inserted again
+     */
+    @Value("${org.apereo.portal.layout.simple.RDBMUserLayoutStore.incrementalLayoutSave:true}")
+    public void setIncrementalLayoutSave(boolean incrementalLayoutSave) {
+        this.incrementalLayoutSave = incrementalLayoutSave;
+    }
+
+    /**
+     * @param layoutWriteBehindDelay Maximum number of milliseconds a layout save is delayed to
+     *     coalesce it with following saves of the same layout, 0 writes every save immediately
+     */
+    @Value("${org.apereo.portal.layout.simple.RDBMUserLayoutStore.layoutWriteBehindDelay:0}")
+    public void setLayoutWriteBehindDelay(long layoutWriteBehindDelay) {
+        this.layoutWriteBehindDelay = layoutWriteBehindDelay;
+    }
+
     @Autowired
     public void setLocaleStore(ILocaleStore localeStore) {
         this.localeStore = localeStore;
@@ -146,6 +204,16 @@ public abstract class RDBMUserLayoutStore implements IUserLayoutStore, Initializ
 
     @Override
     public void afterPropertiesSet() {
+        if (this.layoutWriteBehindDelay > 0) {
+            this.layoutWriteBehindExecutor =
+                    Executors.newSingleThreadScheduledExecutor(
+                            r -> {
+                                final Thread thread = new Thread(r, "LayoutWriteBehind");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+        }
+
         if (databaseMetadata.supportsOuterJoins()) {
             final IJoinQueryString joinQuery = databaseMetadata.getJoinQuery();
 
@@ -185,6 +253,80 @@ public abstract class RDBMUserLayoutStore implements IUserLayoutStore, Initializ
         }
     }
 
+    /** Writes all pending layout saves */
+    @Override
+    public void destroy() {
+        if (this.layoutWriteBehindExecutor != null) {
+            this.layoutWriteBehindExecutor.shutdownNow();
+        }
+        for (final Tuple<Integer, Integer> key : this.pendingLayoutSaves.keySet()) {
+            this.flushPendingLayoutSave(key);
+        }
+    }
+
+    /** Writes the pending layout saves of the user the destroyed session belonged to */
+    @Override
+    public void onApplicationEvent(HttpSessionDestroyedEvent event) {
+        if (this.pendingLayoutSaves.isEmpty()) {
+            return;
+        }
+
+        final HttpSession session = event.getSession();
+        final IPerson person;
+        try {
+            person = (IPerson) session.getAttribute(IPersonManager.PERSON_SESSION_KEY);
+        } catch (IllegalStateException e) {
+            // Session already invalidated, the pending saves will be written by their timer
+            return;
+        }
+        if (person != null) {
+            this.flushPendingLayoutSaves(person.getID());
+        }
+    }
+
+    /** @return Number of layout saves written to the database */
+    @ManagedAttribute
+    @Override
+    public long getLayoutSaveCount() {
+        return this.layoutSaveCount.sum();
+    }
+
+    /** @return Number of layout saves replaced by a later save before they were written */
+    @ManagedAttribute
+    @Override
+    public long getCoalescedLayoutSaveCount() {
+        return this.coalescedLayoutSaveCount.sum();
+    }
+
+    /** @return Number of UP_LAYOUT_STRUCT and UP_LAYOUT_PARAM rows written by all layout saves */
+    @ManagedAttribute
+    @Override
+    public long getLayoutRowsWritten() {
+        return this.layoutRowsWritten.sum();
+    }
+
+    /** @return Average number of layout rows written per layout save */
+    @ManagedAttribute
+    @Override
+    public double getAverageLayoutRowsWrittenPerSave() {
+        final long saves = this.layoutSaveCount.sum();
+        return saves == 0 ? 0.0 : (double) this.layoutRowsWritten.sum() / saves;
+    }
+
+    /** @return Number of layout rows written by the last layout save */
+    @ManagedAttribute
+    @Override
+    public long getLastLayoutRowsWritten() {
+        return this.lastLayoutRowsWritten.get();
+    }
+
+    /** @return Number of layout saves waiting to be written */
+    @ManagedAttribute
+    @Override
+    public int getPendingLayoutSaveCount() {
+        return this.pendingLayoutSaves.size();
+    }
+
     private final SingletonDoubleCheckedCreator<IPerson> systemPersonCreator =
             new SingletonDoubleCheckedCreator<IPerson>() {
                 @Override
@@ -407,6 +549,9 @@ public abstract class RDBMUserLayoutStore implements IUserLayoutStore, Initializ
     }
 
     protected Document getPersonalUserLayout(final IPerson person, final IUserProfile profile) {
+        // Make sure a delayed save of this layout is read back
+        this.flushPendingLayoutSave(person, profile);
+
         final LocaleManager localeManager = profile.getLocaleManager();
 
         return jdbcOperations.execute(
@@ -1085,9 +1230,12 @@ public abstract class RDBMUserLayoutStore implements IUserLayoutStore, Initializ
 
     protected abstract Element getStructure(Document doc, LayoutStructure ls);
 
-    protected abstract int saveStructure(
-            Node node, PreparedStatement structStmt, PreparedStatement parmStmt)
-            throws SQLException;
+    /**
+     * Add the rows for the node, its children and its following siblings to the layout rows.
+     *
+     * @return The struct id of the node, 0 if there is no node to save
+     */
+    protected abstract int saveStructure(Node node, LayoutStructureRows rows);
 
     /** Save the user layout. */
     @Override
@@ -1096,9 +1244,6 @@ public abstract class RDBMUserLayoutStore implements IUserLayoutStore, Initializ
             final IUserProfile profile,
             final Document layoutXML,
             final boolean channelsAdded) {
-        final long startTime = System.currentTimeMillis();
-        final int userId = person.getID();
-        final int profileId = profile.getProfileId();
 
         // don't try to save null layouts.
         if (layoutXML == null) {
@@ -1109,6 +1254,113 @@ public abstract class RDBMUserLayoutStore implements IUserLayoutStore, Initializ
             return;
         }
 
+        final Tuple<Integer, Integer> key = new Tuple<>(person.getID(), profile.getProfileId());
+        if (this.layoutWriteBehindExecutor == null) {
+            final Lock lock = this.layoutWriteLocks.get(key);
+            lock.lock();
+            try {
+                this.writeUserLayout(person, profile, layoutXML, channelsAdded);
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+
+        // The layout keeps changing after this call, save a copy of its current state
+        final Document layoutCopy = (Document) layoutXML.cloneNode(true);
+        this.pendingLayoutSaves.compute(
+                key,
+                (k, pending) -> {
+                    if (pending == null) {
+                        // First save since the last write, the write is delayed by at most the
+                        // write behind delay no matter how many saves follow
+                        this.layoutWriteBehindExecutor.schedule(
+                                () -> this.flushPendingLayoutSave(k),
+                                this.layoutWriteBehindDelay,
+                                TimeUnit.MILLISECONDS);
+                        return new PendingLayoutSave(person, profile, layoutCopy, channelsAdded);
+                    }
+                    this.coalescedLayoutSaveCount.increment();
+                    return new PendingLayoutSave(
+                            person, profile, layoutCopy, channelsAdded || pending.channelsAdded);
+                });
+    }
+
+    /** Writes the pending layout saves of the user */
+    protected void flushPendingLayoutSaves(int userId) {
+        for (final Tuple<Integer, Integer> key : this.pendingLayoutSaves.keySet()) {
+            if (key.first == userId) {
+                this.flushPendingLayoutSave(key);
+            }
+        }
+    }
+
+    /**
+     * Drops the pending layout saves of the user. Waits for a write of the user's layout that is
+     * already in progress, so no delayed save is written once this returns.
+     */
+    @Override
+    public void discardPendingLayoutSaves(int userId) {
+        for (final Tuple<Integer, Integer> key : this.pendingLayoutSaves.keySet()) {
+            if (key.first == userId) {
+                final Lock lock = this.layoutWriteLocks.get(key);
+                lock.lock();
+                try {
+                    // The timer finds no pending save for the key and writes nothing
+                    if (this.pendingLayoutSaves.remove(key) != null) {
+                        logger.debug("Discarded pending layout save for user id {}", userId);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the pending layout save of the user's profile. Waits for a write of the layout that
+     * is already in progress, so the layout can be read back once this returns.
+     *
+     * @return true if a pending layout save was written
+     */
+    protected boolean flushPendingLayoutSave(IPerson person, IUserProfile profile) {
+        return this.flushPendingLayoutSave(new Tuple<>(person.getID(), profile.getProfileId()));
+    }
+
+    private boolean flushPendingLayoutSave(Tuple<Integer, Integer> key) {
+        // Hold the lock while removing the save so saves of a layout are written in order, each
+        // write compares the layout to the rows the previous write left behind
+        final Lock lock = this.layoutWriteLocks.get(key);
+        lock.lock();
+        try {
+            final PendingLayoutSave pending = this.pendingLayoutSaves.remove(key);
+            if (pending == null) {
+                return false;
+            }
+            try {
+                this.writeUserLayout(
+                        pending.person, pending.profile, pending.layoutXML, pending.channelsAdded);
+            } catch (RuntimeException e) {
+                logger.error(
+                        "Failed to write delayed layout save for user {}",
+                        pending.person.getUserName(),
+                        e);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeUserLayout(
+            final IPerson person,
+            final IUserProfile profile,
+            final Document layoutXML,
+            final boolean channelsAdded) {
+        final long startTime = System.currentTimeMillis();
+        final int userId = person.getID();
+        final int profileId = profile.getProfileId();
+
         transactionOperations.execute(
                 status ->
                         jdbcOperations.execute(
@@ -1132,59 +1384,61 @@ public abstract class RDBMUserLayoutStore implements IUserLayoutStore, Initializ
                                                 firstLayout = true;
                                             }
 
-                                            String sql =
-                                                    "DELETE FROM UP_LAYOUT_PARAM WHERE USER_ID=? AND LAYOUT_ID=?";
-                                            PreparedStatement pstmt = con.prepareStatement(sql);
-                                            try {
-                                                pstmt.clearParameters();
-                                                pstmt.setInt(1, userId);
-                                                pstmt.setInt(2, layoutId);
-                                                logger.debug(sql);
-                                                pstmt.executeUpdate();
-                                            } finally {
-                                                pstmt.close();
-                                            }
+                                            final LayoutStructureRows rows =
+                                                    new LayoutStructureRows();
+                                            final int firstStructId =
+                                                    saveStructure(
+                                                            layoutXML
+                                                                    .getFirstChild()
+                                                                    .getFirstChild(),
+                                                            rows);
+
+                                            String sql;
+                                            PreparedStatement pstmt;
+                                            final LayoutStructureRows previousRows;
+                                            if (incrementalLayoutSave) {
+                                                previousRows =
+                                                        LayoutStructureRows.load(
+                                                                con, userId, layoutId);
+                                            } else {
+                                                sql =
+                                                        "DELETE FROM UP_LAYOUT_PARAM WHERE USER_ID=? AND LAYOUT_ID=?";
+                                                pstmt = con.prepareStatement(sql);
+                                                try {
+                                                    pstmt.clearParameters();
+                                                    pstmt.setInt(1, userId);
+                                                    pstmt.setInt(2, layoutId);
+                                                    logger.debug(sql);
+                                                    pstmt.executeUpdate();
+                                                } finally {
+                                                    pstmt.close();
+                                                }
 
-                                            sql =
-                                                    "DELETE FROM UP_LAYOUT_STRUCT WHERE USER_ID=? AND LAYOUT_ID=?";
-                                            pstmt = con.prepareStatement(sql);
-                                            try {
-                                                pstmt.clearParameters();
-                                                pstmt.setInt(1, userId);
-                                                pstmt.setInt(2, layoutId);
-                                                logger.debug(sql);
-                                                pstmt.executeUpdate();
-                                            } finally {
-                                                pstmt.close();
+                                                sql =
+                                                        "DELETE FROM UP_LAYOUT_STRUCT WHERE USER_ID=? AND LAYOUT_ID=?";
+                                                pstmt = con.prepareStatement(sql);
+                                                try {
+                                                    pstmt.clearParameters();
+                                                    pstmt.setInt(1, userId);
+                                                    pstmt.setInt(2, layoutId);
+                                                    logger.debug(sql);
+                                                    pstmt.executeUpdate();
+                                                } finally {
+                                                    pstmt.close();
+                                                }
+                                                previousRows = new LayoutStructureRows();
                                             }
 
-                                            int firstStructId;
-                                            try (PreparedStatement structStmt =
-                                                            con.prepareStatement(
-                                                                    "INSERT INTO UP_LAYOUT_STRUCT "
-                                                                            + "(USER_ID, LAYOUT_ID, STRUCT_ID, NEXT_STRUCT_ID, CHLD_STRUCT_ID,EXTERNAL_ID,CHAN_ID,NAME,TYPE,HIDDEN,IMMUTABLE,UNREMOVABLE) "
-                                                                            + "VALUES ("
-                                                                            + userId
-                                                                            + ","
-                                                                            + layoutId
-                                                                            + ",?,?,?,?,?,?,?,?,?,?)");
-                                                    PreparedStatement parmStmt =
-                                                            con.prepareStatement(
-                                                                    "INSERT INTO UP_LAYOUT_PARAM "
-                                                                            + "(USER_ID, LAYOUT_ID, STRUCT_ID, STRUCT_PARM_NM, STRUCT_PARM_VAL) "
-                                                                            + "VALUES ("
-                                                                            + userId
-                                                                            + ","
-                                                                            + layoutId
-                                                                            + ",?,?,?)")) {
-                                                firstStructId =
-                                                        saveStructure(
-                                                                layoutXML
-                                                                        .getFirstChild()
-                                                                        .getFirstChild(),
-                                                                structStmt,
-                                                                parmStmt);
-                                            }
+                                            final int rowsWritten =
+                                                    rows.writeChanges(
+                                                            con, userId, layoutId, previousRows);
+                                            layoutSaveCount.increment();
+                                            layoutRowsWritten.add(rowsWritten);
+                                            lastLayoutRowsWritten.set(rowsWritten);
+                                            logger.debug(
+                                                    "Wrote {} layout rows for user {}",
+                                                    rowsWritten,
+                                                    userId);
 
                                             // Check to see if the user has a matching layout
                                             sql =
@@ -1400,6 +1654,22 @@ public abstract class RDBMUserLayoutStore implements IUserLayoutStore, Initializ
         return pl;
     }
 
+    /** A layout save waiting to be written */
+    private static final class PendingLayoutSave {
+        private final IPerson person;
+        private final IUserProfile profile;
+        private final Document layoutXML;
+        private final boolean channelsAdded;
+
+        PendingLayoutSave(
+                IPerson person, IUserProfile profile, Document layoutXML, boolean channelsAdded) {
+            this.person = person;
+            this.profile = profile;
+            this.layoutXML = layoutXML;
+            this.channelsAdded = channelsAdded;
+        }
+    }
+
     private static class SystemUser implements IPerson {
         private static final long serialVersionUID = 1L;
         private final int systemUserId;
@@ -0,0 +1,37 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.layout.simple;
+
+/** JMX stats for the layout saves of {@link RDBMUserLayoutStore} */
+public interface UserLayoutStoreMXBean {
+
+    /** @return Number of layout saves written to the database */
+    long getLayoutSaveCount();
+
+    /** @return Number of layout saves replaced by a later save before they were written */
+    long getCoalescedLayoutSaveCount();
+
+    /** @return Number of UP_LAYOUT_STRUCT and UP_LAYOUT_PARAM rows written by all layout saves */
+    long getLayoutRowsWritten();
+
+    /** @return Average number of layout rows written per layout save */
+    double getAverageLayoutRowsWrittenPerSave();
+
+    /** @return Number of layout rows written by the last layout save */
+    long getLastLayoutRowsWritten();
+
+    /** @return Number of layout saves waiting to be written */
+    int getPendingLayoutSaveCount();
+}
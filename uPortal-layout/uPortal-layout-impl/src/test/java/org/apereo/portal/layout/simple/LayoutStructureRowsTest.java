@@ -0,0 +1,142 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.layout.simple;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LayoutStructureRowsTest {
+    private static final int USER_ID = 42;
+    private static final int LAYOUT_ID = 1;
+
+    private Connection con;
+
+    @Before
+    public void setup() throws Exception {
+        Class.forName("org.hsqldb.jdbcDriver");
+        con = DriverManager.getConnection("jdbc:hsqldb:mem:layoutStructureRowsTest", "sa", "");
+        try (Statement stmt = con.createStatement()) {
+            stmt.execute(
+                    "CREATE TABLE UP_LAYOUT_STRUCT (USER_ID INTEGER NOT NULL, "
+                            + "LAYOUT_ID INTEGER NOT NULL, STRUCT_ID INTEGER NOT NULL, "
+                            + "NEXT_STRUCT_ID INTEGER, CHLD_STRUCT_ID INTEGER, "
+                            + "EXTERNAL_ID VARCHAR(64), CHAN_ID INTEGER, NAME VARCHAR(35), "
+                            + "TYPE VARCHAR(35), HIDDEN VARCHAR(1), IMMUTABLE VARCHAR(1), "
+                            + "UNREMOVABLE VARCHAR(1), "
+                            + "PRIMARY KEY (USER_ID, LAYOUT_ID, STRUCT_ID))");
+            stmt.execute(
+                    "CREATE TABLE UP_LAYOUT_PARAM (USER_ID INTEGER NOT NULL, "
+                            + "LAYOUT_ID INTEGER NOT NULL, STRUCT_ID INTEGER NOT NULL, "
+                            + "STRUCT_PARM_NM VARCHAR(35) NOT NULL, "
+                            + "STRUCT_PARM_VAL VARCHAR(2000) NOT NULL, "
+                            + "PRIMARY KEY (USER_ID, LAYOUT_ID, STRUCT_ID, STRUCT_PARM_NM))");
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        try (Statement stmt = con.createStatement()) {
+            stmt.execute("DROP TABLE UP_LAYOUT_PARAM");
+            stmt.execute("DROP TABLE UP_LAYOUT_STRUCT");
+        }
+        con.close();
+    }
+
+    @Test
+    public void testWriteNewLayout() throws SQLException {
+        final LayoutStructureRows rows = createLayout("Home");
+
+        assertEquals(
+                5, rows.writeChanges(con, USER_ID, LAYOUT_ID, new LayoutStructureRows()));
+
+        final LayoutStructureRows loaded = LayoutStructureRows.load(con, USER_ID, LAYOUT_ID);
+        assertEquals(rows.getStructures(), loaded.getStructures());
+        assertEquals(rows.getParameters(3), loaded.getParameters(3));
+        assertEquals(rows.getParameters(2), loaded.getParameters(2));
+        assertEquals(Collections.emptyMap(), loaded.getParameters(1));
+    }
+
+    @Test
+    public void testWriteUnchangedLayout() throws SQLException {
+        createLayout("Home").writeChanges(con, USER_ID, LAYOUT_ID, new LayoutStructureRows());
+
+        final LayoutStructureRows previous = LayoutStructureRows.load(con, USER_ID, LAYOUT_ID);
+        assertEquals(0, createLayout("Home").writeChanges(con, USER_ID, LAYOUT_ID, previous));
+    }
+
+    @Test
+    public void testWriteChangedRowsOnly() throws SQLException {
+        createLayout("Home").writeChanges(con, USER_ID, LAYOUT_ID, new LayoutStructureRows());
+        final LayoutStructureRows previous = LayoutStructureRows.load(con, USER_ID, LAYOUT_ID);
+
+        // Rename the tab, move the portlet to a new column, change and drop a parameter
+        final LayoutStructureRows rows = new LayoutStructureRows();
+        rows.addStructure(structure(1, 0, 2, null, "My Home", "regular"));
+        rows.addStructure(structure(2, 4, 0, null, "Column", "regular"));
+        rows.addStructure(structure(4, 0, 3, null, "Column", "regular"));
+        rows.addStructure(structure(3, 0, 0, 17, null, null));
+        rows.addParameter(3, "dlm:moveAllowed", "false");
+
+        // 2 struct updates, 1 struct insert, 1 param update, 1 param delete
+        assertEquals(5, rows.writeChanges(con, USER_ID, LAYOUT_ID, previous));
+
+        final LayoutStructureRows loaded = LayoutStructureRows.load(con, USER_ID, LAYOUT_ID);
+        assertEquals(rows.getStructures(), loaded.getStructures());
+        assertEquals(rows.getParameters(3), loaded.getParameters(3));
+        assertEquals(Collections.emptyMap(), loaded.getParameters(2));
+
+        // Remove the new column again
+        final LayoutStructureRows removed = createLayout("My Home");
+        final LayoutStructureRows moved = LayoutStructureRows.load(con, USER_ID, LAYOUT_ID);
+        assertEquals(4, removed.writeChanges(con, USER_ID, LAYOUT_ID, moved));
+        assertEquals(
+                removed.getStructures(),
+                LayoutStructureRows.load(con, USER_ID, LAYOUT_ID).getStructures());
+    }
+
+    /** A tab containing a column containing a portlet */
+    private static LayoutStructureRows createLayout(String tabName) {
+        final LayoutStructureRows rows = new LayoutStructureRows();
+        rows.addStructure(structure(1, 0, 2, null, tabName, "regular"));
+        rows.addStructure(structure(2, 0, 3, null, "Column", "regular"));
+        rows.addStructure(structure(3, 0, 0, 17, null, null));
+        rows.addParameter(2, "dlm:width", "100%");
+        rows.addParameter(3, "dlm:moveAllowed", "true");
+        return rows;
+    }
+
+    private static LayoutStructureRows.Structure structure(
+            int structId, int next, int child, Integer chanId, String name, String type) {
+        return new LayoutStructureRows.Structure(
+                structId,
+                next,
+                child,
+                chanId == null ? null : 1000 + structId,
+                chanId,
+                name,
+                type,
+                "N",
+                "N",
+                "N");
+    }
+}
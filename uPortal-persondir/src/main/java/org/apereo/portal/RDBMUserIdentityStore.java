@@ -29,6 +29,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apereo.portal.jdbc.RDBMServices;
 import org.apereo.portal.jpa.BasePortalJpaDao;
+import org.apereo.portal.layout.IUserLayoutStore;
 import org.apereo.portal.layout.dao.IStylesheetUserPreferencesDao;
 import org.apereo.portal.layout.om.IStylesheetUserPreferences;
 import org.apereo.portal.persondir.ILocalAccountDao;
@@ -43,6 +44,7 @@ import org.apereo.portal.spring.locator.CounterStoreLocator;
 import org.apereo.portal.utils.SerializableObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.support.DataAccessUtils;
 import org.springframework.jdbc.core.ConnectionCallback;
@@ -82,6 +84,7 @@ public class RDBMUserIdentityStore implements IUserIdentityStore {
     private IPortletEntityDao portletEntityDao;
     private IStylesheetUserPreferencesDao stylesheetUserPreferencesDao;
     private ILocalAccountDao localAccountDao;
+    private IUserLayoutStore userLayoutStore;
     private Ehcache userLockCache;
 
     @Autowired
@@ -100,6 +103,13 @@ public class RDBMUserIdentityStore implements IUserIdentityStore {
         this.localAccountDao = localAccountDao;
     }
 
+    /** Lazy, the layout store depends on this store */
+    @Autowired
+    @Lazy
+    public void setUserLayoutStore(IUserLayoutStore userLayoutStore) {
+        this.userLayoutStore = userLayoutStore;
+    }
+
     @Autowired
     @Qualifier("org.apereo.portal.RDBMUserIdentityStore.userLockCache")
     public void setUserLockCache(Ehcache userLockCache) {
@@ -187,6 +197,9 @@ public class RDBMUserIdentityStore implements IUserIdentityStore {
                                     gid);
                         }
 
+                        // A delayed layout save would write the deleted layout back
+                        userLayoutStore.discardPendingLayoutSaves(userId);
+
                         jdbcOperations.update(
                                 "DELETE FROM UP_USER            WHERE USER_ID = ?", userId);
                         jdbcOperations.update(
@@ -53,4 +53,19 @@ public interface PortletExecutionManagerMXBean {
 
     /** @return Number of times each portlet has been executed */
     Map<String, Integer> getPortletExecutionCounts();
+
+    /** @param adaptiveConcurrencyLimits If true each portlet's concurrent executions are limited */
+    void setAdaptiveConcurrencyLimits(boolean adaptiveConcurrencyLimits);
+
+    /** @return If true each portlet's concurrent executions are limited */
+    boolean isAdaptiveConcurrencyLimits();
+
+    /** @return Current concurrency limit of each portlet */
+    Map<String, Integer> getPortletConcurrencyLimits();
+
+    /** @return Number of executions in flight for each portlet */
+    Map<String, Integer> getPortletInFlightExecutions();
+
+    /** @return Number of executions denied by each portlet's concurrency limit */
+    Map<String, Long> getPortletConcurrencyLimitRejections();
 }
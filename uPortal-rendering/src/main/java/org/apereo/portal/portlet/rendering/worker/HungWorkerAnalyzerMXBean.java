@@ -25,6 +25,9 @@ public interface HungWorkerAnalyzerMXBean {
     /** @return Hung worker counts by portlet */
     Map<String, Integer> getHungPortletCounts();
 
+    /** @return Number of portlet workers currently executing */
+    int getInFlightWorkerCount();
+
     /**
      * @param percentPermittedErrantByFname The allowed ratio of hung portlets to available workers
      *     per fname
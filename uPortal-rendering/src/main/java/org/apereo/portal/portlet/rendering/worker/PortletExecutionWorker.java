@@ -297,9 +297,19 @@ abstract class PortletExecutionWorker<V> implements IPortletExecutionWorker<V> {
 
     @Override
     public boolean isComplete() {
-        return this.complete > 0
-                || this.workerThread == null
-                || this.workerThread.getState() == State.TERMINATED;
+        if (this.complete > 0) {
+            return true;
+        }
+
+        // A submitted worker that has not started is still queued or waiting for a permit, it is
+        // only complete once its future has been canceled or failed
+        if (this.started == 0) {
+            final Future<V> localFuture = this.future;
+            return localFuture == null || localFuture.isDone();
+        }
+
+        final Thread localWorkerThread = this.workerThread;
+        return localWorkerThread == null || localWorkerThread.getState() == State.TERMINATED;
     }
 
     @Override
@@ -15,27 +15,129 @@
 package org.apereo.portal.rendering.cache;
 
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.Collections;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 
-/** Holder class for an event cache and output properties */
+/**
+ * Holder class for an event cache and output properties. The events are stored in a flat array
+ * sized to the number of events, avoiding the per-event node overhead of a linked list.
+ */
 class CachedEventReader<E> implements Serializable {
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
-    private final List<E> eventCache;
+    private final Object[] events;
     private final Map<String, String> outputProperties;
 
     public CachedEventReader(List<E> eventCache, Map<String, String> outputProperties) {
-        this.eventCache = Collections.unmodifiableList(eventCache);
+        this.events = eventCache.toArray();
         this.outputProperties = Collections.unmodifiableMap(outputProperties);
     }
 
     public List<E> getEventCache() {
-        return this.eventCache;
+        return new EventArrayList<E>(this.events);
     }
 
     public Map<String, String> getOutputProperties() {
         return this.outputProperties;
     }
+
+    /** Read-only {@link List} view of the event array */
+    private static final class EventArrayList<E> extends AbstractList<E> implements RandomAccess {
+        private final Object[] events;
+
+        EventArrayList(Object[] events) {
+            this.events = events;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public E get(int index) {
+            return (E) this.events[index];
+        }
+
+        @Override
+        public int size() {
+            return this.events.length;
+        }
+
+        @Override
+        public ListIterator<E> listIterator(int index) {
+            if (index < 0 || index > this.events.length) {
+                throw new IndexOutOfBoundsException("Index: " + index);
+            }
+            return new EventArrayListIterator<E>(this.events, index);
+        }
+    }
+
+    /**
+     * Read-only {@link ListIterator} over the event array. Unlike the {@link AbstractList} iterator
+     * there is no concurrent modification tracking since the array never changes.
+     */
+    private static final class EventArrayListIterator<E> implements ListIterator<E> {
+        private final Object[] events;
+        private int cursor;
+
+        EventArrayListIterator(Object[] events, int cursor) {
+            this.events = events;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.cursor < this.events.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public E next() {
+            if (this.cursor >= this.events.length) {
+                throw new NoSuchElementException();
+            }
+            return (E) this.events[this.cursor++];
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return this.cursor > 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public E previous() {
+            if (this.cursor <= 0) {
+                throw new NoSuchElementException();
+            }
+            return (E) this.events[--this.cursor];
+        }
+
+        @Override
+        public int nextIndex() {
+            return this.cursor;
+        }
+
+        @Override
+        public int previousIndex() {
+            return this.cursor - 1;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Cached events cannot be modified");
+        }
+
+        @Override
+        public void set(E e) {
+            throw new UnsupportedOperationException("Cached events cannot be modified");
+        }
+
+        @Override
+        public void add(E e) {
+            throw new UnsupportedOperationException("Cached events cannot be modified");
+        }
+    }
 }
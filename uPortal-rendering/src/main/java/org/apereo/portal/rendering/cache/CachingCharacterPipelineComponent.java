@@ -14,10 +14,17 @@
  */
 package org.apereo.portal.rendering.cache;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ListIterator;
 import org.apereo.portal.character.stream.CharacterEventBufferReader;
 import org.apereo.portal.character.stream.CharacterEventReader;
+import org.apereo.portal.character.stream.events.CharacterDataEvent;
+import org.apereo.portal.character.stream.events.CharacterDataEventImpl;
 import org.apereo.portal.character.stream.events.CharacterEvent;
+import org.apereo.portal.character.stream.events.CharacterEventTypes;
+import org.apereo.portal.character.stream.events.EncodedCharacterDataEvent;
+import org.apereo.portal.character.stream.events.EncodedCharacterDataEventImpl;
 import org.apereo.portal.rendering.CharacterPipelineComponent;
 
 /** component that can cache character pipeline events */
@@ -25,8 +32,93 @@ public class CachingCharacterPipelineComponent
         extends CachingPipelineComponent<CharacterEventReader, CharacterEvent>
         implements CharacterPipelineComponent {
 
+    private boolean preEncodeCharacterData = false;
+
+    /**
+     * @param preEncodeCharacterData If cached character data should be stored as {@link
+     *     EncodedCharacterDataEvent}s, allowing the renderer to write the pre-encoded bytes
+     *     directly to the response. Trades additional cache heap for less encoding work per
+     *     request.
+     */
+    public void setPreEncodeCharacterData(boolean preEncodeCharacterData) {
+        this.preEncodeCharacterData = preEncodeCharacterData;
+    }
+
     @Override
     protected CharacterEventReader createEventReader(ListIterator<CharacterEvent> eventCache) {
         return new CharacterEventBufferReader(eventCache);
     }
+
+    /**
+     * Coalesces runs of adjacent {@link CharacterDataEvent}s into a single event created via {@link
+     * CharacterDataEventImpl#create(String)} so the data is shared with every other cache entry
+     * containing the same string.
+     *
+     * <p>Empty character events are the chunk points written by the {@link
+     * org.apereo.portal.character.stream.events.ChunkPointPlaceholderEventSource}, they are dropped
+     * but still end the current run so that user specific markup stays in its own event and the
+     * surrounding markup keeps de-duplicating across users.
+     *
+     * <p>If {@link #setPreEncodeCharacterData(boolean)} is enabled the resulting character events
+     * are {@link EncodedCharacterDataEvent}s.
+     */
+    @Override
+    protected List<CharacterEvent> compactEvents(List<CharacterEvent> events) {
+        final List<CharacterEvent> compactEvents = new ArrayList<CharacterEvent>(events.size());
+
+        final StringBuilder runData = new StringBuilder();
+        CharacterDataEvent runStart = null;
+        int runLength = 0;
+        for (final CharacterEvent event : events) {
+            if (event.getEventType() != CharacterEventTypes.CHARACTER) {
+                addRun(compactEvents, runStart, runLength, runData);
+                runStart = null;
+                runLength = 0;
+                compactEvents.add(event);
+                continue;
+            }
+
+            final CharacterDataEvent dataEvent = (CharacterDataEvent) event;
+            final String data = dataEvent.getData();
+            if (data.isEmpty() || data.startsWith("<html ")) {
+                // Chunk point, or the root element that the DynamicRenderingPipeline prefixes
+                // with a doctype, end the current run
+                addRun(compactEvents, runStart, runLength, runData);
+                runStart = null;
+                runLength = 0;
+                if (data.isEmpty()) {
+                    continue;
+                }
+            }
+
+            if (runLength == 0) {
+                runStart = dataEvent;
+                runData.setLength(0);
+            }
+            runData.append(data);
+            runLength++;
+        }
+        addRun(compactEvents, runStart, runLength, runData);
+
+        return compactEvents;
+    }
+
+    private void addRun(
+            List<CharacterEvent> compactEvents,
+            CharacterDataEvent runStart,
+            int runLength,
+            StringBuilder runData) {
+        if (runLength == 0) {
+            return;
+        }
+
+        if (this.preEncodeCharacterData) {
+            final String data = runLength == 1 ? runStart.getData() : runData.toString();
+            compactEvents.add(EncodedCharacterDataEventImpl.create(data));
+        } else if (runLength == 1) {
+            compactEvents.add(runStart);
+        } else {
+            compactEvents.add(CharacterDataEventImpl.create(runData.toString()));
+        }
+    }
 }
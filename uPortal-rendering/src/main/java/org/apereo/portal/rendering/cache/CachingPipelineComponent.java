@@ -14,11 +14,18 @@
  */
 package org.apereo.portal.rendering.cache;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import net.sf.ehcache.Ehcache;
@@ -34,14 +41,32 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.BeanNameAware;
 import org.springframework.beans.factory.annotation.Autowired;
 
-/** Component that caches events from a wrapped component */
+/**
+ * Component that caches events from a wrapped component
+ *
+ * <p>If {@link #setCoalesceMisses(boolean)} is enabled concurrent cache misses for the same {@link
+ * CacheKey} are coalesced: the first thread renders the wrapped component while the others wait up
+ * to {@link #setCoalescingWaitTime(long)} milliseconds for its result. A waiting thread that times
+ * out, or whose rendering thread fails, falls through and renders the wrapped component itself.
+ */
 public abstract class CachingPipelineComponent<R, E> extends PipelineComponentWrapper<R, E>
-        implements BeanNameAware {
+        implements BeanNameAware, CachingPipelineComponentMXBean {
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
+    /** Renders currently in progress, only used when coalescing misses */
+    private final ConcurrentMap<CacheKey, CompletableFuture<CachedEventReader<E>>> inFlightRenders =
+            new ConcurrentHashMap<>();
+
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong renderedMisses = new AtomicLong();
+    private final AtomicLong coalescedMisses = new AtomicLong();
+    private final AtomicLong coalescingFallThroughs = new AtomicLong();
+
     private ResourcesElementsProvider resourcesElementsProvider;
     private Ehcache cache;
     private String beanName;
+    private volatile boolean coalesceMisses = false;
+    private volatile long coalescingWaitTime = TimeUnit.SECONDS.toMillis(5);
 
     @Autowired
     public void setResourcesElementsProvider(ResourcesElementsProvider resourcesElementsProvider) {
@@ -57,6 +82,51 @@ public abstract class CachingPipelineComponent<R, E> extends PipelineComponentWr
         this.beanName = name;
     }
 
+    @Override
+    public void setCoalesceMisses(boolean coalesceMisses) {
+        this.coalesceMisses = coalesceMisses;
+    }
+
+    @Override
+    public boolean isCoalesceMisses() {
+        return this.coalesceMisses;
+    }
+
+    @Override
+    public void setCoalescingWaitTime(long coalescingWaitTime) {
+        this.coalescingWaitTime = coalescingWaitTime;
+    }
+
+    @Override
+    public long getCoalescingWaitTime() {
+        return this.coalescingWaitTime;
+    }
+
+    @Override
+    public long getCacheHits() {
+        return this.cacheHits.get();
+    }
+
+    @Override
+    public long getRenderedMisses() {
+        return this.renderedMisses.get();
+    }
+
+    @Override
+    public long getCoalescedMisses() {
+        return this.coalescedMisses.get();
+    }
+
+    @Override
+    public long getCoalescingFallThroughs() {
+        return this.coalescingFallThroughs.get();
+    }
+
+    @Override
+    public int getInFlightRenders() {
+        return this.inFlightRenders.size();
+    }
+
     @Override
     public final CacheKey getCacheKey(HttpServletRequest request, HttpServletResponse response) {
         return this.wrappedComponent.getCacheKey(request, response);
@@ -65,7 +135,6 @@ public abstract class CachingPipelineComponent<R, E> extends PipelineComponentWr
     /* (non-Javadoc)
      * @see org.apereo.portal.rendering.PipelineComponent#getEventReader(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
      */
-    @SuppressWarnings("unchecked")
     @Override
     public final PipelineEventReader<R, E> getEventReader(
             HttpServletRequest request, HttpServletResponse response) {
@@ -78,40 +147,17 @@ public abstract class CachingPipelineComponent<R, E> extends PipelineComponentWr
 
         // Get the key for this request from the target component and see if there is a cache entry
         final CacheKey cacheKey = this.wrappedComponent.getCacheKey(request, response);
-        Element element = this.cache.get(cacheKey);
-        CachedEventReader<E> cachedEventReader = null;
-        if (element != null) {
-            cachedEventReader = (CachedEventReader<E>) element.getObjectValue();
-        }
+        CachedEventReader<E> cachedEventReader = this.getCachedEventReader(cacheKey);
 
         // If there was a cached reader return it immediately
         if (cachedEventReader == null) {
-            // No cached data for key, call target component to get events and an updated cache key
-            logger.debug(
-                    "{} - No cached events found for key {}, calling parent",
-                    this.beanName,
-                    cacheKey);
-            final PipelineEventReader<R, E> pipelineEventReader =
-                    this.wrappedComponent.getEventReader(request, response);
-
-            // Copy the events from the reader into a buffer to be cached
-            final List<E> eventCache = new LinkedList<E>();
-            for (final E event : pipelineEventReader) {
-                // TODO add de-duplication logic here
-                eventCache.add(event);
+            if (this.coalesceMisses) {
+                cachedEventReader = this.coalesceEventReader(cacheKey, request, response);
+            } else {
+                cachedEventReader = this.renderEventReader(cacheKey, request, response);
             }
-
-            final Map<String, String> outputProperties = pipelineEventReader.getOutputProperties();
-            cachedEventReader =
-                    new CachedEventReader<E>(
-                            eventCache, new LinkedHashMap<String, String>(outputProperties));
-
-            // Cache the buffer
-            element = new Element(cacheKey, cachedEventReader);
-            this.cache.put(element);
-            logger.debug(
-                    "{} - Cached {} events for key {}", this.beanName, eventCache.size(), cacheKey);
         } else {
+            this.cacheHits.incrementAndGet();
             logger.debug("{} - Found cached events for key {}", this.beanName, cacheKey);
         }
 
@@ -122,6 +168,117 @@ public abstract class CachingPipelineComponent<R, E> extends PipelineComponentWr
         return new PipelineEventReaderImpl<R, E>(eventReader, outputProperties);
     }
 
+    @SuppressWarnings("unchecked")
+    private CachedEventReader<E> getCachedEventReader(CacheKey cacheKey) {
+        final Element element = this.cache.get(cacheKey);
+        if (element == null) {
+            return null;
+        }
+        return (CachedEventReader<E>) element.getObjectValue();
+    }
+
+    /**
+     * Render the wrapped component for the key, coalescing with any other thread that is already
+     * rendering the same key.
+     */
+    private CachedEventReader<E> coalesceEventReader(
+            CacheKey cacheKey, HttpServletRequest request, HttpServletResponse response) {
+        final CompletableFuture<CachedEventReader<E>> render = new CompletableFuture<>();
+        final CompletableFuture<CachedEventReader<E>> existingRender =
+                this.inFlightRenders.putIfAbsent(cacheKey, render);
+
+        if (existingRender == null) {
+            // This thread renders, other threads missing on the key wait on the future
+            try {
+                // Another thread may have populated the cache between the miss and the putIfAbsent
+                CachedEventReader<E> cachedEventReader = this.getCachedEventReader(cacheKey);
+                if (cachedEventReader == null) {
+                    cachedEventReader = this.renderEventReader(cacheKey, request, response);
+                } else {
+                    this.cacheHits.incrementAndGet();
+                }
+                render.complete(cachedEventReader);
+                return cachedEventReader;
+            } catch (RuntimeException | Error e) {
+                render.completeExceptionally(e);
+                throw e;
+            } finally {
+                this.inFlightRenders.remove(cacheKey, render);
+            }
+        }
+
+        logger.debug(
+                "{} - Waiting up to {}ms on in-flight render for key {}",
+                this.beanName,
+                this.coalescingWaitTime,
+                cacheKey);
+        try {
+            final CachedEventReader<E> cachedEventReader =
+                    existingRender.get(this.coalescingWaitTime, TimeUnit.MILLISECONDS);
+            this.coalescedMisses.incrementAndGet();
+            return cachedEventReader;
+        } catch (TimeoutException e) {
+            logger.warn(
+                    "{} - Timed out after {}ms waiting on in-flight render for key {}, rendering directly",
+                    this.beanName,
+                    this.coalescingWaitTime,
+                    cacheKey);
+        } catch (ExecutionException e) {
+            logger.debug(
+                    "{} - In-flight render failed for key {}, rendering directly",
+                    this.beanName,
+                    cacheKey,
+                    e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.debug(
+                    "{} - Interrupted waiting on in-flight render for key {}, rendering directly",
+                    this.beanName,
+                    cacheKey);
+        }
+
+        this.coalescingFallThroughs.incrementAndGet();
+        return this.renderEventReader(cacheKey, request, response);
+    }
+
+    /** Call the wrapped component, buffer its events and cache them under the key */
+    private CachedEventReader<E> renderEventReader(
+            CacheKey cacheKey, HttpServletRequest request, HttpServletResponse response) {
+        // No cached data for key, call target component to get events and an updated cache key
+        logger.debug(
+                "{} - No cached events found for key {}, calling parent", this.beanName, cacheKey);
+        this.renderedMisses.incrementAndGet();
+        final PipelineEventReader<R, E> pipelineEventReader =
+                this.wrappedComponent.getEventReader(request, response);
+
+        // Copy the events from the reader into a buffer to be cached
+        final List<E> eventBuffer = new ArrayList<E>();
+        for (final E event : pipelineEventReader) {
+            eventBuffer.add(event);
+        }
+        final List<E> eventCache = this.compactEvents(eventBuffer);
+
+        final Map<String, String> outputProperties = pipelineEventReader.getOutputProperties();
+        final CachedEventReader<E> cachedEventReader =
+                new CachedEventReader<E>(
+                        eventCache, new LinkedHashMap<String, String>(outputProperties));
+
+        // Cache the buffer
+        this.cache.put(new Element(cacheKey, cachedEventReader));
+        logger.debug(
+                "{} - Cached {} events for key {}", this.beanName, eventCache.size(), cacheKey);
+
+        return cachedEventReader;
+    }
+
+    /**
+     * Hook for subclasses to coalesce or de-duplicate the buffered events before they are cached.
+     * The default implementation returns the events unchanged.
+     */
+    protected List<E> compactEvents(List<E> events) {
+        return events;
+    }
+
     // Ugly!!! Needed because XMLEventReader implements Iterator but does not parameterize it
     protected abstract R createEventReader(ListIterator<E> eventCache);
 }
@@ -0,0 +1,49 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.rendering.cache;
+
+/** JMX stats for CachingPipelineComponent */
+public interface CachingPipelineComponentMXBean {
+
+    /** @return Number of requests served from the event cache */
+    long getCacheHits();
+
+    /** @return Number of cache misses that executed the wrapped pipeline component */
+    long getRenderedMisses();
+
+    /** @return Number of cache misses that were served by waiting on another thread's render */
+    long getCoalescedMisses();
+
+    /**
+     * @return Number of coalesced cache misses that gave up waiting (timeout or failed render) and
+     *     executed the wrapped pipeline component themselves
+     */
+    long getCoalescingFallThroughs();
+
+    /** @return Number of cache keys currently being rendered by a coalescing thread */
+    int getInFlightRenders();
+
+    /** @return If concurrent cache misses for the same key are coalesced into a single render */
+    boolean isCoalesceMisses();
+
+    /** @param coalesceMisses If concurrent cache misses for the same key should be coalesced */
+    void setCoalesceMisses(boolean coalesceMisses);
+
+    /** @return Maximum time in milliseconds to wait on another thread's render */
+    long getCoalescingWaitTime();
+
+    /** @param coalescingWaitTime Maximum time in milliseconds to wait on another thread's render */
+    void setCoalescingWaitTime(long coalescingWaitTime);
+}
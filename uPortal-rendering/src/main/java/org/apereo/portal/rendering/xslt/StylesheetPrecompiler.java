@@ -0,0 +1,146 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.rendering.xslt;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apereo.portal.layout.dao.IStylesheetDescriptorDao;
+import org.apereo.portal.layout.om.IStylesheetDescriptor;
+import org.apereo.portal.xml.XmlUtilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ResourceLoaderAware;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * Compiles the stylesheets of all {@link IStylesheetDescriptor}s in parallel once the portal has
+ * started, so the first requests find the structure and theme transforms already compiled and
+ * cached by {@link XmlUtilities#getTemplates(Resource)}.
+ */
+public class StylesheetPrecompiler implements ResourceLoaderAware {
+    protected final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private IStylesheetDescriptorDao stylesheetDescriptorDao;
+    private XmlUtilities xmlUtilities;
+    private ResourceLoader resourceLoader;
+    private ExecutorService executor;
+    private boolean precompileOnStartup = true;
+
+    @Autowired
+    public void setStylesheetDescriptorDao(IStylesheetDescriptorDao stylesheetDescriptorDao) {
+        this.stylesheetDescriptorDao = stylesheetDescriptorDao;
+    }
+
+    @Autowired
+    public void setXmlUtilities(XmlUtilities xmlUtilities) {
+        this.xmlUtilities = xmlUtilities;
+    }
+
+    @Override
+    public void setResourceLoader(ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    @Autowired(required = false)
+    public void setExecutor(@Qualifier("uPortalTaskExecutor") ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Value("${org.apereo.portal.rendering.xslt.StylesheetPrecompiler.precompileOnStartup:true}")
+    public void setPrecompileOnStartup(boolean precompileOnStartup) {
+        this.precompileOnStartup = precompileOnStartup;
+    }
+
+    @EventListener
+    public void onContextRefreshed(ContextRefreshedEvent event) {
+        if (!this.precompileOnStartup
+                || this.executor == null
+                || !this.started.compareAndSet(false, true)) {
+            return;
+        }
+
+        final List<? extends IStylesheetDescriptor> stylesheetDescriptors;
+        try {
+            stylesheetDescriptors = this.stylesheetDescriptorDao.getStylesheetDescriptors();
+        } catch (RuntimeException e) {
+            this.logger.info(
+                    "Could not list stylesheet descriptors, "
+                            + "stylesheets will be compiled on first use",
+                    e);
+            return;
+        }
+
+        this.precompileStylesheets(stylesheetDescriptors);
+    }
+
+    /**
+     * Compile the stylesheets of the descriptors on the executor
+     *
+     * @return Completes once every stylesheet was compiled or failed to compile
+     */
+    public CompletableFuture<Void> precompileStylesheets(
+            List<? extends IStylesheetDescriptor> stylesheetDescriptors) {
+        final Set<String> stylesheetResources = new LinkedHashSet<>();
+        for (final IStylesheetDescriptor stylesheetDescriptor : stylesheetDescriptors) {
+            stylesheetResources.add(stylesheetDescriptor.getStylesheetResource());
+        }
+
+        final long start = System.currentTimeMillis();
+        final List<CompletableFuture<Void>> compilations = new ArrayList<>();
+        for (final String stylesheetResource : stylesheetResources) {
+            try {
+                compilations.add(
+                        CompletableFuture.runAsync(
+                                () -> this.compile(stylesheetResource), this.executor));
+            } catch (RejectedExecutionException e) {
+                this.logger.debug("Not precompiling {}, the executor is busy", stylesheetResource);
+            }
+        }
+
+        return CompletableFuture.allOf(compilations.toArray(new CompletableFuture[0]))
+                .thenRun(
+                        () ->
+                                this.logger.info(
+                                        "Precompiled {} stylesheets in {}ms",
+                                        compilations.size(),
+                                        System.currentTimeMillis() - start));
+    }
+
+    private void compile(String stylesheetResource) {
+        final Resource resource = this.resourceLoader.getResource(stylesheetResource);
+        final long start = System.currentTimeMillis();
+        try {
+            this.xmlUtilities.getTemplates(resource);
+            this.logger.debug(
+                    "Precompiled {} in {}ms", resource, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            this.logger.warn("Failed to precompile stylesheet {}", resource, e);
+        }
+    }
+}
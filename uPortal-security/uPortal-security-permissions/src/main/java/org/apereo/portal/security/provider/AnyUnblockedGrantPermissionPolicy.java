@@ -14,8 +14,12 @@
  */
 package org.apereo.portal.security.provider;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.Element;
@@ -38,6 +42,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
@@ -64,6 +69,12 @@ import org.springframework.stereotype.Service;
  * <p>Principal -- Small group (DENY) -- Bigger group -- Huge group Principal -- Some other group --
  * Bigger other group (GRANT) -- Huge group Results in GRANT because there is an unblocked path to a
  * GRANT.
+ *
+ * <p>When the authorization service is {@link AuthorizationImpl} the search is done against the
+ * {@link PermissionDecisionTable} of the owner and activity rather than querying the permissions of
+ * each principal on the path, unless disabled with the {@code
+ * org.apereo.portal.security.provider.AnyUnblockedGrantPermissionPolicy.compiledDecisionTables}
+ * property.
  */
 @Service("anyUnblockedGrantPermissionPolicy")
 public class AnyUnblockedGrantPermissionPolicy implements IPermissionPolicy {
@@ -80,6 +91,16 @@ public class AnyUnblockedGrantPermissionPolicy implements IPermissionPolicy {
                     "org.apereo.portal.security.provider.AnyUnblockedGrantPermissionPolicy.HAS_UNBLOCKED_GRANT")
     private Cache hasUnblockedGrantCache;
 
+    @Autowired private PermissionDecisionTables permissionDecisionTables;
+
+    private boolean compiledDecisionTables = true;
+
+    @Value(
+            "${org.apereo.portal.security.provider.AnyUnblockedGrantPermissionPolicy.compiledDecisionTables:true}")
+    public void setCompiledDecisionTables(boolean compiledDecisionTables) {
+        this.compiledDecisionTables = compiledDecisionTables;
+    }
+
     @Override
     public boolean doesPrincipalHavePermission(
             IAuthorizationService service,
@@ -184,11 +205,17 @@ public class AnyUnblockedGrantPermissionPolicy implements IPermissionPolicy {
         // Search ourselves and all ancestors for an unblocked GRANT.
         boolean result;
         try {
-            // Track groups we've already explored to avoid infinite loop
-            final Set<IGroupMember> seenGroups = new HashSet<>();
-            result =
-                    hasUnblockedPathToGrantWithCache(
-                            service, principal, owner, activity, target, seenGroups);
+            if (this.compiledDecisionTables && service instanceof AuthorizationImpl) {
+                result =
+                        hasUnblockedPathToGrantCompiled(
+                                (AuthorizationImpl) service, principal, owner, activity, target);
+            } else {
+                // Track groups we've already explored to avoid infinite loop
+                final Set<IGroupMember> seenGroups = new HashSet<>();
+                result =
+                        hasUnblockedPathToGrantWithCache(
+                                service, principal, owner, activity, target, seenGroups);
+            }
         } catch (Exception e) {
             log.error(
                     "Error searching for unblocked path to grant for principal [" + principal + "]",
@@ -222,6 +249,60 @@ public class AnyUnblockedGrantPermissionPolicy implements IPermissionPolicy {
         return result;
     }
 
+    /**
+     * Same search as {@link #hasUnblockedPathToGrant(IAuthorizationService,
+     * IAuthorizationPrincipal, IPermissionOwner, IPermissionActivity, IPermissionTarget, Set)} but
+     * against the compiled permissions of the owner and activity, the groups tree is only walked if
+     * some principal has an active GRANT on the target.
+     */
+    private boolean hasUnblockedPathToGrantCompiled(
+            AuthorizationImpl service,
+            IAuthorizationPrincipal principal,
+            IPermissionOwner owner,
+            IPermissionActivity activity,
+            IPermissionTarget target) {
+
+        final PermissionDecisionTable table =
+                permissionDecisionTables.getTable(owner.getFname(), activity.getFname());
+        if (table.isEmpty()) {
+            return false;
+        }
+
+        final Set<String> targetKeys =
+                new HashSet<>(
+                        service.getContainingGroupKeys(
+                                owner.getFname(), activity.getFname(), target.getKey()));
+        targetKeys.add(target.getKey());
+
+        return table.hasUnblockedPathToGrant(
+                principal, targetKeys, p -> getParentPrincipals(service, p));
+    }
+
+    private Collection<IAuthorizationPrincipal> getParentPrincipals(
+            IAuthorizationService service, IAuthorizationPrincipal principal) {
+        final Set<IEntityGroup> immediatelyContainingGroups;
+        try {
+            immediatelyContainingGroups = service.getGroupMember(principal).getParentGroups();
+        } catch (Exception e) {
+            log.error("Error evaluating parent groups of principal [" + principal + "]", e);
+            return Collections.emptyList();
+        }
+
+        final List<IAuthorizationPrincipal> parentPrincipals = new ArrayList<>();
+        for (IGroupMember parentGroup : immediatelyContainingGroups) {
+            try {
+                if (parentGroup != null) {
+                    parentPrincipals.add(service.newPrincipal(parentGroup));
+                }
+            } catch (Exception e) {
+                // problem evaluating this path, but let's not let it stop
+                // us from exploring other paths.
+                log.error("Error evaluating permissions of parent group [" + parentGroup + "]", e);
+            }
+        }
+        return parentPrincipals;
+    }
+
     private boolean hasUnblockedPathToGrantWithCache(
             IAuthorizationService service,
             IAuthorizationPrincipal principal,
@@ -31,6 +31,9 @@ import net.sf.ehcache.constructs.blocking.SelfPopulatingCache;
 import org.apereo.portal.AuthorizationException;
 import org.apereo.portal.concurrency.CachingException;
 import org.apereo.portal.concurrency.caching.RequestCache;
+import org.apereo.portal.concurrency.caching.RequestCacheContext;
+import org.apereo.portal.concurrency.caching.RequestCacheKey;
+import org.apereo.portal.concurrency.caching.RequestCacheTable;
 import org.apereo.portal.groups.GroupsException;
 import org.apereo.portal.groups.ICompositeGroupService;
 import org.apereo.portal.groups.IEntityGroup;
@@ -60,6 +63,7 @@ import org.apereo.portal.services.EntityCachingService;
 import org.apereo.portal.services.GroupService;
 import org.apereo.portal.spring.locator.EntityTypesLocator;
 import org.apereo.portal.spring.locator.PortletCategoryRegistryLocator;
+import org.apereo.portal.url.IPortalRequestUtils;
 import org.apereo.portal.utils.Tuple;
 import org.apereo.portal.utils.cache.CacheFactory;
 import org.apereo.portal.utils.cache.CacheKey;
@@ -70,11 +74,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.stereotype.Service;
 
 /** */
 @Service("authorizationService")
-public class AuthorizationImpl implements IAuthorizationService {
+public class AuthorizationImpl implements IAuthorizationService, ApplicationEventPublisherAware {
 
     /**
      * Period during which this service will not complain (in the logs) about the same item of
@@ -89,6 +95,16 @@ public class AuthorizationImpl implements IAuthorizationService {
     /** Constant representing the separator used in the principal key. */
     private static final String PRINCIPAL_SEPARATOR = ".";
 
+    /*
+     * The permission checks are called many times per request, they are memoized with request
+     * cache tables directly instead of through the RequestCache aspect.
+     */
+    private static final RequestCacheTable CAN_PRINCIPAL_SUBSCRIBE_TABLE =
+            RequestCacheTable.create(AuthorizationImpl.class.getName() + ".canPrincipalSubscribe");
+    private static final RequestCacheTable DOES_PRINCIPAL_HAVE_PERMISSION_TABLE =
+            RequestCacheTable.create(
+                    AuthorizationImpl.class.getName() + ".doesPrincipalHavePermission");
+
     /** Instance of the Permission Store for storing permission information. */
     private IPermissionStore permissionStore;
 
@@ -101,6 +117,9 @@ public class AuthorizationImpl implements IAuthorizationService {
     /** Indicates permission activity to permissionTargetProvider. */
     private IPermissionOwnerDao permissionOwner;
 
+    /** Notified when permissions are changed through this service. */
+    private ApplicationEventPublisher applicationEventPublisher;
+
     /** The cache to hold the list of principals. */
     private Ehcache principalCache;
 
@@ -124,6 +143,13 @@ public class AuthorizationImpl implements IAuthorizationService {
 
     @Autowired private IPermissionTargetProviderRegistry targetProviderRegistry;
 
+    private IPortalRequestUtils portalRequestUtils;
+
+    @Autowired(required = false)
+    public void setPortalRequestUtils(IPortalRequestUtils portalRequestUtils) {
+        this.portalRequestUtils = portalRequestUtils;
+    }
+
     @Autowired
     public void setDefaultPermissionPolicy(IPermissionPolicy newDefaultPermissionPolicy) {
         this.defaultPermissionPolicy = newDefaultPermissionPolicy;
@@ -178,6 +204,11 @@ public class AuthorizationImpl implements IAuthorizationService {
         this.permissionOwner = permissionOwner;
     }
 
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
     public void setNonEntityPermissionTargetProviders(
             Set<String> nonEntityPermissionTargetProviders) {
         this.nonEntityPermissionTargetProviders = nonEntityPermissionTargetProviders;
@@ -196,6 +227,7 @@ public class AuthorizationImpl implements IAuthorizationService {
             if (this.cachePermissions) {
                 removeFromPermissionsCache(permissions);
             }
+            publishPermissionsChanged(permissions);
         }
     }
 
@@ -403,7 +435,6 @@ public class AuthorizationImpl implements IAuthorizationService {
      * @exception AuthorizationException indicates authorization information could not be retrieved.
      */
     @Override
-    @RequestCache
     public boolean canPrincipalRender(IAuthorizationPrincipal principal, String portletDefinitionId)
             throws AuthorizationException {
         // This code simply assumes that anyone who can subscribe to a channel
@@ -471,9 +502,16 @@ public class AuthorizationImpl implements IAuthorizationService {
      * @exception AuthorizationException indicates authorization information could not be retrieved.
      */
     @Override
-    @RequestCache
     public boolean canPrincipalSubscribe(
             IAuthorizationPrincipal principal, String portletDefinitionId) {
+        return CAN_PRINCIPAL_SUBSCRIBE_TABLE.get(
+                getRequestCacheContext(),
+                RequestCacheKey.of(principal, portletDefinitionId),
+                () -> primCanPrincipalSubscribe(principal, portletDefinitionId));
+    }
+
+    private boolean primCanPrincipalSubscribe(
+            IAuthorizationPrincipal principal, String portletDefinitionId) {
         String owner = IPermission.PORTAL_SUBSCRIBE;
 
         // retrieve the indicated channel from the channel registry store and
@@ -526,7 +564,6 @@ public class AuthorizationImpl implements IAuthorizationService {
      * @exception AuthorizationException indicates authorization information could not be retrieved.
      */
     @Override
-    @RequestCache
     public boolean doesPrincipalHavePermission(
             IAuthorizationPrincipal principal, String owner, String activity, String target)
             throws AuthorizationException {
@@ -547,7 +584,6 @@ public class AuthorizationImpl implements IAuthorizationService {
      * @exception AuthorizationException indicates authorization information could not be retrieved.
      */
     @Override
-    @RequestCache
     public boolean doesPrincipalHavePermission(
             IAuthorizationPrincipal principal,
             String owner,
@@ -555,6 +591,19 @@ public class AuthorizationImpl implements IAuthorizationService {
             String target,
             IPermissionPolicy policy)
             throws AuthorizationException {
+        return DOES_PRINCIPAL_HAVE_PERMISSION_TABLE.get(
+                getRequestCacheContext(),
+                RequestCacheKey.of(principal, owner, activity, target, policy),
+                () -> primDoesPrincipalHavePermission(principal, owner, activity, target, policy));
+    }
+
+    private boolean primDoesPrincipalHavePermission(
+            IAuthorizationPrincipal principal,
+            String owner,
+            String activity,
+            String target,
+            IPermissionPolicy policy)
+            throws AuthorizationException {
 
         final CacheKeyBuilder<Serializable, Serializable> cacheKeyBuilder =
                 CacheKey.builder(AuthorizationImpl.class.getName());
@@ -803,6 +852,14 @@ public class AuthorizationImpl implements IAuthorizationService {
         return getPermissionStore().select(owner, null, null, target, null);
     }
 
+    /** @return The request cache context, null if there is no current portal request */
+    private RequestCacheContext getRequestCacheContext() {
+        if (this.portalRequestUtils == null) {
+            return null;
+        }
+        return RequestCacheContext.getCurrentContext(this.portalRequestUtils);
+    }
+
     /** @return org.apereo.portal.security.IPermissionStore */
     private IPermissionStore getPermissionStore() {
         return this.permissionStore;
@@ -1020,70 +1077,9 @@ public class AuthorizationImpl implements IAuthorizationService {
             return perms;
         }
 
-        Set<String> containingGroups;
-
+        final Set<String> containingGroups;
         if (target != null) {
-
-            final Element element = this.entityParentsCache.get(target);
-            if (element != null) {
-                containingGroups = (Set<String>) element.getObjectValue();
-            } else {
-                containingGroups = new HashSet<>();
-
-                // Ignore target entity lookups for the various synthetic ALL targets
-                if (!IPermission.ALL_CATEGORIES_TARGET.equals(target)
-                        && !IPermission.ALL_GROUPS_TARGET.equals(target)
-                        && !IPermission.ALL_PORTLETS_TARGET.equals(target)
-                        && !IPermission.ALL_TARGET.equals(target)) {
-
-                    // UP-4410; It would be ideal if the target string indicated it was a group or
-                    // entity that might be
-                    // a member of a group so we could determine whether to check what groups the
-                    // target entity might be
-                    // contained within to see if the principal has permission to the containing
-                    // group, but it does not
-                    // (too significant to refactor database values at this point).  If the owner
-                    // and activity strings map to
-                    // a type of target that might be a group name or entity name, create a set of
-                    // the groups the target
-                    // entity is contained in.
-                    boolean checkTargetForContainingGroups = true;
-                    if (owner != null && activity != null) {
-                        IPermissionActivity permissionActivity =
-                                permissionOwner.getPermissionActivity(owner, activity);
-                        if (nonEntityPermissionTargetProviders.contains(
-                                permissionActivity.getTargetProviderKey())) {
-                            checkTargetForContainingGroups = false;
-                        }
-                    }
-                    if (checkTargetForContainingGroups) {
-                        logger.debug(
-                                "Target '{}' is an entity. Checking for group or groups containing entity",
-                                target);
-
-                        IGroupMember targetEntity = GroupService.findGroup(target);
-                        if (targetEntity == null) {
-                            if (target.startsWith(IPermission.PORTLET_PREFIX)) {
-                                targetEntity =
-                                        GroupService.getGroupMember(
-                                                target.replace(IPermission.PORTLET_PREFIX, ""),
-                                                IPortletDefinition.class);
-                            } else {
-                                targetEntity = GroupService.getGroupMember(target, IPerson.class);
-                            }
-                        }
-
-                        if (targetEntity != null) {
-                            for (IEntityGroup ancestor : targetEntity.getAncestorGroups()) {
-                                containingGroups.add(ancestor.getKey());
-                            }
-                        }
-                    }
-                }
-
-                this.entityParentsCache.put(new Element(target, containingGroups));
-            }
-
+            containingGroups = getContainingGroupKeys(owner, activity, target);
         } else {
             containingGroups = new HashSet<>();
         }
@@ -1125,6 +1121,80 @@ public class AuthorizationImpl implements IAuthorizationService {
         return ((IPermission[]) al.toArray(new IPermission[al.size()]));
     }
 
+    /**
+     * Returns the keys of the groups containing the target entity. Permissions granted or denied on
+     * these groups also apply to the target itself.
+     *
+     * @param owner String, may be null
+     * @param activity String, may be null
+     * @param target String
+     */
+    Set<String> getContainingGroupKeys(String owner, String activity, String target) {
+        final Set<String> containingGroups;
+
+        final Element element = this.entityParentsCache.get(target);
+        if (element != null) {
+            containingGroups = (Set<String>) element.getObjectValue();
+        } else {
+            containingGroups = new HashSet<>();
+
+            // Ignore target entity lookups for the various synthetic ALL targets
+            if (!IPermission.ALL_CATEGORIES_TARGET.equals(target)
+                    && !IPermission.ALL_GROUPS_TARGET.equals(target)
+                    && !IPermission.ALL_PORTLETS_TARGET.equals(target)
+                    && !IPermission.ALL_TARGET.equals(target)) {
+
+                // UP-4410; It would be ideal if the target string indicated it was a group or
+                // entity that might be
+                // a member of a group so we could determine whether to check what groups the
+                // target entity might be
+                // contained within to see if the principal has permission to the containing
+                // group, but it does not
+                // (too significant to refactor database values at this point).  If the owner
+                // and activity strings map to
+                // a type of target that might be a group name or entity name, create a set of
+                // the groups the target
+                // entity is contained in.
+                boolean checkTargetForContainingGroups = true;
+                if (owner != null && activity != null) {
+                    IPermissionActivity permissionActivity =
+                            permissionOwner.getPermissionActivity(owner, activity);
+                    if (nonEntityPermissionTargetProviders.contains(
+                            permissionActivity.getTargetProviderKey())) {
+                        checkTargetForContainingGroups = false;
+                    }
+                }
+                if (checkTargetForContainingGroups) {
+                    logger.debug(
+                            "Target '{}' is an entity. Checking for group or groups containing entity",
+                            target);
+
+                    IGroupMember targetEntity = GroupService.findGroup(target);
+                    if (targetEntity == null) {
+                        if (target.startsWith(IPermission.PORTLET_PREFIX)) {
+                            targetEntity =
+                                    GroupService.getGroupMember(
+                                            target.replace(IPermission.PORTLET_PREFIX, ""),
+                                            IPortletDefinition.class);
+                        } else {
+                            targetEntity = GroupService.getGroupMember(target, IPerson.class);
+                        }
+                    }
+
+                    if (targetEntity != null) {
+                        for (IEntityGroup ancestor : targetEntity.getAncestorGroups()) {
+                            containingGroups.add(ancestor.getKey());
+                        }
+                    }
+                }
+            }
+
+            this.entityParentsCache.put(new Element(target, containingGroups));
+        }
+
+        return containingGroups;
+    }
+
     /**
      * @return IPermission[]
      * @param owner String
@@ -1162,6 +1232,14 @@ public class AuthorizationImpl implements IAuthorizationService {
         removeFromPermissionsCache(principals);
     }
 
+    /** Tell listeners caching permission evaluation results that the permissions changed. */
+    private void publishPermissionsChanged(IPermission[] permissions) {
+        if (this.applicationEventPublisher != null) {
+            this.applicationEventPublisher.publishEvent(
+                    new PermissionsChangedEvent(this, permissions));
+        }
+    }
+
     /**
      * Removes <code>IPermissions</code> from the back end store.
      *
@@ -1175,6 +1253,7 @@ public class AuthorizationImpl implements IAuthorizationService {
             if (this.cachePermissions) {
                 removeFromPermissionsCache(permissions);
             }
+            publishPermissionsChanged(permissions);
         }
     }
 
@@ -1191,6 +1270,7 @@ public class AuthorizationImpl implements IAuthorizationService {
             if (this.cachePermissions) {
                 removeFromPermissionsCache(permissions);
             }
+            publishPermissionsChanged(permissions);
         }
     }
 }
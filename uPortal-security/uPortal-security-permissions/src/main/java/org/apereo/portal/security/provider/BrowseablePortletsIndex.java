@@ -0,0 +1,132 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.security.provider;
+
+import com.google.common.collect.ImmutableSet;
+import java.io.Serializable;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import org.apereo.portal.portlet.dao.PortletDefinitionChangedEvent;
+import org.apereo.portal.portlet.om.IPortletDefinition;
+import org.apereo.portal.portlet.registry.IPortletDefinitionRegistry;
+import org.apereo.portal.security.IAuthorizationPrincipal;
+import org.apereo.portal.security.IAuthorizationService;
+import org.apereo.portal.security.IPerson;
+import org.apereo.portal.utils.cache.CacheKey;
+import org.apereo.portal.utils.cache.CacheKey.CacheKeyBuilder;
+import org.apereo.portal.utils.cache.UsernameTaggedCacheEntryPurger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Index of the portlet definition ids each principal may BROWSE. Listings of the
+ * whole portlet registry would otherwise evaluate a permission for every portlet on every request,
+ * with the index that happens in one pass over the registry per principal and each listing only
+ * does set lookups.
+ *
+ * <p>Entries are tagged with the username so they are purged when the user logs out. The whole
+ * index is cleared when a permission or portlet definition is changed; changes to group
+ * membership are picked up when the entries expire.
+ */
+@Service
+public class BrowseablePortletsIndex {
+    protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+    /** Incremented on every clear so entries built from stale data are not cached */
+    private final AtomicLong generation = new AtomicLong();
+
+    private IAuthorizationService authorizationService;
+    private IPortletDefinitionRegistry portletDefinitionRegistry;
+    private Ehcache portletIdsCache;
+
+    @Autowired
+    public void setAuthorizationService(IAuthorizationService authorizationService) {
+        this.authorizationService = authorizationService;
+    }
+
+    @Autowired
+    public void setPortletDefinitionRegistry(IPortletDefinitionRegistry portletDefinitionRegistry) {
+        this.portletDefinitionRegistry = portletDefinitionRegistry;
+    }
+
+    @Autowired
+    public void setPortletIdsCache(
+            @Qualifier("org.apereo.portal.security.provider.BrowseablePortletsIndex.PORTLET_IDS")
+                    Ehcache portletIdsCache) {
+        this.portletIdsCache = portletIdsCache;
+    }
+
+    /**
+     * @return The string ids of the portlet definitions the principal may browse, see {@link
+     *     IAuthorizationService#canPrincipalBrowse(IAuthorizationPrincipal, IPortletDefinition)}
+     */
+    @SuppressWarnings("unchecked")
+    public Set<String> getBrowseablePortletIds(IAuthorizationPrincipal principal) {
+        final CacheKeyBuilder<Serializable, Serializable> cacheKeyBuilder =
+                CacheKey.builder(BrowseablePortletsIndex.class.getName());
+        final String key = principal.getKey();
+        if (IPerson.class.equals(principal.getType())) {
+            cacheKeyBuilder.addTag(UsernameTaggedCacheEntryPurger.createCacheEntryTag(key));
+        }
+        cacheKeyBuilder.addAll(key, principal.getType());
+        final CacheKey cacheKey = cacheKeyBuilder.build();
+
+        final Element element = this.portletIdsCache.get(cacheKey);
+        if (element != null) {
+            return (Set<String>) element.getObjectValue();
+        }
+
+        final long startGeneration = this.generation.get();
+        final ImmutableSet.Builder<String> portletIds = ImmutableSet.builder();
+        for (final IPortletDefinition portlet :
+                this.portletDefinitionRegistry.getAllPortletDefinitions()) {
+            if (this.authorizationService.canPrincipalBrowse(principal, portlet)) {
+                portletIds.add(portlet.getPortletDefinitionId().getStringId());
+            }
+        }
+        final Set<String> result = portletIds.build();
+
+        this.portletIdsCache.put(new Element(cacheKey, result));
+        if (this.generation.get() != startGeneration) {
+            // Permissions or portlets changed while building, the result may already be stale
+            this.portletIdsCache.remove(cacheKey);
+        }
+
+        return result;
+    }
+
+    @EventListener
+    public void onPortletDefinitionChanged(PortletDefinitionChangedEvent event) {
+        logger.debug("Clearing portlet index after {}", event);
+        this.clear();
+    }
+
+    @EventListener
+    public void onPermissionsChanged(PermissionsChangedEvent event) {
+        logger.debug("Clearing portlet index after {}", event);
+        this.clear();
+    }
+
+    private void clear() {
+        this.generation.incrementAndGet();
+        this.portletIdsCache.removeAll();
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.security.provider;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import org.apereo.portal.security.IAuthorizationPrincipal;
+import org.apereo.portal.security.IPermission;
+
+/**
+ * All permissions of a single owner and activity compiled into a target key -&gt; principal string
+ * -&gt; permissions table. A permission check against the table needs no permission store or cache
+ * lookups while walking up the groups tree, see {@link #hasUnblockedPathToGrant(
+ * IAuthorizationPrincipal, Collection, Function)}.
+ */
+final class PermissionDecisionTable {
+
+    private final Map<String, Map<String, List<IPermission>>> permissionsByTarget;
+
+    PermissionDecisionTable(IPermission[] permissions) {
+        final Map<String, Map<String, List<IPermission>>> byTarget = new HashMap<>();
+        for (final IPermission permission : permissions) {
+            byTarget.computeIfAbsent(permission.getTarget(), t -> new HashMap<>())
+                    .computeIfAbsent(permission.getPrincipal(), p -> new ArrayList<>(1))
+                    .add(permission);
+        }
+
+        final ImmutableMap.Builder<String, Map<String, List<IPermission>>> builder =
+                ImmutableMap.builder();
+        for (final Map.Entry<String, Map<String, List<IPermission>>> targetEntry :
+                byTarget.entrySet()) {
+            final ImmutableMap.Builder<String, List<IPermission>> principals =
+                    ImmutableMap.builder();
+            for (final Map.Entry<String, List<IPermission>> principalEntry :
+                    targetEntry.getValue().entrySet()) {
+                principals.put(
+                        principalEntry.getKey(), ImmutableList.copyOf(principalEntry.getValue()));
+            }
+            builder.put(targetEntry.getKey(), principals.build());
+        }
+        this.permissionsByTarget = builder.build();
+    }
+
+    /** @return true if the owner and activity have no permissions at all */
+    boolean isEmpty() {
+        return this.permissionsByTarget.isEmpty();
+    }
+
+    /**
+     * Answers if there is a path from the principal up the groups tree to a principal with an
+     * active GRANT that is not interrupted by a principal with an active DENY. This is the same
+     * rule {@link AnyUnblockedGrantPermissionPolicy} applies by querying each level of the tree.
+     *
+     * @param principal The principal to check
+     * @param targetKeys The target and the keys of the groups containing it, permissions on any of
+     *     them apply
+     * @param parents Resolves the principals of the groups immediately containing a principal
+     */
+    boolean hasUnblockedPathToGrant(
+            IAuthorizationPrincipal principal,
+            Collection<String> targetKeys,
+            Function<IAuthorizationPrincipal, Collection<IAuthorizationPrincipal>> parents) {
+
+        final Map<String, Boolean> decisions = this.getActiveDecisions(targetKeys);
+        if (!decisions.containsValue(Boolean.TRUE)) {
+            // No active GRANT for any principal, no need to look at the groups tree
+            return false;
+        }
+
+        final Set<String> seenPrincipals = new HashSet<>();
+        final Deque<IAuthorizationPrincipal> queue = new ArrayDeque<>();
+        queue.add(principal);
+        while (!queue.isEmpty()) {
+            final IAuthorizationPrincipal current = queue.poll();
+            final String principalString = current.getPrincipalString();
+            if (!seenPrincipals.add(principalString)) {
+                continue;
+            }
+
+            final Boolean decision = decisions.get(principalString);
+            if (Boolean.TRUE.equals(decision)) {
+                return true;
+            }
+            if (decision == null) {
+                // Neither GRANT nor DENY, keep searching the containing groups
+                queue.addAll(parents.apply(current));
+            }
+            // A DENY blocks this path, GRANTs on groups containing this principal don't apply
+        }
+
+        return false;
+    }
+
+    /**
+     * Merges the active permissions on the target keys into a principal string -&gt; decision map.
+     * The decision is false if the principal has an active DENY, since DENY trumps GRANT, and true
+     * if it only has an active GRANT.
+     */
+    private Map<String, Boolean> getActiveDecisions(Collection<String> targetKeys) {
+        final Date now = new Date();
+        final Map<String, Boolean> decisions = new HashMap<>();
+        for (final String targetKey : targetKeys) {
+            final Map<String, List<IPermission>> principals =
+                    this.permissionsByTarget.get(targetKey);
+            if (principals == null) {
+                continue;
+            }
+
+            for (final Map.Entry<String, List<IPermission>> entry : principals.entrySet()) {
+                for (final IPermission permission : entry.getValue()) {
+                    if ((permission.getEffective() != null && permission.getEffective().after(now))
+                            || (permission.getExpires() != null
+                                    && !permission.getExpires().after(now))) {
+                        // Inactive
+                        continue;
+                    }
+
+                    if (IPermission.PERMISSION_TYPE_DENY.equals(permission.getType())) {
+                        decisions.put(entry.getKey(), Boolean.FALSE);
+                    } else if (IPermission.PERMISSION_TYPE_GRANT.equals(permission.getType())) {
+                        decisions.putIfAbsent(entry.getKey(), Boolean.TRUE);
+                    }
+                }
+            }
+        }
+        return decisions;
+    }
+
+    @Override
+    public String toString() {
+        return "PermissionDecisionTable [targets=" + this.permissionsByTarget.size() + "]";
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.security.provider;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import org.apereo.portal.security.IPermission;
+import org.apereo.portal.security.IPermissionStore;
+import org.apereo.portal.utils.Tuple;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Builds and caches a {@link PermissionDecisionTable} per owner and activity from a single read of
+ * the permission store. When permissions change only the tables of the affected owners and
+ * activities are discarded, they are rebuilt on next use.
+ */
+@Service
+public class PermissionDecisionTables {
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+    /** Incremented when permissions change, tables built across a change are not cached */
+    private final AtomicLong generation = new AtomicLong();
+
+    private IPermissionStore permissionStore;
+    private Ehcache decisionTableCache;
+
+    @Autowired
+    public void setPermissionStore(IPermissionStore permissionStore) {
+        this.permissionStore = permissionStore;
+    }
+
+    @Autowired
+    public void setDecisionTableCache(
+            @Qualifier("org.apereo.portal.security.provider.PermissionDecisionTables.TABLES")
+                    Ehcache decisionTableCache) {
+        this.decisionTableCache = decisionTableCache;
+    }
+
+    /** @return The compiled permissions of the owner and activity */
+    PermissionDecisionTable getTable(String owner, String activity) {
+        final Tuple<String, String> key = new Tuple<>(owner, activity);
+        final Element element = this.decisionTableCache.get(key);
+        if (element != null) {
+            return (PermissionDecisionTable) element.getObjectValue();
+        }
+
+        final long startGeneration = this.generation.get();
+        final IPermission[] permissions =
+                this.permissionStore.select(owner, null, activity, null, null);
+        final PermissionDecisionTable table = new PermissionDecisionTable(permissions);
+        logger.debug(
+                "Compiled {} permissions for owner '{}' and activity '{}' into {}",
+                permissions.length,
+                owner,
+                activity,
+                table);
+
+        this.decisionTableCache.put(new Element(key, table));
+        if (this.generation.get() != startGeneration) {
+            // Permissions changed while building, the table may already be stale
+            this.decisionTableCache.remove(key);
+        }
+
+        return table;
+    }
+
+    @EventListener
+    public void onPermissionsChanged(PermissionsChangedEvent event) {
+        this.generation.incrementAndGet();
+
+        final Set<Tuple<String, String>> keys = new HashSet<>();
+        for (final IPermission permission : event.getPermissions()) {
+            keys.add(new Tuple<>(permission.getOwner(), permission.getActivity()));
+        }
+        logger.debug("Discarding permission decision tables {} after {}", keys, event);
+        this.decisionTableCache.removeAll(keys);
+    }
+}
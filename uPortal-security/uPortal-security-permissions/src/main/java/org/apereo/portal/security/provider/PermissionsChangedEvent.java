@@ -0,0 +1,52 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.security.provider;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+import org.apereo.portal.security.IPermission;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by {@link AuthorizationImpl} after permissions are added to, removed from, or updated
+ * in the permission store. Listeners caching the results of permission evaluation should discard
+ * them; a grant to a group affects every member of that group so the changed permissions are only
+ * a hint of what is affected.
+ */
+public class PermissionsChangedEvent extends ApplicationEvent {
+
+    private final List<IPermission> permissions;
+
+    /**
+     * @param source the component that published the event (never <code>null</code>)
+     * @param permissions the non-null permissions that changed
+     */
+    public PermissionsChangedEvent(Object source, IPermission[] permissions) {
+        super(source);
+        Validate.notNull(permissions, "permissions can not be null");
+        this.permissions = Collections.unmodifiableList(Arrays.asList(permissions.clone()));
+    }
+
+    public List<IPermission> getPermissions() {
+        return permissions;
+    }
+
+    @Override
+    public String toString() {
+        return "PermissionsChangedEvent [permissions=" + permissions.size() + "]";
+    }
+}
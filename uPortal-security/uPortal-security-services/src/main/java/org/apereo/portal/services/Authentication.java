@@ -16,8 +16,14 @@ package org.apereo.portal.services;
 
 import java.util.Enumeration;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.servlet.http.HttpServletRequest;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -40,6 +46,7 @@ import org.apereo.services.persondir.IPersonAttributeDao;
 import org.apereo.services.persondir.IPersonAttributes;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
@@ -49,6 +56,11 @@ import org.springframework.stereotype.Service;
  * version differs in the way the principal and credentials are set (all contexts are set up front
  * after evaluating the tokens). See setContextParameters() also. Changes put in to allow
  * credentials and principals to be defined and held by each context.
+ *
+ * <p>The time spent in each phase of a login is recorded in the published {@link
+ * org.apereo.portal.events.LoginEvent}. Phases that only depend on the authenticated user name,
+ * such as looking up the portal user id, are started on the task executor so they overlap the
+ * resolution of the user's attributes.
  */
 @Service
 public class Authentication {
@@ -56,6 +68,14 @@ public class Authentication {
 
     private static final String BASE_CONTEXT_NAME = "root";
 
+    // Login phases, in the order they complete
+    private static final String SECURITY_CONTEXT_PHASE = "securityContext";
+    private static final String SESSION_RESET_PHASE = "sessionReset";
+    private static final String ATTRIBUTES_PHASE = "attributes";
+    private static final String PORTAL_UID_PHASE = "portalUid";
+    private static final String PORTAL_UID_LOOKUP_PHASE = "portalUidLookup";
+    private static final String TOTAL_PHASE = "total";
+
     // Metric counters
     private static final MovingAverage authenticationTimes = new MovingAverage();
     public static MovingAverageSample lastAuthentication = new MovingAverageSample();
@@ -71,6 +91,17 @@ public class Authentication {
     @Autowired(required = false)
     private IAuthenticationExt authenticationExt;
 
+    @Value("${org.apereo.portal.services.Authentication.concurrentLoginPhases:true}")
+    private boolean concurrentLoginPhases = true;
+
+    private ExecutorService loginPhaseExecutor;
+
+    @Autowired(required = false)
+    public void setLoginPhaseExecutor(
+            @Qualifier("uPortalTaskExecutor") ExecutorService loginPhaseExecutor) {
+        this.loginPhaseExecutor = loginPhaseExecutor;
+    }
+
     @Autowired
     public void setUsernameTaggedCacheEntryPurger(
             UsernameTaggedCacheEntryPurger usernameTaggedCacheEntryPurger) {
@@ -127,9 +158,11 @@ public class Authentication {
         // passed to the Authentication service.
 
         // Attempt to authenticate the user
+        final Map<String, Long> phaseTimes = new LinkedHashMap<>();
         final long start = System.currentTimeMillis();
         securityContext.authenticate();
         final long elapsed = System.currentTimeMillis() - start;
+        phaseTimes.put(SECURITY_CONTEXT_PHASE, elapsed);
         // Check to see if the user was authenticated
         if (securityContext.isAuthenticated()) {
             lastAuthentication = authenticationTimes.add(elapsed); // metric
@@ -149,6 +182,14 @@ public class Authentication {
 
             threadNamingRequestFilter.updateCurrentUsername(userName);
 
+            // The portal user id only depends on the user name, look it up while the cached
+            // session data is reset and the attributes are resolved
+            final AtomicLong portalUserIdLookupTime = new AtomicLong(-1);
+            final CompletableFuture<Integer> portalUserIdLookup =
+                    this.startPortalUserIdLookup(userName, portalUserIdLookupTime);
+
+            long phaseStart = System.currentTimeMillis();
+
             /*
              * Clear cached group info for this user.
              *
@@ -166,6 +207,8 @@ public class Authentication {
             // Clear all existing cached data about the person
             this.usernameTaggedCacheEntryPurger.purgeTaggedCacheEntries(userName);
 
+            phaseStart = this.endPhase(phaseTimes, SESSION_RESET_PHASE, phaseStart);
+
             // Retrieve the additional descriptor from the security context
             final IAdditionalDescriptor addInfo =
                     person.getSecurityContext().getAdditionalDescriptor();
@@ -267,23 +310,130 @@ public class Authentication {
                             "Unrecognized person: " + person.getAttribute(IPerson.USERNAME));
                 }
             }
-            // Find the uPortal userid for this user or flunk authentication if not found.
-            final boolean autocreate =
-                    PropertiesManager.getPropertyAsBoolean(
-                            "org.apereo.portal.services.Authentication.autoCreateUsers");
-            try {
-                // Attempt to retrieve the UID
-                final int newUID = this.userIdentityStore.getPortalUID(person, autocreate);
-                person.setID(newUID);
-            } catch (final AuthorizationException ae) {
-                log.error("Exception retrieving ID", ae);
-                throw new PortalSecurityException(
-                        "Authentication Service: Exception retrieving UID");
+
+            phaseStart = this.endPhase(phaseTimes, ATTRIBUTES_PHASE, phaseStart);
+
+            // Use the id of an existing user if the concurrent lookup found one
+            final Integer portalUserId =
+                    this.getPortalUserId(portalUserIdLookup, userName, person);
+            if (portalUserIdLookupTime.get() >= 0) {
+                phaseTimes.put(PORTAL_UID_LOOKUP_PHASE, portalUserIdLookupTime.get());
+            }
+            if (portalUserId != null) {
+                person.setID(portalUserId);
+            } else {
+                // Find the uPortal userid for this user or flunk authentication if not found.
+                final boolean autocreate =
+                        PropertiesManager.getPropertyAsBoolean(
+                                "org.apereo.portal.services.Authentication.autoCreateUsers");
+                try {
+                    // Attempt to retrieve the UID
+                    final int newUID = this.userIdentityStore.getPortalUID(person, autocreate);
+                    person.setID(newUID);
+                } catch (final AuthorizationException ae) {
+                    log.error("Exception retrieving ID", ae);
+                    throw new PortalSecurityException(
+                            "Authentication Service: Exception retrieving UID");
+                }
             }
+
+            this.endPhase(phaseTimes, PORTAL_UID_PHASE, phaseStart);
+        }
+
+        phaseTimes.put(TOTAL_PHASE, System.currentTimeMillis() - start);
+        if (log.isDebugEnabled()) {
+            log.debug(
+                    "Login phase times in ms for user '"
+                            + person.getUserName()
+                            + "': "
+                            + phaseTimes
+                            + " #milestone");
         }
 
         // Publish a login event for the person
-        this.portalEventFactory.publishLoginEvent(request, this, person);
+        this.portalEventFactory.publishLoginEvent(request, this, person, phaseTimes);
+    }
+
+    /** Record the time since the phase started and return the start of the next phase */
+    private long endPhase(Map<String, Long> phaseTimes, String phase, long phaseStart) {
+        final long now = System.currentTimeMillis();
+        phaseTimes.put(phase, now - phaseStart);
+        return now;
+    }
+
+    /**
+     * Start looking up the id of an existing portal user on the login phase executor.
+     *
+     * @param lookupTime Set to the milliseconds the lookup took once it completed
+     * @return The pending lookup, null if concurrent login phases are disabled or the executor
+     *     rejected the lookup
+     */
+    private CompletableFuture<Integer> startPortalUserIdLookup(
+            final String userName, final AtomicLong lookupTime) {
+        if (!this.concurrentLoginPhases || this.loginPhaseExecutor == null) {
+            return null;
+        }
+
+        try {
+            return CompletableFuture.supplyAsync(
+                    () -> {
+                        final long lookupStart = System.currentTimeMillis();
+                        final Integer portalUserId =
+                                this.userIdentityStore.getPortalUserId(userName);
+                        lookupTime.set(System.currentTimeMillis() - lookupStart);
+                        return portalUserId;
+                    },
+                    this.loginPhaseExecutor);
+        } catch (RejectedExecutionException e) {
+            log.debug("Looking up the portal user id of '" + userName + "' on the login thread", e);
+            return null;
+        }
+    }
+
+    /**
+     * Wait for the portal user id lookup started by {@link #startPortalUserIdLookup}. The lookup
+     * is for the user name of the security context principal, its result is only used if the
+     * additional descriptor, attribute resolution and authentication extension left the person's
+     * user name unchanged.
+     *
+     * @param userName The user name the lookup was started for
+     * @return The id of the existing portal user, null if there is no lookup, the person's user
+     *     name changed, the user does not exist yet or the lookup failed
+     */
+    Integer getPortalUserId(
+            final CompletableFuture<Integer> portalUserIdLookup,
+            final String userName,
+            final IPerson person) {
+        if (portalUserIdLookup == null) {
+            return null;
+        }
+
+        if (!userName.equals(person.getUserName())) {
+            portalUserIdLookup.cancel(false);
+            if (log.isDebugEnabled()) {
+                log.debug(
+                        "User name changed from '"
+                                + userName
+                                + "' to '"
+                                + person.getUserName()
+                                + "' during login, retrieving the portal user id again");
+            }
+            return null;
+        }
+
+        try {
+            return portalUserIdLookup.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            log.warn(
+                    "Failed to look up the portal user id of '"
+                            + userName
+                            + "', it will be retrieved again",
+                    e.getCause());
+            return null;
+        }
     }
 
     /**
@@ -19,7 +19,15 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 import javax.portlet.PortletPreferences;
 import javax.portlet.RenderRequest;
 import javax.portlet.RenderResponse;
@@ -32,9 +40,13 @@ import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.EntityUtils;
 import org.apereo.portal.soffit.Headers;
 import org.slf4j.Logger;
@@ -46,6 +58,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.jmx.export.MBeanExportOperations;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.portlet.bind.annotation.RenderMapping;
@@ -53,7 +66,8 @@ import org.springframework.web.portlet.bind.annotation.RenderMapping;
 /** @since 5.0 */
 @Controller
 @RequestMapping(value = {"VIEW", "EDIT", "HELP"})
-public class SoffitConnectorController implements ApplicationContextAware {
+public class SoffitConnectorController
+        implements ApplicationContextAware, SoffitConnectorControllerMXBean {
 
     /** Preferences that begin with this String will not be shared with the remote soffit. */
     public static final String CONNECTOR_PREFERENCE_PREFIX =
@@ -64,6 +78,8 @@ public class SoffitConnectorController implements ApplicationContextAware {
 
     private static final int TIMEOUT_SECONDS = 10;
 
+    private static final String MBEAN_NAME = "uPortal:section=Soffit,name=SoffitConnector";
+
     @Value(
             "${org.apereo.portlet.soffit.connector.SoffitConnectorController.maxConnectionsPerRoute:20}")
     private Integer maxConnectionsPerRoute;
@@ -72,17 +88,34 @@ public class SoffitConnectorController implements ApplicationContextAware {
             "${org.apereo.portlet.soffit.connector.SoffitConnectorController.maxConnectionsTotal:50}")
     private Integer maxConnectionsTotal;
 
+    /**
+     * Longest time a pooled connection is kept alive for reuse; a shorter timeout sent by the
+     * remote server in the Keep-Alive header is honored.
+     */
+    @Value("${org.apereo.portlet.soffit.connector.SoffitConnectorController.keepAliveSeconds:30}")
+    private Integer keepAliveSeconds;
+
+    /** Pooled connections left idle this long are closed by a background thread. */
+    @Value(
+            "${org.apereo.portlet.soffit.connector.SoffitConnectorController.idleConnectionTimeoutSeconds:60}")
+    private Integer idleConnectionTimeoutSeconds;
+
     private final RequestConfig requestConfig =
             RequestConfig.custom()
                     .setSocketTimeout(TIMEOUT_SECONDS * 1000)
                     .setConnectTimeout(TIMEOUT_SECONDS * 1000)
                     .build();
 
-    private final HttpClientBuilder httpClientBuilder =
-            HttpClientBuilder.create()
-                    .setDefaultRequestConfig(requestConfig)
-                    .setConnectionManagerShared(
-                            true); // Prevents the client from shutting down the pool
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+
+    private final ConcurrentMap<String, ServiceStatistics> serviceStatistics =
+            new ConcurrentHashMap<>();
+
+    @Autowired(required = false)
+    private MBeanExportOperations mBeanExportOperations;
+
+    private ObjectName mBeanName;
 
     private ApplicationContext applicationContext;
     private List<IHeaderProvider> headerProviders;
@@ -101,11 +134,25 @@ public class SoffitConnectorController implements ApplicationContextAware {
 
     @PostConstruct
     public void init() {
-        PoolingHttpClientConnectionManager poolingHttpClientConnectionManager =
-                new PoolingHttpClientConnectionManager();
-        poolingHttpClientConnectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
-        poolingHttpClientConnectionManager.setMaxTotal(maxConnectionsTotal);
-        httpClientBuilder.setConnectionManager(poolingHttpClientConnectionManager);
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setMaxTotal(maxConnectionsTotal);
+
+        /*
+         * A single client (and pool) for the life of the controller, so that renders reuse the
+         * kept-alive connections of earlier renders rather than paying for a new TCP (and TLS)
+         * handshake each time.
+         */
+        httpClient =
+                HttpClientBuilder.create()
+                        .setDefaultRequestConfig(requestConfig)
+                        .setConnectionManager(connectionManager)
+                        .setKeepAliveStrategy(createKeepAliveStrategy())
+                        .evictExpiredConnections()
+                        .evictIdleConnections(idleConnectionTimeoutSeconds, TimeUnit.SECONDS)
+                        .build();
+
+        registerMBean();
 
         final Map<String, IHeaderProvider> beans =
                 BeanFactoryUtils.beansOfTypeIncludingAncestors(
@@ -114,6 +161,19 @@ public class SoffitConnectorController implements ApplicationContextAware {
         headerProviders = Collections.unmodifiableList(values);
     }
 
+    @PreDestroy
+    public void destroy() {
+        if (mBeanName != null) {
+            mBeanExportOperations.unregisterManagedResource(mBeanName);
+        }
+        try {
+            // Also shuts down the connection pool and the idle connection evictor
+            httpClient.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close the HttpClient", e);
+        }
+    }
+
     @RenderMapping
     public void invokeService(final RenderRequest req, final RenderResponse res) {
 
@@ -133,7 +193,9 @@ public class SoffitConnectorController implements ApplicationContextAware {
             logger.debug("No applicable response in cache;  invoking serviceUrl '{}'", serviceUrl);
 
             final HttpGet getMethod = new HttpGet(serviceUrl);
-            try (final CloseableHttpClient httpClient = httpClientBuilder.build()) {
+            final long start = System.nanoTime();
+            boolean succeeded = false;
+            try {
 
                 // Send the data model as encrypted JWT HTTP headers
                 for (IHeaderProvider headerProvider : headerProviders) {
@@ -153,6 +215,7 @@ public class SoffitConnectorController implements ApplicationContextAware {
                     if (statusCode == HttpStatus.SC_OK) {
                         responseValue =
                                 extractResponseAndCacheIfAppropriate(httpResponse, req, serviceUrl);
+                        succeeded = true;
                     } else {
                         logger.error(
                                 "Failed to get content from remote service '{}';  HttpStatus={}",
@@ -172,6 +235,8 @@ public class SoffitConnectorController implements ApplicationContextAware {
                 }
             } catch (IOException e) {
                 logger.error("Failed to invoke serviceUrl '{}'", serviceUrl, e);
+            } finally {
+                getServiceStatistics(serviceUrl).record(System.nanoTime() - start, succeeded);
             }
         }
 
@@ -185,10 +250,108 @@ public class SoffitConnectorController implements ApplicationContextAware {
         }
     }
 
+    /*
+     * JMX
+     */
+
+    @Override
+    public int getMaxConnectionsTotal() {
+        return connectionManager.getMaxTotal();
+    }
+
+    @Override
+    public int getMaxConnectionsPerRoute() {
+        return connectionManager.getDefaultMaxPerRoute();
+    }
+
+    @Override
+    public int getLeasedConnections() {
+        return connectionManager.getTotalStats().getLeased();
+    }
+
+    @Override
+    public int getAvailableConnections() {
+        return connectionManager.getTotalStats().getAvailable();
+    }
+
+    @Override
+    public int getPendingConnections() {
+        return connectionManager.getTotalStats().getPending();
+    }
+
+    @Override
+    public Map<String, Integer> getLeasedConnectionsPerRoute() {
+        final Map<String, Integer> result = new TreeMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            final PoolStats stats = connectionManager.getStats(route);
+            result.put(route.getTargetHost().toURI(), stats.getLeased());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getRequestCounts() {
+        final Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, ServiceStatistics> entry : serviceStatistics.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().requests.get());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getFailureCounts() {
+        final Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, ServiceStatistics> entry : serviceStatistics.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().failures.get());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getAverageResponseTimes() {
+        final Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, ServiceStatistics> entry : serviceStatistics.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getAverageMillis());
+        }
+        return result;
+    }
+
     /*
      * Implementation
      */
 
+    private ConnectionKeepAliveStrategy createKeepAliveStrategy() {
+        final long maxKeepAliveMillis = TimeUnit.SECONDS.toMillis(keepAliveSeconds);
+        return (response, context) -> {
+            final long keepAlive =
+                    DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(
+                            response, context);
+            // The default strategy returns -1 (forever) when the server doesn't specify
+            return keepAlive > 0 ? Math.min(keepAlive, maxKeepAliveMillis) : maxKeepAliveMillis;
+        };
+    }
+
+    /**
+     * The connector runs in the portlet's own application context, so it isn't found by the
+     * portal's MBean exporter and registers itself instead.
+     */
+    private void registerMBean() {
+        if (mBeanExportOperations == null) {
+            return;
+        }
+        try {
+            final ObjectName name = new ObjectName(MBEAN_NAME);
+            mBeanExportOperations.registerManagedResource(this, name);
+            mBeanName = name;
+        } catch (MalformedObjectNameException | RuntimeException e) {
+            logger.warn("Failed to register {} with JMX", MBEAN_NAME, e);
+        }
+    }
+
+    private ServiceStatistics getServiceStatistics(String serviceUrl) {
+        return serviceStatistics.computeIfAbsent(serviceUrl, k -> new ServiceStatistics());
+    }
+
     private ResponseWrapper fetchContentFromCacheIfAvailable(
             final RenderRequest req, final String serviceUrl) {
 
@@ -388,6 +551,25 @@ public class SoffitConnectorController implements ApplicationContextAware {
         }
     }
 
+    private static final class ServiceStatistics {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+
+        public void record(long nanos, boolean succeeded) {
+            requests.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            if (!succeeded) {
+                failures.incrementAndGet();
+            }
+        }
+
+        public long getAverageMillis() {
+            final long count = requests.get();
+            return count > 0 ? TimeUnit.NANOSECONDS.toMillis(totalNanos.get() / count) : 0;
+        }
+    }
+
     public static final class ResponseWrapper {
         private final byte[] bytes;
 
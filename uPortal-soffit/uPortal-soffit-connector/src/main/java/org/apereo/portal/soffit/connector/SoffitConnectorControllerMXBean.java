@@ -0,0 +1,49 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.soffit.connector;
+
+import java.util.Map;
+
+/**
+ * JMX view of the HTTP connection pool the {@link SoffitConnectorController} uses to invoke remote
+ * soffits, and of the requests made to each service URL.
+ */
+public interface SoffitConnectorControllerMXBean {
+
+    int getMaxConnectionsTotal();
+
+    int getMaxConnectionsPerRoute();
+
+    /** @return Number of pooled connections currently in use */
+    int getLeasedConnections();
+
+    /** @return Number of idle pooled connections available for reuse */
+    int getAvailableConnections();
+
+    /** @return Number of requests waiting for a pooled connection */
+    int getPendingConnections();
+
+    /** @return Number of pooled connections in use, keyed by target host */
+    Map<String, Integer> getLeasedConnectionsPerRoute();
+
+    /** @return Number of requests made, keyed by service URL */
+    Map<String, Long> getRequestCounts();
+
+    /** @return Number of requests that failed or did not return 200, keyed by service URL */
+    Map<String, Long> getFailureCounts();
+
+    /** @return Average time in milliseconds to invoke the service, keyed by service URL */
+    Map<String, Long> getAverageResponseTimes();
+}
@@ -262,11 +262,15 @@ public class PortalShellBuildHelperImpl implements PortalShellBuildHelper {
                             "Exporting All Data of types " + types + " to: " + dataDir);
                 }
 
-                portalDataHandlerService.exportAllDataOfType(
-                        types,
-                        dataDirFile,
+                final IPortalDataHandlerService.BatchExportOptions options =
                         new IPortalDataHandlerService.BatchExportOptions()
-                                .setLogDirectoryParent(logDir));
+                                .setLogDirectoryParent(logDir);
+                if (isExportArchive(dataDir)) {
+                    portalDataHandlerService.exportAllDataOfTypeToArchive(
+                            types, dataDirFile, options);
+                } else {
+                    portalDataHandlerService.exportAllDataOfType(types, dataDirFile, options);
+                }
             } catch (Exception e) {
                 throw new RuntimeException(
                         target + " to " + dataDir + " of " + type + " failed", e);
@@ -274,16 +278,26 @@ public class PortalShellBuildHelperImpl implements PortalShellBuildHelper {
         } else {
             try {
                 PortalShell.LOGGER.info("Exporting All Data to: " + dataDir);
-                portalDataHandlerService.exportAllData(
-                        dataDirFile,
+                final IPortalDataHandlerService.BatchExportOptions options =
                         new IPortalDataHandlerService.BatchExportOptions()
-                                .setLogDirectoryParent(logDir));
+                                .setLogDirectoryParent(logDir);
+                if (isExportArchive(dataDir)) {
+                    portalDataHandlerService.exportAllDataToArchive(dataDirFile, options);
+                } else {
+                    portalDataHandlerService.exportAllData(dataDirFile, options);
+                }
             } catch (Exception e) {
                 throw new RuntimeException(target + " to " + dataDir + " failed", e);
             }
         }
     }
 
+    /** Exports to a dataDir that names a zip or tar archive are streamed into that archive */
+    private boolean isExportArchive(String dataDir) {
+        final String name = dataDir.toLowerCase();
+        return name.endsWith(".zip") || name.endsWith(".tar.gz") || name.endsWith(".tgz");
+    }
+
     @Override
     public void dataImport(
             String target, String dataDir, String pattern, String file, String logDir) {
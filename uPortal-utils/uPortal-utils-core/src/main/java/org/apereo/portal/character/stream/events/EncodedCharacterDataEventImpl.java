@@ -0,0 +1,126 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.character.stream.events;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import org.springframework.util.Assert;
+
+/**
+ * Instances are de-duplicated the same way as {@link CharacterDataEventImpl} so that every cache
+ * entry containing the same static markup shares a single encoded copy.
+ */
+public final class EncodedCharacterDataEventImpl implements EncodedCharacterDataEvent {
+    private static final long serialVersionUID = 1L;
+
+    // Since the cache using weak refs for the events it should never be a cause for object
+    // retention therefor no max-size is needed
+    private static final LoadingCache<String, EncodedCharacterDataEvent> WEAK_EVENT_CACHE =
+            CacheBuilder.newBuilder()
+                    .weakValues()
+                    .build(
+                            new CacheLoader<String, EncodedCharacterDataEvent>() {
+                                @Override
+                                public EncodedCharacterDataEvent load(String data)
+                                        throws Exception {
+                                    return new EncodedCharacterDataEventImpl(data);
+                                }
+                            });
+
+    public static EncodedCharacterDataEvent create(String data) {
+        return WEAK_EVENT_CACHE.getUnchecked(data);
+    }
+
+    private final String data;
+    private final transient byte[] encodedData;
+    private int hash = 0;
+
+    private EncodedCharacterDataEventImpl(String data) {
+        Assert.notNull(data);
+        this.data = data;
+        this.encodedData = data.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Re-encode and de-duplicate the data on deserialization */
+    private Object readResolve() throws ObjectStreamException {
+        return create(this.data);
+    }
+
+    /* (non-Javadoc)
+     * @see org.apereo.portal.character.stream.events.CharacterDataEvent#getData()
+     */
+    @Override
+    public String getData() {
+        return this.data;
+    }
+
+    /* (non-Javadoc)
+     * @see org.apereo.portal.character.stream.events.EncodedCharacterDataEvent#writeTo(java.io.OutputStream)
+     */
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(this.encodedData);
+    }
+
+    /* (non-Javadoc)
+     * @see org.apereo.portal.character.stream.events.CharacterEvent#getEventType()
+     */
+    @Override
+    public CharacterEventTypes getEventType() {
+        return CharacterEventTypes.CHARACTER;
+    }
+
+    @Override
+    public String toString() {
+        return "EncodedCharacterDataEvent [data=" + this.data + "]";
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = internalHashCode();
+            hash = h;
+        }
+        return h;
+    }
+
+    private int internalHashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + getEventType().hashCode();
+        result = prime * result + data.hashCode();
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (!(obj instanceof CharacterDataEvent)) return false;
+        CharacterDataEvent other = (CharacterDataEvent) obj;
+
+        if (!data.equals(other.getData())) return false;
+
+        if (!getEventType().equals(other.getEventType())) return false;
+
+        return true;
+    }
+}
@@ -16,19 +16,35 @@ package org.apereo.portal.concurrency.caching;
 
 import com.google.common.cache.Cache;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Cache statistics for request scoped caches. Hits are the hot path so they are counted with
+ * {@link LongAdder}s and only a sample of them needs to be timed, see {@link #recordHit()}.
+ */
 public final class CacheStatistics implements CacheStatisticsMBean {
-    private final AtomicLong hitCount = new AtomicLong();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder timedHitCount = new LongAdder();
     private final AtomicLong missCount = new AtomicLong();
     private final AtomicLong loadSuccessCount = new AtomicLong();
     private final AtomicLong loadExceptionCount = new AtomicLong();
-    private final AtomicLong totalHitTime = new AtomicLong();
+    private final LongAdder totalHitTime = new LongAdder();
     private final AtomicLong totalLoadTime = new AtomicLong();
     private final AtomicLong totalExceptionTime = new AtomicLong();
 
+    /** Record a cache hit that took the specified number of nanoseconds */
     public final void recordHit(long time) {
-        hitCount.incrementAndGet();
-        totalHitTime.addAndGet(time);
+        hitCount.increment();
+        timedHitCount.increment();
+        totalHitTime.add(time);
+    }
+
+    /**
+     * Record a cache hit that was not timed. Hit times are extrapolated from the hits recorded via
+     * {@link #recordHit(long)}.
+     */
+    public final void recordHit() {
+        hitCount.increment();
     }
 
     public final void recordMissAndLoad(long time) {
@@ -49,13 +65,13 @@ public final class CacheStatistics implements CacheStatisticsMBean {
      */
     @Override
     public long getRequestCount() {
-        return hitCount.get() + missCount.get();
+        return hitCount.sum() + missCount.get();
     }
 
     /** Returns the number of times {@link Cache} lookup methods have returned a cached value. */
     @Override
     public long getHitCount() {
-        return hitCount.get();
+        return hitCount.sum();
     }
 
     /**
@@ -66,7 +82,7 @@ public final class CacheStatistics implements CacheStatisticsMBean {
     @Override
     public double getHitRate() {
         long requestCount = getRequestCount();
-        return (requestCount == 0) ? 1.0 : (double) hitCount.get() / requestCount;
+        return (requestCount == 0) ? 1.0 : (double) hitCount.sum() / requestCount;
     }
 
     /**
@@ -161,23 +177,22 @@ public final class CacheStatistics implements CacheStatisticsMBean {
     }
 
     /**
-     * Returns the total number of nanoseconds the cache has spent loading values from cache. This
-     * can be used to calculate the miss penalty. This value is increased every time {@code
-     * hitCount} is incremented.
+     * Returns the total number of nanoseconds the cache has spent loading values from cache. Only a
+     * sample of hits is timed so this is estimated as {@code averageHitPenalty * hitCount}.
      */
     @Override
     public long getTotalHitTime() {
-        return totalHitTime.get();
+        return (long) (getAverageHitPenalty() * hitCount.sum());
     }
 
     /**
-     * Returns the average time spent loading values from cache. This is defined as {@code
-     * totalHitTime / hitCount}.
+     * Returns the average time spent loading values from cache. This is defined as the total time
+     * of the timed hits divided by the number of timed hits.
      */
     @Override
     public double getAverageHitPenalty() {
-        final long hits = hitCount.get();
-        return (hits == 0) ? 0.0 : (double) totalHitTime.get() / hits;
+        final long timedHits = timedHitCount.sum();
+        return (timedHits == 0) ? 0.0 : (double) totalHitTime.sum() / timedHits;
     }
 
     /**
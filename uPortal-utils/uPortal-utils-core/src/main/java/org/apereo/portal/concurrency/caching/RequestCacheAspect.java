@@ -14,8 +14,8 @@
  */
 package org.apereo.portal.concurrency.caching;
 
-import java.io.Serializable;
 import java.lang.annotation.AnnotationFormatError;
+import java.lang.reflect.Method;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import javax.management.InstanceAlreadyExistsException;
@@ -23,17 +23,14 @@ import javax.management.MBeanRegistrationException;
 import javax.management.MalformedObjectNameException;
 import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
-import javax.servlet.http.HttpServletRequest;
 import net.sf.ehcache.hibernate.management.impl.EhcacheHibernateMbeanNames;
 import org.apereo.portal.url.IPortalRequestUtils;
-import org.apereo.portal.utils.ConcurrentMapUtils;
-import org.apereo.portal.utils.cache.CacheKey;
-import org.apereo.portal.utils.web.PortalWebUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.Signature;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
@@ -43,19 +40,17 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestAttributes;
 
 /**
- * Aspect that caches the results of a method invocation in the current {@link RequestAttributes}
+ * Aspect that caches the results of a method invocation in the current {@link RequestAttributes}.
+ * Each annotated method gets its own {@link RequestCacheTable} in the {@link RequestCacheContext}
+ * of the current request.
  */
 @Aspect
 @Component("requestCacheAspect")
 public class RequestCacheAspect implements InitializingBean {
-    private static final String CACHE_MAP = RequestCacheAspect.class.getName() + ".CACHE_MAP";
-    private static final Object NULL_PLACEHOLDER = new Object();
-
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private final ConcurrentMap<String, CacheStatistics> methodStats =
-            new ConcurrentHashMap<String, CacheStatistics>();
-    private final CacheStatistics overallStats = new CacheStatistics();
+    private final ConcurrentMap<Method, RequestCacheTable> methodTables =
+            new ConcurrentHashMap<Method, RequestCacheTable>();
 
     private IPortalRequestUtils portalRequestUtils;
     private MBeanExportOperations mBeanExportOperations;
@@ -76,7 +71,10 @@ public class RequestCacheAspect implements InitializingBean {
             final ObjectName name =
                     new ObjectName(
                             "uPortal:section=Cache,RequestCache=RequestCache,name=OverallStatistics");
-            registerMbean(this.overallStats, name);
+            registerMbean(RequestCacheTable.getOverallStatistics(), name);
+
+            // Publish statistics for all tables, including those not created by this aspect
+            RequestCacheTable.setTableListener(this::registerTableStatistics);
         }
     }
 
@@ -86,80 +84,18 @@ public class RequestCacheAspect implements InitializingBean {
     @Around("anyPublicMethod() && @annotation(requestCache)")
     public Object cacheRequest(ProceedingJoinPoint pjp, RequestCache requestCache)
             throws Throwable {
-        final long start = System.nanoTime();
-
-        final CacheKey cacheKey = createCacheKey(pjp, requestCache);
-
-        final HttpServletRequest currentPortalRequest;
-        try {
-            currentPortalRequest = this.portalRequestUtils.getCurrentPortalRequest();
-        } catch (IllegalStateException e) {
-            logger.trace("No current portal request, will not cache result of: {}", cacheKey);
+        final RequestCacheContext context =
+                RequestCacheContext.getCurrentContext(this.portalRequestUtils);
+        if (context == null) {
+            logger.trace(
+                    "No current portal request, will not cache result of: {}", pjp.getSignature());
             // No current request, simply proceed
             return pjp.proceed();
         }
 
-        final CacheStatistics cacheStatistics = this.getCacheStatistics(pjp, requestCache);
-
-        // Check in the cache for a result
-        final ConcurrentMap<CacheKey, Object> cache =
-                PortalWebUtils.getMapRequestAttribute(currentPortalRequest, CACHE_MAP);
-        Object result = cache.get(cacheKey);
-
-        // Return null if placeholder was cached
-        if (requestCache.cacheNull() && result == NULL_PLACEHOLDER) {
-            final long time = System.nanoTime() - start;
-            cacheStatistics.recordHit(time);
-            overallStats.recordHit(time);
-            logger.debug("Found cached null for invocation of: {}", cacheKey);
-            return null;
-        }
-        // Rethrow if exception was cached
-        if (requestCache.cacheException() && result instanceof ExceptionHolder) {
-            final long time = System.nanoTime() - start;
-            cacheStatistics.recordHit(time);
-            overallStats.recordHit(time);
-            logger.debug("Found cached exception for invocation of: {}", cacheKey);
-            throw ((ExceptionHolder) result).getThrowable();
-        }
-        // Return cached result
-        if (result != null) {
-            final long time = System.nanoTime() - start;
-            cacheStatistics.recordHit(time);
-            overallStats.recordHit(time);
-            logger.debug("Found cached result for invocation of: {}", cacheKey);
-            return result;
-        }
-
-        try {
-            // Execute the annotated method
-            result = pjp.proceed();
-            final long time = System.nanoTime() - start;
-            cacheStatistics.recordMissAndLoad(time);
-            overallStats.recordMissAndLoad(time);
-
-            if (result != null) {
-                // Cache the not-null result
-                cache.put(cacheKey, result);
-                logger.debug("Cached result for invocation of: {}", cacheKey);
-            } else if (requestCache.cacheNull()) {
-                // If caching nulls cache the placeholder
-                cache.put(cacheKey, NULL_PLACEHOLDER);
-                logger.debug("Cached null for invocation of: {}", cacheKey);
-            }
-
-            return result;
-        } catch (Throwable t) {
-            final long time = System.nanoTime() - start;
-            cacheStatistics.recordMissAndException(time);
-            overallStats.recordMissAndException(time);
-            if (requestCache.cacheException()) {
-                // If caching exceptions wrapp the exception and cache it
-                cache.put(cacheKey, new ExceptionHolder(t));
-                logger.debug("Cached exception for invocation of: {}", cacheKey);
-            }
-            throw t;
-        }
+        final RequestCacheTable table = this.getRequestCacheTable(pjp, requestCache);
+        final Object cacheKey = createCacheKey(pjp, requestCache);
+        return table.get(context, cacheKey, pjp::proceed);
     }
 
     protected void registerMbean(Object object, ObjectName name)
@@ -168,61 +104,62 @@ public class RequestCacheAspect implements InitializingBean {
         this.mBeanExportOperations.registerManagedResource(object, name);
     }
 
-    protected final CacheStatistics getCacheStatistics(
+    protected final RequestCacheTable getRequestCacheTable(
             ProceedingJoinPoint pjp, RequestCache requestCache) {
         final Signature signature = pjp.getSignature();
-        final String signatureString = signature.toString();
-
-        CacheStatistics cacheStatistics = this.methodStats.get(signatureString);
-        if (cacheStatistics == null) {
-            final CacheStatistics newStats = new CacheStatistics();
-            cacheStatistics =
-                    ConcurrentMapUtils.putIfAbsent(this.methodStats, signatureString, newStats);
-
-            if (this.mBeanExportOperations != null && cacheStatistics == newStats) {
-                final String nameString =
-                        "uPortal:section=Cache,RequestCache=RequestCache,name="
-                                + EhcacheHibernateMbeanNames.mbeanSafe(signatureString);
-                try {
-                    final ObjectName name = new ObjectName(nameString);
-                    registerMbean(cacheStatistics, name);
-                } catch (MalformedObjectNameException e) {
-                    logger.warn(
-                            "Failed to create ObjectName {} the corresponding CacheStatistics will not be registered with JMX",
-                            nameString,
-                            e);
-                } catch (NullPointerException e) {
-                    logger.warn(
-                            "Failed to create ObjectName {} the corresponding CacheStatistics will not be registered with JMX",
-                            nameString,
-                            e);
-                } catch (InstanceAlreadyExistsException e) {
-                    logger.warn(
-                            "ObjectName {} is already registered, the corresponding CacheStatistics will not be registered with JMX",
-                            nameString,
-                            e);
-                } catch (MBeanRegistrationException e) {
-                    logger.warn(
-                            "Failed to register ObjectName {} the corresponding CacheStatistics will not be registered with JMX",
-                            nameString,
-                            e);
-                } catch (NotCompliantMBeanException e) {
-                    logger.warn(
-                            "Failed to register ObjectName {} the corresponding CacheStatistics will not be registered with JMX",
-                            nameString,
-                            e);
-                }
-            }
+        final Method method = ((MethodSignature) signature).getMethod();
+
+        RequestCacheTable table = this.methodTables.get(method);
+        if (table == null) {
+            table =
+                    this.methodTables.computeIfAbsent(
+                            method,
+                            m ->
+                                    RequestCacheTable.create(
+                                            signature.toString(),
+                                            requestCache.cacheNull(),
+                                            requestCache.cacheException()));
         }
 
-        return cacheStatistics;
+        return table;
     }
 
-    protected CacheKey createCacheKey(ProceedingJoinPoint pjp, RequestCache requestCache) {
-        final Signature signature = pjp.getSignature();
-        final Class<?> declaringType = signature.getDeclaringType();
-        final String signatureLongString = signature.toLongString();
+    protected final void registerTableStatistics(RequestCacheTable table) {
+        final String nameString =
+                "uPortal:section=Cache,RequestCache=RequestCache,name="
+                        + EhcacheHibernateMbeanNames.mbeanSafe(table.getName());
+        try {
+            final ObjectName name = new ObjectName(nameString);
+            registerMbean(table.getStatistics(), name);
+        } catch (MalformedObjectNameException e) {
+            logger.warn(
+                    "Failed to create ObjectName {} the corresponding CacheStatistics will not be registered with JMX",
+                    nameString,
+                    e);
+        } catch (NullPointerException e) {
+            logger.warn(
+                    "Failed to create ObjectName {} the corresponding CacheStatistics will not be registered with JMX",
+                    nameString,
+                    e);
+        } catch (InstanceAlreadyExistsException e) {
+            logger.warn(
+                    "ObjectName {} is already registered, the corresponding CacheStatistics will not be registered with JMX",
+                    nameString,
+                    e);
+        } catch (MBeanRegistrationException e) {
+            logger.warn(
+                    "Failed to register ObjectName {} the corresponding CacheStatistics will not be registered with JMX",
+                    nameString,
+                    e);
+        } catch (NotCompliantMBeanException e) {
+            logger.warn(
+                    "Failed to register ObjectName {} the corresponding CacheStatistics will not be registered with JMX",
+                    nameString,
+                    e);
+        }
+    }
 
+    protected Object createCacheKey(ProceedingJoinPoint pjp, RequestCache requestCache) {
         final boolean[] keyMask = requestCache.keyMask();
         final Object[] args = pjp.getArgs();
 
@@ -231,7 +168,8 @@ public class RequestCacheAspect implements InitializingBean {
             keyArgs = args;
         } else if (keyMask.length != args.length) {
             throw new AnnotationFormatError(
-                    "RequestCache.keyMask has an invalid length on: " + signature.toLongString());
+                    "RequestCache.keyMask has an invalid length on: "
+                            + pjp.getSignature().toLongString());
         } else {
             keyArgs = new Object[args.length];
             for (int i = 0; i < args.length; i++) {
@@ -241,20 +179,6 @@ public class RequestCacheAspect implements InitializingBean {
             }
         }
 
-        return CacheKey.build(signatureLongString, declaringType, keyArgs);
-    }
-
-    private static class ExceptionHolder implements Serializable {
-        private static final long serialVersionUID = 1L;
-
-        private final Throwable t;
-
-        public ExceptionHolder(Throwable t) {
-            this.t = t;
-        }
-
-        public Throwable getThrowable() {
-            return this.t;
-        }
+        return RequestCacheKey.forArguments(keyArgs);
     }
 }
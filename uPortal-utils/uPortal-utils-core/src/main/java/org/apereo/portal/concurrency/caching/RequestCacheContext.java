@@ -0,0 +1,94 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.concurrency.caching;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.servlet.http.HttpServletRequest;
+import org.apereo.portal.url.IPortalRequestUtils;
+import org.apereo.portal.utils.web.PortalWebUtils;
+
+/**
+ * Typed per-request holder for the {@link RequestCacheTable} maps. A single request attribute is
+ * used for all tables and the per-table maps are stored in an array slot indexed by the table, so
+ * a lookup does not need to build a composite key containing the method signature.
+ */
+public final class RequestCacheContext {
+    private static final String CONTEXT_ATTRIBUTE = RequestCacheContext.class.getName();
+
+    /** Slots for the tables that were registered when the request started */
+    private final AtomicReferenceArray<ConcurrentMap<Object, Object>> tables;
+    /** Tables registered after this context was created, rare since tables are static */
+    private final ConcurrentMap<Integer, ConcurrentMap<Object, Object>> lateTables =
+            new ConcurrentHashMap<>();
+
+    RequestCacheContext(int tableCount) {
+        this.tables = new AtomicReferenceArray<>(tableCount);
+    }
+
+    /**
+     * Get the context for the current portal request
+     *
+     * @return The context, null if there is no current portal request
+     */
+    public static RequestCacheContext getCurrentContext(IPortalRequestUtils portalRequestUtils) {
+        final HttpServletRequest currentPortalRequest;
+        try {
+            currentPortalRequest = portalRequestUtils.getCurrentPortalRequest();
+        } catch (IllegalStateException e) {
+            // No current request
+            return null;
+        }
+        return getContext(currentPortalRequest);
+    }
+
+    /** Get the context for the request, creating it if needed */
+    public static RequestCacheContext getContext(HttpServletRequest request) {
+        RequestCacheContext context =
+                (RequestCacheContext) request.getAttribute(CONTEXT_ATTRIBUTE);
+        if (context != null) {
+            return context;
+        }
+
+        final Object mutex = PortalWebUtils.getRequestAttributeMutex(request);
+        synchronized (mutex) {
+            context = (RequestCacheContext) request.getAttribute(CONTEXT_ATTRIBUTE);
+            if (context == null) {
+                context = new RequestCacheContext(RequestCacheTable.getTableCount());
+                request.setAttribute(CONTEXT_ATTRIBUTE, context);
+            }
+            return context;
+        }
+    }
+
+    /** Get the map backing the table with the specified index */
+    ConcurrentMap<Object, Object> getTable(int index) {
+        if (index >= this.tables.length()) {
+            return this.lateTables.computeIfAbsent(index, i -> new ConcurrentHashMap<>());
+        }
+
+        ConcurrentMap<Object, Object> table = this.tables.get(index);
+        if (table == null) {
+            final ConcurrentMap<Object, Object> newTable = new ConcurrentHashMap<>();
+            if (this.tables.compareAndSet(index, null, newTable)) {
+                table = newTable;
+            } else {
+                table = this.tables.get(index);
+            }
+        }
+        return table;
+    }
+}
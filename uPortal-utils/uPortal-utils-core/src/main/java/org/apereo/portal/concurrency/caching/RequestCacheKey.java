@@ -0,0 +1,101 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.concurrency.caching;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Cheap composite key for {@link RequestCacheTable} lookups. Since each table belongs to a single
+ * method the key only needs to capture the arguments, the hash code is computed once on creation.
+ * Array arguments are compared by content.
+ */
+public final class RequestCacheKey implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final RequestCacheKey EMPTY = new RequestCacheKey(new Object[0]);
+
+    private final Object[] parts;
+    private final int hash;
+
+    private RequestCacheKey(Object[] parts) {
+        this.parts = parts;
+        this.hash = Arrays.deepHashCode(parts);
+    }
+
+    /**
+     * Key for a single argument. Non-null, non-array arguments are used as the key directly, no
+     * wrapper is allocated.
+     */
+    public static Object of(Object part) {
+        if (part != null && !part.getClass().isArray()) {
+            return part;
+        }
+        return new RequestCacheKey(new Object[] {part});
+    }
+
+    public static RequestCacheKey of(Object part1, Object part2) {
+        return new RequestCacheKey(new Object[] {part1, part2});
+    }
+
+    public static RequestCacheKey of(Object part1, Object part2, Object part3) {
+        return new RequestCacheKey(new Object[] {part1, part2, part3});
+    }
+
+    public static RequestCacheKey of(Object part1, Object part2, Object part3, Object part4) {
+        return new RequestCacheKey(new Object[] {part1, part2, part3, part4});
+    }
+
+    public static RequestCacheKey of(
+            Object part1, Object part2, Object part3, Object part4, Object part5) {
+        return new RequestCacheKey(new Object[] {part1, part2, part3, part4, part5});
+    }
+
+    /**
+     * Key for a method argument array. The array is used as-is and must not be modified after the
+     * key is created.
+     */
+    public static Object forArguments(Object[] args) {
+        if (args == null || args.length == 0) {
+            return EMPTY;
+        }
+        if (args.length == 1) {
+            return of(args[0]);
+        }
+        return new RequestCacheKey(args);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof RequestCacheKey)) {
+            return false;
+        }
+        final RequestCacheKey other = (RequestCacheKey) obj;
+        return this.hash == other.hash && Arrays.deepEquals(this.parts, other.parts);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.deepToString(this.parts);
+    }
+}
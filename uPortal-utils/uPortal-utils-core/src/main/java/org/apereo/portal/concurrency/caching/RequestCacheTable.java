@@ -0,0 +1,217 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.concurrency.caching;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Request scoped memoization table for a single method. Tables are created once, typically as a
+ * static field or when the {@link RequestCacheAspect} first sees a method, and each one is given a
+ * fixed slot in every {@link RequestCacheContext}.
+ *
+ * <p>Usage:
+ *
+ * <pre>
+ * private static final RequestCacheTable CAN_RENDER = RequestCacheTable.create("canRender");
+ *
+ * public boolean canRender(String user, String portlet) {
+ *     return CAN_RENDER.get(
+ *             RequestCacheContext.getCurrentContext(portalRequestUtils),
+ *             RequestCacheKey.of(user, portlet),
+ *             () -&gt; loadCanRender(user, portlet));
+ * }
+ * </pre>
+ *
+ * Misses are always timed, only one in {@link #HIT_SAMPLE_RATE} hits is timed.
+ */
+public final class RequestCacheTable {
+    /** One in this many cache hits is timed */
+    static final int HIT_SAMPLE_RATE = 64;
+
+    private static final Object NULL_PLACEHOLDER = new Object();
+
+    private static final List<RequestCacheTable> TABLES = new CopyOnWriteArrayList<>();
+    private static final CacheStatistics OVERALL_STATISTICS = new CacheStatistics();
+    private static volatile Consumer<RequestCacheTable> tableListener;
+
+    private final int index;
+    private final String name;
+    private final boolean cacheNull;
+    private final boolean cacheException;
+    private final CacheStatistics statistics = new CacheStatistics();
+
+    /** Loads the value for a cache miss */
+    @FunctionalInterface
+    public interface Loader<V, E extends Throwable> {
+        V load() throws E;
+    }
+
+    private RequestCacheTable(int index, String name, boolean cacheNull, boolean cacheException) {
+        this.index = index;
+        this.name = name;
+        this.cacheNull = cacheNull;
+        this.cacheException = cacheException;
+    }
+
+    /** Create a table that does not cache null results or exceptions */
+    public static RequestCacheTable create(String name) {
+        return create(name, false, false);
+    }
+
+    /**
+     * Create and register a new table
+     *
+     * @param name Name of the table, used for reporting statistics
+     * @param cacheNull If null results should be cached
+     * @param cacheException If thrown exceptions should be cached and rethrown on subsequent calls
+     */
+    public static RequestCacheTable create(String name, boolean cacheNull, boolean cacheException) {
+        Validate.notNull(name, "name can not be null");
+
+        final RequestCacheTable table;
+        synchronized (TABLES) {
+            table = new RequestCacheTable(TABLES.size(), name, cacheNull, cacheException);
+            TABLES.add(table);
+        }
+
+        final Consumer<RequestCacheTable> listener = tableListener;
+        if (listener != null) {
+            listener.accept(table);
+        }
+        return table;
+    }
+
+    /** @return Number of tables created so far */
+    static int getTableCount() {
+        return TABLES.size();
+    }
+
+    /** @return Statistics across all tables */
+    public static CacheStatistics getOverallStatistics() {
+        return OVERALL_STATISTICS;
+    }
+
+    /**
+     * Set the listener that is notified of table creation, used to publish table statistics. The
+     * listener is called for all existing tables before this method returns.
+     */
+    static void setTableListener(Consumer<RequestCacheTable> listener) {
+        synchronized (TABLES) {
+            tableListener = listener;
+        }
+        if (listener != null) {
+            for (final RequestCacheTable table : TABLES) {
+                listener.accept(table);
+            }
+        }
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public CacheStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Get the cached value for the key, loading it if needed
+     *
+     * @param context Context of the current request, if null the loader is always called
+     * @param key Key of the value within this table, see {@link RequestCacheKey}
+     * @param loader Loads the value on a cache miss
+     */
+    @SuppressWarnings("unchecked")
+    public <V, E extends Throwable> V get(
+            RequestCacheContext context, Object key, Loader<V, E> loader) throws E {
+        if (context == null) {
+            return loader.load();
+        }
+
+        final ConcurrentMap<Object, Object> cache = context.getTable(this.index);
+
+        final boolean timed = ThreadLocalRandom.current().nextInt(HIT_SAMPLE_RATE) == 0;
+        final long hitStart = timed ? System.nanoTime() : 0;
+        final Object cached = cache.get(key);
+        if (cached != null) {
+            if (timed) {
+                final long time = System.nanoTime() - hitStart;
+                this.statistics.recordHit(time);
+                OVERALL_STATISTICS.recordHit(time);
+            } else {
+                this.statistics.recordHit();
+                OVERALL_STATISTICS.recordHit();
+            }
+
+            if (cached == NULL_PLACEHOLDER) {
+                return null;
+            }
+            if (cached instanceof ExceptionHolder) {
+                throw (E) ((ExceptionHolder) cached).getThrowable();
+            }
+            return (V) cached;
+        }
+
+        final long start = System.nanoTime();
+        final V result;
+        try {
+            result = loader.load();
+        } catch (Throwable t) {
+            final long time = System.nanoTime() - start;
+            this.statistics.recordMissAndException(time);
+            OVERALL_STATISTICS.recordMissAndException(time);
+            if (this.cacheException) {
+                cache.put(key, new ExceptionHolder(t));
+            }
+            throw t;
+        }
+
+        final long time = System.nanoTime() - start;
+        this.statistics.recordMissAndLoad(time);
+        OVERALL_STATISTICS.recordMissAndLoad(time);
+
+        if (result != null) {
+            cache.put(key, result);
+        } else if (this.cacheNull) {
+            cache.put(key, NULL_PLACEHOLDER);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestCacheTable [name=" + this.name + ", index=" + this.index + "]";
+    }
+
+    private static class ExceptionHolder implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Throwable t;
+
+        public ExceptionHolder(Throwable t) {
+            this.t = t;
+        }
+
+        public Throwable getThrowable() {
+            return this.t;
+        }
+    }
+}
@@ -19,6 +19,8 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -52,10 +54,16 @@ public class ClusterLockServiceImpl implements IClusterLockService {
                                 }
                             });
 
+    /**
+     * Fencing token of each mutex held by a thread of this server, the local lock for the mutex
+     * guarantees only the holding thread adds or removes its entry
+     */
+    private final ConcurrentMap<String, Long> heldFencingTokens = new ConcurrentHashMap<>();
+
     private IPortalInfoProvider portalInfoProvider;
     private ExecutorService lockMonitorExecutorService;
     private IClusterLockDao clusterLockDao;
-    private ReadableDuration updateLockRate = Duration.standardSeconds(1);
+    private ReadableDuration updateLockRate = Duration.standardSeconds(20);
     private ReadableDuration maximumLockDuration = Duration.standardMinutes(60);
     private ReadableDuration dbLockTimeout = Duration.standardSeconds(30);
 
@@ -65,7 +73,7 @@ public class ClusterLockServiceImpl implements IClusterLockService {
     }
 
     @Autowired
-    public void setClusterLockDao(IClusterLockDao clusterLockDao) {
+    public void setClusterLockDao(@Qualifier("clusterLockDao") IClusterLockDao clusterLockDao) {
         this.clusterLockDao = clusterLockDao;
     }
 
@@ -76,9 +84,11 @@ public class ClusterLockServiceImpl implements IClusterLockService {
     }
     /**
      * Rate at which {@link IClusterLockDao#updateLock(String)} is called while a mutex is locked,
-     * defaults to 500ms
+     * defaults to 20 seconds. The rate is capped at a third of {@link
+     * IClusterLockDao#getLockLeaseDuration()} so a lock is renewed at least twice before its lease
+     * runs out.
      */
-    @Value("${org.apereo.portal.concurrency.locking.ClusterLockDao.updateLockRate:PT1S}")
+    @Value("${org.apereo.portal.concurrency.locking.ClusterLockDao.updateLockRate:PT20S}")
     public void setUpdateLockRate(ReadableDuration updateLockRate) {
         this.updateLockRate = updateLockRate;
     }
@@ -127,6 +137,7 @@ public class ClusterLockServiceImpl implements IClusterLockService {
         final AtomicReference<ClusterMutex> mutexRef = new AtomicReference<ClusterMutex>(null);
 
         Future<Boolean> lockFuture = null;
+        boolean fencingTokenHeld = false;
 
         final ReentrantLock lock = getLocalLock(mutexName);
         final boolean lockedLocally = lock.tryLock();
@@ -208,11 +219,17 @@ public class ClusterLockServiceImpl implements IClusterLockService {
             }
 
             // Execute the lockFunction
+            this.heldFencingTokens.put(mutexName, mutex.getFencingToken());
+            fencingTokenHeld = true;
             final T result = lockFunction.apply(mutex);
 
             // Return the result
             return new TryLockFunctionResultImpl<T>(result);
         } finally {
+            if (fencingTokenHeld) {
+                this.heldFencingTokens.remove(mutexName);
+            }
+
             // Signal db lock worker to release the lock
             workCompleteLatch.countDown();
 
@@ -242,10 +259,17 @@ public class ClusterLockServiceImpl implements IClusterLockService {
             return false;
         }
 
-        // local lock is owned by this thread, now make sure the server names match
+        final Long fencingToken = this.heldFencingTokens.get(mutexName);
+        if (fencingToken == null) {
+            return false;
+        }
+
+        // local lock is owned by this thread, now make sure the server names match and the mutex
+        // has not been locked again since, which happens when the lease runs out
         final ClusterMutex clusterMutex = this.clusterLockDao.getClusterMutex(mutexName);
         final String uniqueServerName = portalInfoProvider.getUniqueServerName();
-        return uniqueServerName.equals(clusterMutex.getServerId());
+        return uniqueServerName.equals(clusterMutex.getServerId())
+                && fencingToken == clusterMutex.getFencingToken();
     }
 
     @Override
@@ -260,6 +284,20 @@ public class ClusterLockServiceImpl implements IClusterLockService {
         return clusterMutex.isLocked();
     }
 
+    /**
+     * @return Milliseconds between renewals of a held lock, the configured update rate limited to a
+     *     third of the lock lease duration
+     */
+    protected long getLockRenewalRate() {
+        final long rate = this.updateLockRate.getMillis();
+        final ReadableDuration leaseDuration = this.clusterLockDao.getLockLeaseDuration();
+        if (leaseDuration == null) {
+            return rate;
+        }
+
+        return Math.max(1, Math.min(rate, leaseDuration.getMillis() / 3));
+    }
+
     /** The local Lock for the specified mutex */
     protected ReentrantLock getLocalLock(final String mutexName) {
         return this.localLocks.getUnchecked(mutexName);
@@ -313,14 +351,44 @@ public class ClusterLockServiceImpl implements IClusterLockService {
                     logger.trace("Signaled dbLockLatch for: {}", this.mutexName);
                 }
 
-                // wait for the work to complete using the updateLockRate as the wait duration, if
-                // the wait time
-                // passes without the work thread signaling completion update the mutex (signal we
-                // still have the lock)
-                // and wait again
-                while (!this.workCompleteLatch.await(
-                        updateLockRate.getMillis(), TimeUnit.MILLISECONDS)) {
-                    clusterLockDao.updateLock(this.mutexName);
+                // wait for the work to complete using the renewal rate as the wait duration, if
+                // the wait time passes without the work thread signaling completion renew the
+                // lease on the mutex (signal we still have the lock) and wait again
+                final long renewalRate = getLockRenewalRate();
+                final ReadableDuration leaseDuration = clusterLockDao.getLockLeaseDuration();
+                long lastRenewal = System.currentTimeMillis();
+                long waitTime = renewalRate;
+                while (!this.workCompleteLatch.await(waitTime, TimeUnit.MILLISECONDS)) {
+                    try {
+                        clusterLockDao.updateLock(this.mutexName);
+                        lastRenewal = System.currentTimeMillis();
+                        waitTime = renewalRate;
+                    } catch (IllegalMonitorStateException e) {
+                        // Another server owns the mutex, the lock is lost
+                        throw e;
+                    } catch (RuntimeException e) {
+                        if (leaseDuration == null) {
+                            throw e;
+                        }
+
+                        // Retry sooner while the lease is still valid instead of giving up the
+                        // lock on the first failed renewal
+                        final long leaseRemaining =
+                                lastRenewal
+                                        + leaseDuration.getMillis()
+                                        - System.currentTimeMillis();
+                        if (leaseRemaining <= renewalRate / 3) {
+                            throw e;
+                        }
+                        waitTime = Math.max(1, leaseRemaining / 3);
+                        logger.warn(
+                                "Failed to renew lock "
+                                        + this.mutexName
+                                        + ", retrying in "
+                                        + waitTime
+                                        + "ms",
+                                e);
+                    }
 
                     if (lockTimeout < System.currentTimeMillis()) {
                         // Interrupt the worker thread to notify it that the lock has been given up
@@ -73,6 +73,9 @@ public class ClusterMutex implements Serializable {
     @Column(name = "LOCK_END", nullable = false)
     private Date lockEnd = new Date(0);
 
+    @Column(name = "FENCING_TOKEN")
+    private Long fencingToken;
+
     @SuppressWarnings("unused")
     private ClusterMutex() {
         this.id = -1;
@@ -80,7 +83,8 @@ public class ClusterMutex implements Serializable {
         this.name = null;
     }
 
-    ClusterMutex(String name) {
+    /** Create an unlocked mutex, for use by {@link IClusterLockDao} implementations */
+    public ClusterMutex(String name) {
         Validate.notNull(name, "name");
 
         this.id = -1;
@@ -131,8 +135,20 @@ public class ClusterMutex implements Serializable {
         return this.lockEnd.getTime();
     }
 
-    /** Mark the mutex as locked by the specific server */
-    void lock(String serverId) {
+    /**
+     * @return Token that increases every time the mutex is locked. Work done while holding the
+     *     mutex can compare it to the current token of the mutex before storing its results, to
+     *     detect that the lease ran out and another holder has since locked the mutex.
+     */
+    public long getFencingToken() {
+        return this.fencingToken != null ? this.fencingToken : 0;
+    }
+
+    /**
+     * Mark the mutex as locked by the specific server and advance the fencing token, for use by
+     * {@link IClusterLockDao} implementations
+     */
+    public void lock(String serverId) {
         Assert.notNull(serverId);
         if (this.locked) {
             throw new IllegalStateException("Cannot lock already locked mutex: " + this);
@@ -141,9 +157,11 @@ public class ClusterMutex implements Serializable {
         this.lockStart = new Date();
         this.lastUpdate = this.lockStart;
         this.serverId = serverId;
+        this.fencingToken = this.getFencingToken() + 1;
     }
 
-    void unlock() {
+    /** Mark the mutex as unlocked, for use by {@link IClusterLockDao} implementations */
+    public void unlock() {
         if (!this.locked) {
             throw new IllegalStateException("Cannot unlock already unlocked mutex: " + this);
         }
@@ -153,8 +171,8 @@ public class ClusterMutex implements Serializable {
         this.serverId = null;
     }
 
-    /** @param lastUpdate the lastUpdate to set */
-    void updateLock() {
+    /** Renew the lease on the mutex, for use by {@link IClusterLockDao} implementations */
+    public void updateLock() {
         this.lastUpdate = new Date();
     }
 
@@ -200,6 +218,8 @@ public class ClusterMutex implements Serializable {
                 + lastUpdate
                 + ", lockEnd="
                 + lockEnd
+                + ", fencingToken="
+                + fencingToken
                 + "]";
     }
 }
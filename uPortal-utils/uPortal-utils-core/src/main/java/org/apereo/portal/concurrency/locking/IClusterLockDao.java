@@ -14,13 +14,19 @@
  */
 package org.apereo.portal.concurrency.locking;
 
+import org.joda.time.ReadableDuration;
+
 /**
- * DB based locking DAO.
+ * Backend that stores cluster locks for {@link ClusterLockServiceImpl}, by default the database
+ * based {@link JpaClusterLockDao}. A different backend can be used by defining a bean named
+ * <code>clusterLockDao</code> that replaces it. Implementations must advance {@link
+ * ClusterMutex#getFencingToken()} on every successful {@link #getLock(String)}, which {@link
+ * ClusterMutex#lock(String)} does.
  *
  * <p>Locks are NOT reentrant. If ServerA tries to call getLock twice the 2nd call will return
  * false.
  */
-interface IClusterLockDao {
+public interface IClusterLockDao {
 
     /**
      * Get a cluster mutex with the specified name.
@@ -29,6 +35,12 @@ interface IClusterLockDao {
      */
     ClusterMutex getClusterMutex(String mutexName);
 
+    /**
+     * @return How long a locked mutex stays valid without a call to {@link #updateLock(String)}
+     *     before other servers consider it abandoned and take it over, null if locks do not expire
+     */
+    ReadableDuration getLockLeaseDuration();
+
     /**
      * Lock the specified mutex
      *
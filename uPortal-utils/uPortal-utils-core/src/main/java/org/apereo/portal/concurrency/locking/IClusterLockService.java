@@ -78,7 +78,10 @@ public interface IClusterLockService {
             throws InterruptedException;
 
     /**
-     * Check if the current thread and server own the specified lock
+     * Check if the current thread and server own the specified lock. Code run within the lock can
+     * call this before storing its results, it returns false once the lease ran out and the mutex
+     * was locked again, even by the same server, as shown by {@link
+     * ClusterMutex#getFencingToken()}.
      *
      * @param mutexName Name of the lock (case sensitive)
      * @return true if the current thread and server own the lock on the specified mutex
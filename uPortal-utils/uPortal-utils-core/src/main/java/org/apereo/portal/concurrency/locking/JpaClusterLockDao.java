@@ -41,7 +41,7 @@ import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.transaction.support.TransactionTemplate;
 
 /** DB based locking DAO using JPA2 locking APIs */
-@Repository
+@Repository("clusterLockDao")
 public class JpaClusterLockDao extends BasePortalJpaDao implements IClusterLockDao {
     private static final String CLUSTER_MUTEX_SOURCE =
             JpaClusterLockDao.class.getName() + "_CLUSTER_MUTEX";
@@ -86,6 +86,11 @@ public class JpaClusterLockDao extends BasePortalJpaDao implements IClusterLockD
         this.entityManagerCache = entityManagerCache;
     }
 
+    @Override
+    public ReadableDuration getLockLeaseDuration() {
+        return this.abandonedLockAge;
+    }
+
     @Override
     public ClusterMutex getClusterMutex(final String mutexName) {
         // Do a get first
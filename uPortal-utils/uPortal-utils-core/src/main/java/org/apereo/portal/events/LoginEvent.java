@@ -38,21 +38,33 @@ public final class LoginEvent extends PortalEvent {
 
     private final String ipAddress;
 
+    private final Map<String, Long> phaseTimes;
+
     @SuppressWarnings("unused")
     private LoginEvent() {
         super();
         this.groups = Collections.emptySet();
         this.attributes = Collections.emptyMap();
         this.ipAddress = "0.0.0.0";
+        this.phaseTimes = Collections.emptyMap();
     }
 
     LoginEvent(
             PortalEventBuilder eventBuilder,
             Set<String> groups,
             Map<String, List<String>> attributes) {
+        this(eventBuilder, groups, attributes, Collections.<String, Long>emptyMap());
+    }
+
+    LoginEvent(
+            PortalEventBuilder eventBuilder,
+            Set<String> groups,
+            Map<String, List<String>> attributes,
+            Map<String, Long> phaseTimes) {
         super(eventBuilder);
         Validate.notNull(groups, "groups");
         Validate.notNull(attributes, "attributes");
+        Validate.notNull(phaseTimes, "phaseTimes");
 
         this.groups = ImmutableSet.copyOf(groups);
 
@@ -67,6 +79,8 @@ public final class LoginEvent extends PortalEvent {
                 this.captureUserIpAddresses
                         ? eventBuilder.getPortalRequest().getRemoteAddr()
                         : "0.0.0.0";
+
+        this.phaseTimes = ImmutableMap.copyOf(phaseTimes);
     }
 
     /** @return The groups the user was in at login */
@@ -84,6 +98,14 @@ public final class LoginEvent extends PortalEvent {
         return this.ipAddress;
     }
 
+    /**
+     * @return Milliseconds spent in each phase of the login, in the order the phases completed.
+     *     Empty for events that were recorded before phase times were captured.
+     */
+    public Map<String, Long> getPhaseTimes() {
+        return this.phaseTimes;
+    }
+
     /* (non-Javadoc)
      * @see java.lang.Object#toString()
      */
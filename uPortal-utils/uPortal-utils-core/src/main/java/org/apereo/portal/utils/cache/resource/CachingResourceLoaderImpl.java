@@ -27,27 +27,43 @@ import org.jasig.resourceserver.aggr.om.Included;
 import org.jasig.resourceserver.utils.aggr.ResourcesElementsProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Service;
 
-/** Uses an {@link Ehcache} to handle caching of the resources. */
+/**
+ * Uses an {@link Ehcache} to handle caching of the resources.
+ *
+ * <p>By default cached resources are checked for modification by polling {@link
+ * Resource#lastModified()} once the check interval has passed. When watching for changes is
+ * enabled the directories of file based resources are watched by a {@link ResourceFileWatcher}
+ * instead, and those resources are only checked after a change to one of the watched files has
+ * been seen. Resources that are not files are still polled.
+ */
 @Service
-public class CachingResourceLoaderImpl implements CachingResourceLoader {
+@ManagedResource("uPortal:section=Framework,name=CachingResourceLoader")
+public class CachingResourceLoaderImpl implements CachingResourceLoader, DisposableBean {
     protected final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     private final CachedResourceEntryFactory entryFactory = new CachedResourceEntryFactory();
 
     private long checkInterval = TimeUnit.MINUTES.toMillis(1);
 
+    private Ehcache backingCache;
     private Ehcache resourceCache;
     private ResourcesElementsProvider resourcesElementsProvider;
+    private ResourceFileWatcher resourceFileWatcher;
 
     @Autowired
     public void setResourceCache(
             @Qualifier("org.apereo.portal.utils.cache.resource.CachingResourceLoader")
                     Ehcache resourceCache) {
+        this.backingCache = resourceCache;
         this.resourceCache = new SelfPopulatingCache(resourceCache, this.entryFactory);
     }
 
@@ -61,6 +77,38 @@ public class CachingResourceLoaderImpl implements CachingResourceLoader {
         this.checkInterval = checkInterval;
     }
 
+    /**
+     * If file based resources should be watched for changes instead of being checked for
+     * modification every check interval. Defaults to false.
+     */
+    @Value("${org.apereo.portal.utils.cache.resource.CachingResourceLoader.watchForChanges:false}")
+    public void setWatchForChanges(boolean watchForChanges) throws IOException {
+        if (watchForChanges && this.resourceFileWatcher == null) {
+            try {
+                this.resourceFileWatcher = new ResourceFileWatcher();
+            } catch (IOException e) {
+                this.logger.warn(
+                        "Could not watch resources for changes, they will be polled instead",
+                        e);
+            }
+        } else if (!watchForChanges && this.resourceFileWatcher != null) {
+            this.resourceFileWatcher.close();
+            this.resourceFileWatcher = null;
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        this.setWatchForChanges(false);
+    }
+
+    /** Discard all cached resources so they are loaded again the next time they are used. */
+    @ManagedOperation(description = "Discard all cached resources so they are loaded again")
+    public void reloadResources() {
+        this.logger.info("Discarding all cached resources");
+        this.resourceCache.removeAll();
+    }
+
     /* (non-Javadoc)
      * @see org.apereo.portal.utils.cache.CachingResourceLoader#getResource(org.springframework.core.io.Resource, org.apereo.portal.utils.cache.ResourceBuilder)
      */
@@ -84,20 +132,32 @@ public class CachingResourceLoaderImpl implements CachingResourceLoader {
             return this.loadResource(resource, builder);
         }
 
-        // Look for the resource in the cache, since it has been wrapped with a SelfPopulatingCache
-        // it should never return null.
-        final GetResourceArguments<T> arguments = new GetResourceArguments<T>(resource, builder);
-        final Element element =
-                this.entryFactory.getWithData(this.resourceCache, resource, arguments);
+        // Look for the resource in the backing cache first, the SelfPopulatingCache locks the key
+        // on every get so it is only used to load resources that are not cached yet. Since it is
+        // a SelfPopulatingCache it should never return null.
+        Element element = this.backingCache.get(resource);
+        if (element == null) {
+            final GetResourceArguments<T> arguments =
+                    new GetResourceArguments<T>(resource, builder);
+            element = this.entryFactory.getWithData(this.resourceCache, resource, arguments);
+        }
 
         CachedResource<T> cachedResource = (CachedResource<T>) element.getObjectValue();
         if (this.logger.isTraceEnabled()) {
             this.logger.trace("Found " + cachedResource + " in cache");
         }
 
-        // Found it, now check if the last-load time is within the check interval
+        // Found it, if all of its files are watched only check it once one of them has changed,
+        // otherwise check if the last-load time is within the check interval
         final long lastCheckTime = cachedResource.getLastCheckTime();
-        if (lastCheckTime + checkInterval >= System.currentTimeMillis()) {
+        final ResourceFileWatcher watcher = this.resourceFileWatcher;
+        if (watcher != null && this.isWatched(watcher, cachedResource)) {
+            if (lastCheckTime > watcher.getLastChangeTime()) {
+                this.logger.trace(
+                        "{} has not changed since last checked, returning", cachedResource);
+                return cachedResource;
+            }
+        } else if (lastCheckTime + checkInterval >= System.currentTimeMillis()) {
             if (this.logger.isTraceEnabled()) {
                 this.logger.trace(
                         cachedResource
@@ -116,9 +176,10 @@ public class CachingResourceLoaderImpl implements CachingResourceLoader {
         }
 
         // If the resource has not been modified return the cached resource.
+        final long checkTime = System.currentTimeMillis();
         final boolean resourceModified = this.checkIfModified(cachedResource);
         if (!resourceModified) {
-            cachedResource.setLastCheckTime(System.currentTimeMillis());
+            cachedResource.setLastCheckTime(checkTime);
             this.resourceCache.put(
                     element); // do a cache put to notify the cache the object has been modified
             return cachedResource;
@@ -176,6 +237,36 @@ public class CachingResourceLoaderImpl implements CachingResourceLoader {
         return false;
     }
 
+    /** Check if the resource and all of its additional resources are watched for changes. */
+    private boolean isWatched(ResourceFileWatcher watcher, CachedResource<?> cachedResource) {
+        if (!watcher.isWatched(cachedResource.getResource())) {
+            return false;
+        }
+        for (final Resource additionalResource : cachedResource.getAdditionalResources().keySet()) {
+            if (!watcher.isWatched(additionalResource)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Start watching the files used to load the {@link CachedResource}. A file can change while it
+     * is being loaded and before it is watched, so the resource is checked for modification once
+     * all of its files are watched.
+     */
+    private void watch(ResourceFileWatcher watcher, CachedResource<?> cachedResource) {
+        boolean watched = watcher.watch(cachedResource.getResource());
+        for (final Resource additionalResource : cachedResource.getAdditionalResources().keySet()) {
+            watched = watcher.watch(additionalResource) && watched;
+        }
+
+        if (watched && this.checkIfModified(cachedResource)) {
+            // Force the next request to check it again
+            cachedResource.setLastCheckTime(0);
+        }
+    }
+
     /** Determine the last modified time stamp for the resource */
     protected long getLastModified(Resource resource) {
         try {
@@ -209,7 +300,15 @@ public class CachingResourceLoaderImpl implements CachingResourceLoader {
                 (Serializable) Arrays.asList(lastModified, loadedResource.getAdditionalResources());
 
         // Create the CachedResource based on if digesting was enabled
-        return new CachedResourceImpl<T>(resource, loadedResource, lastLoadTime, cacheKey);
+        final CachedResource<T> cachedResource =
+                new CachedResourceImpl<T>(resource, loadedResource, lastLoadTime, cacheKey);
+
+        final ResourceFileWatcher watcher = this.resourceFileWatcher;
+        if (watcher != null) {
+            this.watch(watcher, cachedResource);
+        }
+
+        return cachedResource;
     }
 
     private static class GetResourceArguments<T> {
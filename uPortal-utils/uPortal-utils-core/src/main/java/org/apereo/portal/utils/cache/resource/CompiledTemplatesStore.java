@@ -0,0 +1,276 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.utils.cache.resource;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.transform.Templates;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * Persists compiled {@link Templates} in a local directory so a restarted portal can reuse them
+ * instead of compiling the stylesheets again. An entry is keyed by a digest of the stylesheet
+ * source and is only used while every resource the stylesheet included when it was compiled still
+ * has the same digest.
+ *
+ * <p>Only {@link Templates} implementations that are {@link Serializable}, such as the JDK's XSLTC
+ * translets, can be stored. Stored templates do not keep the URIResolver they were compiled with.
+ *
+ * <p>A translet carries the bytecode it runs, so whoever can write to the directory can run code in
+ * the portal. Reading an entry restricts deserialization to the classes of a translet, but that
+ * cannot tell a translet compiled by the portal from a crafted one. The store is therefore only
+ * used while the directory is owned by the user the portal runs as, and neither it nor its parent
+ * directories can be written to by other users.
+ */
+public class CompiledTemplatesStore {
+    private static final String FILE_SUFFIX = ".templates";
+    private static final int FORMAT_VERSION = 1;
+    private static final String SERIAL_FILTER =
+            "com.sun.org.apache.xalan.internal.xsltc.trax.*;java.lang.*;java.util.*;!*";
+
+    protected final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final Path directory;
+    private final String environmentKey;
+    private volatile Boolean directoryPrivate;
+
+    /**
+     * @param directory Directory the compiled templates are stored in, created if missing
+     * @param environmentKey Describes everything besides the stylesheet source that affects the
+     *     compiled form, such as the TransformerFactory and its attributes
+     */
+    public CompiledTemplatesStore(Path directory, String environmentKey) {
+        this.directory = directory;
+        this.environmentKey = environmentKey + "|" + System.getProperty("java.version");
+    }
+
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    /** @return The key to store the templates compiled from the stylesheet source under */
+    public String getKey(String systemId, byte[] source) {
+        return Hashing.sha256()
+                .newHasher()
+                .putString(this.environmentKey, StandardCharsets.UTF_8)
+                .putString(systemId, StandardCharsets.UTF_8)
+                .putBytes(source)
+                .hash()
+                .toString();
+    }
+
+    /**
+     * Load previously stored templates
+     *
+     * @return The templates and the resources they included, null if nothing is stored for the
+     *     key or an included resource changed since the templates were stored
+     */
+    public LoadedResource<Templates> load(String key, ResourceLoader resourceLoader) {
+        final Path file = this.directory.resolve(key + FILE_SUFFIX);
+        if (!this.isDirectoryPrivate() || !Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try (ObjectInputStream in =
+                new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            in.setObjectInputFilter(ObjectInputFilter.Config.createFilter(SERIAL_FILTER));
+            if (in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+
+            final int includeCount = in.readInt();
+            final Map<Resource, Long> includedResources = new LinkedHashMap<>();
+            for (int i = 0; i < includeCount; i++) {
+                final Resource included = resourceLoader.getResource(in.readUTF());
+                final String digest = in.readUTF();
+                if (!included.exists() || !digest.equals(digest(included))) {
+                    this.logger.debug(
+                            "{} changed, not using compiled templates {}", included, file);
+                    return null;
+                }
+                includedResources.put(included, getLastModified(included));
+            }
+
+            final Templates templates = (Templates) in.readObject();
+            return new LoadedResourceImpl<>(templates, includedResources);
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            this.logger.warn(
+                    "Failed to read compiled templates {}, they will be replaced", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Store compiled templates, does nothing if the templates are not serializable or an included
+     * resource cannot be located again.
+     */
+    public void store(String key, Templates templates, Map<Resource, Long> includedResources) {
+        if (!(templates instanceof Serializable)) {
+            this.logger.debug("{} is not serializable, not storing it", templates);
+            return;
+        }
+
+        if (!this.isDirectoryPrivate()) {
+            return;
+        }
+
+        final Path file = this.directory.resolve(key + FILE_SUFFIX);
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(this.directory, key, ".tmp");
+            try (ObjectOutputStream out =
+                    new ObjectOutputStream(
+                            new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(includedResources.size());
+                for (final Resource included : includedResources.keySet()) {
+                    out.writeUTF(included.getURI().toString());
+                    out.writeUTF(digest(included));
+                }
+                out.writeObject(templates);
+            }
+            Files.move(
+                    tempFile,
+                    file,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            this.logger.debug("Stored compiled templates {}", file);
+        } catch (IOException e) {
+            this.logger.warn("Failed to store compiled templates {}", file, e);
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ioe) {
+                    // Ignore, left for the next store to replace
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the directory if needed and checks that only the user the portal runs as can write to
+     * it. The result is logged and remembered, a directory that fails the check is never used.
+     */
+    private boolean isDirectoryPrivate() {
+        Boolean result = this.directoryPrivate;
+        if (result == null) {
+            try {
+                result = this.checkDirectoryPrivate();
+            } catch (IOException | UnsupportedOperationException e) {
+                this.logger.error(
+                        "Could not verify the permissions of {}, compiled templates will not be"
+                                + " stored",
+                        this.directory,
+                        e);
+                result = false;
+            }
+            this.directoryPrivate = result;
+        }
+        return result;
+    }
+
+    private boolean checkDirectoryPrivate() throws IOException {
+        if (!Files.isDirectory(this.directory)) {
+            Files.createDirectories(
+                    this.directory,
+                    PosixFilePermissions.asFileAttribute(
+                            PosixFilePermissions.fromString("rwx------")));
+        }
+
+        final Path realDirectory = this.directory.toRealPath();
+        final UserPrincipal portalUser =
+                realDirectory
+                        .getFileSystem()
+                        .getUserPrincipalLookupService()
+                        .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!portalUser.equals(Files.getOwner(realDirectory))) {
+            this.logger.error(
+                    "{} is not owned by {}, compiled templates will not be stored",
+                    realDirectory,
+                    portalUser.getName());
+            return false;
+        }
+
+        // Other users must not be able to write to the directory or replace it
+        for (Path path = realDirectory; path != null; path = path.getParent()) {
+            final Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(path);
+            final boolean writableByOthers =
+                    permissions.contains(PosixFilePermission.GROUP_WRITE)
+                            || permissions.contains(PosixFilePermission.OTHERS_WRITE);
+            if (writableByOthers && (path.equals(realDirectory) || !isSticky(path))) {
+                this.logger.error(
+                        "{} can be written to by other users, compiled templates will not be"
+                                + " stored in {}",
+                        path,
+                        realDirectory);
+                return false;
+            }
+        }
+
+        this.logger.info("Storing compiled templates in {}", realDirectory);
+        return true;
+    }
+
+    /** @return true if only the owners of entries in the directory can rename or delete them */
+    private static boolean isSticky(Path directory) {
+        try {
+            final Object mode = Files.getAttribute(directory, "unix:mode");
+            return mode instanceof Integer && ((Integer) mode & 01000) != 0;
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String digest(Resource resource) throws IOException {
+        final Hasher hasher = Hashing.sha256().newHasher();
+        try (InputStream in = resource.getInputStream()) {
+            final byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                hasher.putBytes(buffer, 0, read);
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    private static long getLastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            // Ignore, not all resources can have a valid lastModified returned
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.utils.cache.resource;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+
+/**
+ * Watches the directories of file based {@link Resource}s with a {@link WatchService} and records
+ * when one of the watched files last changed. Cached resources whose files are all watched only
+ * need to be checked for modification after a change has been seen, so requests do not have to
+ * call {@link Resource#lastModified()} every check interval.
+ *
+ * <p>Resources that are not files (classpath resources in jars, URLs, etc) are never watched and
+ * have to be checked by polling.
+ */
+class ResourceFileWatcher implements Closeable {
+    protected final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final ConcurrentMap<Resource, Boolean> watchedResources = new ConcurrentHashMap<>();
+    private final Set<Path> watchedFiles = ConcurrentHashMap.newKeySet();
+    private final Set<Path> watchedDirectories = ConcurrentHashMap.newKeySet();
+    private final WatchService watchService;
+    private final Thread watchThread;
+
+    private volatile long lastChangeTime = System.currentTimeMillis();
+
+    public ResourceFileWatcher() throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        this.watchThread = new Thread(this::processEvents, "ResourceFileWatcher");
+        this.watchThread.setDaemon(true);
+        this.watchThread.start();
+    }
+
+    /**
+     * Start watching the resource, if it is a file.
+     *
+     * @return true if changes to the resource will be seen by this watcher
+     */
+    public boolean watch(Resource resource) {
+        return this.watchedResources.computeIfAbsent(resource, this::register);
+    }
+
+    /** @return true if changes to the resource will be seen by this watcher */
+    public boolean isWatched(Resource resource) {
+        return Boolean.TRUE.equals(this.watchedResources.get(resource));
+    }
+
+    /** @return The timestamp for the last time a change to a watched file was seen */
+    public long getLastChangeTime() {
+        return this.lastChangeTime;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.watchService.close();
+        this.watchThread.interrupt();
+    }
+
+    private synchronized boolean register(Resource resource) {
+        final File file;
+        try {
+            file = resource.getFile();
+        } catch (IOException e) {
+            this.logger.debug(
+                    "{} is not a file, it will be checked for modification by polling", resource);
+            return false;
+        }
+
+        final Path path = file.toPath().toAbsolutePath().normalize();
+        final Path directory = path.getParent();
+        if (directory == null) {
+            return false;
+        }
+
+        this.watchedFiles.add(path);
+        if (this.watchedDirectories.add(directory)) {
+            try {
+                directory.register(this.watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            } catch (IOException | ClosedWatchServiceException e) {
+                this.watchedDirectories.remove(directory);
+                this.logger.warn(
+                        "Failed to watch {} for changes, {} will be polled for modification",
+                        directory,
+                        resource,
+                        e);
+                return false;
+            }
+            this.logger.debug("Watching {} for changes", directory);
+        }
+
+        return true;
+    }
+
+    private void processEvents() {
+        while (true) {
+            final WatchKey key;
+            try {
+                key = this.watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            final Path directory = (Path) key.watchable();
+            boolean changed = false;
+            for (final WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    this.logger.debug("Lost change events for {}", directory);
+                    changed = true;
+                    continue;
+                }
+
+                final Path file = directory.resolve((Path) event.context());
+                if (this.watchedFiles.contains(file)) {
+                    this.logger.debug("{} {}", event.kind().name(), file);
+                    changed = true;
+                }
+            }
+
+            if (!key.reset()) {
+                // The directory is gone, resources in it have to be registered again when reloaded
+                this.logger.debug("{} can no longer be watched", directory);
+                this.watchedDirectories.remove(directory);
+                this.watchedResources.clear();
+                changed = true;
+            }
+
+            if (changed) {
+                this.lastChangeTime = System.currentTimeMillis();
+            }
+        }
+    }
+}
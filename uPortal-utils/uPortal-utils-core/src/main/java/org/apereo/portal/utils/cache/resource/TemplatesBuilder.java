@@ -14,32 +14,43 @@
  */
 package org.apereo.portal.utils.cache.resource;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.Paths;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeMap;
 import javax.xml.transform.Templates;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamSource;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apereo.portal.xml.ResourceLoaderURIResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ResourceLoaderAware;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
 
-/** Parses the provided input stream into a {@link Templates} object. */
+/**
+ * Parses the provided input stream into a {@link Templates} object. If a compiled templates
+ * directory is configured the compiled {@link Templates} are stored there by {@link
+ * CompiledTemplatesStore} and reused when the portal is restarted with unchanged stylesheets.
+ */
 @Service
 public class TemplatesBuilder implements Loader<Templates>, ResourceLoaderAware {
     protected final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     private ResourceLoader resourceLoader;
     private Map<String, Object> transformerAttributes;
+    private String compiledTemplatesDirectory;
+    private volatile CompiledTemplatesStore compiledTemplatesStore;
 
     @Override
     public void setResourceLoader(ResourceLoader resourceLoader) {
@@ -48,6 +59,14 @@ public class TemplatesBuilder implements Loader<Templates>, ResourceLoaderAware
 
     public void setTransformerAttributes(Map<String, Object> transformerAttributes) {
         this.transformerAttributes = transformerAttributes;
+        this.compiledTemplatesStore = null;
+    }
+
+    /** Directory to store compiled templates in across restarts, blank to not store them */
+    @Value("${org.apereo.portal.utils.cache.resource.TemplatesBuilder.compiledTemplatesDirectory:}")
+    public void setCompiledTemplatesDirectory(String compiledTemplatesDirectory) {
+        this.compiledTemplatesDirectory = compiledTemplatesDirectory;
+        this.compiledTemplatesStore = null;
     }
 
     /* (non-Javadoc)
@@ -71,22 +90,84 @@ public class TemplatesBuilder implements Loader<Templates>, ResourceLoaderAware
         final URI uri = resource.getURI();
         final String systemId = uri.toString();
 
+        final CompiledTemplatesStore store = this.getCompiledTemplatesStore(transformerFactory);
+        if (store == null) {
+            final InputStream stream = resource.getInputStream();
+            try {
+                return this.compile(transformerFactory, uriResolver, stream, systemId);
+            } finally {
+                IOUtils.closeQuietly(stream);
+            }
+        }
+
         final InputStream stream = resource.getInputStream();
+        final byte[] source;
+        try {
+            source = IOUtils.toByteArray(stream);
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+
+        final String key = store.getKey(systemId, source);
+        final LoadedResource<Templates> stored = store.load(key, this.resourceLoader);
+        if (stored != null) {
+            this.logger.debug("Loaded compiled templates for {} from {}", systemId, key);
+            return stored;
+        }
+
+        final LoadedResource<Templates> compiled =
+                this.compile(
+                        transformerFactory,
+                        uriResolver,
+                        new ByteArrayInputStream(source),
+                        systemId);
+        store.store(key, compiled.getLoadedResource(), compiled.getAdditionalResources());
+        return compiled;
+    }
+
+    private LoadedResource<Templates> compile(
+            TransformerFactory transformerFactory,
+            ResourceTrackingURIResolver uriResolver,
+            InputStream stream,
+            String systemId)
+            throws IOException {
+        final long start = System.currentTimeMillis();
         final Templates templates;
         try {
             final StreamSource source = new StreamSource(stream, systemId);
             templates = transformerFactory.newTemplates(source);
         } catch (TransformerConfigurationException e) {
             throw new IOException("Failed to parse stream into Templates", e);
-        } finally {
-            IOUtils.closeQuietly(stream);
         }
+        this.logger.debug("Compiled {} in {}ms", systemId, System.currentTimeMillis() - start);
 
         final Map<Resource, Long> resolvedResources = uriResolver.getResolvedResources();
 
         return new LoadedResourceImpl<Templates>(templates, resolvedResources);
     }
 
+    private CompiledTemplatesStore getCompiledTemplatesStore(
+            TransformerFactory transformerFactory) {
+        if (StringUtils.isBlank(this.compiledTemplatesDirectory)) {
+            return null;
+        }
+
+        CompiledTemplatesStore store = this.compiledTemplatesStore;
+        if (store == null) {
+            // The factory and its attributes determine the compiled form, sort for a stable key
+            final Map<String, Object> attributes =
+                    this.transformerAttributes != null
+                            ? new TreeMap<>(this.transformerAttributes)
+                            : new TreeMap<>();
+            store =
+                    new CompiledTemplatesStore(
+                            Paths.get(this.compiledTemplatesDirectory),
+                            transformerFactory.getClass().getName() + attributes);
+            this.compiledTemplatesStore = store;
+        }
+        return store;
+    }
+
     private static class ResourceTrackingURIResolver extends ResourceLoaderURIResolver {
         private final Map<Resource, Long> resolvedResources = new LinkedHashMap<Resource, Long>();
 
@@ -14,9 +14,11 @@
  */
 package org.apereo.portal.utils.threading;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Queue;
@@ -26,10 +28,9 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import org.apereo.portal.utils.ConcurrentMapUtils;
 
 /**
@@ -45,6 +46,11 @@ import org.apereo.portal.utils.ConcurrentMapUtils;
  * #remove()}, {@link #element()}, {@link #drainTo(Collection)}, and {@link #drainTo(Collection,
  * int)} no matter how much time has elapsed
  *
+ * <p>Producers never lock unless they have to wait for capacity: the element is added to its
+ * lock-free sub-queue and the atomic size is updated. Consumers and removals share a single take
+ * lock so that {@link #getNextElementKey()} is never called concurrently, producers only acquire it
+ * to wake a waiting consumer when the queue goes from empty to non-empty.
+ *
  * @param <K> The type of key used for grouping elements in the queue
  * @param <T> The type of elements in the queue
  */
@@ -53,16 +59,22 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
     private final Set<K> queueKeySet = Collections.unmodifiableSet(this.keyedQueues.keySet());
 
     private final int capacity;
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
-    private final Lock readLock = lock.readLock();
-    private final Lock writeLock = lock.writeLock();
-    private final Condition notEmpty = writeLock.newCondition();
-    private final Condition notFull = writeLock.newCondition();
-
-    // Track the total size of the queue and peek data, these fields MUST be accessed within a read
-    // or write lock and
-    // updated ONLY from within a write lock
-    private int size = 0;
+
+    // Number of queued elements plus the slots reserved by producers that are still adding, only
+    // used to enforce the capacity
+    private final AtomicInteger count = new AtomicInteger();
+
+    // Number of elements available to consumers, incremented only once the element is in its
+    // sub-queue so that a consumer that sees a non-zero size always finds an element. Removals that
+    // race with an add can briefly take it below zero
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final ReentrantLock takeLock = new ReentrantLock();
+    private final Condition notEmpty = takeLock.newCondition();
+    private final ReentrantLock putLock = new ReentrantLock();
+    private final Condition notFull = putLock.newCondition();
+
+    // MUST be accessed only while the takeLock is held
     private K peekedKey = null;
 
     public QualityOfServiceBlockingQueue() {
@@ -146,27 +158,35 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
     public final boolean offer(T e, long timeout, TimeUnit unit) throws InterruptedException {
         final Queue<T> queue = this.getOrCreateQueue(e);
 
-        final long start = getWriteLockWithOptionalWait(timeout, unit);
-        if (start == Long.MIN_VALUE) {
-            // Min value signals a timeout while waiting
-            return false;
-        }
-        final long maxWait = start >= 0 ? unit.toMillis(timeout) : -1;
+        if (!this.tryReserve()) {
+            // Queue is full, wait for a consumer to make room
+            final boolean timed = timeout >= 0;
+            long nanos = timed ? unit.toNanos(timeout) : 0;
 
-        try {
-            if (!this.waitForRemove(start, maxWait)) {
-                return false;
-            }
+            this.putLock.lockInterruptibly();
+            try {
+                while (!this.tryReserve()) {
+                    if (!timed) {
+                        this.notFull.await();
+                    } else if (nanos <= 0) {
+                        // Hit timeout waiting for space
+                        return false;
+                    } else {
+                        nanos = this.notFull.awaitNanos(nanos);
+                    }
+                }
 
-            final boolean added = queue.add(e);
-            if (added) {
-                this.size++;
-                this.notEmpty.signal();
+                // Let any other waiting producer know if there is still room
+                if (this.count.get() < this.capacity) {
+                    this.notFull.signal();
+                }
+            } finally {
+                this.putLock.unlock();
             }
-            return added;
-        } finally {
-            this.writeLock.unlock();
         }
+
+        this.enqueue(queue, e);
+        return true;
     }
 
     /* (non-Javadoc)
@@ -182,23 +202,31 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
      */
     @Override
     public final T poll(final long timeout, final TimeUnit unit) throws InterruptedException {
-        final long start = getWriteLockWithOptionalWait(timeout, unit);
-        if (start == Long.MIN_VALUE) {
-            // Min value signals a timeout while waiting
-            return null;
-        }
-        final long maxWait = start >= 0 ? unit.toMillis(timeout) : -1;
+        final boolean timed = timeout >= 0;
+        long nanos = timed ? unit.toNanos(timeout) : 0;
 
+        final T e;
+        this.takeLock.lockInterruptibly();
         try {
             // Wait for an element to be available to return
-            if (!this.waitForAdd(start, maxWait)) {
-                return null;
+            while (this.size.get() <= 0) {
+                if (!timed) {
+                    this.notEmpty.await();
+                } else if (nanos <= 0) {
+                    // Hit timeout waiting for new element
+                    return null;
+                } else {
+                    nanos = this.notEmpty.awaitNanos(nanos);
+                }
             }
 
-            return this.pollInternal(false);
+            e = this.dequeue();
         } finally {
-            this.writeLock.unlock();
+            this.takeLock.unlock();
         }
+
+        this.released(1);
+        return e;
     }
 
     /* (non-Javadoc)
@@ -206,12 +234,7 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
      */
     @Override
     public final int remainingCapacity() {
-        this.readLock.lock();
-        try {
-            return this.capacity - this.size;
-        } finally {
-            this.readLock.unlock();
-        }
+        return this.capacity - this.count.get();
     }
 
     /* (non-Javadoc)
@@ -219,7 +242,7 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
      */
     @Override
     public final boolean remove(Object o) {
-        // Short circuit using read-lock
+        // Short circuit using atomic size
         if (this.isEmpty()) {
             return false;
         }
@@ -231,17 +254,22 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
             return false;
         }
 
-        this.writeLock.lock();
+        final boolean removed;
+        this.takeLock.lock();
         try {
-            final boolean removed = queue.remove(o);
+            removed = queue.remove(o);
             if (removed) {
-                this.size--;
-                this.notFull.signal();
+                this.size.decrementAndGet();
+                this.checkPeekedKey();
             }
-            return removed;
         } finally {
-            this.writeLock.unlock();
+            this.takeLock.unlock();
         }
+
+        if (removed) {
+            this.released(1);
+        }
+        return removed;
     }
 
     /* (non-Javadoc)
@@ -272,43 +300,27 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
      */
     @Override
     public final int drainTo(Collection<? super T> c, int maxElements) {
-        // Short circuit using read-lock
+        // Short circuit using atomic size
         if (this.isEmpty()) {
             return 0;
         }
 
-        this.writeLock.lock();
+        int count = 0;
+        this.takeLock.lock();
         try {
-            int count = 0;
-
-            while (count < this.size && count < maxElements) {
-                final K key = this.getNextElementKey();
-
-                final Queue<T> queue = this.keyedQueues.get(key);
-                if (queue == null || queue.isEmpty()) {
-                    throw new IllegalStateException(
-                            "getNextElementKey returned key='"
-                                    + key
-                                    + "' but there are no elements available for the key. This violates the contract specified for getNextElementKey: "
-                                    + this.toString());
-                }
-
-                final T e = queue.poll();
-                c.add(e);
-
+            while (count < maxElements && this.size.get() > 0) {
+                c.add(this.dequeue());
                 count++;
             }
-
-            this.size -= count;
-
-            if (count > 0) {
-                this.notFull.signal();
-            }
-
-            return count;
         } finally {
-            this.writeLock.unlock();
+            this.takeLock.unlock();
         }
+
+        if (count > 0) {
+            this.released(count);
+        }
+
+        return count;
     }
 
     /* (non-Javadoc)
@@ -316,11 +328,6 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
      */
     @Override
     public final T remove() {
-        // Short circuit using read-lock
-        if (this.isEmpty()) {
-            throw new NoSuchElementException();
-        }
-
         final T e = this.poll();
         if (e == null) {
             throw new NoSuchElementException();
@@ -333,12 +340,26 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
      */
     @Override
     public final T poll() {
-        // Short circuit using read-lock
+        // Short circuit using atomic size
         if (this.isEmpty()) {
             return null;
         }
 
-        return this.pollInternal(false);
+        final T e;
+        this.takeLock.lock();
+        try {
+            // Re-check size within the take lock
+            if (this.size.get() <= 0) {
+                return null;
+            }
+
+            e = this.dequeue();
+        } finally {
+            this.takeLock.unlock();
+        }
+
+        this.released(1);
+        return e;
     }
 
     /* (non-Javadoc)
@@ -346,11 +367,6 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
      */
     @Override
     public final T element() {
-        // Short circuit using read-lock
-        if (this.isEmpty()) {
-            throw new NoSuchElementException();
-        }
-
         final T e = this.peek();
         if (e == null) {
             throw new NoSuchElementException();
@@ -363,13 +379,22 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
      */
     @Override
     public final T peek() {
-        // Short circuit using read-lock
+        // Short circuit using atomic size
         if (this.isEmpty()) {
             return null;
         }
 
-        // No existing peeked element, need to read it off the next queue
-        return this.pollInternal(true);
+        this.takeLock.lock();
+        try {
+            // Re-check size within the take lock
+            if (this.size.get() <= 0) {
+                return null;
+            }
+
+            return this.getNextQueue(true).peek();
+        } finally {
+            this.takeLock.unlock();
+        }
     }
 
     /* (non-Javadoc)
@@ -377,12 +402,7 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
      */
     @Override
     public final int size() {
-        this.readLock.lock();
-        try {
-            return this.size;
-        } finally {
-            this.readLock.unlock();
-        }
+        return Math.max(0, this.size.get());
     }
 
     /* (non-Javadoc)
@@ -390,7 +410,7 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
      */
     @Override
     public final boolean isEmpty() {
-        return this.size() == 0;
+        return this.size.get() <= 0;
     }
 
     /* (non-Javadoc)
@@ -406,50 +426,15 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
      */
     @Override
     public final Object[] toArray() {
-        this.readLock.lock();
-        try {
-            return this.toArray(new Object[this.size]);
-        } finally {
-            this.readLock.unlock();
-        }
+        return this.snapshot().toArray();
     }
 
     /* (non-Javadoc)
      * @see java.util.Collection#toArray(T[])
      */
-    @SuppressWarnings("unchecked")
     @Override
     public final <AT> AT[] toArray(AT[] a) {
-        this.readLock.lock();
-        try {
-            // Verify the array size
-            if (a.length < this.size) {
-                a =
-                        (AT[])
-                                java.lang.reflect.Array.newInstance(
-                                        a.getClass().getComponentType(), this.size);
-            }
-
-            // Trick to avoid generics warning
-            final Object[] result = a;
-
-            // Copy over all elements
-            int index = 0;
-            for (final Queue<T> queue : this.keyedQueues.values()) {
-                for (final T e : queue) {
-                    result[index++] = e;
-                }
-            }
-
-            // If array is too big set next element null
-            if (a.length > this.size) {
-                a[this.size] = null;
-            }
-
-            return a;
-        } finally {
-            this.readLock.unlock();
-        }
+        return this.snapshot().toArray(a);
     }
 
     /* (non-Javadoc)
@@ -508,23 +493,30 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
      */
     @Override
     public final boolean retainAll(Collection<?> c) {
-        this.writeLock.lock();
+        int removed = 0;
+        this.takeLock.lock();
         try {
-            int newSize = 0;
             for (final Queue<T> queue : this.keyedQueues.values()) {
-                queue.retainAll(c);
-                newSize += queue.size();
+                for (final Iterator<T> elementItr = queue.iterator(); elementItr.hasNext(); ) {
+                    final T e = elementItr.next();
+                    if (!c.contains(e) && queue.remove(e)) {
+                        removed++;
+                    }
+                }
             }
 
-            // Update the queue size
-            final int oldSize = this.size;
-            this.size = newSize;
-
-            // If the updated size and old size differ things changed
-            return this.size != oldSize;
+            this.size.addAndGet(-removed);
+            this.checkPeekedKey();
         } finally {
-            this.writeLock.unlock();
+            this.takeLock.unlock();
         }
+
+        if (removed > 0) {
+            this.released(removed);
+        }
+
+        // If anything was removed things changed
+        return removed > 0;
     }
 
     /* (non-Javadoc)
@@ -532,12 +524,25 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
      */
     @Override
     public final void clear() {
-        this.writeLock.lock();
+        int removed = 0;
+        this.takeLock.lock();
         try {
-            this.size = 0;
-            this.keyedQueues.clear();
+            // Empty the sub-queues instead of dropping them, a producer may already hold a
+            // reference to one
+            for (final Queue<T> queue : this.keyedQueues.values()) {
+                while (queue.poll() != null) {
+                    removed++;
+                }
+            }
+
+            this.size.addAndGet(-removed);
+            this.peekedKey = null;
         } finally {
-            this.writeLock.unlock();
+            this.takeLock.unlock();
+        }
+
+        if (removed > 0) {
+            this.released(removed);
         }
     }
 
@@ -551,32 +556,26 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
     private boolean add(T e, boolean failWhenFull) {
         final Queue<T> queue = this.getOrCreateQueue(e);
 
-        this.writeLock.lock();
-        try {
-            if (this.size == this.capacity) {
-                if (failWhenFull) {
-                    throw new IllegalStateException("Queue is at capacity: " + this.capacity);
-                }
-
-                return false;
+        if (!this.tryReserve()) {
+            if (failWhenFull) {
+                throw new IllegalStateException("Queue is at capacity: " + this.capacity);
             }
 
-            final boolean added = queue.add(e);
-            if (added) {
-                this.size++;
-                this.notEmpty.signal();
-            }
-            return added;
-        } finally {
-            this.writeLock.unlock();
+            return false;
         }
+
+        this.enqueue(queue, e);
+        return true;
     }
 
     /**
-     * @return The Queue to use for the specified element
-     * @param create If true a Queue will be created for the element if one does not already exist
+     * @return The Queue to use for the specified element, created if one does not already exist
      */
     private Queue<T> getOrCreateQueue(T e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+
         final K key = this.getElementKey(e);
         Queue<T> queue = this.keyedQueues.get(key);
         if (queue == null) {
@@ -586,146 +585,125 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
         return queue;
     }
 
-    /**
-     * Combination peek/poll method that uses a boolean parameter to switch between the two
-     * behaviors
-     *
-     * @param peek If true this method returns the peeked element, if false it returns the polled
-     *     element
-     */
-    private T pollInternal(boolean peek) {
-        this.writeLock.lock();
-        try {
-            // Re-check size within the write lock
-            if (this.size == 0) {
-                return null;
+    /** @return true if a slot was reserved for a new element, false if the queue is full */
+    private boolean tryReserve() {
+        for (; ; ) {
+            final int c = this.count.get();
+            if (c >= this.capacity) {
+                return false;
             }
-
-            final K key;
-            if (this.peekedKey != null) {
-                // If there is a peeked key use it
-                key = this.peekedKey;
-                if (!peek) {
-                    // If not a peek consume the peekedKey
-                    this.peekedKey = null;
-                }
-            } else {
-                // Get the next element key
-                key = this.getNextElementKey();
-                if (peek) {
-                    // If a peek store the key
-                    this.peekedKey = key;
-                }
+            if (this.count.compareAndSet(c, c + 1)) {
+                return true;
             }
+        }
+    }
 
-            // Get the associated Queue and sanitity check the value from getNextElementKey()
-            final Queue<T> queue = this.keyedQueues.get(key);
-            if (queue == null || queue.isEmpty()) {
-                throw new IllegalStateException(
-                        "getNextElementKey returned key='"
-                                + key
-                                + "' but there are no elements available for the key. This violates the contract specified for getNextElementKey");
-            }
+    /** Adds an element for which a slot has been reserved via {@link #tryReserve()} */
+    private void enqueue(Queue<T> queue, T e) {
+        queue.add(e);
 
-            if (peek) {
-                // If a peek just return a peek from the queue
-                return queue.peek();
+        final int c = this.size.getAndIncrement();
+        if (c == 0) {
+            // Queue was empty, a consumer may be waiting
+            this.takeLock.lock();
+            try {
+                this.notEmpty.signal();
+            } finally {
+                this.takeLock.unlock();
             }
+        }
+    }
 
-            // Not a peek, decrement the size and poll the queue
-            this.size--;
-            this.notFull.signal();
-            return queue.poll();
-        } finally {
-            this.writeLock.unlock();
+    /** This MUST be called while {@link #takeLock} is locked and size is greater than 0 */
+    private T dequeue() {
+        final T e = this.getNextQueue(false).poll();
+
+        final int c = this.size.getAndDecrement();
+        if (c > 1) {
+            // Still more elements, let another waiting consumer know
+            this.notEmpty.signal();
         }
+
+        return e;
     }
 
-    /** This MUST be called while {@link #writeLock} is locked by the current thread */
-    private boolean waitForRemove(long waitStart, long maxWait) throws InterruptedException {
-        if (this.size == this.capacity) {
-            if (!waitOnCondition(this.notFull, maxWait, waitStart)) {
-                return false;
+    /** Frees the slots of removed elements, waking a waiting producer if the queue was full */
+    private void released(int removed) {
+        final int c = this.count.getAndAdd(-removed);
+        if (c == this.capacity) {
+            this.putLock.lock();
+            try {
+                this.notFull.signal();
+            } finally {
+                this.putLock.unlock();
             }
         }
-
-        return true;
     }
 
     /**
-     * Acquires a write lock either using {@link Lock#tryLock(long, TimeUnit)} if timeout >= 0 or
-     * using {@link Lock#lock()} if timeout < 0.
+     * Combination peek/poll method that uses a boolean parameter to switch between the two
+     * behaviors. This MUST be called while {@link #takeLock} is locked and size is greater than 0
      *
-     * @param timeout Duration to wait for lock, if less than 0 will wait forever via {@link
-     *     Lock#lock()}
-     * @param unit Time units for timeout
-     * @return If waiting with timeout the {@link System#currentTimeMillis()} that the waiting
-     *     started, if waiting with timeout timed out will return {@value Long#MIN_VALUE}
-     * @throws InterruptedException
-     */
-    private long getWriteLockWithOptionalWait(final long timeout, final TimeUnit unit)
-            throws InterruptedException {
-        // Get the write lock and capture start time and max wait time if waiting a specified
-        // timeout
-        final long start;
-        if (timeout >= 0) {
-            start = System.currentTimeMillis();
-
-            final boolean locked = this.writeLock.tryLock(timeout, unit);
-            if (!locked) {
-                // Hit timeout waiting for lock
-                return Long.MIN_VALUE;
+     * @param peek If true the key is retained so the next call returns the same Queue, if false it
+     *     is consumed
+     * @return The Queue to peek or poll the next element from
+     */
+    private Queue<T> getNextQueue(boolean peek) {
+        final K key;
+        if (this.peekedKey != null) {
+            // If there is a peeked key use it
+            key = this.peekedKey;
+            if (!peek) {
+                // If not a peek consume the peekedKey
+                this.peekedKey = null;
             }
         } else {
-            start = -1;
-
-            this.writeLock.lock();
+            // Get the next element key
+            key = this.getNextElementKey();
+            if (peek) {
+                // If a peek store the key
+                this.peekedKey = key;
+            }
         }
-        return start;
-    }
 
-    /** This MUST be called while {@link #writeLock} is locked by the current thread */
-    private boolean waitForAdd(long waitStart, long maxWait) throws InterruptedException {
-        while (this.size == 0) {
-            if (!waitOnCondition(this.notEmpty, maxWait, waitStart)) {
-                return false;
-            }
+        // Get the associated Queue and sanitity check the value from getNextElementKey()
+        final Queue<T> queue = this.keyedQueues.get(key);
+        if (queue == null || queue.isEmpty()) {
+            throw new IllegalStateException(
+                    "getNextElementKey returned key='"
+                            + key
+                            + "' but there are no elements available for the key. This violates the contract specified for getNextElementKey: "
+                            + this.toString());
         }
 
-        return true;
+        return queue;
     }
 
     /**
-     * @param condition The condition to wait on
-     * @param maxWait The maximum time in milliseconds to wait, waits forever if less than 0
-     * @param waitStart The original start time of the waiting, only used if maxWait is >= 0
+     * Forgets the peeked key if its Queue was emptied by a removal. This MUST be called while
+     * {@link #takeLock} is locked
      */
-    private boolean waitOnCondition(final Condition condition, long maxWait, long waitStart)
-            throws InterruptedException {
-        if (maxWait >= 0) {
-            final long waited = System.currentTimeMillis() - waitStart;
-            final long waitTime = maxWait - waited;
-            if (waitTime <= 0) {
-                // Hit timeout waiting for new element
-                return false;
-            }
-
-            final boolean notified = condition.await(waitTime, TimeUnit.MILLISECONDS);
-            if (!notified) {
-                // Hit timeout waiting for new element
-                return false;
-            }
-        } else {
-            condition.await();
+    private void checkPeekedKey() {
+        if (this.peekedKey != null && this.isKeyEmpty(this.peekedKey)) {
+            this.peekedKey = null;
         }
+    }
 
-        return true;
+    /** @return A point in time copy of the elements in the queue */
+    private List<T> snapshot() {
+        final List<T> elements = new ArrayList<T>(this.size());
+        for (final Queue<T> queue : this.keyedQueues.values()) {
+            elements.addAll(queue);
+        }
+        return elements;
     }
 
     /** Iterates over the Queue's in the keyedQueues Map */
     private final class ElementIterator implements Iterator<T> {
         private final Iterator<Queue<T>> queueIterator;
+        private Queue<T> queue = null;
         private Iterator<T> elementIterator = null;
+        private T lastElement = null;
 
         public ElementIterator() {
             this.queueIterator = keyedQueues.values().iterator();
@@ -736,8 +714,16 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
          */
         @Override
         public boolean hasNext() {
-            return (this.elementIterator != null && this.elementIterator.hasNext())
-                    || this.queueIterator.hasNext();
+            while (this.elementIterator == null || !this.elementIterator.hasNext()) {
+                if (!this.queueIterator.hasNext()) {
+                    return false;
+                }
+
+                this.queue = this.queueIterator.next();
+                this.elementIterator = this.queue.iterator();
+            }
+
+            return true;
         }
 
         /* (non-Javadoc)
@@ -745,12 +731,12 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
          */
         @Override
         public T next() {
-            if (this.elementIterator == null || !this.elementIterator.hasNext()) {
-                final Queue<T> queue = this.queueIterator.next();
-                this.elementIterator = queue.iterator();
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
             }
 
-            return this.elementIterator.next();
+            this.lastElement = this.elementIterator.next();
+            return this.lastElement;
         }
 
         /* (non-Javadoc)
@@ -758,13 +744,26 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
          */
         @Override
         public void remove() {
-            writeLock.lock();
+            if (this.lastElement == null) {
+                throw new IllegalStateException();
+            }
+
+            final boolean removed;
+            takeLock.lock();
             try {
-                this.elementIterator.remove();
-                size--;
-                notFull.signal();
+                // Remove by value, the element may have been taken since it was returned
+                removed = this.queue.remove(this.lastElement);
+                if (removed) {
+                    size.decrementAndGet();
+                    checkPeekedKey();
+                }
             } finally {
-                writeLock.unlock();
+                takeLock.unlock();
+            }
+
+            this.lastElement = null;
+            if (removed) {
+                released(1);
             }
         }
     }
@@ -774,29 +773,23 @@ public abstract class QualityOfServiceBlockingQueue<K, T> implements BlockingQue
      */
     @Override
     public String toString() {
-        this.readLock.lock();
-        try {
-            final StringBuilder str = new StringBuilder((this.size * 50) + 2);
+        final StringBuilder str = new StringBuilder((this.size() * 50) + 2);
 
-            str.append("{");
+        str.append("{");
 
-            for (final Iterator<Entry<K, Queue<T>>> entryItr =
-                            this.keyedQueues.entrySet().iterator();
-                    entryItr.hasNext(); ) {
-                final Entry<K, Queue<T>> entry = entryItr.next();
-                final K key = entry.getKey();
-                final Queue<T> queue = entry.getValue();
-                str.append(key).append("=").append(queue.size());
+        for (final Iterator<Entry<K, Queue<T>>> entryItr = this.keyedQueues.entrySet().iterator();
+                entryItr.hasNext(); ) {
+            final Entry<K, Queue<T>> entry = entryItr.next();
+            final K key = entry.getKey();
+            final Queue<T> queue = entry.getValue();
+            str.append(key).append("=").append(queue.size());
 
-                if (entryItr.hasNext()) {
-                    str.append(", ");
-                }
+            if (entryItr.hasNext()) {
+                str.append(", ");
             }
-
-            str.append("}");
-            return str.toString();
-        } finally {
-            this.readLock.unlock();
         }
+
+        str.append("}");
+        return str.toString();
     }
 }
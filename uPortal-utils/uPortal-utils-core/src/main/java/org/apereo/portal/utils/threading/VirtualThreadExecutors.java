@@ -0,0 +1,79 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.utils.threading;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates executors that run each task on a new virtual thread. The portal is compiled against a
+ * JDK that predates virtual threads so the JDK 21+ APIs are looked up reflectively, callers must
+ * check {@link #isSupported()} before calling {@link #newVirtualThreadPerTaskExecutor(String)}.
+ */
+public final class VirtualThreadExecutors {
+    private static final ThreadFactory PROTOTYPE_FACTORY = createThreadFactory("uP-Virtual-");
+
+    private VirtualThreadExecutors() {}
+
+    /** @return true if the running JDK supports virtual threads */
+    public static boolean isSupported() {
+        return PROTOTYPE_FACTORY != null;
+    }
+
+    /**
+     * Create an executor that starts a new virtual thread for each task
+     *
+     * @param threadNamePrefix Prefix for the virtual thread names, a counter is appended
+     * @throws IllegalStateException If the running JDK does not support virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(String threadNamePrefix) {
+        final ThreadFactory threadFactory = createThreadFactory(threadNamePrefix);
+        if (threadFactory == null) {
+            throw new IllegalStateException(
+                    "Virtual threads are not supported by JDK "
+                            + System.getProperty("java.version"));
+        }
+
+        try {
+            final Method newThreadPerTaskExecutor =
+                    Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Failed to create virtual thread executor", e);
+        }
+    }
+
+    /** @return Factory for named virtual threads, null if virtual threads are not available */
+    private static ThreadFactory createThreadFactory(String threadNamePrefix) {
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder =
+                    builderClass
+                            .getMethod("name", String.class, long.class)
+                            .invoke(builder, threadNamePrefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+            // Pre JDK 19, no virtual thread API
+            return null;
+        } catch (InvocationTargetException e) {
+            // JDK 19/20 without --enable-preview throws UnsupportedOperationException
+            return null;
+        }
+    }
+}
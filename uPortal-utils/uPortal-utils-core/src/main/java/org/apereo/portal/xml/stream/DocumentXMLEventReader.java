@@ -0,0 +1,373 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.xml.stream;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.XMLEvent;
+import org.w3c.dom.Attr;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * XMLEventReader that walks a DOM {@link Node} directly, creating each event as it is read. Unlike
+ * the {@link javax.xml.transform.dom.DOMSource} adapter of the StAX implementation the events are
+ * not built through an intermediate XMLStreamReader and event allocator, and all names and values
+ * returned in the events are the same String instances held by the DOM.
+ *
+ * <p>Only namespaces declared by <code>xmlns</code> attributes are reported as namespace events,
+ * matching the behavior of the StAX DOM adapter. The DOM must not be modified while it is read.
+ */
+public class DocumentXMLEventReader extends BaseXMLEventReader {
+    private static final XMLEventFactory EVENT_FACTORY = XMLEventFactory.newFactory();
+
+    private final Node rootNode;
+    private final boolean isDocument;
+    private final Deque<ElementFrame> elementStack = new ArrayDeque<>();
+
+    private boolean started = false;
+    private boolean ended = false;
+    private Node nextNode;
+    private boolean closingNextNode = false;
+    private XMLEvent peekedEvent;
+
+    /** @param rootNode The Document or Element to read, only the node and its children are read */
+    public DocumentXMLEventReader(Node rootNode) {
+        super(null);
+        this.rootNode = rootNode;
+        this.isDocument = rootNode.getNodeType() == Node.DOCUMENT_NODE;
+    }
+
+    /* (non-Javadoc)
+     * @see org.apereo.portal.xml.stream.BaseXMLEventReader#internalNextEvent()
+     */
+    @Override
+    protected XMLEvent internalNextEvent() throws XMLStreamException {
+        final XMLEvent event = this.peek();
+        if (event == null) {
+            throw new NoSuchElementException("No more events for " + this.rootNode);
+        }
+        this.peekedEvent = null;
+        return event;
+    }
+
+    /* (non-Javadoc)
+     * @see javax.xml.stream.util.EventReaderDelegate#hasNext()
+     */
+    @Override
+    public boolean hasNext() {
+        return this.peek() != null;
+    }
+
+    /* (non-Javadoc)
+     * @see javax.xml.stream.util.EventReaderDelegate#peek()
+     */
+    @Override
+    public XMLEvent peek() {
+        if (this.peekedEvent == null) {
+            this.peekedEvent = this.readNextEvent();
+        }
+        return this.peekedEvent;
+    }
+
+    /* (non-Javadoc)
+     * @see javax.xml.stream.util.EventReaderDelegate#getProperty(java.lang.String)
+     */
+    @Override
+    public Object getProperty(String name) throws IllegalArgumentException {
+        return null;
+    }
+
+    /* (non-Javadoc)
+     * @see javax.xml.stream.util.EventReaderDelegate#close()
+     */
+    @Override
+    public void close() {
+        this.nextNode = null;
+        this.ended = true;
+        this.peekedEvent = null;
+        this.elementStack.clear();
+    }
+
+    /** Create the next event from the tree, returns null once the end of the tree is reached */
+    private XMLEvent readNextEvent() {
+        if (!this.started) {
+            this.started = true;
+            if (this.isDocument) {
+                this.nextNode = this.rootNode.getFirstChild();
+                return EVENT_FACTORY.createStartDocument();
+            }
+            this.nextNode = this.rootNode;
+        }
+
+        while (this.nextNode != null) {
+            final Node node = this.nextNode;
+
+            if (this.closingNextNode) {
+                final ElementFrame frame = this.elementStack.pop();
+                this.moveAfter(node);
+                return EVENT_FACTORY.createEndElement(
+                        nullToEmpty(node.getPrefix()),
+                        nullToEmpty(node.getNamespaceURI()),
+                        getLocalName(node),
+                        frame.namespaces.iterator());
+            }
+
+            switch (node.getNodeType()) {
+                case Node.ELEMENT_NODE:
+                    {
+                        final XMLEvent event = this.createStartElement(node);
+                        final Node firstChild = node.getFirstChild();
+                        if (firstChild != null) {
+                            this.nextNode = firstChild;
+                        } else {
+                            this.closingNextNode = true;
+                        }
+                        return event;
+                    }
+                case Node.TEXT_NODE:
+                    {
+                        this.moveAfter(node);
+                        return EVENT_FACTORY.createCharacters(node.getNodeValue());
+                    }
+                case Node.CDATA_SECTION_NODE:
+                    {
+                        this.moveAfter(node);
+                        return EVENT_FACTORY.createCData(node.getNodeValue());
+                    }
+                case Node.COMMENT_NODE:
+                    {
+                        this.moveAfter(node);
+                        return EVENT_FACTORY.createComment(node.getNodeValue());
+                    }
+                case Node.PROCESSING_INSTRUCTION_NODE:
+                    {
+                        this.moveAfter(node);
+                        return EVENT_FACTORY.createProcessingInstruction(
+                                node.getNodeName(), node.getNodeValue());
+                    }
+                default:
+                    {
+                        // Document types, entity references and the like are not reported
+                        this.moveAfter(node);
+                        break;
+                    }
+            }
+        }
+
+        if (this.isDocument && !this.ended) {
+            this.ended = true;
+            return EVENT_FACTORY.createEndDocument();
+        }
+
+        return null;
+    }
+
+    /** Position the reader on the node that follows the specified node and all of its children */
+    private void moveAfter(Node node) {
+        if (node == this.rootNode) {
+            this.nextNode = null;
+            return;
+        }
+
+        final Node nextSibling = node.getNextSibling();
+        if (nextSibling != null) {
+            this.nextNode = nextSibling;
+            this.closingNextNode = false;
+            return;
+        }
+
+        final Node parent = node.getParentNode();
+        if (parent == null || parent.getNodeType() == Node.DOCUMENT_NODE) {
+            this.nextNode = null;
+        } else {
+            this.nextNode = parent;
+            this.closingNextNode = true;
+        }
+    }
+
+    private XMLEvent createStartElement(Node element) {
+        final ElementFrame parentFrame = this.elementStack.peek();
+        final NamespaceContext parentContext =
+                parentFrame != null ? parentFrame.namespaceContext : EmptyNamespaceContext.INSTANCE;
+
+        final NamedNodeMap attributeMap = element.getAttributes();
+        final int attributeCount = attributeMap.getLength();
+
+        List<Attribute> attributes = Collections.emptyList();
+        List<Namespace> namespaces = Collections.emptyList();
+        for (int index = 0; index < attributeCount; index++) {
+            final Attr attr = (Attr) attributeMap.item(index);
+
+            if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attr.getNamespaceURI())) {
+                if (namespaces.isEmpty()) {
+                    namespaces = new ArrayList<>(2);
+                }
+                if (XMLConstants.XMLNS_ATTRIBUTE.equals(attr.getPrefix())) {
+                    namespaces.add(
+                            EVENT_FACTORY.createNamespace(attr.getLocalName(), attr.getValue()));
+                } else {
+                    namespaces.add(EVENT_FACTORY.createNamespace(attr.getValue()));
+                }
+            } else {
+                if (attributes.isEmpty()) {
+                    attributes = new ArrayList<>(attributeCount);
+                }
+                attributes.add(
+                        EVENT_FACTORY.createAttribute(
+                                nullToEmpty(attr.getPrefix()),
+                                nullToEmpty(attr.getNamespaceURI()),
+                                getLocalName(attr),
+                                attr.getValue()));
+            }
+        }
+
+        final NamespaceContext namespaceContext =
+                namespaces.isEmpty()
+                        ? parentContext
+                        : new ElementNamespaceContext(namespaces, parentContext);
+        this.elementStack.push(new ElementFrame(namespaces, namespaceContext));
+
+        return EVENT_FACTORY.createStartElement(
+                nullToEmpty(element.getPrefix()),
+                nullToEmpty(element.getNamespaceURI()),
+                getLocalName(element),
+                attributes.iterator(),
+                namespaces.iterator(),
+                namespaceContext);
+    }
+
+    private static String getLocalName(Node node) {
+        final String localName = node.getLocalName();
+        if (localName != null) {
+            return localName;
+        }
+
+        // DOM level 1 node, the node name is the qualified name
+        return node.getNodeName();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    /** Namespaces declared by an element that is currently open */
+    private static final class ElementFrame {
+        private final List<Namespace> namespaces;
+        private final NamespaceContext namespaceContext;
+
+        ElementFrame(List<Namespace> namespaces, NamespaceContext namespaceContext) {
+            this.namespaces = namespaces;
+            this.namespaceContext = namespaceContext;
+        }
+    }
+
+    /** Root of the NamespaceContext chain, only the predefined xml and xmlns prefixes are bound */
+    private static final class EmptyNamespaceContext implements NamespaceContext {
+        static final EmptyNamespaceContext INSTANCE = new EmptyNamespaceContext();
+
+        @Override
+        public String getNamespaceURI(String prefix) {
+            if (XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+                return XMLConstants.XML_NS_URI;
+            }
+            if (XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+                return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+            }
+            return XMLConstants.NULL_NS_URI;
+        }
+
+        @Override
+        public String getPrefix(String namespaceURI) {
+            if (XMLConstants.XML_NS_URI.equals(namespaceURI)) {
+                return XMLConstants.XML_NS_PREFIX;
+            }
+            if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(namespaceURI)) {
+                return XMLConstants.XMLNS_ATTRIBUTE;
+            }
+            return null;
+        }
+
+        @Override
+        public Iterator<String> getPrefixes(String namespaceURI) {
+            final String prefix = this.getPrefix(namespaceURI);
+            if (prefix == null) {
+                return Collections.<String>emptyList().iterator();
+            }
+            return Collections.singletonList(prefix).iterator();
+        }
+    }
+
+    /** NamespaceContext for an element that declares namespaces, delegates to its parent */
+    private static final class ElementNamespaceContext implements NamespaceContext {
+        private final Map<String, String> prefixToUri;
+        private final NamespaceContext parent;
+
+        ElementNamespaceContext(List<Namespace> namespaces, NamespaceContext parent) {
+            this.prefixToUri = new HashMap<>(namespaces.size() * 2);
+            for (final Namespace namespace : namespaces) {
+                this.prefixToUri.put(namespace.getPrefix(), namespace.getNamespaceURI());
+            }
+            this.parent = parent;
+        }
+
+        @Override
+        public String getNamespaceURI(String prefix) {
+            final String namespaceURI = this.prefixToUri.get(prefix);
+            if (namespaceURI != null) {
+                return namespaceURI;
+            }
+            return this.parent.getNamespaceURI(prefix);
+        }
+
+        @Override
+        public String getPrefix(String namespaceURI) {
+            for (final Map.Entry<String, String> entry : this.prefixToUri.entrySet()) {
+                if (entry.getValue().equals(namespaceURI)) {
+                    return entry.getKey();
+                }
+            }
+
+            final String prefix = this.parent.getPrefix(namespaceURI);
+            if (prefix != null && this.prefixToUri.containsKey(prefix)) {
+                // The parent's binding is hidden by a declaration on this element
+                return null;
+            }
+            return prefix;
+        }
+
+        @Override
+        public Iterator<String> getPrefixes(String namespaceURI) {
+            final String prefix = this.getPrefix(namespaceURI);
+            if (prefix == null) {
+                return Collections.<String>emptyList().iterator();
+            }
+            return Collections.singletonList(prefix).iterator();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.utils.threading;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class QualityOfServiceBlockingQueueTest {
+
+    @Test
+    public void testRoundRobinOrder() throws Exception {
+        final RoundRobinQueue queue = new RoundRobinQueue(10);
+        queue.add("a1");
+        queue.add("a2");
+        queue.add("a3");
+        queue.add("b1");
+        queue.add("c1");
+
+        assertEquals(5, queue.size());
+        assertEquals("a1", queue.peek());
+        assertEquals("a1", queue.peek());
+        assertEquals("a1", queue.take());
+
+        final List<String> drained = new ArrayList<String>();
+        assertEquals(4, queue.drainTo(drained));
+        assertEquals(Arrays.asList("b1", "c1", "a2", "a3"), drained);
+        assertTrue(queue.isEmpty());
+        assertEquals(10, queue.remainingCapacity());
+    }
+
+    @Test
+    public void testCapacity() throws Exception {
+        final RoundRobinQueue queue = new RoundRobinQueue(2);
+        assertTrue(queue.offer("a1"));
+        assertTrue(queue.offer("b1"));
+        assertFalse(queue.offer("c1"));
+        assertFalse(queue.offer("c1", 10, TimeUnit.MILLISECONDS));
+        assertEquals(0, queue.remainingCapacity());
+
+        assertTrue(queue.remove("a1"));
+        assertTrue(queue.offer("c1"));
+        assertEquals(2, queue.size());
+
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+        assertEquals(2, queue.remainingCapacity());
+    }
+
+    @Test
+    public void testBlockingPutAndTake() throws Exception {
+        final RoundRobinQueue queue = new RoundRobinQueue(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<String> taken = executor.submit(queue::take);
+            queue.put("a1");
+            assertEquals("a1", taken.get(5, TimeUnit.SECONDS));
+
+            queue.put("a2");
+            final CountDownLatch putting = new CountDownLatch(1);
+            final Future<?> put =
+                    executor.submit(
+                            () -> {
+                                putting.countDown();
+                                queue.put("a3");
+                                return null;
+                            });
+            putting.await();
+            assertEquals("a2", queue.take());
+            put.get(5, TimeUnit.SECONDS);
+            assertEquals("a3", queue.take());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConcurrentProducersAndConsumers() throws Exception {
+        final int threads = 4;
+        final int perThread = 10000;
+        final RoundRobinQueue queue = new RoundRobinQueue(16);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads * 2);
+        try {
+            final List<Future<Integer>> consumers = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < threads; t++) {
+                final String key = String.valueOf((char) ('a' + t));
+                executor.submit(
+                        () -> {
+                            for (int i = 0; i < perThread; i++) {
+                                queue.put(key + i);
+                            }
+                            return null;
+                        });
+                consumers.add(
+                        executor.submit(
+                                () -> {
+                                    int count = 0;
+                                    while (queue.poll(1, TimeUnit.SECONDS) != null) {
+                                        count++;
+                                    }
+                                    return count;
+                                }));
+            }
+
+            int total = 0;
+            for (final Future<Integer> consumer : consumers) {
+                total += consumer.get(30, TimeUnit.SECONDS);
+            }
+            assertEquals(threads * perThread, total);
+            assertTrue(queue.isEmpty());
+            assertEquals(16, queue.remainingCapacity());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Keys elements by their first character and takes from each key in turn */
+    private static final class RoundRobinQueue
+            extends QualityOfServiceBlockingQueue<String, String> {
+        private final List<String> keys = new ArrayList<String>();
+        private int next = 0;
+
+        RoundRobinQueue(int capacity) {
+            super(capacity);
+        }
+
+        @Override
+        protected String getElementKey(String e) {
+            return e.substring(0, 1);
+        }
+
+        @Override
+        protected String getNextElementKey() {
+            for (final String key : this.getKeySet()) {
+                if (!this.keys.contains(key)) {
+                    this.keys.add(key);
+                }
+            }
+
+            for (int i = 0; i < this.keys.size(); i++) {
+                final String key = this.keys.get(this.next++ % this.keys.size());
+                if (!this.isKeyEmpty(key)) {
+                    return key;
+                }
+            }
+
+            throw new IllegalStateException("No keys with elements");
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.xml.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import javax.xml.transform.dom.DOMSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+public class DocumentXMLEventReaderTest {
+    private DocumentBuilder documentBuilder;
+
+    @Before
+    public void setup() throws Exception {
+        final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setNamespaceAware(true);
+        this.documentBuilder = documentBuilderFactory.newDocumentBuilder();
+    }
+
+    @Test
+    public void testMatchesDomSourceReader() throws Exception {
+        final InputStream documentStream = this.getClass().getResourceAsStream("document.xml");
+        final Document document = this.documentBuilder.parse(documentStream);
+
+        final XMLEventReader expected =
+                XMLInputFactory.newFactory().createXMLEventReader(new DOMSource(document));
+        final XMLEventReader actual = new DocumentXMLEventReader(document);
+
+        assertSameEvents(expected, actual);
+    }
+
+    @Test
+    public void testNamespaces() throws Exception {
+        final Document document =
+                this.parse(
+                        "<layout xmlns:dlm='http://www.uportal.org/layout/dlm'>"
+                                + "<folder dlm:origin='u1l1n1' ID='s1'><channel/></folder>"
+                                + "</layout>");
+
+        final XMLEventReader actual = new DocumentXMLEventReader(document);
+        assertTrue(actual.nextEvent().isStartDocument());
+
+        final StartElement layout = actual.nextEvent().asStartElement();
+        assertTrue(layout.getNamespaces().hasNext());
+        assertEquals(
+                "http://www.uportal.org/layout/dlm",
+                layout.getNamespaceContext().getNamespaceURI("dlm"));
+
+        final StartElement folder = actual.nextTag().asStartElement();
+        assertFalse(folder.getNamespaces().hasNext());
+        assertEquals(
+                "http://www.uportal.org/layout/dlm",
+                folder.getNamespaceContext().getNamespaceURI("dlm"));
+        assertEquals(
+                "u1l1n1",
+                folder.getAttributeByName(
+                                new QName("http://www.uportal.org/layout/dlm", "origin"))
+                        .getValue());
+
+        assertEquals("channel", actual.nextTag().asStartElement().getName().getLocalPart());
+        assertEquals("channel", actual.nextEvent().asEndElement().getName().getLocalPart());
+        assertEquals("folder", actual.nextEvent().asEndElement().getName().getLocalPart());
+        assertEquals("layout", actual.nextEvent().asEndElement().getName().getLocalPart());
+        assertTrue(actual.nextEvent().isEndDocument());
+        assertFalse(actual.hasNext());
+    }
+
+    @Test
+    public void testElementRoot() throws Exception {
+        final Document document = this.parse("<layout><folder>text</folder><folder/></layout>");
+
+        final XMLEventReader actual =
+                new DocumentXMLEventReader(document.getDocumentElement().getFirstChild());
+        assertEquals("folder", actual.nextEvent().asStartElement().getName().getLocalPart());
+        assertEquals("text", actual.nextEvent().asCharacters().getData());
+        assertEquals("folder", actual.nextEvent().asEndElement().getName().getLocalPart());
+        assertFalse(actual.hasNext());
+    }
+
+    private Document parse(String xml) throws Exception {
+        return this.documentBuilder.parse(new InputSource(new StringReader(xml)));
+    }
+
+    private static void assertSameEvents(XMLEventReader expected, XMLEventReader actual)
+            throws Exception {
+        while (expected.hasNext()) {
+            assertTrue(actual.hasNext());
+            final XMLEvent expectedEvent = expected.nextEvent();
+            final XMLEvent actualEvent = actual.nextEvent();
+
+            if (expectedEvent.isCharacters()) {
+                assertTrue(actualEvent.isCharacters());
+                assertEquals(
+                        expectedEvent.asCharacters().getData(),
+                        actualEvent.asCharacters().getData());
+                continue;
+            }
+
+            assertEquals(expectedEvent.getEventType(), actualEvent.getEventType());
+            if (expectedEvent.isStartElement()) {
+                final StartElement expectedElement = expectedEvent.asStartElement();
+                final StartElement actualElement = actualEvent.asStartElement();
+                assertEquals(expectedElement.getName(), actualElement.getName());
+                assertEquals(
+                        getAttributes(expectedElement.getAttributes()),
+                        getAttributes(actualElement.getAttributes()));
+                assertEquals(
+                        countNamespaces(expectedElement.getNamespaces()),
+                        countNamespaces(actualElement.getNamespaces()));
+            } else if (expectedEvent.isEndElement()) {
+                assertEquals(
+                        expectedEvent.asEndElement().getName(),
+                        actualEvent.asEndElement().getName());
+            }
+        }
+        assertFalse(actual.hasNext());
+    }
+
+    private static Map<QName, String> getAttributes(Iterator<?> attributes) {
+        final Map<QName, String> result = new HashMap<>();
+        while (attributes.hasNext()) {
+            final Attribute attribute = (Attribute) attributes.next();
+            result.put(attribute.getName(), attribute.getValue());
+        }
+        return result;
+    }
+
+    private static int countNamespaces(Iterator<?> namespaces) {
+        final List<Object> result = new ArrayList<>();
+        while (namespaces.hasNext()) {
+            result.add(namespaces.next());
+        }
+        return result.size();
+    }
+}
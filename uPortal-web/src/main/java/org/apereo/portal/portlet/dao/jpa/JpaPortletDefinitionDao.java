@@ -28,18 +28,22 @@ import org.apache.commons.lang.Validate;
 import org.apereo.portal.jpa.BasePortalJpaDao;
 import org.apereo.portal.jpa.OpenEntityManager;
 import org.apereo.portal.portlet.dao.IPortletDefinitionDao;
+import org.apereo.portal.portlet.dao.PortletDefinitionChangedEvent;
 import org.apereo.portal.portlet.om.IPortletDefinition;
 import org.apereo.portal.portlet.om.IPortletDefinitionId;
 import org.apereo.portal.spring.tx.DialectAwareTransactional;
 import org.hibernate.dialect.PostgreSQL81Dialect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.dao.support.DataAccessUtils;
 import org.springframework.stereotype.Repository;
 
 /** JPA implementation of the portlet definition DAO */
 @Repository
-public class JpaPortletDefinitionDao extends BasePortalJpaDao implements IPortletDefinitionDao {
+public class JpaPortletDefinitionDao extends BasePortalJpaDao
+        implements IPortletDefinitionDao, ApplicationEventPublisherAware {
 
     private CriteriaQuery<PortletDefinitionImpl> findAllPortletDefinitions;
     private CriteriaQuery<PortletDefinitionImpl> findDefinitionByNameQuery;
@@ -48,8 +52,15 @@ public class JpaPortletDefinitionDao extends BasePortalJpaDao implements IPortle
     private ParameterExpression<String> nameParameter;
     private ParameterExpression<String> titleParameter;
 
+    private ApplicationEventPublisher applicationEventPublisher;
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
     @Override
     public void afterPropertiesSet() {
         this.nameParameter = this.createParameterExpression(String.class, "name");
@@ -232,6 +243,7 @@ public class JpaPortletDefinitionDao extends BasePortalJpaDao implements IPortle
         }
 
         entityManager.remove(persistentPortletDefinition);
+        publishChangedEvent(persistentPortletDefinition, true);
     }
 
     @Override
@@ -256,6 +268,7 @@ public class JpaPortletDefinitionDao extends BasePortalJpaDao implements IPortle
         Validate.notEmpty(portletDefinition.getName(), "portletDefinition name can not be null");
         Validate.notEmpty(portletDefinition.getTitle(), "portletDefinition title can not be null");
         this.getEntityManager().persist(portletDefinition);
+        publishChangedEvent(portletDefinition, false);
         return portletDefinition;
     }
 
@@ -269,9 +282,17 @@ public class JpaPortletDefinitionDao extends BasePortalJpaDao implements IPortle
         Validate.notEmpty(portletDefinition.getName(), "portletDefinition name can not be null");
         Validate.notEmpty(portletDefinition.getTitle(), "portletDefinition title can not be null");
         this.getEntityManager().merge(portletDefinition);
+        publishChangedEvent(portletDefinition, false);
         return portletDefinition;
     }
 
+    private void publishChangedEvent(IPortletDefinition portletDefinition, boolean deleted) {
+        if (this.applicationEventPublisher != null) {
+            this.applicationEventPublisher.publishEvent(
+                    new PortletDefinitionChangedEvent(this, portletDefinition, deleted));
+        }
+    }
+
     private long getNativePortletDefinitionId(IPortletDefinitionId portletDefinitionId) {
         return Long.parseLong(portletDefinitionId.getStringId());
     }
@@ -0,0 +1,81 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.portlet.rendering;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adaptive bulkhead for the executions of a single portlet. The number of concurrent executions is
+ * capped by a limit that is adjusted with AIMD (additive increase, multiplicative decrease): each
+ * execution that completes within its timeout while the bulkhead is at least half full raises the
+ * limit by one, each execution that times out or fails multiplies it by the backoff ratio.
+ */
+final class PortletConcurrencyLimit {
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejections = new AtomicLong();
+    private volatile int limit;
+
+    PortletConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /** @return true if the execution may proceed, {@link #release(boolean)} MUST be called */
+    boolean tryAcquire() {
+        for (; ; ) {
+            final int current = this.inFlight.get();
+            if (current >= this.limit) {
+                this.rejections.incrementAndGet();
+                return false;
+            }
+            if (this.inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /** @param dropped true if the execution timed out or failed */
+    void release(boolean dropped) {
+        final int current = this.inFlight.getAndDecrement();
+
+        synchronized (this) {
+            if (dropped) {
+                this.limit = Math.max(this.minLimit, (int) (this.limit * this.backoffRatio));
+            } else if (current * 2 >= this.limit) {
+                // Only grow the limit when it is actually being used
+                this.limit = Math.min(this.maxLimit, this.limit + 1);
+            }
+        }
+    }
+
+    int getLimit() {
+        return this.limit;
+    }
+
+    int getInFlight() {
+        return this.inFlight.get();
+    }
+
+    long getRejections() {
+        return this.rejections.get();
+    }
+}
@@ -88,6 +88,9 @@ public class PortletExecutionManager extends HandlerInterceptorAdapter
     private static final String PORTLET_RENDERING_MAP =
             PortletExecutionManager.class.getName() + ".PORTLET_RENDERING_MAP";
 
+    private static final String EXECUTION_ATTRIBUTE__CONCURRENCY_LIMIT =
+            PortletExecutionManager.class.getName() + ".CONCURRENCY_LIMIT";
+
     protected static final String SESSION_ATTRIBUTE__PORTLET_FAILURE_CAUSE_MAP =
             PortletExecutionManager.class.getName() + ".PORTLET_FAILURE_CAUSE_MAP";
 
@@ -112,6 +115,24 @@ public class PortletExecutionManager extends HandlerInterceptorAdapter
                         }
                     });
 
+    private final ConcurrentMap<IPortletDescriptorKey, PortletConcurrencyLimit> concurrencyLimits =
+            ConcurrentMapUtils.makeDefaultsMap(
+                    new Function<IPortletDescriptorKey, PortletConcurrencyLimit>() {
+                        @Override
+                        public PortletConcurrencyLimit apply(IPortletDescriptorKey key) {
+                            return new PortletConcurrencyLimit(
+                                    initialConcurrencyLimit,
+                                    minConcurrencyLimit,
+                                    maxConcurrencyLimit,
+                                    concurrencyLimitBackoffRatio);
+                        }
+                    });
+
+    private boolean adaptiveConcurrencyLimits = false;
+    private int initialConcurrencyLimit = 20;
+    private int minConcurrencyLimit = 1;
+    private int maxConcurrencyLimit = 200;
+    private double concurrencyLimitBackoffRatio = 0.5;
     private boolean ignoreTimeouts = false;
     private int extendedTimeoutExecutions = 5;
     private long extendedTimeoutMultiplier = 20;
@@ -179,12 +200,90 @@ public class PortletExecutionManager extends HandlerInterceptorAdapter
                 this.executionCount.entrySet()) {
             final IPortletDescriptorKey key = entry.getKey();
             final AtomicInteger value = entry.getValue();
-            counts.put(key.getWebAppName() + "/" + key.getPortletName(), value.get());
+            counts.put(getDescriptorName(key), value.get());
         }
 
         return counts;
     }
 
+    @Override
+    @Value("${org.apereo.portal.portlet.concurrencyLimit.enabled:false}")
+    public void setAdaptiveConcurrencyLimits(boolean adaptiveConcurrencyLimits) {
+        this.adaptiveConcurrencyLimits = adaptiveConcurrencyLimits;
+    }
+
+    @Override
+    public boolean isAdaptiveConcurrencyLimits() {
+        return this.adaptiveConcurrencyLimits;
+    }
+
+    /** @param initialConcurrencyLimit Concurrency limit a portlet starts with, defaults to 20 */
+    @Value("${org.apereo.portal.portlet.concurrencyLimit.initial:20}")
+    public void setInitialConcurrencyLimit(int initialConcurrencyLimit) {
+        this.initialConcurrencyLimit = initialConcurrencyLimit;
+    }
+
+    /** @param minConcurrencyLimit Lowest the concurrency limit can back off to, defaults to 1 */
+    @Value("${org.apereo.portal.portlet.concurrencyLimit.min:1}")
+    public void setMinConcurrencyLimit(int minConcurrencyLimit) {
+        this.minConcurrencyLimit = minConcurrencyLimit;
+    }
+
+    /** @param maxConcurrencyLimit Highest the concurrency limit can grow to, defaults to 200 */
+    @Value("${org.apereo.portal.portlet.concurrencyLimit.max:200}")
+    public void setMaxConcurrencyLimit(int maxConcurrencyLimit) {
+        this.maxConcurrencyLimit = maxConcurrencyLimit;
+    }
+
+    /**
+     * @param concurrencyLimitBackoffRatio Multiplier applied to the concurrency limit when an
+     *     execution times out or fails, defaults to 0.5
+     */
+    @Value("${org.apereo.portal.portlet.concurrencyLimit.backoffRatio:0.5}")
+    public void setConcurrencyLimitBackoffRatio(double concurrencyLimitBackoffRatio) {
+        this.concurrencyLimitBackoffRatio = concurrencyLimitBackoffRatio;
+    }
+
+    @Override
+    public Map<String, Integer> getPortletConcurrencyLimits() {
+        final Map<String, Integer> limits = new TreeMap<String, Integer>();
+
+        for (final Map.Entry<IPortletDescriptorKey, PortletConcurrencyLimit> entry :
+                this.concurrencyLimits.entrySet()) {
+            limits.put(getDescriptorName(entry.getKey()), entry.getValue().getLimit());
+        }
+
+        return limits;
+    }
+
+    @Override
+    public Map<String, Integer> getPortletInFlightExecutions() {
+        final Map<String, Integer> inFlight = new TreeMap<String, Integer>();
+
+        for (final Map.Entry<IPortletDescriptorKey, PortletConcurrencyLimit> entry :
+                this.concurrencyLimits.entrySet()) {
+            inFlight.put(getDescriptorName(entry.getKey()), entry.getValue().getInFlight());
+        }
+
+        return inFlight;
+    }
+
+    @Override
+    public Map<String, Long> getPortletConcurrencyLimitRejections() {
+        final Map<String, Long> rejections = new TreeMap<String, Long>();
+
+        for (final Map.Entry<IPortletDescriptorKey, PortletConcurrencyLimit> entry :
+                this.concurrencyLimits.entrySet()) {
+            rejections.put(getDescriptorName(entry.getKey()), entry.getValue().getRejections());
+        }
+
+        return rejections;
+    }
+
+    private static String getDescriptorName(IPortletDescriptorKey key) {
+        return key.getWebAppName() + "/" + key.getPortletName();
+    }
+
     @Autowired
     public void setPersonalizer(IPersonalizer personalizer) {
         this.personalizer = personalizer;
@@ -333,11 +432,49 @@ public class PortletExecutionManager extends HandlerInterceptorAdapter
             HttpServletResponse response,
             IPortletExecutionContext context) {}
 
+    /**
+     * Takes an in-flight slot from the portlet's concurrency limit. This is done when the execution
+     * starts rather than when the worker is submitted, a worker that is canceled or rejected
+     * before it starts never reaches {@link #postExecution(HttpServletRequest,
+     * HttpServletResponse, IPortletExecutionContext, Exception)} and would never return its slot.
+     */
     @Override
     public void preExecution(
             HttpServletRequest request,
             HttpServletResponse response,
-            IPortletExecutionContext context) {}
+            IPortletExecutionContext context) {
+        if (!this.adaptiveConcurrencyLimits) {
+            return;
+        }
+
+        switch (context.getExecutionType()) {
+            case RENDER_HEADER:
+            case RENDER:
+            case RESOURCE:
+                break;
+            default:
+                // Actions and events change portlet state, never turn them away
+                return;
+        }
+
+        final IPortletDescriptorKey portletDescriptorKey =
+                getPortletDefinition(context.getPortletWindowId(), request)
+                        .getPortletDescriptorKey();
+        final PortletConcurrencyLimit concurrencyLimit =
+                this.concurrencyLimits.get(portletDescriptorKey);
+        if (!concurrencyLimit.tryAcquire()) {
+            // The failed worker falls back to the error portlet like any other failure
+            throw new PortletConcurrencyLimitExceededException(
+                    "Denying worker execution for "
+                            + context.getPortletFname()
+                            + " that has "
+                            + concurrencyLimit.getInFlight()
+                            + " executions in flight with a limit of "
+                            + concurrencyLimit.getLimit());
+        }
+
+        context.setExecutionAttribute(EXECUTION_ATTRIBUTE__CONCURRENCY_LIMIT, concurrencyLimit);
+    }
 
     @Override
     public void postExecution(
@@ -355,6 +492,15 @@ public class PortletExecutionManager extends HandlerInterceptorAdapter
 
         final AtomicInteger counter = this.executionCount.get(portletDescriptorKey);
         counter.incrementAndGet();
+
+        final PortletConcurrencyLimit concurrencyLimit =
+                (PortletConcurrencyLimit)
+                        context.setExecutionAttribute(EXECUTION_ATTRIBUTE__CONCURRENCY_LIMIT, null);
+        if (concurrencyLimit != null) {
+            final long timeout = context.getApplicableTimeout();
+            final long duration = System.currentTimeMillis() - context.getStartedTime();
+            concurrencyLimit.release(e != null || (timeout > 0 && duration >= timeout));
+        }
     }
 
     /* (non-Javadoc)
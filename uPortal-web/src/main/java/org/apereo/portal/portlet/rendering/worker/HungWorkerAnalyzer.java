@@ -41,6 +41,10 @@ import org.springframework.stereotype.Service;
 /**
  * Watches for {@link PortletHungEvent} and {@link PortletHungCompleteEvent} events and uses that
  * information to track the number of portlets for each fname that are hung.
+ *
+ * <p>Available workers are calculated from the number of in-flight workers, tracked through the
+ * execution interceptor callbacks, rather than from the thread pool's active count so the limit
+ * still applies when workers do not run on the <code>portletThreadPool</code>.
  */
 @ManagedResource("uPortal:section=Framework,name=HungWorkerAnalyzer")
 @Service("hungWorkerAnalyzer")
@@ -68,6 +72,9 @@ public class HungWorkerAnalyzer
 
     private final AtomicInteger hungPortletCountTotal = new AtomicInteger();
 
+    // Number of workers that are currently executing
+    private final AtomicInteger inFlightWorkerCount = new AtomicInteger();
+
     @Deprecated private Integer numberPermittedErrantByFname;
 
     private ThreadPoolExecutor portletThreadPool;
@@ -110,6 +117,11 @@ public class HungWorkerAnalyzer
         return this.hungPortletCountsView;
     }
 
+    @Override
+    public int getInFlightWorkerCount() {
+        return this.inFlightWorkerCount.get();
+    }
+
     @Override
     public void afterPropertiesSet() throws Exception {
         if (numberPermittedErrantByFname != null) {
@@ -162,7 +174,7 @@ public class HungWorkerAnalyzer
 
     private void logState(final String portletFname, final int hungWorkerCount) {
         final int maximumPoolSize = this.portletThreadPool.getMaximumPoolSize();
-        final int availableWorkers = maximumPoolSize - this.portletThreadPool.getActiveCount();
+        final int availableWorkers = maximumPoolSize - this.inFlightWorkerCount.get();
         final double hungWorkerLimit = this.percentPermittedErrantByFname * availableWorkers;
 
         final String msg =
@@ -208,7 +220,7 @@ public class HungWorkerAnalyzer
         }
 
         final int maximumPoolSize = this.portletThreadPool.getMaximumPoolSize();
-        final int availableWorkers = maximumPoolSize - this.portletThreadPool.getActiveCount();
+        final int availableWorkers = maximumPoolSize - this.inFlightWorkerCount.get();
         final double hungWorkerLimit = this.percentPermittedErrantByFname * availableWorkers;
         if (hungWorkers < Math.ceil(hungWorkerLimit)) {
             // Number of hung workers is less than the calculated hung worker limit
@@ -235,12 +247,16 @@ public class HungWorkerAnalyzer
     public void preExecution(
             HttpServletRequest request,
             HttpServletResponse response,
-            IPortletExecutionContext context) {}
+            IPortletExecutionContext context) {
+        this.inFlightWorkerCount.incrementAndGet();
+    }
 
     @Override
     public void postExecution(
             HttpServletRequest request,
             HttpServletResponse response,
             IPortletExecutionContext context,
-            Exception e) {}
+            Exception e) {
+        this.inFlightWorkerCount.decrementAndGet();
+    }
 }
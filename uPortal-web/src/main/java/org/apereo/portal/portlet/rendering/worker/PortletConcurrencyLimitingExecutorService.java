@@ -0,0 +1,113 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.portlet.rendering.worker;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.ForwardingExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apereo.portal.utils.ConcurrentMapUtils;
+
+/**
+ * Limits the number of concurrently executing workers for each portlet fname using a {@link
+ * Semaphore} per fname rather than relying on the size of the underlying thread pool. A worker
+ * waits for a permit on its own thread before the execution starts, so with a virtual thread
+ * executor waiting workers cost almost nothing. The wait is bounded by the worker's timeout, a
+ * worker that does not get a permit in time fails with a {@link TimeoutException} without ever
+ * executing, and canceling a waiting worker interrupts the wait.
+ */
+final class PortletConcurrencyLimitingExecutorService extends ForwardingExecutorService {
+    private final ExecutorService delegate;
+    private final ConcurrentMap<String, Semaphore> portletPermits;
+
+    public PortletConcurrencyLimitingExecutorService(
+            ExecutorService delegate, final int maxConcurrentExecutionsPerPortlet) {
+        this.delegate = delegate;
+        this.portletPermits =
+                ConcurrentMapUtils.makeDefaultsMap(
+                        new Function<String, Semaphore>() {
+                            @Override
+                            public Semaphore apply(String portletFname) {
+                                return new Semaphore(maxConcurrentExecutionsPerPortlet, true);
+                            }
+                        });
+    }
+
+    @Override
+    protected ExecutorService delegate() {
+        return this.delegate;
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        if (!(task instanceof IPortletExecutionContext)) {
+            return this.delegate.submit(task);
+        }
+
+        final String portletFname = ((IPortletExecutionContext) task).getPortletFname();
+        final Semaphore permits = this.portletPermits.get(portletFname);
+        return this.delegate.submit(
+                new PermitHoldingCallable<T>(permits, (IPortletExecutionContext) task, task));
+    }
+
+    private static final class PermitHoldingCallable<T> implements Callable<T> {
+        private final Semaphore permits;
+        private final IPortletExecutionContext context;
+        private final Callable<T> callable;
+
+        PermitHoldingCallable(
+                Semaphore permits, IPortletExecutionContext context, Callable<T> callable) {
+            this.permits = permits;
+            this.context = context;
+            this.callable = callable;
+        }
+
+        @Override
+        public T call() throws Exception {
+            // Interrupted by the worker being canceled while waiting, no permit is held
+            if (!this.acquirePermit()) {
+                throw new TimeoutException(
+                        "No execution permit for "
+                                + this.context.getPortletFname()
+                                + " within "
+                                + this.context.getApplicableTimeout()
+                                + "ms");
+            }
+            try {
+                return this.callable.call();
+            } finally {
+                this.permits.release();
+            }
+        }
+
+        /** Wait for a permit for no longer than the time left before the worker times out */
+        private boolean acquirePermit() throws InterruptedException {
+            final long timeout = this.context.getApplicableTimeout();
+            if (timeout <= 0) {
+                this.permits.acquire();
+                return true;
+            }
+
+            final long elapsed = System.currentTimeMillis() - this.context.getSubmittedTime();
+            return this.permits.tryAcquire(
+                    Math.max(0, timeout - elapsed), TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -28,19 +28,45 @@ import org.apereo.portal.portlet.registry.IPortletWindowRegistry;
 import org.apereo.portal.portlet.rendering.IPortletRenderer;
 import org.apereo.portal.user.IUserInstance;
 import org.apereo.portal.user.IUserInstanceManager;
+import org.apereo.portal.utils.threading.VirtualThreadExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
  * Factory for creating {@link IPortletExecutionWorker}s that handle the asynchronous execution of
  * portlet requests
+ *
+ * <p>Workers run on the <code>portletThreadPool</code> by default. In {@link
+ * WorkerExecutorMode#VIRTUAL} mode, on a JDK that supports them, each worker runs on its own
+ * virtual thread instead. Either mode can limit the number of concurrent executions per portlet
+ * fname.
  */
 @Service
-public class PortletWorkerFactoryImpl implements IPortletWorkerFactory {
+public class PortletWorkerFactoryImpl
+        implements IPortletWorkerFactory, InitializingBean, DisposableBean {
     public static final String DEFAULT_ERROR_PORTLET_FNAME = "error";
 
+    /** How portlet worker threads are provided */
+    public enum WorkerExecutorMode {
+        /** Workers run on the platform threads of the portletThreadPool */
+        PLATFORM,
+        /** Workers run on virtual threads, falls back to PLATFORM if they are not supported */
+        VIRTUAL;
+    }
+
+    protected final Logger logger = LoggerFactory.getLogger(this.getClass());
+
     private ExecutorService portletThreadPool;
+    private ExecutorService virtualThreadExecutor;
+    private ExecutorService workerExecutor;
+    private WorkerExecutorMode workerExecutorMode = WorkerExecutorMode.PLATFORM;
+    private int maxConcurrentExecutionsPerPortlet = 0;
     private IPortletRenderer portletRenderer;
     private List<IPortletExecutionInterceptor> executionInterceptors;
     private String errorPortletFName = DEFAULT_ERROR_PORTLET_FNAME;
@@ -73,6 +99,21 @@ public class PortletWorkerFactoryImpl implements IPortletWorkerFactory {
         this.portletThreadPool = portletThreadPool;
     }
 
+    /** @param workerExecutorMode How portlet worker threads are provided, defaults to PLATFORM */
+    @Value("${org.apereo.portal.portlet.worker.executorMode:PLATFORM}")
+    public void setWorkerExecutorMode(WorkerExecutorMode workerExecutorMode) {
+        this.workerExecutorMode = workerExecutorMode;
+    }
+
+    /**
+     * @param maxConcurrentExecutionsPerPortlet Maximum number of workers that may execute
+     *     concurrently for a single portlet fname, 0 (the default) for no limit
+     */
+    @Value("${org.apereo.portal.portlet.worker.maxConcurrentExecutionsPerPortlet:0}")
+    public void setMaxConcurrentExecutionsPerPortlet(int maxConcurrentExecutionsPerPortlet) {
+        this.maxConcurrentExecutionsPerPortlet = maxConcurrentExecutionsPerPortlet;
+    }
+
     @Autowired
     public void setPortletRenderer(IPortletRenderer portletRenderer) {
         this.portletRenderer = portletRenderer;
@@ -83,6 +124,40 @@ public class PortletWorkerFactoryImpl implements IPortletWorkerFactory {
         this.executionInterceptors = executionInterceptors;
     }
 
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        ExecutorService executor = this.portletThreadPool;
+
+        if (this.workerExecutorMode == WorkerExecutorMode.VIRTUAL) {
+            if (VirtualThreadExecutors.isSupported()) {
+                this.virtualThreadExecutor =
+                        VirtualThreadExecutors.newVirtualThreadPerTaskExecutor("uP-PortletExec-");
+                executor = this.virtualThreadExecutor;
+                this.logger.info("Portlet workers will execute on virtual threads");
+            } else {
+                this.logger.warn(
+                        "Portlet worker executor mode {} is not supported by JDK {}, falling back to portletThreadPool",
+                        this.workerExecutorMode,
+                        System.getProperty("java.version"));
+            }
+        }
+
+        if (this.maxConcurrentExecutionsPerPortlet > 0) {
+            executor =
+                    new PortletConcurrencyLimitingExecutorService(
+                            executor, this.maxConcurrentExecutionsPerPortlet);
+        }
+
+        this.workerExecutor = executor;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (this.virtualThreadExecutor != null) {
+            this.virtualThreadExecutor.shutdownNow();
+        }
+    }
+
     /* (non-Javadoc)
      * @see org.apereo.portal.portlet.rendering.worker.IPortletWorkerFactory#getActionWorker()
      */
@@ -94,7 +169,7 @@ public class PortletWorkerFactoryImpl implements IPortletWorkerFactory {
         final IPortletWindow portletWindow =
                 this.portletWindowRegistry.getPortletWindow(request, portletWindowId);
         return new PortletActionExecutionWorker(
-                portletThreadPool,
+                workerExecutor,
                 executionInterceptors,
                 portletRenderer,
                 request,
@@ -111,7 +186,7 @@ public class PortletWorkerFactoryImpl implements IPortletWorkerFactory {
         final IPortletWindow portletWindow =
                 this.portletWindowRegistry.getPortletWindow(request, portletWindowId);
         return new PortletEventExecutionWorker(
-                portletThreadPool,
+                workerExecutor,
                 executionInterceptors,
                 portletRenderer,
                 request,
@@ -131,7 +206,7 @@ public class PortletWorkerFactoryImpl implements IPortletWorkerFactory {
         final IPortletWindow portletWindow =
                 this.portletWindowRegistry.getPortletWindow(request, portletWindowId);
         return new PortletRenderHeaderExecutionWorker(
-                portletThreadPool,
+                workerExecutor,
                 executionInterceptors,
                 portletRenderer,
                 request,
@@ -151,7 +226,7 @@ public class PortletWorkerFactoryImpl implements IPortletWorkerFactory {
                     "Failed to retrieve the specified PortletWindow:  " + portletWindowId);
         }
         return new PortletRenderExecutionWorker(
-                portletThreadPool,
+                workerExecutor,
                 executionInterceptors,
                 portletRenderer,
                 request,
@@ -167,7 +242,7 @@ public class PortletWorkerFactoryImpl implements IPortletWorkerFactory {
         final IPortletWindow portletWindow =
                 this.portletWindowRegistry.getPortletWindow(request, portletWindowId);
         return new PortletResourceExecutionWorker(
-                portletThreadPool,
+                workerExecutor,
                 executionInterceptors,
                 portletRenderer,
                 request,
@@ -15,7 +15,9 @@
 package org.apereo.portal.rendering;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.transform.OutputKeys;
@@ -23,6 +25,7 @@ import org.apereo.portal.character.stream.CharacterEventReader;
 import org.apereo.portal.character.stream.events.CharacterDataEvent;
 import org.apereo.portal.character.stream.events.CharacterEvent;
 import org.apereo.portal.character.stream.events.CharacterEventTypes;
+import org.apereo.portal.character.stream.events.EncodedCharacterDataEvent;
 import org.apereo.portal.events.IPortletExecutionEventFactory;
 import org.apereo.portal.url.IPortalRequestInfo;
 import org.apereo.portal.url.IUrlSyntaxProvider;
@@ -35,11 +38,17 @@ public class DynamicRenderingPipeline implements IPortalRenderingPipeline {
     public static final String CHARACTER_SET = "UTF-8";
     public static final String DEFAULT_MEDIA_TYPE = "text/html";
 
+    // Workaround for the Java 8 doctype issue -
+    // https://github.com/uPortal-Project/uPortal-start/issues/570
+    private static final String HTML_DOCTYPE = "<!DOCTYPE html SYSTEM \"EMPTY\">\n";
+    private static final byte[] HTML_DOCTYPE_BYTES = HTML_DOCTYPE.getBytes(StandardCharsets.UTF_8);
+
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
     private CharacterPipelineComponent pipeline;
     private IPortletExecutionEventFactory portalEventFactory;
     private IUrlSyntaxProvider urlSyntaxProvider;
+    private boolean writeEncodedCharacterData = false;
 
     @Autowired
     public void setUrlSyntaxProvider(IUrlSyntaxProvider urlSyntaxProvider) {
@@ -59,6 +68,15 @@ public class DynamicRenderingPipeline implements IPortalRenderingPipeline {
         this.pipeline = pipeline;
     }
 
+    /**
+     * If the response should be written as bytes to the servlet output stream instead of through
+     * the servlet writer. When enabled {@link EncodedCharacterDataEvent}s, produced by a caching
+     * component with pre-encoding enabled, are copied to the response without being re-encoded.
+     */
+    public void setWriteEncodedCharacterData(boolean writeEncodedCharacterData) {
+        this.writeEncodedCharacterData = writeEncodedCharacterData;
+    }
+
     @Override
     public void renderState(HttpServletRequest req, HttpServletResponse res) throws IOException {
         // Disable page caching
@@ -76,34 +94,68 @@ public class DynamicRenderingPipeline implements IPortalRenderingPipeline {
         final String contentType = mediaType + "; charset=" + CHARACTER_SET;
         res.setContentType(contentType);
 
+        if (this.writeEncodedCharacterData) {
+            this.writeEncodedEvents(res, pipelineEventReader);
+        } else {
+            this.writeEvents(res, pipelineEventReader);
+        }
+
+        final long executionTime = System.nanoTime() - startTime;
+        final IPortalRequestInfo portalRequestInfo =
+                this.urlSyntaxProvider.getPortalRequestInfo(req);
+        this.portalEventFactory.publishPortalRenderEvent(
+                req, this, req.getPathInfo(), executionTime, portalRequestInfo);
+    }
+
+    private void writeEvents(
+            HttpServletResponse res,
+            PipelineEventReader<CharacterEventReader, CharacterEvent> pipelineEventReader)
+            throws IOException {
         final PrintWriter writer = res.getWriter();
 
         for (final CharacterEvent event : pipelineEventReader) {
-            if (CharacterEventTypes.CHARACTER != event.getEventType()) {
-                throw new RenderingPipelineConfigurationException(
-                        "Only "
-                                + CharacterEventTypes.CHARACTER
-                                + " events are supported in the top level renderer. "
-                                + event.getEventType()
-                                + " is not supported.");
-            }
-
-            final String data = ((CharacterDataEvent) event).getData();
+            final String data = getCharacterData(event);
             if (data.startsWith("<html ")) {
-                // Workaround for the Java 8 doctype issue -
-                // https://github.com/uPortal-Project/uPortal-start/issues/570
-                writer.print("<!DOCTYPE html SYSTEM \"EMPTY\">\n");
+                writer.print(HTML_DOCTYPE);
             }
             writer.print(data);
             writer.flush();
             res.flushBuffer();
         }
+    }
 
-        final long executionTime = System.nanoTime() - startTime;
-        final IPortalRequestInfo portalRequestInfo =
-                this.urlSyntaxProvider.getPortalRequestInfo(req);
-        this.portalEventFactory.publishPortalRenderEvent(
-                req, this, req.getPathInfo(), executionTime, portalRequestInfo);
+    private void writeEncodedEvents(
+            HttpServletResponse res,
+            PipelineEventReader<CharacterEventReader, CharacterEvent> pipelineEventReader)
+            throws IOException {
+        final OutputStream out = res.getOutputStream();
+
+        for (final CharacterEvent event : pipelineEventReader) {
+            final String data = getCharacterData(event);
+            if (data.startsWith("<html ")) {
+                out.write(HTML_DOCTYPE_BYTES);
+            }
+            if (event instanceof EncodedCharacterDataEvent) {
+                ((EncodedCharacterDataEvent) event).writeTo(out);
+            } else {
+                out.write(data.getBytes(StandardCharsets.UTF_8));
+            }
+            out.flush();
+            res.flushBuffer();
+        }
+    }
+
+    private String getCharacterData(CharacterEvent event) {
+        if (CharacterEventTypes.CHARACTER != event.getEventType()) {
+            throw new RenderingPipelineConfigurationException(
+                    "Only "
+                            + CharacterEventTypes.CHARACTER
+                            + " events are supported in the top level renderer. "
+                            + event.getEventType()
+                            + " is not supported.");
+        }
+
+        return ((CharacterDataEvent) event).getData();
     }
 
     /** Determine the media type to use for the response */
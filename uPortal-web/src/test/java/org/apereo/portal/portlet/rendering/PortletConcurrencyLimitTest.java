@@ -0,0 +1,77 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.portlet.rendering;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/** Tests for {@link PortletConcurrencyLimit}. */
+public class PortletConcurrencyLimitTest {
+
+    @Test
+    public void testRejectsOverLimit() {
+        final PortletConcurrencyLimit limit = new PortletConcurrencyLimit(2, 1, 10, 0.5);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+
+        assertEquals(2, limit.getInFlight());
+        assertEquals(1, limit.getRejections());
+    }
+
+    @Test
+    public void testAdditiveIncrease() {
+        final PortletConcurrencyLimit limit = new PortletConcurrencyLimit(2, 1, 3, 0.5);
+
+        assertTrue(limit.tryAcquire());
+        limit.release(false);
+        assertEquals(3, limit.getLimit());
+
+        // Never grows past the max
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        limit.release(false);
+        assertEquals(3, limit.getLimit());
+
+        // Not grown while mostly idle
+        final PortletConcurrencyLimit idleLimit = new PortletConcurrencyLimit(4, 1, 10, 0.5);
+        assertTrue(idleLimit.tryAcquire());
+        idleLimit.release(false);
+        assertEquals(4, idleLimit.getLimit());
+        assertEquals(0, idleLimit.getInFlight());
+    }
+
+    @Test
+    public void testMultiplicativeDecrease() {
+        final PortletConcurrencyLimit limit = new PortletConcurrencyLimit(8, 2, 10, 0.5);
+
+        assertTrue(limit.tryAcquire());
+        limit.release(true);
+        assertEquals(4, limit.getLimit());
+
+        assertTrue(limit.tryAcquire());
+        limit.release(true);
+        assertEquals(2, limit.getLimit());
+
+        // Never backs off past the min
+        assertTrue(limit.tryAcquire());
+        limit.release(true);
+        assertEquals(2, limit.getLimit());
+    }
+}
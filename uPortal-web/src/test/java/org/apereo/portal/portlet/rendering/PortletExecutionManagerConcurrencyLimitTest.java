@@ -0,0 +1,148 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.portlet.rendering;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apereo.portal.portlet.om.IPortletWindow;
+import org.apereo.portal.portlet.om.IPortletWindowId;
+import org.apereo.portal.portlet.registry.IPortletWindowRegistry;
+import org.apereo.portal.portlet.rendering.worker.IPortletExecutionInterceptor;
+import org.apereo.portal.portlet.rendering.worker.IPortletExecutionWorker;
+import org.apereo.portal.portlet.rendering.worker.PortletWorkerFactoryImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests the adaptive concurrency limits of {@link PortletExecutionManager}. */
+public class PortletExecutionManagerConcurrencyLimitTest {
+    private final IPortletWindowId portletWindowId = mock(IPortletWindowId.class);
+    private ExecutorService portletThreadPool;
+    private PortletExecutionManager portletExecutionManager;
+    private PortletWorkerFactoryImpl portletWorkerFactory;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+
+    @Before
+    public void setup() throws Exception {
+        this.portletThreadPool = Executors.newSingleThreadExecutor();
+
+        final IPortletWindow portletWindow = mock(IPortletWindow.class, RETURNS_DEEP_STUBS);
+        when(portletWindow.getPortletWindowId()).thenReturn(this.portletWindowId);
+        when(portletWindow.getPortletEntity().getPortletDefinition().getFName())
+                .thenReturn("limited");
+        final IPortletWindowRegistry portletWindowRegistry = mock(IPortletWindowRegistry.class);
+        when(portletWindowRegistry.getPortletWindow(any(), any(IPortletWindowId.class)))
+                .thenReturn(portletWindow);
+
+        this.portletExecutionManager = new PortletExecutionManager();
+        this.portletExecutionManager.setPortletWindowRegistry(portletWindowRegistry);
+        this.portletExecutionManager.setAdaptiveConcurrencyLimits(true);
+        this.portletExecutionManager.setInitialConcurrencyLimit(1);
+        this.portletExecutionManager.setMaxConcurrencyLimit(1);
+
+        this.portletWorkerFactory = new PortletWorkerFactoryImpl();
+        this.portletWorkerFactory.setPortletThreadPool(this.portletThreadPool);
+        this.portletWorkerFactory.setPortletWindowRegistry(portletWindowRegistry);
+        this.portletWorkerFactory.setPortletRenderer(mock(IPortletRenderer.class));
+        this.portletWorkerFactory.setExecutionInterceptors(
+                Collections.<IPortletExecutionInterceptor>singletonList(
+                        this.portletExecutionManager));
+        this.portletWorkerFactory.afterPropertiesSet();
+
+        this.request = mock(HttpServletRequest.class);
+        this.response = mock(HttpServletResponse.class);
+        when(this.response.getCharacterEncoding()).thenReturn("UTF-8");
+    }
+
+    @After
+    public void teardown() {
+        this.portletThreadPool.shutdownNow();
+    }
+
+    @Test
+    public void testCanceledBeforeStartReturnsNoSlot() throws Exception {
+        // Keep the only pool thread busy so the worker stays queued
+        final CountDownLatch releasePool = new CountDownLatch(1);
+        this.portletThreadPool.submit(
+                () -> {
+                    releasePool.await();
+                    return null;
+                });
+
+        final IPortletExecutionWorker<?> canceled =
+                this.portletWorkerFactory.createRenderWorker(
+                        this.request, this.response, this.portletWindowId);
+        canceled.submit();
+        assertFalse(canceled.isComplete());
+        canceled.cancel();
+        assertTrue(canceled.isComplete());
+
+        releasePool.countDown();
+
+        // The only slot is still available to the next execution
+        final IPortletExecutionWorker<?> next =
+                this.portletWorkerFactory.createRenderWorker(
+                        this.request, this.response, this.portletWindowId);
+        next.submit();
+        try {
+            next.get(TimeUnit.SECONDS.toMillis(5));
+        } catch (ExecutionException e) {
+            fail("Execution should not be denied: " + e.getCause());
+        }
+
+        assertFalse(canceled.isStarted());
+        final Map<String, Integer> inFlight =
+                this.portletExecutionManager.getPortletInFlightExecutions();
+        assertEquals(1, inFlight.size());
+        assertEquals(Integer.valueOf(0), inFlight.values().iterator().next());
+    }
+
+    @Test
+    public void testDeniedOverLimit() throws Exception {
+        // Hold the only slot as if another execution were running
+        final IPortletExecutionWorker<?> running =
+                this.portletWorkerFactory.createRenderWorker(
+                        this.request, this.response, this.portletWindowId);
+        this.portletExecutionManager.preExecution(this.request, this.response, running);
+
+        final IPortletExecutionWorker<?> worker =
+                this.portletWorkerFactory.createRenderWorker(
+                        this.request, this.response, this.portletWindowId);
+        worker.submit();
+        try {
+            worker.get(TimeUnit.SECONDS.toMillis(5));
+            fail("Execution should be denied");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof PortletConcurrencyLimitExceededException);
+        }
+    }
+}
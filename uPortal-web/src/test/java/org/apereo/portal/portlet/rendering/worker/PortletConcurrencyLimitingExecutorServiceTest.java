@@ -0,0 +1,168 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.portlet.rendering.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apereo.portal.portlet.om.IPortletWindow;
+import org.apereo.portal.portlet.rendering.IPortletRenderer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests for {@link PortletConcurrencyLimitingExecutorService}. */
+public class PortletConcurrencyLimitingExecutorServiceTest {
+    private ExecutorService threadPool;
+    private ExecutorService executor;
+    private CountDownLatch releaseRunning;
+    private TestWorker running;
+
+    @Before
+    public void setup() throws Exception {
+        this.threadPool = Executors.newCachedThreadPool();
+        this.executor = new PortletConcurrencyLimitingExecutorService(this.threadPool, 1);
+
+        // Hold the only permit until the test releases it
+        this.releaseRunning = new CountDownLatch(1);
+        this.running =
+                new TestWorker(
+                        this.executor,
+                        5000,
+                        () -> {
+                            releaseRunning.await();
+                            return "running";
+                        });
+        this.running.submit();
+        assertTrue(this.running.waitForStart(1000) > 0);
+    }
+
+    @After
+    public void teardown() {
+        this.releaseRunning.countDown();
+        this.threadPool.shutdownNow();
+    }
+
+    @Test
+    public void testTimedOutQueuedWorkerNeverRuns() throws Exception {
+        final AtomicBoolean queuedRan = new AtomicBoolean();
+        final TestWorker queued =
+                new TestWorker(
+                        this.executor,
+                        5000,
+                        () -> {
+                            queuedRan.set(true);
+                            return "queued";
+                        });
+        queued.submit();
+
+        try {
+            queued.get(100);
+            fail("Queued worker should time out");
+        } catch (TimeoutException e) {
+            // expected
+        }
+
+        // Waiting for a permit is not complete, so the timed out worker is canceled
+        assertFalse(queued.isStarted());
+        assertFalse(queued.isComplete());
+        queued.cancel();
+        assertTrue(queued.isComplete());
+
+        this.releaseRunning.countDown();
+        assertEquals("running", this.running.get(1000));
+
+        // The permit is free again but the canceled worker must not run
+        final TestWorker next = new TestWorker(this.executor, 5000, () -> "next");
+        next.submit();
+        assertEquals("next", next.get(1000));
+        assertFalse(queuedRan.get());
+        assertFalse(queued.isStarted());
+    }
+
+    @Test
+    public void testPermitWaitBoundedByTimeout() throws Exception {
+        final AtomicBoolean queuedRan = new AtomicBoolean();
+        final TestWorker queued =
+                new TestWorker(
+                        this.executor,
+                        100,
+                        () -> {
+                            queuedRan.set(true);
+                            return "queued";
+                        });
+        queued.submit();
+
+        try {
+            queued.get(1000);
+            fail("Queued worker should fail waiting for a permit");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+
+        assertTrue(queued.isComplete());
+        this.releaseRunning.countDown();
+        assertEquals("running", this.running.get(1000));
+        assertFalse(queuedRan.get());
+    }
+
+    private static final class TestWorker extends PortletExecutionWorker<String> {
+        private final Callable<String> callable;
+
+        TestWorker(ExecutorService executorService, long timeout, Callable<String> callable) {
+            super(
+                    executorService,
+                    Collections.<IPortletExecutionInterceptor>emptyList(),
+                    mock(IPortletRenderer.class),
+                    mock(HttpServletRequest.class),
+                    mock(HttpServletResponse.class),
+                    mockPortletWindow(),
+                    timeout);
+            this.callable = callable;
+        }
+
+        private static IPortletWindow mockPortletWindow() {
+            final IPortletWindow portletWindow = mock(IPortletWindow.class, RETURNS_DEEP_STUBS);
+            when(portletWindow.getPortletEntity().getPortletDefinition().getFName())
+                    .thenReturn("limited");
+            return portletWindow;
+        }
+
+        @Override
+        public ExecutionType getExecutionType() {
+            return ExecutionType.RENDER;
+        }
+
+        @Override
+        protected String callInternal() throws Exception {
+            return this.callable.call();
+        }
+    }
+}
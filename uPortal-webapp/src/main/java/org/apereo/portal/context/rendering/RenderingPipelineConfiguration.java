@@ -47,6 +47,7 @@ import org.apereo.portal.rendering.xslt.StaticTransformerConfigurationSource;
 import org.apereo.portal.rendering.xslt.StructureStylesheetDescriptorTransformerConfigurationSource;
 import org.apereo.portal.rendering.xslt.StructureStylesheetUserPreferencesTransformerConfigurationSource;
 import org.apereo.portal.rendering.xslt.StructureTransformerSource;
+import org.apereo.portal.rendering.xslt.StylesheetPrecompiler;
 import org.apereo.portal.rendering.xslt.ThemeStylesheetDescriptorTransformerConfigurationSource;
 import org.apereo.portal.rendering.xslt.ThemeStylesheetUserPreferencesTransformerConfigurationSource;
 import org.apereo.portal.rendering.xslt.ThemeTransformerSource;
@@ -138,6 +139,15 @@ public class RenderingPipelineConfiguration {
     @Resource(name = "org.apereo.portal.rendering.THEME_TRANSFORM")
     private Cache themeTransformCache;
 
+    @Value("${org.apereo.portal.rendering.cache.coalesceMisses:false}")
+    private boolean coalesceCacheMisses;
+
+    @Value("${org.apereo.portal.rendering.cache.coalescingWaitTime:5000}")
+    private long cacheCoalescingWaitTime;
+
+    @Value("${org.apereo.portal.rendering.cache.preEncodeCharacterData:false}")
+    private boolean preEncodeCharacterData;
+
     @Autowired(required = false)
     private List<RenderingPipelineBranchPoint> branchPoints;
 
@@ -212,6 +222,7 @@ public class RenderingPipelineConfiguration {
     public IPortalRenderingPipeline getStandardRenderingPipeline() {
         final DynamicRenderingPipeline result = new DynamicRenderingPipeline();
         result.setPipeline(getAnalyticsIncorporationComponent());
+        result.setWriteEncodedCharacterData(preEncodeCharacterData);
         return result;
     }
 
@@ -313,6 +324,15 @@ public class RenderingPipelineConfiguration {
         return new UserImpersonationTransformerConfigurationSource();
     }
 
+    /**
+     * This bean is not an element of the rendering pipeline. It compiles the structure and theme
+     * stylesheets when the portal starts.
+     */
+    @Bean(name = "stylesheetPrecompiler")
+    public StylesheetPrecompiler getStylesheetPrecompiler() {
+        return new StylesheetPrecompiler();
+    }
+
     /**
      * This bean is not an element of the rendering pipeline. It is a DAO for reading and writing
      * <code>Resources</code> objects to files.
@@ -375,6 +395,8 @@ public class RenderingPipelineConfiguration {
         final CachingStAXPipelineComponent result = new CachingStAXPipelineComponent();
         result.setWrappedComponent(getPostStructureTransformLogger());
         result.setCache(structureTransformCache);
+        result.setCoalesceMisses(coalesceCacheMisses);
+        result.setCoalescingWaitTime(cacheCoalescingWaitTime);
         return result;
     }
 
@@ -602,6 +624,9 @@ public class RenderingPipelineConfiguration {
         final CachingCharacterPipelineComponent result = new CachingCharacterPipelineComponent();
         result.setWrappedComponent(getPostSerializerLogger());
         result.setCache(themeTransformCache);
+        result.setCoalesceMisses(coalesceCacheMisses);
+        result.setCoalescingWaitTime(cacheCoalescingWaitTime);
+        result.setPreEncodeCharacterData(preEncodeCharacterData);
         return result;
     }
 
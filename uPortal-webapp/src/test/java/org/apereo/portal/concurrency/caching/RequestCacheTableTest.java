@@ -0,0 +1,134 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.concurrency.caching;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+public class RequestCacheTableTest {
+
+    @Test
+    public void testCacheKey() {
+        assertEquals("a", RequestCacheKey.of("a"));
+        assertEquals(RequestCacheKey.of("a", 1), RequestCacheKey.of("a", 1));
+        assertEquals(
+                RequestCacheKey.of("a", 1).hashCode(), RequestCacheKey.of("a", 1).hashCode());
+        assertNotEquals(RequestCacheKey.of("a", 1), RequestCacheKey.of(1, "a"));
+        assertEquals(
+                RequestCacheKey.of(new String[] {"a"}), RequestCacheKey.of(new String[] {"a"}));
+        assertEquals(RequestCacheKey.of(null, null), RequestCacheKey.forArguments(new Object[2]));
+        assertEquals(
+                RequestCacheKey.forArguments(new Object[0]),
+                RequestCacheKey.forArguments(null));
+    }
+
+    @Test
+    public void testContextPerRequest() {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        final RequestCacheContext context = RequestCacheContext.getContext(request);
+        assertSame(context, RequestCacheContext.getContext(request));
+        assertNotEquals(context, RequestCacheContext.getContext(new MockHttpServletRequest()));
+    }
+
+    @Test
+    public void testCacheResult() {
+        final RequestCacheTable table = RequestCacheTable.create("testCacheResult");
+        final RequestCacheContext context =
+                RequestCacheContext.getContext(new MockHttpServletRequest());
+        final AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("a1", table.get(context, "a", () -> "a" + loads.incrementAndGet()));
+        assertEquals("a1", table.get(context, "a", () -> "a" + loads.incrementAndGet()));
+        assertEquals("b2", table.get(context, "b", () -> "b" + loads.incrementAndGet()));
+        assertEquals(2, loads.get());
+
+        // No context, nothing is cached
+        assertEquals("a3", table.get(null, "a", () -> "a" + loads.incrementAndGet()));
+
+        // New request, new cache
+        final RequestCacheContext context2 =
+                RequestCacheContext.getContext(new MockHttpServletRequest());
+        assertEquals("a4", table.get(context2, "a", () -> "a" + loads.incrementAndGet()));
+
+        final CacheStatistics statistics = table.getStatistics();
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(3, statistics.getMissCount());
+        assertEquals(3, statistics.getLoadSuccessCount());
+    }
+
+    @Test
+    public void testTableCreatedAfterContext() {
+        final RequestCacheContext context =
+                RequestCacheContext.getContext(new MockHttpServletRequest());
+        final RequestCacheTable table = RequestCacheTable.create("testTableCreatedAfterContext");
+        final AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(1, (int) table.get(context, "a", loads::incrementAndGet));
+        assertEquals(1, (int) table.get(context, "a", loads::incrementAndGet));
+    }
+
+    @Test
+    public void testCacheNull() {
+        final RequestCacheTable noNulls = RequestCacheTable.create("testCacheNull.noNulls");
+        final RequestCacheTable nulls = RequestCacheTable.create("testCacheNull", true, false);
+        final RequestCacheContext context =
+                RequestCacheContext.getContext(new MockHttpServletRequest());
+        final AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            assertNull(noNulls.get(context, "a", () -> loads.incrementAndGet() > 0 ? null : ""));
+        }
+        assertEquals(2, loads.get());
+
+        loads.set(0);
+        for (int i = 0; i < 2; i++) {
+            assertNull(nulls.get(context, "a", () -> loads.incrementAndGet() > 0 ? null : ""));
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testCacheException() {
+        final RequestCacheTable table = RequestCacheTable.create("testCacheException", false, true);
+        final RequestCacheContext context =
+                RequestCacheContext.getContext(new MockHttpServletRequest());
+        final AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                table.get(
+                        context,
+                        "a",
+                        () -> {
+                            loads.incrementAndGet();
+                            throw new IllegalStateException();
+                        });
+                fail();
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, table.getStatistics().getLoadExceptionCount());
+        assertEquals(1, table.getStatistics().getHitCount());
+    }
+}
@@ -20,7 +20,10 @@ import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.base.Function;
@@ -348,4 +351,139 @@ public class ClusterLockServiceImplTest {
     }
 
     // test exec serv not actually execing
+
+    @Test
+    public void testLockRenewalRate() {
+        clusterLockService.setUpdateLockRate(Duration.standardSeconds(20));
+
+        // No lease, use the configured rate
+        assertEquals(20000, clusterLockService.getLockRenewalRate());
+
+        // Renew at a third of a short lease
+        when(clusterLockDao.getLockLeaseDuration()).thenReturn(Duration.standardSeconds(3));
+        assertEquals(1000, clusterLockService.getLockRenewalRate());
+
+        // Configured rate is already shorter than a third of the lease
+        when(clusterLockDao.getLockLeaseDuration()).thenReturn(Duration.standardSeconds(60));
+        assertEquals(20000, clusterLockService.getLockRenewalRate());
+    }
+
+    @Test
+    public void testLockOwnerUntilLockedAgain() throws InterruptedException {
+        final String mutexName = "TEST";
+        final String serverName = "server_1";
+
+        final ClusterMutex clusterMutex = new ClusterMutex(mutexName);
+        when(clusterLockDao.getClusterMutex(mutexName)).thenReturn(clusterMutex);
+        when(clusterLockDao.getLock(mutexName))
+                .thenAnswer(
+                        invocation -> {
+                            clusterMutex.lock(serverName);
+                            return clusterMutex;
+                        });
+        when(portalInfoProvider.getUniqueServerName()).thenReturn(serverName);
+
+        final TryLockFunctionResult<Boolean> result =
+                this.clusterLockService.doInTryLock(
+                        mutexName,
+                        new Function<ClusterMutex, Boolean>() {
+                            @Override
+                            public Boolean apply(ClusterMutex input) {
+                                assertTrue(clusterLockService.isLockOwner(mutexName));
+
+                                // The lease ran out and the same server locked the mutex again
+                                clusterMutex.unlock();
+                                clusterMutex.lock(serverName);
+                                return clusterLockService.isLockOwner(mutexName);
+                            }
+                        });
+
+        assertEquals(LockStatus.EXECUTED, result.getLockStatus());
+        assertFalse(result.getResult());
+        assertFalse(clusterLockService.isLockOwner(mutexName));
+    }
+
+    @Test
+    public void testLockKeptAfterFailedRenewal() throws InterruptedException {
+        final String mutexName = "TEST";
+        final String serverName = "server_1";
+
+        final ClusterMutex clusterMutex = new ClusterMutex(mutexName);
+        when(clusterLockDao.getClusterMutex(mutexName)).thenReturn(clusterMutex);
+        when(clusterLockDao.getLock(mutexName))
+                .thenAnswer(
+                        invocation -> {
+                            clusterMutex.lock(serverName);
+                            return clusterMutex;
+                        });
+        when(portalInfoProvider.getUniqueServerName()).thenReturn(serverName);
+        // Renewed every 100ms, the first renewal fails
+        when(clusterLockDao.getLockLeaseDuration()).thenReturn(Duration.millis(300));
+        doThrow(new RuntimeException("Renewal failed"))
+                .doNothing()
+                .when(clusterLockDao)
+                .updateLock(mutexName);
+
+        final TryLockFunctionResult<Boolean> result =
+                this.clusterLockService.doInTryLock(
+                        mutexName,
+                        new Function<ClusterMutex, Boolean>() {
+                            @Override
+                            public Boolean apply(ClusterMutex input) {
+                                try {
+                                    Thread.sleep(600);
+                                } catch (InterruptedException e) {
+                                    return false;
+                                }
+                                return clusterLockService.isLockOwner(mutexName);
+                            }
+                        });
+
+        assertEquals(LockStatus.EXECUTED, result.getLockStatus());
+        assertTrue(result.getResult());
+        verify(clusterLockDao, atLeast(2)).updateLock(mutexName);
+        verify(clusterLockDao).releaseLock(mutexName);
+    }
+
+    @Test
+    public void testLockGivenUpBeforeLeaseEndsWhenRenewalKeepsFailing()
+            throws InterruptedException {
+        final String mutexName = "TEST";
+        final long leaseMillis = 1500;
+
+        final ClusterMutex clusterMutex = new ClusterMutex(mutexName);
+        when(clusterLockDao.getLock(mutexName))
+                .thenAnswer(
+                        invocation -> {
+                            clusterMutex.lock("server_1");
+                            return clusterMutex;
+                        });
+        when(clusterLockDao.getLockLeaseDuration()).thenReturn(Duration.millis(leaseMillis));
+        doThrow(new RuntimeException("Renewal failed")).when(clusterLockDao).updateLock(mutexName);
+
+        final TryLockFunctionResult<Long> result =
+                this.clusterLockService.doInTryLock(
+                        mutexName,
+                        new Function<ClusterMutex, Long>() {
+                            @Override
+                            public Long apply(ClusterMutex input) {
+                                final long start = System.currentTimeMillis();
+                                try {
+                                    Thread.sleep(leaseMillis * 4);
+                                } catch (InterruptedException e) {
+                                    // The lock thread gave up on the lock
+                                    return System.currentTimeMillis() - start;
+                                }
+                                return null;
+                            }
+                        });
+
+        assertEquals(LockStatus.EXECUTED, result.getLockStatus());
+        assertNotNull("The lock function was not told the lock was lost", result.getResult());
+        assertTrue(
+                "Lock given up after " + result.getResult() + "ms",
+                result.getResult() < leaseMillis);
+        verify(clusterLockDao, atLeast(2)).updateLock(mutexName);
+        verify(clusterLockDao).releaseLock(mutexName);
+    }
 }
@@ -148,6 +148,26 @@ public class JpaClusterLockDaoTest extends BasePortalJpaDaoTest {
         assertFalse(mutex.isLocked());
     }
 
+    @Test
+    public void testFencingToken() {
+        reset(portalInfoProvider);
+        when(portalInfoProvider.getUniqueServerName()).thenReturn("ServerA");
+
+        final String mutexName = "testFencingToken";
+
+        final ClusterMutex firstLock = clusterLockDao.getLock(mutexName);
+        assertNotNull(firstLock);
+        final long firstToken = firstLock.getFencingToken();
+        clusterLockDao.updateLock(mutexName);
+        assertEquals(firstToken, clusterLockDao.getClusterMutex(mutexName).getFencingToken());
+        clusterLockDao.releaseLock(mutexName);
+
+        final ClusterMutex secondLock = clusterLockDao.getLock(mutexName);
+        assertNotNull(secondLock);
+        assertTrue(secondLock.getFencingToken() > firstToken);
+        clusterLockDao.releaseLock(mutexName);
+    }
+
     /**
      * This test turns out to be nondeterministic under load and so can yield false-negatives
      * (failures that don't seem to actually indicate a regression).
@@ -14,6 +14,7 @@
  */
 package org.apereo.portal.events;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -79,6 +80,27 @@ public class JacksonPortalEventTest {
         assertEventJsonEquals(json, event);
     }
 
+    @Test
+    public void testLoginEventPhaseTimesSerialization() throws Exception {
+        final PortalEvent.PortalEventBuilder eventBuilder =
+                new PortalEvent.PortalEventBuilder(
+                        this, "example.com", "sessionId", SystemPerson.INSTANCE, null);
+        final Map<String, Long> phaseTimes =
+                ImmutableMap.of("securityContext", 12L, "attributes", 340L, "total", 360L);
+
+        final LoginEvent loginEvent =
+                new LoginEvent(
+                        eventBuilder, Collections.EMPTY_SET, Collections.EMPTY_MAP, phaseTimes);
+
+        final String json =
+                assertEventJsonEquals(
+                        "{\"@c\":\".LoginEvent\",\"userName\":\"system\",\"phaseTimes\":{\"securityContext\":12,\"attributes\":340,\"total\":360}}",
+                        loginEvent);
+
+        final LoginEvent event = (LoginEvent) mapper.readValue(json, PortalEvent.class);
+        assertEquals(phaseTimes, event.getPhaseTimes());
+    }
+
     @Test
     public void verifyOutputFormat() throws Exception {
         final String sessionId = "1234567890123_system_AAAAAAAAAAA";
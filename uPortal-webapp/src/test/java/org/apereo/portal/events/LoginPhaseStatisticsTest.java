@@ -0,0 +1,88 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apereo.portal.security.SystemPerson;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LoginPhaseStatisticsTest {
+    private LoginPhaseStatistics statistics;
+
+    @Before
+    public void setup() {
+        statistics = new LoginPhaseStatistics();
+    }
+
+    @Test
+    public void testRecordPhaseTimes() {
+        for (int i = 0; i < 99; i++) {
+            statistics.onApplicationEvent(loginEvent(ImmutableMap.of("attributes", 20L)));
+        }
+        statistics.onApplicationEvent(
+                loginEvent(ImmutableMap.of("attributes", 400L, "groups", 3L)));
+
+        final LoginPhaseStatistics.PhaseHistogram attributes =
+                statistics.getPhaseHistogram("attributes");
+        assertEquals(100, attributes.getCount());
+        assertEquals(23.8, attributes.getAverage(), 0.001);
+        assertEquals(25, attributes.getPercentile(0.99));
+        assertEquals(500, attributes.getPercentile(1.0));
+        assertEquals(Long.valueOf(400), statistics.getPhaseMaxTimes().get("attributes"));
+
+        final Map<String, Long> buckets = statistics.getPhaseHistograms().get("attributes");
+        assertEquals(Long.valueOf(99), buckets.get("<=25ms"));
+        assertEquals(Long.valueOf(1), buckets.get("<=500ms"));
+        assertEquals(Long.valueOf(0), buckets.get(">10000ms"));
+
+        assertEquals(Long.valueOf(5), statistics.getPhaseP99Times().get("groups"));
+    }
+
+    @Test
+    public void testUnboundedBucket() {
+        statistics.onApplicationEvent(loginEvent(ImmutableMap.of("total", 12345L)));
+
+        assertEquals(
+                Long.valueOf(1), statistics.getPhaseHistograms().get("total").get(">10000ms"));
+        assertEquals(Long.valueOf(12345), statistics.getPhaseP99Times().get("total"));
+    }
+
+    @Test
+    public void testReset() {
+        statistics.onApplicationEvent(loginEvent(ImmutableMap.of("total", 10L)));
+        statistics.reset();
+
+        assertNull(statistics.getPhaseHistogram("total"));
+        assertEquals(Collections.emptyMap(), statistics.getPhaseAverageTimes());
+    }
+
+    private LoginEvent loginEvent(Map<String, Long> phaseTimes) {
+        final PortalEvent.PortalEventBuilder eventBuilder =
+                new PortalEvent.PortalEventBuilder(
+                        this, "example.com", "sessionId", SystemPerson.INSTANCE, null);
+        return new LoginEvent(
+                eventBuilder,
+                Collections.<String>emptySet(),
+                Collections.<String, List<String>>emptyMap(),
+                phaseTimes);
+    }
+}
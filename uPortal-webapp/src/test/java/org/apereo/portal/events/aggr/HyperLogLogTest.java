@@ -0,0 +1,180 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.events.aggr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class HyperLogLogTest {
+    private static final Logger logger = LoggerFactory.getLogger(HyperLogLogTest.class);
+
+    @Test
+    public void testDuplicatesDoNotChangeSketch() {
+        final HyperLogLog sketch = new HyperLogLog(12);
+        assertTrue(sketch.add("user1"));
+        assertFalse(sketch.add("user1"));
+        assertEquals(1, sketch.cardinality());
+    }
+
+    @Test
+    public void testMerge() {
+        final HyperLogLog first = new HyperLogLog(12);
+        final HyperLogLog second = new HyperLogLog(12);
+        final HyperLogLog union = new HyperLogLog(12);
+        for (int i = 0; i < 20000; i++) {
+            final String userName = "user" + i;
+            (i % 2 == 0 ? first : second).add(userName);
+            union.add(userName);
+        }
+
+        first.merge(second);
+        assertArrayEquals(union.toByteArray(), first.toByteArray());
+    }
+
+    @Test
+    public void testRunningEstimateMatchesRecount() {
+        final HyperLogLog sketch = new HyperLogLog(14);
+        final HyperLogLog other = new HyperLogLog(14);
+        for (int i = 0; i < 100000; i++) {
+            sketch.add("user" + i);
+            other.add("other" + i);
+            if (i % 9973 == 0) {
+                // A sketch created from the registers counts them all again
+                assertEquals(
+                        HyperLogLog.fromByteArray(sketch.toByteArray()).cardinality(),
+                        sketch.cardinality());
+            }
+        }
+
+        sketch.merge(other);
+        assertEquals(
+                HyperLogLog.fromByteArray(sketch.toByteArray()).cardinality(),
+                sketch.cardinality());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentPrecision() {
+        new HyperLogLog(12).merge(new HyperLogLog(14));
+    }
+
+    @Test
+    public void testByteArrayRoundTrip() {
+        final HyperLogLog sketch = new HyperLogLog(10);
+        for (int i = 0; i < 5000; i++) {
+            sketch.add("user" + i);
+        }
+
+        final HyperLogLog copy = HyperLogLog.fromByteArray(sketch.toByteArray());
+        assertEquals(10, copy.getPrecision());
+        assertEquals(sketch.cardinality(), copy.cardinality());
+    }
+
+    @Test
+    public void testUniqueStringsSketch() {
+        final UniqueStrings exact = new UniqueStrings();
+        final UniqueStrings approximate = new UniqueStrings(14);
+        assertFalse(exact.isApproximate());
+        assertTrue(approximate.isApproximate());
+
+        for (int i = 0; i < 30000; i++) {
+            final String userName = "user" + (i % 10000);
+            exact.add(userName);
+            approximate.add(userName);
+        }
+
+        assertEquals(10000, exact.size());
+        assertEquals(10000, approximate.size(), 10000 * 4 * 1.04 / Math.sqrt(1 << 14));
+    }
+
+    @Test
+    public void testUniqueStringsSketchSizeFollowsAdds() {
+        final UniqueStrings uniqueStrings = new UniqueStrings(12);
+        assertEquals(0, uniqueStrings.size());
+
+        assertTrue(uniqueStrings.add("user1"));
+        assertEquals(1, uniqueStrings.size());
+        assertFalse(uniqueStrings.add("user1"));
+        assertEquals(1, uniqueStrings.size());
+        assertTrue(uniqueStrings.add("user2"));
+        assertEquals(2, uniqueStrings.size());
+    }
+
+    @Test
+    public void testValidateSketchPrecision() {
+        UniqueStrings.validateSketchPrecision(UniqueStrings.EXACT);
+        UniqueStrings.validateSketchPrecision(HyperLogLog.MIN_PRECISION);
+        UniqueStrings.validateSketchPrecision(HyperLogLog.MAX_PRECISION);
+        for (final int invalid :
+                new int[] {-1, HyperLogLog.MIN_PRECISION - 1, HyperLogLog.MAX_PRECISION + 1}) {
+            try {
+                UniqueStrings.validateSketchPrecision(invalid);
+                fail("Expected precision " + invalid + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Accuracy and memory of the sketch compared to the exact set of strings for typical user
+     * populations. The error must stay within four standard errors; the results are logged.
+     */
+    @Test
+    public void testAccuracyAndMemoryAgainstExact() {
+        final int[] precisions = {10, 12, 14};
+        final int[] userCounts = {1000, 10000, 100000};
+
+        for (final int precision : precisions) {
+            final double standardError = 1.04 / Math.sqrt(1 << precision);
+            for (final int userCount : userCounts) {
+                final HyperLogLog sketch = new HyperLogLog(precision);
+                final Set<String> exact = new HashSet<>();
+                long exactBytes = 0;
+                for (int i = 0; i < userCount; i++) {
+                    final String userName = "student" + i + "@example.edu";
+                    sketch.add(userName);
+                    if (exact.add(userName)) {
+                        // String object + char array + HashMap node and table slot, 64-bit JVM
+                        exactBytes += 24 + 16 + 2L * userName.length() + 32 + 8;
+                    }
+                }
+
+                final long estimate = sketch.cardinality();
+                final double error = Math.abs(estimate - exact.size()) / (double) exact.size();
+                logger.info(
+                        "precision={} users={} estimate={} error={}% sketchBytes={} exactBytes~={}",
+                        precision,
+                        userCount,
+                        estimate,
+                        String.format("%.2f", error * 100),
+                        sketch.toByteArray().length,
+                        exactBytes);
+
+                assertTrue(
+                        "Error " + error + " exceeds four standard errors, precision " + precision,
+                        error <= 4 * standardError);
+            }
+        }
+    }
+}
@@ -16,8 +16,11 @@ package org.apereo.portal.events.aggr;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.base.Function;
@@ -199,6 +202,46 @@ public class PortalRawEventsAggregatorImplTest {
         this.portalEventAggregator.setEventAggregationBatchSize(1000);
     }
 
+    @Test
+    public void aggregateRawEventsLockLostBeforeStore() throws Exception {
+        when(transactionOperations.execute(any(TransactionCallback.class)))
+                .then(
+                        new Answer<EventProcessingResult>() {
+                            @Override
+                            public EventProcessingResult answer(InvocationOnMock invocation)
+                                    throws Throwable {
+                                final TransactionStatus status = mock(TransactionStatus.class);
+                                return ((TransactionCallback<EventProcessingResult>)
+                                                invocation.getArguments()[0])
+                                        .doInTransaction(status);
+                            }
+                        });
+        // The lease runs out and the lock is acquired again while events are aggregated
+        when(clusterLockService.isLockOwner(PortalRawEventsAggregator.AGGREGATION_LOCK_NAME))
+                .thenReturn(true, false);
+        when(portalEventDimensionPopulator.isCheckedDimensions()).thenReturn(true);
+        when(eventAggregationManagementDao.getEventAggregatorStatus(
+                        ProcessingType.AGGREGATION, true))
+                .thenReturn(eventAggregatorStatus);
+        when(portalInfoProvider.getUniqueServerName()).thenReturn("serverName_abcd");
+        when(eventAggregatorStatus.getLastEventDate()).thenReturn(new DateTime(1325881376117l));
+        when(portalEventDao.aggregatePortalEvents(
+                        any(DateTime.class),
+                        any(DateTime.class),
+                        (int) any(Integer.TYPE),
+                        (Function<PortalEvent, Boolean>) any(Function.class)))
+                .thenReturn(true);
+
+        try {
+            portalEventAggregator.doAggregateRawEvents();
+            fail("Aggregation results stored after the lock was lost");
+        } catch (IllegalStateException e) {
+            // expected, the aggregation transaction rolls back
+        }
+        verify(eventAggregationManagementDao, never())
+                .updateEventAggregatorStatus(eventAggregatorStatus);
+    }
+
     private static class MockPortalEvent extends PortalEvent {
         public MockPortalEvent(
                 Object source, String serverName, String eventSessionId, IPerson person) {
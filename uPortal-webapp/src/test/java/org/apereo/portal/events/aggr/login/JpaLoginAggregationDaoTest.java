@@ -24,6 +24,7 @@ import org.apereo.portal.events.aggr.BaseAggregationPrivateDao;
 import org.apereo.portal.events.aggr.DateDimension;
 import org.apereo.portal.events.aggr.JpaBaseAggregationDaoTest;
 import org.apereo.portal.events.aggr.TimeDimension;
+import org.apereo.portal.events.aggr.UniqueStrings;
 import org.apereo.portal.events.aggr.groups.AggregatedGroupMapping;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -47,7 +48,8 @@ public class JpaLoginAggregationDaoTest
     @Override
     protected void updateAggregation(
             AggregationIntervalInfo intervalInfo, LoginAggregationImpl aggregation, Random r) {
-        aggregation.countUser(RandomStringUtils.random(8, 0, 0, true, true, null, r));
+        aggregation.countUser(
+                RandomStringUtils.random(8, 0, 0, true, true, null, r), UniqueStrings.EXACT);
     }
 
     @Override
@@ -0,0 +1,124 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.events.handlers;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.springframework.context.ApplicationEvent;
+
+public class QueueingEventHandlerTest {
+
+    @Test
+    public void testUnbounded() {
+        final TestQueueingEventHandler handler = new TestQueueingEventHandler();
+        for (int i = 0; i < 100; i++) {
+            handler.onApplicationEvent(new TestEvent(i));
+        }
+
+        assertEquals(100, handler.getQueueSize());
+        handler.flush();
+        assertEquals(100, handler.flushed.size());
+        assertEquals(0, handler.getQueueSize());
+        assertEquals(Long.valueOf(100), handler.getFlushedEventCounts().get("TestEvent"));
+    }
+
+    @Test
+    public void testDropOldest() {
+        final TestQueueingEventHandler handler = new TestQueueingEventHandler();
+        handler.setQueueCapacity(3);
+        for (int i = 0; i < 5; i++) {
+            handler.onApplicationEvent(new TestEvent(i));
+        }
+
+        assertEquals(3, handler.getQueueSize());
+        handler.flush();
+        assertEquals(ImmutableList.of(2, 3, 4), handler.flushedIds());
+        assertEquals(Long.valueOf(2), handler.getDroppedEventCounts().get("TestEvent"));
+        assertEquals(Long.valueOf(5), handler.getEnqueuedEventCounts().get("TestEvent"));
+    }
+
+    @Test
+    public void testDropNewest() {
+        final TestQueueingEventHandler handler = new TestQueueingEventHandler();
+        handler.setQueueCapacity(3);
+        handler.setOverflowPolicy(QueueingEventHandler.OverflowPolicy.DROP_NEWEST);
+        for (int i = 0; i < 5; i++) {
+            handler.onApplicationEvent(new TestEvent(i));
+        }
+
+        handler.flush();
+        assertEquals(ImmutableList.of(0, 1, 2), handler.flushedIds());
+        assertEquals(Long.valueOf(2), handler.getDroppedEventCounts().get("TestEvent"));
+    }
+
+    @Test
+    public void testLowPriorityDroppedFirst() {
+        final TestQueueingEventHandler handler = new TestQueueingEventHandler();
+        handler.setQueueCapacity(3);
+        handler.setOverflowPolicy(QueueingEventHandler.OverflowPolicy.DROP_NEWEST);
+        handler.setLowPriorityEventTypes(
+                ImmutableList.<Class<? extends ApplicationEvent>>of(LowPriorityTestEvent.class));
+
+        handler.onApplicationEvent(new LowPriorityTestEvent(0));
+        handler.onApplicationEvent(new TestEvent(1));
+        handler.onApplicationEvent(new LowPriorityTestEvent(2));
+        // Replaces the oldest low priority event
+        handler.onApplicationEvent(new TestEvent(3));
+        // Queue is full of normal events, low priority events never replace them
+        handler.onApplicationEvent(new TestEvent(4));
+        handler.onApplicationEvent(new LowPriorityTestEvent(5));
+        handler.onApplicationEvent(new TestEvent(6));
+
+        handler.flush();
+        assertEquals(ImmutableList.of(1, 3, 4), handler.flushedIds());
+        assertEquals(Long.valueOf(3), handler.getDroppedEventCounts().get("LowPriorityTestEvent"));
+        assertEquals(Long.valueOf(1), handler.getDroppedEventCounts().get("TestEvent"));
+    }
+
+    private static class TestQueueingEventHandler extends QueueingEventHandler<ApplicationEvent> {
+        private final List<ApplicationEvent> flushed = new ArrayList<ApplicationEvent>();
+
+        @Override
+        protected void onApplicationEvents(Iterable<ApplicationEvent> events) {
+            for (final ApplicationEvent event : events) {
+                this.flushed.add(event);
+            }
+        }
+
+        List<Integer> flushedIds() {
+            final List<Integer> ids = new ArrayList<Integer>();
+            for (final ApplicationEvent event : this.flushed) {
+                ids.add((Integer) event.getSource());
+            }
+            return ids;
+        }
+    }
+
+    private static class TestEvent extends ApplicationEvent {
+        public TestEvent(int id) {
+            super(id);
+        }
+    }
+
+    private static class LowPriorityTestEvent extends TestEvent {
+        public LowPriorityTestEvent(int id) {
+            super(id);
+        }
+    }
+}
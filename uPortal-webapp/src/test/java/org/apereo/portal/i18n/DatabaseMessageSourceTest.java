@@ -0,0 +1,105 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.i18n;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import org.apereo.portal.i18n.dao.IMessageDao;
+import org.apereo.portal.i18n.dao.MessageChangedEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DatabaseMessageSourceTest {
+
+    private IMessageDao messageDao;
+    private DatabaseMessageSource messageSource;
+
+    @Before
+    public void setup() {
+        messageDao = mock(IMessageDao.class);
+        messageSource = new DatabaseMessageSource();
+        messageSource.setMessageDao(messageDao);
+    }
+
+    @Test
+    public void testLocaleFallback() {
+        final Set<Message> messages =
+                ImmutableSet.of(
+                        message("title", Locale.ENGLISH, "Title"),
+                        message("title", Locale.US, "Title (US)"),
+                        message("welcome", Locale.ENGLISH, "Welcome {0}"));
+        when(messageDao.getMessages()).thenReturn(messages);
+
+        assertEquals("Title (US)", messageSource.getMessage("title", null, Locale.US));
+        assertEquals("Title", messageSource.getMessage("title", null, Locale.UK));
+        assertEquals(
+                "Title (US)",
+                messageSource.getMessage("title", null, new Locale("en", "US", "POSIX")));
+        assertEquals(
+                "Welcome student",
+                messageSource.getMessage("welcome", new Object[] {"student"}, Locale.US));
+        assertNull(messageSource.getMessage("title", null, null, Locale.GERMAN));
+
+        // The catalog is only loaded once
+        verify(messageDao, times(1)).getMessages();
+        verifyNoMoreInteractions(messageDao);
+    }
+
+    @Test
+    public void testMessageFormatReused() {
+        final Set<Message> messages =
+                ImmutableSet.of(message("welcome", Locale.ENGLISH, "Welcome {0}"));
+        when(messageDao.getMessages()).thenReturn(messages);
+
+        assertSame(
+                messageSource.getCatalog().getMessageFormat("welcome", Locale.US),
+                messageSource.getCatalog().getMessageFormat("welcome", Locale.US));
+    }
+
+    @Test
+    public void testReloadAfterChange() {
+        final Message title = message("title", Locale.ENGLISH, "Title");
+        when(messageDao.getMessages())
+                .thenReturn(Collections.<Message>emptySet())
+                .thenReturn(ImmutableSet.of(title));
+
+        assertNull(messageSource.getMessage("title", null, null, Locale.ENGLISH));
+        assertNull(messageSource.getMessage("title", null, null, Locale.ENGLISH));
+
+        messageSource.onApplicationEvent(new MessageChangedEvent(this, title, false));
+
+        assertEquals("Title", messageSource.getMessage("title", null, Locale.ENGLISH));
+        verify(messageDao, times(2)).getMessages();
+    }
+
+    private static Message message(String code, Locale locale, String value) {
+        final Message message = mock(Message.class);
+        when(message.getCode()).thenReturn(code);
+        when(message.getLocale()).thenReturn(locale);
+        when(message.getValue()).thenReturn(value);
+        return message;
+    }
+}
@@ -95,6 +95,14 @@ public class JpaMultilingualMessageDaoTest extends BasePortalJpaDaoTest {
                         final Set<String> actual6 = messageDao.getCodes();
                         assertEquals(expected6, actual6);
 
+                        // test #getMessages
+                        final Set<Message> expected7 = new LinkedHashSet<Message>();
+                        expected7.add(msgUS);
+                        expected7.add(msgLV);
+                        expected7.add(msgUS2);
+                        final Set<Message> actual7 = messageDao.getMessages();
+                        assertEquals(expected7, actual7);
+
                         return null;
                     }
                 });
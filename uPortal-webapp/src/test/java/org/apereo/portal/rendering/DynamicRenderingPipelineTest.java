@@ -18,10 +18,22 @@ import static org.junit.Assert.*;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.xml.transform.OutputKeys;
+import org.apereo.portal.character.stream.CharacterEventBufferReader;
+import org.apereo.portal.character.stream.CharacterEventReader;
+import org.apereo.portal.character.stream.events.CharacterDataEventImpl;
+import org.apereo.portal.character.stream.events.CharacterEvent;
+import org.apereo.portal.character.stream.events.EncodedCharacterDataEventImpl;
+import org.apereo.portal.events.IPortletExecutionEventFactory;
 import org.apereo.portal.url.IUrlSyntaxProvider;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 /** Unit tests for DynamicRenderingPipeline. */
 public class DynamicRenderingPipelineTest {
@@ -30,6 +42,8 @@ public class DynamicRenderingPipelineTest {
 
     @Mock CharacterPipelineComponent characterPipelineComponent;
 
+    @Mock IPortletExecutionEventFactory portalEventFactory;
+
     @Before
     public void beforeTests() {
         initMocks(this);
@@ -54,4 +68,35 @@ public class DynamicRenderingPipelineTest {
 
         assertEquals(friendlyToString, dynamicRenderingPipeline.toString());
     }
+
+    /** Test that pre-encoded and dynamic character data are both written to the output stream. */
+    @Test
+    public void writesEncodedCharacterData() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        final List<CharacterEvent> events =
+                Arrays.asList(
+                        EncodedCharacterDataEventImpl.create("<html lang=\"fr\"><body>"),
+                        CharacterDataEventImpl.create("Bienvenue \u00e0 l'\u00e9cole"),
+                        EncodedCharacterDataEventImpl.create("</body></html>"));
+        when(characterPipelineComponent.getEventReader(request, response))
+                .thenReturn(
+                        new PipelineEventReaderImpl<CharacterEventReader, CharacterEvent>(
+                                new CharacterEventBufferReader(events.listIterator()),
+                                Collections.singletonMap(OutputKeys.MEDIA_TYPE, "text/html")));
+
+        final DynamicRenderingPipeline dynamicRenderingPipeline = new DynamicRenderingPipeline();
+        dynamicRenderingPipeline.setUrlSyntaxProvider(urlSyntaxProvider);
+        dynamicRenderingPipeline.setPortalEventFactory(portalEventFactory);
+        dynamicRenderingPipeline.setPipeline(characterPipelineComponent);
+        dynamicRenderingPipeline.setWriteEncodedCharacterData(true);
+
+        dynamicRenderingPipeline.renderState(request, response);
+
+        assertEquals(
+                "<!DOCTYPE html SYSTEM \"EMPTY\">\n"
+                        + "<html lang=\"fr\"><body>Bienvenue \u00e0 l'\u00e9cole</body></html>",
+                response.getContentAsString());
+    }
 }
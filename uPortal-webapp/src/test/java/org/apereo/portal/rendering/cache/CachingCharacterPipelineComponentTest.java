@@ -21,13 +21,17 @@ import static org.easymock.EasyMock.notNull;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 import org.apereo.portal.character.stream.CharacterEventBufferReader;
 import org.apereo.portal.character.stream.CharacterEventReader;
+import org.apereo.portal.character.stream.events.CharacterDataEventImpl;
 import org.apereo.portal.character.stream.events.CharacterEvent;
+import org.apereo.portal.character.stream.events.CharacterEventTypes;
 import org.apereo.portal.rendering.CharacterPipelineComponent;
 import org.apereo.portal.rendering.PipelineEventReader;
 import org.apereo.portal.rendering.PipelineEventReaderImpl;
@@ -119,4 +123,69 @@ public class CachingCharacterPipelineComponentTest {
 
         verify(cache, targetComponent, elementsProvider);
     }
+
+    @Test
+    public void testCacheMissCompactsCharacterEvents() {
+        final MockHttpServletRequest mockReq = new MockHttpServletRequest();
+        final MockHttpServletResponse mockRes = new MockHttpServletResponse();
+        final CacheKey cacheKey = CacheKey.build("testCacheKey");
+
+        final CharacterEvent placeholderEvent = createMock(CharacterEvent.class);
+        expect(placeholderEvent.getEventType())
+                .andReturn(CharacterEventTypes.PORTLET_CONTENT)
+                .anyTimes();
+
+        final List<CharacterEvent> eventBuffer =
+                Arrays.asList(
+                        CharacterDataEventImpl.create("<div>"),
+                        CharacterDataEventImpl.create("<span>"),
+                        CharacterDataEventImpl.EMPTY_CHARACTER_DATA,
+                        CharacterDataEventImpl.create("username"),
+                        CharacterDataEventImpl.EMPTY_CHARACTER_DATA,
+                        placeholderEvent,
+                        CharacterDataEventImpl.create("</span>"),
+                        CharacterDataEventImpl.create("</div>"));
+        final PipelineEventReader<CharacterEventReader, CharacterEvent> eventReader =
+                new PipelineEventReaderImpl<CharacterEventReader, CharacterEvent>(
+                        new CharacterEventBufferReader(eventBuffer.listIterator()));
+
+        final Ehcache cache = createMock(Ehcache.class);
+        final CharacterPipelineComponent targetComponent =
+                createMock(CharacterPipelineComponent.class);
+        final ResourcesElementsProvider elementsProvider =
+                createMock(ResourcesElementsProvider.class);
+
+        expect(elementsProvider.getDefaultIncludedType()).andReturn(Included.AGGREGATED);
+        expect(targetComponent.getCacheKey(mockReq, mockRes)).andReturn(cacheKey);
+        expect(cache.get(cacheKey)).andReturn(null);
+        expect(targetComponent.getEventReader(mockReq, mockRes)).andReturn(eventReader);
+        cache.put((Element) notNull());
+        expectLastCall();
+
+        replay(cache, targetComponent, elementsProvider, placeholderEvent);
+
+        final CachingCharacterPipelineComponent cachingComponent =
+                new CachingCharacterPipelineComponent();
+        cachingComponent.setCache(cache);
+        cachingComponent.setWrappedComponent(targetComponent);
+        cachingComponent.setResourcesElementsProvider(elementsProvider);
+
+        final PipelineEventReader<CharacterEventReader, CharacterEvent> actualEventReader =
+                cachingComponent.getEventReader(mockReq, mockRes);
+
+        final List<CharacterEvent> actualEvents = new ArrayList<CharacterEvent>();
+        for (final CharacterEvent event : actualEventReader) {
+            actualEvents.add(event);
+        }
+
+        Assert.assertEquals(
+                Arrays.asList(
+                        CharacterDataEventImpl.create("<div><span>"),
+                        CharacterDataEventImpl.create("username"),
+                        placeholderEvent,
+                        CharacterDataEventImpl.create("</span></div>")),
+                actualEvents);
+
+        verify(cache, targetComponent, elementsProvider);
+    }
 }
@@ -14,15 +14,28 @@
  */
 package org.apereo.portal.rendering.cache;
 
+import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
 import static org.easymock.EasyMock.notNull;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.events.XMLEvent;
 import net.sf.ehcache.Ehcache;
@@ -114,4 +127,148 @@ public class CachingStAXPipelineComponentTest {
 
         verify(cache, targetComponent, elementsProvider);
     }
+
+    @Test
+    public void testCoalescedCacheMiss() throws Exception {
+        final CacheKey cacheKey = CacheKey.build("testCacheKey");
+        final BlockingStAXPipelineComponent targetComponent =
+                new BlockingStAXPipelineComponent(cacheKey);
+        final CachingStAXPipelineComponent cachingComponent =
+                createCoalescingComponent(targetComponent, TimeUnit.SECONDS.toMillis(30));
+
+        final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+        try {
+            final Future<PipelineEventReader<XMLEventReader, XMLEvent>> renderingResult =
+                    executor.submit(
+                            () ->
+                                    cachingComponent.getEventReader(
+                                            new MockHttpServletRequest(),
+                                            new MockHttpServletResponse()));
+            Assert.assertTrue(targetComponent.rendering.await(10, TimeUnit.SECONDS));
+
+            // Release the rendering thread once the waiting request has been issued
+            executor.schedule(
+                    () -> targetComponent.release.countDown(), 100, TimeUnit.MILLISECONDS);
+            final PipelineEventReader<XMLEventReader, XMLEvent> waitingResult =
+                    cachingComponent.getEventReader(
+                            new MockHttpServletRequest(), new MockHttpServletResponse());
+
+            Assert.assertNotNull(renderingResult.get(10, TimeUnit.SECONDS).getEventReader());
+            Assert.assertNotNull(waitingResult.getEventReader());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(1, targetComponent.renders.get());
+        Assert.assertEquals(1, cachingComponent.getRenderedMisses());
+        Assert.assertEquals(
+                1, cachingComponent.getCoalescedMisses() + cachingComponent.getCacheHits());
+        Assert.assertEquals(0, cachingComponent.getCoalescingFallThroughs());
+        Assert.assertEquals(0, cachingComponent.getInFlightRenders());
+    }
+
+    @Test
+    public void testCoalescedCacheMissTimeout() throws Exception {
+        final CacheKey cacheKey = CacheKey.build("testCacheKey");
+        final BlockingStAXPipelineComponent targetComponent =
+                new BlockingStAXPipelineComponent(cacheKey);
+        final CachingStAXPipelineComponent cachingComponent =
+                createCoalescingComponent(targetComponent, 10);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<PipelineEventReader<XMLEventReader, XMLEvent>> renderingResult =
+                    executor.submit(
+                            () ->
+                                    cachingComponent.getEventReader(
+                                            new MockHttpServletRequest(),
+                                            new MockHttpServletResponse()));
+            Assert.assertTrue(targetComponent.rendering.await(10, TimeUnit.SECONDS));
+
+            // The rendering thread stays blocked so the waiting request must fall through
+            final PipelineEventReader<XMLEventReader, XMLEvent> waitingResult =
+                    cachingComponent.getEventReader(
+                            new MockHttpServletRequest(), new MockHttpServletResponse());
+            Assert.assertNotNull(waitingResult.getEventReader());
+
+            targetComponent.release.countDown();
+            Assert.assertNotNull(renderingResult.get(10, TimeUnit.SECONDS).getEventReader());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(2, targetComponent.renders.get());
+        Assert.assertEquals(2, cachingComponent.getRenderedMisses());
+        Assert.assertEquals(0, cachingComponent.getCoalescedMisses());
+        Assert.assertEquals(1, cachingComponent.getCoalescingFallThroughs());
+        Assert.assertEquals(0, cachingComponent.getInFlightRenders());
+    }
+
+    private CachingStAXPipelineComponent createCoalescingComponent(
+            StAXPipelineComponent targetComponent, long coalescingWaitTime) {
+        // Ehcache backed by a map so that completed renders are visible to later requests
+        final ConcurrentMap<Object, Element> cacheContents = new ConcurrentHashMap<>();
+        final Ehcache cache = createMock(Ehcache.class);
+        expect(cache.get(anyObject(CacheKey.class)))
+                .andAnswer(() -> cacheContents.get(getCurrentArguments()[0]))
+                .anyTimes();
+        cache.put(anyObject(Element.class));
+        expectLastCall()
+                .andAnswer(
+                        () -> {
+                            final Element element =
+                                    (Element) getCurrentArguments()[0];
+                            cacheContents.put(element.getObjectKey(), element);
+                            return null;
+                        })
+                .anyTimes();
+
+        final ResourcesElementsProvider elementsProvider =
+                createMock(ResourcesElementsProvider.class);
+        expect(elementsProvider.getDefaultIncludedType()).andReturn(Included.AGGREGATED).anyTimes();
+
+        replay(cache, elementsProvider);
+
+        final CachingStAXPipelineComponent cachingComponent = new CachingStAXPipelineComponent();
+        cachingComponent.setCache(cache);
+        cachingComponent.setWrappedComponent(targetComponent);
+        cachingComponent.setResourcesElementsProvider(elementsProvider);
+        cachingComponent.setCoalesceMisses(true);
+        cachingComponent.setCoalescingWaitTime(coalescingWaitTime);
+        return cachingComponent;
+    }
+
+    /** Component whose first render blocks until released */
+    private static final class BlockingStAXPipelineComponent implements StAXPipelineComponent {
+        private final CountDownLatch rendering = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger renders = new AtomicInteger();
+        private final CacheKey cacheKey;
+
+        BlockingStAXPipelineComponent(CacheKey cacheKey) {
+            this.cacheKey = cacheKey;
+        }
+
+        @Override
+        public CacheKey getCacheKey(HttpServletRequest request, HttpServletResponse response) {
+            return this.cacheKey;
+        }
+
+        @Override
+        public PipelineEventReader<XMLEventReader, XMLEvent> getEventReader(
+                HttpServletRequest request, HttpServletResponse response) {
+            if (this.renders.incrementAndGet() == 1) {
+                this.rendering.countDown();
+                try {
+                    this.release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            final List<XMLEvent> eventBuffer = Collections.emptyList();
+            return new PipelineEventReaderImpl<XMLEventReader, XMLEvent>(
+                    new XMLEventBufferReader(eventBuffer.listIterator()));
+        }
+    }
 }
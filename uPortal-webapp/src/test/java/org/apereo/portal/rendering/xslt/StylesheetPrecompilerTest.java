@@ -0,0 +1,101 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.rendering.xslt;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apereo.portal.layout.dao.IStylesheetDescriptorDao;
+import org.apereo.portal.layout.om.IStylesheetDescriptor;
+import org.apereo.portal.xml.XmlUtilities;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+
+public class StylesheetPrecompilerTest {
+    private IStylesheetDescriptorDao stylesheetDescriptorDao;
+    private XmlUtilities xmlUtilities;
+    private StylesheetPrecompiler precompiler;
+
+    @Before
+    public void setup() {
+        stylesheetDescriptorDao = mock(IStylesheetDescriptorDao.class);
+        xmlUtilities = mock(XmlUtilities.class);
+
+        precompiler = new StylesheetPrecompiler();
+        precompiler.setStylesheetDescriptorDao(stylesheetDescriptorDao);
+        precompiler.setXmlUtilities(xmlUtilities);
+        precompiler.setResourceLoader(new DefaultResourceLoader());
+        precompiler.setExecutor(MoreExecutors.newDirectExecutorService());
+    }
+
+    @Test
+    public void testPrecompileEachStylesheetOnce() throws Exception {
+        final List<IStylesheetDescriptor> descriptors =
+                Arrays.asList(
+                        descriptor("classpath:/structure.xsl"),
+                        descriptor("classpath:/theme.xsl"),
+                        descriptor("classpath:/structure.xsl"));
+        when(xmlUtilities.getTemplates(any(Resource.class)))
+                .thenThrow(new IOException("broken"))
+                .thenReturn(null);
+
+        // A stylesheet that fails to compile does not stop the others
+        precompiler.precompileStylesheets(descriptors).get();
+
+        verify(xmlUtilities, times(2)).getTemplates(any(Resource.class));
+    }
+
+    @Test
+    public void testPrecompileOnStartupOnlyOnce() throws Exception {
+        final List<IStylesheetDescriptor> descriptors =
+                Collections.singletonList(descriptor("classpath:/theme.xsl"));
+        doReturn(descriptors).when(stylesheetDescriptorDao).getStylesheetDescriptors();
+        final ContextRefreshedEvent event = mock(ContextRefreshedEvent.class);
+
+        precompiler.onContextRefreshed(event);
+        precompiler.onContextRefreshed(event);
+
+        verify(xmlUtilities, times(1)).getTemplates(any(Resource.class));
+    }
+
+    @Test
+    public void testPrecompileOnStartupDisabled() throws Exception {
+        precompiler.setPrecompileOnStartup(false);
+
+        precompiler.onContextRefreshed(mock(ContextRefreshedEvent.class));
+
+        verify(stylesheetDescriptorDao, never()).getStylesheetDescriptors();
+        verify(xmlUtilities, never()).getTemplates(any(Resource.class));
+    }
+
+    private static IStylesheetDescriptor descriptor(String stylesheetResource) {
+        final IStylesheetDescriptor descriptor = mock(IStylesheetDescriptor.class);
+        when(descriptor.getStylesheetResource()).thenReturn(stylesheetResource);
+        return descriptor;
+    }
+}
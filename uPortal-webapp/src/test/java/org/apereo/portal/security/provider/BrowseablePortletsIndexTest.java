@@ -0,0 +1,116 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.security.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import org.apereo.portal.portlet.om.IPortletDefinition;
+import org.apereo.portal.portlet.registry.IPortletDefinitionRegistry;
+import org.apereo.portal.security.IAuthorizationPrincipal;
+import org.apereo.portal.security.IAuthorizationService;
+import org.apereo.portal.security.IPermission;
+import org.apereo.portal.security.IPerson;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BrowseablePortletsIndexTest {
+    private static final String CACHE_NAME = "BrowseablePortletsIndexTest.PORTLET_IDS";
+
+    private Cache portletIdsCache;
+    private IAuthorizationService authorizationService;
+    private IAuthorizationPrincipal principal;
+    private IPortletDefinition portlet;
+    private BrowseablePortletsIndex index;
+
+    @Before
+    public void setup() {
+        portletIdsCache = new Cache(CACHE_NAME, 100, false, false, 0, 0);
+        CacheManager.getInstance().addCache(portletIdsCache);
+
+        authorizationService = mock(IAuthorizationService.class);
+
+        principal = mock(IAuthorizationPrincipal.class);
+        when(principal.getKey()).thenReturn("student");
+        when(principal.getType()).thenReturn(IPerson.class);
+
+        portlet = mock(IPortletDefinition.class, RETURNS_DEEP_STUBS);
+        when(portlet.getPortletDefinitionId().getStringId()).thenReturn("42");
+        final IPortletDefinitionRegistry portletDefinitionRegistry =
+                mock(IPortletDefinitionRegistry.class);
+        when(portletDefinitionRegistry.getAllPortletDefinitions())
+                .thenReturn(Collections.singletonList(portlet));
+
+        index = new BrowseablePortletsIndex();
+        index.setAuthorizationService(authorizationService);
+        index.setPortletDefinitionRegistry(portletDefinitionRegistry);
+        index.setPortletIdsCache(portletIdsCache);
+    }
+
+    @After
+    public void tearDown() {
+        CacheManager.getInstance().removeCache(CACHE_NAME);
+    }
+
+    @Test
+    public void testCachedUntilPermissionsChange() {
+        when(authorizationService.canPrincipalBrowse(principal, portlet)).thenReturn(true);
+
+        assertEquals(Collections.singleton("42"), index.getBrowseablePortletIds(principal));
+        assertEquals(Collections.singleton("42"), index.getBrowseablePortletIds(principal));
+        verify(authorizationService, times(1)).canPrincipalBrowse(principal, portlet);
+
+        index.onPermissionsChanged(permissionsChanged());
+        when(authorizationService.canPrincipalBrowse(principal, portlet)).thenReturn(false);
+
+        assertEquals(Collections.emptySet(), index.getBrowseablePortletIds(principal));
+        verify(authorizationService, times(2)).canPrincipalBrowse(principal, portlet);
+    }
+
+    @Test
+    public void testPermissionsChangedDuringBuildNotCached() {
+        // The permission is revoked while the first build is still evaluating it
+        final AtomicBoolean revoked = new AtomicBoolean();
+        when(authorizationService.canPrincipalBrowse(any(), any()))
+                .thenAnswer(
+                        invocation -> {
+                            if (revoked.compareAndSet(false, true)) {
+                                index.onPermissionsChanged(permissionsChanged());
+                                return true;
+                            }
+                            return false;
+                        });
+
+        assertEquals(Collections.singleton("42"), index.getBrowseablePortletIds(principal));
+        assertEquals(0, portletIdsCache.getSize());
+
+        assertEquals(Collections.emptySet(), index.getBrowseablePortletIds(principal));
+        assertEquals(1, portletIdsCache.getSize());
+    }
+
+    private PermissionsChangedEvent permissionsChanged() {
+        return new PermissionsChangedEvent(this, new IPermission[0]);
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.security.provider;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.apereo.portal.security.IAuthorizationPrincipal;
+import org.apereo.portal.security.IPermission;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PermissionDecisionTableTest {
+    private static final String TARGET = "PORTLET_ID.1";
+    private static final String CONTAINING_GROUP = "local.10";
+
+    /*
+     * user -- small -- bigger -- huge
+     *      \- other -- huge
+     */
+    private final Map<String, List<IAuthorizationPrincipal>> parents = new HashMap<>();
+    private IAuthorizationPrincipal user;
+    private IAuthorizationPrincipal small;
+    private IAuthorizationPrincipal bigger;
+    private IAuthorizationPrincipal other;
+    private IAuthorizationPrincipal huge;
+    private Function<IAuthorizationPrincipal, Collection<IAuthorizationPrincipal>> resolver;
+
+    @Before
+    public void setup() {
+        user = principal("2.user");
+        small = principal("3.small");
+        bigger = principal("3.bigger");
+        other = principal("3.other");
+        huge = principal("3.huge");
+        parents.put("2.user", Arrays.asList(small, other));
+        parents.put("3.small", Arrays.asList(bigger));
+        parents.put("3.bigger", Arrays.asList(huge));
+        parents.put("3.other", Arrays.asList(huge));
+        // A cycle must not loop forever
+        parents.put("3.huge", Arrays.asList(small));
+        resolver = p -> parents.getOrDefault(p.getPrincipalString(), Collections.emptyList());
+    }
+
+    @Test
+    public void testNoPermissions() {
+        final PermissionDecisionTable table = new PermissionDecisionTable(new IPermission[0]);
+        assertTrue(table.isEmpty());
+        assertFalse(table.hasUnblockedPathToGrant(user, targets(), resolver));
+    }
+
+    @Test
+    public void testExplicitGrant() {
+        final PermissionDecisionTable table =
+                new PermissionDecisionTable(
+                        new IPermission[] {permission("2.user", TARGET, "GRANT")});
+        assertTrue(table.hasUnblockedPathToGrant(user, targets(), resolver));
+        assertFalse(table.hasUnblockedPathToGrant(small, targets(), resolver));
+        assertFalse(
+                table.hasUnblockedPathToGrant(
+                        user, Collections.singleton("PORTLET_ID.2"), resolver));
+    }
+
+    @Test
+    public void testInheritedGrant() {
+        final PermissionDecisionTable table =
+                new PermissionDecisionTable(
+                        new IPermission[] {permission("3.bigger", TARGET, "GRANT")});
+        assertTrue(table.hasUnblockedPathToGrant(user, targets(), resolver));
+    }
+
+    @Test
+    public void testBlockedGrant() {
+        final PermissionDecisionTable table =
+                new PermissionDecisionTable(
+                        new IPermission[] {
+                            permission("3.small", TARGET, "DENY"),
+                            permission("3.bigger", TARGET, "GRANT")
+                        });
+        assertFalse(table.hasUnblockedPathToGrant(user, targets(), resolver));
+        assertTrue(table.hasUnblockedPathToGrant(bigger, targets(), resolver));
+    }
+
+    @Test
+    public void testUnblockedPathThroughOtherGroup() {
+        final PermissionDecisionTable table =
+                new PermissionDecisionTable(
+                        new IPermission[] {
+                            permission("3.small", TARGET, "DENY"),
+                            permission("3.huge", TARGET, "GRANT")
+                        });
+        assertTrue(table.hasUnblockedPathToGrant(user, targets(), resolver));
+    }
+
+    @Test
+    public void testDenyTrumpsGrant() {
+        final PermissionDecisionTable table =
+                new PermissionDecisionTable(
+                        new IPermission[] {
+                            permission("2.user", TARGET, "GRANT"),
+                            permission("2.user", CONTAINING_GROUP, "DENY")
+                        });
+        assertTrue(table.hasUnblockedPathToGrant(user, Collections.singleton(TARGET), resolver));
+        assertFalse(table.hasUnblockedPathToGrant(user, targets(), resolver));
+    }
+
+    @Test
+    public void testInactivePermissions() {
+        final IPermission expiredGrant = permission("2.user", TARGET, "GRANT");
+        expiredGrant.setExpires(new Date(System.currentTimeMillis() - 60000));
+        final IPermission futureDeny = permission("3.small", TARGET, "DENY");
+        futureDeny.setEffective(new Date(System.currentTimeMillis() + 60000));
+        final PermissionDecisionTable table =
+                new PermissionDecisionTable(
+                        new IPermission[] {
+                            expiredGrant, futureDeny, permission("3.bigger", TARGET, "GRANT")
+                        });
+        assertTrue(table.hasUnblockedPathToGrant(user, targets(), resolver));
+        assertTrue(table.hasUnblockedPathToGrant(small, targets(), resolver));
+    }
+
+    private static Collection<String> targets() {
+        return Arrays.asList(TARGET, CONTAINING_GROUP);
+    }
+
+    private static IAuthorizationPrincipal principal(String principalString) {
+        final IAuthorizationPrincipal principal = mock(IAuthorizationPrincipal.class);
+        when(principal.getPrincipalString()).thenReturn(principalString);
+        return principal;
+    }
+
+    private static IPermission permission(String principal, String target, String type) {
+        final IPermission permission = new PermissionImpl("UP_PORTLET_SUBSCRIBE");
+        permission.setPrincipal(principal);
+        permission.setActivity("SUBSCRIBE");
+        permission.setTarget(target);
+        permission.setType(type);
+        return permission;
+    }
+}
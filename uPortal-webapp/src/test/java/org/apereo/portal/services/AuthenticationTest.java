@@ -0,0 +1,70 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.apereo.portal.security.IPerson;
+import org.apereo.portal.security.provider.PersonImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests for {@link Authentication}. */
+public class AuthenticationTest {
+    private Authentication authentication;
+    private IPerson person;
+
+    @Before
+    public void setup() {
+        this.authentication = new Authentication();
+        this.person = new PersonImpl();
+        this.person.setAttribute(IPerson.USERNAME, "jdoe");
+    }
+
+    @Test
+    public void testPortalUserIdForUnchangedUserName() {
+        final CompletableFuture<Integer> lookup = CompletableFuture.completedFuture(42);
+
+        assertEquals(
+                Integer.valueOf(42),
+                this.authentication.getPortalUserId(lookup, "jdoe", this.person));
+    }
+
+    @Test
+    public void testPortalUserIdIgnoredWhenAttributesChangeUserName() {
+        final CompletableFuture<Integer> lookup = new CompletableFuture<>();
+
+        // The attribute DAO maps the principal to a different portal user name
+        final Map<String, List<Object>> attributes =
+                Collections.singletonMap(
+                        IPerson.USERNAME, Collections.<Object>singletonList("john.doe"));
+        this.person.setAttributes(attributes);
+
+        // The id of 'jdoe' must not be given to 'john.doe'
+        assertNull(this.authentication.getPortalUserId(lookup, "jdoe", this.person));
+        assertTrue(lookup.isCancelled());
+    }
+
+    @Test
+    public void testNoLookup() {
+        assertNull(this.authentication.getPortalUserId(null, "jdoe", this.person));
+    }
+}
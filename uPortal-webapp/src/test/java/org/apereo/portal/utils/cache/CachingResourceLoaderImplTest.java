@@ -23,6 +23,8 @@ import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -30,11 +32,16 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 import net.sf.ehcache.config.CacheConfiguration;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apereo.portal.utils.cache.resource.CachedResource;
 import org.apereo.portal.utils.cache.resource.CachingResourceLoaderImpl;
@@ -44,7 +51,9 @@ import org.apereo.portal.utils.cache.resource.Loader;
 import org.jasig.resourceserver.aggr.om.Included;
 import org.jasig.resourceserver.utils.aggr.ResourcesElementsProvider;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 
@@ -52,6 +61,8 @@ import org.springframework.core.io.Resource;
 public class CachingResourceLoaderImplTest {
     private static File doc1;
 
+    @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @BeforeClass
     public static void setupResources() throws Exception {
         final InputStream doc1In =
@@ -79,7 +90,7 @@ public class CachingResourceLoaderImplTest {
         expect(elementsProvider.getDefaultIncludedType()).andReturn(Included.AGGREGATED);
         expect(cache.getInternalContext()).andReturn(null).anyTimes();
         expect(cache.getCacheConfiguration()).andReturn(new CacheConfiguration());
-        expect(cache.get(doc1Resouce)).andReturn(null);
+        expect(cache.get(doc1Resouce)).andReturn(null).times(2);
         expect(cache.getQuiet(doc1Resouce)).andReturn(null);
         cache.put(anyObject(Element.class));
         expectLastCall();
@@ -112,7 +123,7 @@ public class CachingResourceLoaderImplTest {
         expect(elementsProvider.getDefaultIncludedType()).andReturn(Included.AGGREGATED);
         expect(cache.getInternalContext()).andReturn(null).anyTimes();
         expect(cache.getCacheConfiguration()).andReturn(new CacheConfiguration());
-        expect(cache.get(doc1Resouce)).andReturn(null);
+        expect(cache.get(doc1Resouce)).andReturn(null).times(2);
         expect(cache.getQuiet(doc1Resouce)).andReturn(null);
         cache.put(anyObject(Element.class));
         expectLastCall();
@@ -251,6 +262,103 @@ public class CachingResourceLoaderImplTest {
         assertTrue(cachedResource1 == cachedResource);
     }
 
+    @Test
+    public void testWatchedNotPolled() throws Exception {
+        final File file = this.temporaryFolder.newFile("watched.txt");
+        FileUtils.writeStringToFile(file, "original", StandardCharsets.UTF_8);
+
+        final AtomicInteger lastModifiedCount = new AtomicInteger();
+        final Resource resource =
+                new FileSystemResource(file) {
+                    @Override
+                    public long lastModified() throws IOException {
+                        lastModifiedCount.incrementAndGet();
+                        return super.lastModified();
+                    }
+                };
+
+        final Cache cache = new Cache("testWatchedNotPolled", 100, false, false, 0, 0);
+        CacheManager.getInstance().addCache(cache);
+        final CachingResourceLoaderImpl loader = new CachingResourceLoaderImpl();
+        try {
+            final ResourcesElementsProvider elementsProvider =
+                    createMock(ResourcesElementsProvider.class);
+            expect(elementsProvider.getDefaultIncludedType())
+                    .andReturn(Included.AGGREGATED)
+                    .anyTimes();
+            replay(elementsProvider);
+
+            loader.setResourceCache(cache);
+            loader.setResourcesElementsProvider(elementsProvider);
+            loader.setWatchForChanges(true);
+            // Load after the watcher's initial change time
+            Thread.sleep(5);
+
+            final CachedResource<String> cachedResource1 =
+                    loader.getResource(resource, StringResourceBuilder.INSTANCE, 0);
+            assertEquals("original", cachedResource1.getCachedResource());
+            final int loadCount = lastModifiedCount.get();
+
+            // The check interval has passed but the file has not changed
+            Thread.sleep(5);
+            final CachedResource<String> cachedResource2 =
+                    loader.getResource(resource, StringResourceBuilder.INSTANCE, 0);
+            assertSame(cachedResource1, cachedResource2);
+            assertEquals(loadCount, lastModifiedCount.get());
+
+            FileUtils.writeStringToFile(file, "changed", StandardCharsets.UTF_8);
+            file.setLastModified(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5));
+
+            final long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+            CachedResource<String> cachedResource3 = cachedResource2;
+            while (cachedResource3 == cachedResource2 && System.currentTimeMillis() < timeout) {
+                Thread.sleep(50);
+                cachedResource3 = loader.getResource(resource, StringResourceBuilder.INSTANCE, 0);
+            }
+            assertNotSame(cachedResource2, cachedResource3);
+            assertEquals("changed", cachedResource3.getCachedResource());
+        } finally {
+            loader.destroy();
+            CacheManager.getInstance().removeCache(cache.getName());
+        }
+    }
+
+    @Test
+    public void testReloadResources() throws Exception {
+        final Resource doc1Resouce = new FileSystemResource(doc1);
+
+        final Cache cache = new Cache("testReloadResources", 100, false, false, 0, 0);
+        CacheManager.getInstance().addCache(cache);
+        try {
+            final ResourcesElementsProvider elementsProvider =
+                    createMock(ResourcesElementsProvider.class);
+            expect(elementsProvider.getDefaultIncludedType())
+                    .andReturn(Included.AGGREGATED)
+                    .anyTimes();
+            replay(elementsProvider);
+
+            final CachingResourceLoaderImpl loader = new CachingResourceLoaderImpl();
+            loader.setResourceCache(cache);
+            loader.setResourcesElementsProvider(elementsProvider);
+
+            final CachedResource<String> cachedResource1 =
+                    loader.getResource(doc1Resouce, StringResourceBuilder.INSTANCE);
+            assertSame(
+                    cachedResource1,
+                    loader.getResource(doc1Resouce, StringResourceBuilder.INSTANCE));
+
+            loader.reloadResources();
+            assertEquals(0, cache.getSize());
+
+            final CachedResource<String> cachedResource2 =
+                    loader.getResource(doc1Resouce, StringResourceBuilder.INSTANCE);
+            assertNotSame(cachedResource1, cachedResource2);
+            assertEquals(cachedResource1.getCachedResource(), cachedResource2.getCachedResource());
+        } finally {
+            CacheManager.getInstance().removeCache(cache.getName());
+        }
+    }
+
     private static class StringResourceBuilder implements Loader<String> {
         public static final StringResourceBuilder INSTANCE = new StringResourceBuilder();
 
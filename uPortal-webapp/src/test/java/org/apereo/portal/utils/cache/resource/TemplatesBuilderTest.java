@@ -0,0 +1,156 @@
+/**
+ * Licensed to Apereo under one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding copyright ownership. Apereo
+ * licenses this file to you under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at the
+ * following location:
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apereo.portal.utils.cache.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import javax.xml.transform.Templates;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.FileSystemResourceLoader;
+import org.springframework.core.io.Resource;
+
+public class TemplatesBuilderTest {
+    private static final FileTime OLD = FileTime.fromMillis(0);
+    private static final String STYLESHEET_START =
+            "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">";
+
+    @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File stylesheet;
+    private File include;
+    private File storeDirectory;
+
+    @Before
+    public void setup() throws Exception {
+        stylesheet = tempFolder.newFile("main.xsl");
+        include = tempFolder.newFile("include.xsl");
+        storeDirectory = tempFolder.newFolder("compiled");
+
+        write(
+                stylesheet,
+                STYLESHEET_START
+                        + "<xsl:include href=\"include.xsl\"/>"
+                        + "<xsl:output method=\"text\"/>"
+                        + "<xsl:template match=\"/\">"
+                        + "<xsl:call-template name=\"value\"/>"
+                        + "</xsl:template>"
+                        + "</xsl:stylesheet>");
+        writeInclude("one");
+    }
+
+    @Test
+    public void testCompiledTemplatesReused() throws Exception {
+        assertEquals("one", transform(createBuilder().loadResource(resource())));
+
+        final Path compiled = getCompiledFile();
+        Files.setLastModifiedTime(compiled, OLD);
+
+        // A new builder loads the stored templates instead of compiling and storing them again
+        final LoadedResource<Templates> loaded = createBuilder().loadResource(resource());
+        assertEquals("one", transform(loaded));
+        assertEquals(OLD, Files.getLastModifiedTime(compiled));
+        final Resource included = loaded.getAdditionalResources().keySet().iterator().next();
+        assertEquals(include.getCanonicalFile(), included.getFile().getCanonicalFile());
+    }
+
+    @Test
+    public void testChangedIncludeRecompiled() throws Exception {
+        createBuilder().loadResource(resource());
+        final Path compiled = getCompiledFile();
+        Files.setLastModifiedTime(compiled, OLD);
+
+        writeInclude("two");
+
+        assertEquals("two", transform(createBuilder().loadResource(resource())));
+        assertNotEquals(OLD, Files.getLastModifiedTime(compiled));
+    }
+
+    @Test
+    public void testNoStoreDirectory() throws Exception {
+        final TemplatesBuilder templatesBuilder = new TemplatesBuilder();
+        templatesBuilder.setResourceLoader(new FileSystemResourceLoader());
+
+        assertEquals("one", transform(templatesBuilder.loadResource(resource())));
+        assertEquals(0, storeDirectory.list().length);
+    }
+
+    @Test
+    public void testDirectoryWritableByOthersNotUsed() throws Exception {
+        final Path directory = storeDirectory.toPath();
+        Assume.assumeTrue(
+                directory.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwxrwxrwx"));
+
+        assertEquals("one", transform(createBuilder().loadResource(resource())));
+        assertEquals(0, storeDirectory.list().length);
+    }
+
+    private TemplatesBuilder createBuilder() {
+        final TemplatesBuilder templatesBuilder = new TemplatesBuilder();
+        templatesBuilder.setResourceLoader(new FileSystemResourceLoader());
+        templatesBuilder.setCompiledTemplatesDirectory(storeDirectory.getAbsolutePath());
+        return templatesBuilder;
+    }
+
+    private FileSystemResource resource() {
+        return new FileSystemResource(stylesheet);
+    }
+
+    private Path getCompiledFile() {
+        final File[] files = storeDirectory.listFiles((dir, name) -> name.endsWith(".templates"));
+        assertEquals(1, files.length);
+        assertTrue(files[0].length() > 0);
+        return files[0].toPath();
+    }
+
+    private void writeInclude(String value) throws Exception {
+        write(
+                include,
+                STYLESHEET_START
+                        + "<xsl:template name=\"value\">"
+                        + value
+                        + "</xsl:template></xsl:stylesheet>");
+    }
+
+    private static void write(File file, String content) throws Exception {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String transform(LoadedResource<Templates> templates) throws Exception {
+        final StringWriter writer = new StringWriter();
+        templates
+                .getLoadedResource()
+                .newTransformer()
+                .transform(new StreamSource(new StringReader("<a/>")), new StreamResult(writer));
+        return writer.toString();
+    }
+}